@@ -1,8 +1,15 @@
 plugins {
     alias(libs.plugins.android.application)
+    alias(libs.plugins.baselineprofile)
     id("com.google.gms.google-services")
 }
 
+// Where the benchmark builds find the Firebase Emulator Suite (10.0.2.2 = host from an emulator)
+val firebaseEmulatorHost = providers.gradleProperty("luvia.firebaseEmulatorHost").getOrElse("10.0.2.2")
+// The emulator-only account they sign in as; must match EmulatorSeed in the :benchmark module
+val benchmarkEmail    = providers.gradleProperty("luvia.benchmarkEmail").getOrElse("benchmark@luvia.test")
+val benchmarkPassword = providers.gradleProperty("luvia.benchmarkPassword").getOrElse("benchmark-pass")
+
 android {
     namespace = "com.humangodkiller.luvia"
     compileSdk = 36
@@ -15,6 +22,16 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // Empty = production Firebase; only the benchmark build types point elsewhere
+        buildConfigField("String", "FIREBASE_EMULATOR_HOST", "\"\"")
+        buildConfigField("String", "BENCHMARK_EMAIL", "\"\"")
+        buildConfigField("String", "BENCHMARK_PASSWORD", "\"\"")
+        manifestPlaceholders["usesCleartextTraffic"] = "false"
+    }
+
+    buildFeatures {
+        buildConfig = true
     }
 
     buildTypes {
@@ -25,6 +42,17 @@ android {
                 "proguard-rules.pro"
             )
         }
+        // Created by the baseline-profile plugin from release: installable with the debug key,
+        // and talking to the Firebase emulator so the journeys run against seeded data
+        configureEach {
+            if (name == "benchmarkRelease" || name == "nonMinifiedRelease") {
+                signingConfig = signingConfigs.getByName("debug")
+                buildConfigField("String", "FIREBASE_EMULATOR_HOST", "\"$firebaseEmulatorHost\"")
+                buildConfigField("String", "BENCHMARK_EMAIL", "\"$benchmarkEmail\"")
+                buildConfigField("String", "BENCHMARK_PASSWORD", "\"$benchmarkPassword\"")
+                manifestPlaceholders["usesCleartextTraffic"] = "true"   // emulator speaks plain HTTP
+            }
+        }
     }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
@@ -38,6 +66,13 @@ dependencies {
     implementation(libs.activity)
     implementation(libs.constraintlayout)
 
+    // Installs the shipped baseline profile on devices without Play Store cloud profiles
+    implementation(libs.profileinstaller)
+    baselineProfile(project(":benchmark"))
+
+    // Daily archival of expired reminders (ReminderArchiveWorker)
+    implementation(libs.work.runtime)
+
     // Firebase BoM – manages all Firebase library versions automatically
     implementation(platform("com.google.firebase:firebase-bom:32.7.1"))
     implementation("com.google.firebase:firebase-auth")
@@ -60,6 +95,14 @@ dependencies {
     // implementation("com.squareup.okhttp3:okhttp:4.12.0")
 
     testImplementation(libs.junit)
+    // Real org.json for local tests (android.jar only ships stubs)
+    testImplementation("org.json:json:20231013")
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
-}
\ No newline at end of file
+}
+
+baselineProfile {
+    // Regenerate on demand (./gradlew :app:generateBaselineProfile), not on every release build
+    automaticGenerationDuringBuild = false
+    saveInSrc = true
+}
@@ -0,0 +1,38 @@
+package com.humangodkiller.luvia;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+/**
+ * Debug builds only: sets {@link ReminderDeliveryService}'s delivery mode, so both paths can
+ * be exercised and their DeliveryTrace lines compared without a code change.
+ * <pre>
+ *   adb shell am broadcast -a com.humangodkiller.luvia.action.SET_DELIVERY_MODE \
+ *       -p com.humangodkiller.luvia --es mode service     # or: activity
+ * </pre>
+ * Without a mode extra it just reports the current one.
+ */
+public class DeliveryModeReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "DeliveryModeReceiver";
+
+    static final String EXTRA_MODE = "mode";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String mode = intent.getStringExtra(EXTRA_MODE);
+        if (ReminderDeliveryService.MODE_ACTIVITY.equals(mode)
+                || ReminderDeliveryService.MODE_SERVICE.equals(mode)) {
+            ReminderDeliveryService.setMode(context, mode);
+        } else if (mode != null) {
+            Log.w(TAG, "Unknown delivery mode '" + mode + "'; expected "
+                    + ReminderDeliveryService.MODE_ACTIVITY + " or " + ReminderDeliveryService.MODE_SERVICE);
+        }
+        String current = ReminderDeliveryService.isEnabled(context)
+                ? ReminderDeliveryService.MODE_SERVICE : ReminderDeliveryService.MODE_ACTIVITY;
+        Log.i(TAG, "Delivery mode: " + current);
+        setResultData(current);
+    }
+}
@@ -0,0 +1,219 @@
+package com.humangodkiller.luvia;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persistent allocator of PendingIntent request codes.
+ *
+ * Every (reminder id, alarm kind) pair gets its own int from a monotonic counter, so two
+ * push keys can never share a request code the way {@code id.hashCode()} (+1000) could —
+ * and a released code is never handed out again, so a stale PendingIntent can't be
+ * overwritten or cancelled by accident. Lookups are O(1) in both directions; allocations
+ * and releases are appended to a small log and replayed on open.
+ */
+public class AlarmIdRegistry {
+
+    /** What a request code is used for; one code per reminder per kind. */
+    public enum Kind { MAIN, EARLY, SNOOZE, NOTIFICATION, TIMELINE }
+
+    /** A registered code, as returned by {@link #reconcile}. */
+    public static final class Entry {
+        public final String reminderId;
+        public final Kind   kind;
+        public final int    requestCode;
+
+        Entry(String reminderId, Kind kind, int requestCode) {
+            this.reminderId  = reminderId;
+            this.kind        = kind;
+            this.requestCode = requestCode;
+        }
+    }
+
+    /** Owner id for codes that belong to the app rather than to a reminder. */
+    public static final String APP_OWNER = "~app";
+
+    // Well clear of the small constants used elsewhere for request codes
+    static final int FIRST_ID = 100_000;
+
+    private static final byte OP_ALLOC   = 1;
+    private static final byte OP_RELEASE = 2;
+
+    private final File file;
+    private final Map<String, Integer> idsByKey  = new HashMap<>();
+    private final Map<Integer, String> keysById  = new HashMap<>();
+    private int nextId = FIRST_ID;
+    private DataOutputStream out;
+
+    private AlarmIdRegistry(File file) { this.file = file; }
+
+    public static AlarmIdRegistry open(File file) throws IOException {
+        AlarmIdRegistry registry = new AlarmIdRegistry(file);
+        registry.replay();
+        return registry;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Lookups
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /** Request code for this reminder + kind, allocating a fresh one on first use. */
+    public synchronized int idFor(String reminderId, Kind kind) throws IOException {
+        String key = key(reminderId, kind);
+        Integer id = idsByKey.get(key);
+        if (id != null) return id;
+
+        int allocated = nextId++;
+        append(OP_ALLOC, key, allocated);
+        idsByKey.put(key, allocated);
+        keysById.put(allocated, key);
+        return allocated;
+    }
+
+    /** Existing request code, or -1 if none was ever allocated (nothing to cancel). */
+    public synchronized int find(String reminderId, Kind kind) {
+        Integer id = idsByKey.get(key(reminderId, kind));
+        return id != null ? id : -1;
+    }
+
+    /** Who a request code belongs to, or null if it is not (or no longer) registered. */
+    public synchronized Entry lookup(int requestCode) {
+        String key = keysById.get(requestCode);
+        if (key == null) return null;
+        return new Entry(ownerOf(key), Kind.valueOf(key.substring(0, key.indexOf('|'))), requestCode);
+    }
+
+    public synchronized int size() { return idsByKey.size(); }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Release
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /** Drops every code owned by {@code reminderId} and returns them so they can be cancelled. */
+    public synchronized List<Entry> release(String reminderId) throws IOException {
+        List<Entry> released = new ArrayList<>();
+        for (Kind kind : Kind.values()) {
+            String key = key(reminderId, kind);
+            Integer id = idsByKey.remove(key);
+            if (id == null) continue;
+            keysById.remove(id);
+            append(OP_RELEASE, key, id);
+            released.add(new Entry(reminderId, kind, id));
+        }
+        return released;
+    }
+
+    /**
+     * Bulk pass over everything registered: codes owned by reminders that no longer exist
+     * are released and returned so the caller can cancel whatever is still armed with them.
+     * App-owned codes are always kept.
+     */
+    public synchronized List<Entry> reconcile(Collection<String> liveReminderIds) throws IOException {
+        Set<String> live = new HashSet<>(liveReminderIds);
+        live.add(APP_OWNER);
+
+        Set<String> stale = new HashSet<>();
+        for (String key : idsByKey.keySet()) {
+            String owner = ownerOf(key);
+            if (!live.contains(owner)) stale.add(owner);
+        }
+        List<Entry> released = new ArrayList<>();
+        for (String owner : stale) released.addAll(release(owner));
+        if (!released.isEmpty()) compact();
+        return released;
+    }
+
+    public synchronized void close() {
+        if (out == null) return;
+        try { out.close(); } catch (IOException ignored) { }
+        out = null;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Log
+    //   ALLOC   : byte op, UTF key, int id
+    //   RELEASE : byte op, UTF key, int id
+    // The counter is the highest id ever seen + 1, released ones included.
+    // ═══════════════════════════════════════════════════════════════════════
+
+    private void replay() throws IOException {
+        if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(file)))) {
+                while (true) {
+                    byte op = in.readByte();
+                    String key = in.readUTF();
+                    int id = in.readInt();
+                    nextId = Math.max(nextId, id + 1);
+                    if (op == OP_ALLOC) {
+                        idsByKey.put(key, id);
+                        keysById.put(id, key);
+                    } else if (op == OP_RELEASE) {
+                        // The counter marker carries an empty key; never let it unmap a live id
+                        if (key.equals(keysById.get(id))) {
+                            idsByKey.remove(key);
+                            keysById.remove(id);
+                        }
+                    } else {
+                        break;
+                    }
+                }
+            } catch (EOFException end) {
+                // End of log, or a torn final record from a crash mid-append
+            }
+        }
+        compact();
+    }
+
+    /** Rewrites the log as one ALLOC per live code, keeping the counter's high-water mark. */
+    private void compact() throws IOException {
+        close();
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream w = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            for (Map.Entry<String, Integer> e : idsByKey.entrySet()) {
+                w.writeByte(OP_ALLOC);
+                w.writeUTF(e.getKey());
+                w.writeInt(e.getValue());
+            }
+            // Marker so a fully-released registry still remembers where the counter was
+            w.writeByte(OP_RELEASE);
+            w.writeUTF("");
+            w.writeInt(nextId - 1);
+        }
+        if (!tmp.renameTo(file)) {
+            if (!file.delete() || !tmp.renameTo(file)) throw new IOException("Could not replace " + file);
+        }
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    }
+
+    private void append(byte op, String key, int id) throws IOException {
+        if (out == null) out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+        out.writeByte(op);
+        out.writeUTF(key);
+        out.writeInt(id);
+        out.flush();
+    }
+
+    private static String key(String reminderId, Kind kind) {
+        return kind.name() + '|' + reminderId;
+    }
+
+    private static String ownerOf(String key) {
+        return key.substring(key.indexOf('|') + 1);
+    }
+}
@@ -0,0 +1,71 @@
+package com.humangodkiller.luvia;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Re-arms the reminder timeline after anything that wipes or invalidates pending alarms:
+ * reboot, app update, manual clock change and time-zone change.
+ *
+ * Works purely from the on-device reminder store — no network on this path — and does the
+ * whole recompute in one pass on a background thread inside the goAsync() window.
+ */
+public class AlarmRearmReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "AlarmRearmReceiver";
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (action == null) return;
+        switch (action) {
+            case Intent.ACTION_BOOT_COMPLETED:
+            case Intent.ACTION_MY_PACKAGE_REPLACED:
+            case Intent.ACTION_TIME_CHANGED:
+            case Intent.ACTION_TIMEZONE_CHANGED:
+                break;
+            default:
+                return;
+        }
+
+        Context appContext = context.getApplicationContext();
+        PendingResult pending = goAsync();
+        EXECUTOR.execute(() -> {
+            try {
+                rearm(appContext, action);
+            } finally {
+                pending.finish();
+            }
+        });
+    }
+
+    private static void rearm(Context context, String action) {
+        long started = SystemClock.elapsedRealtime();
+        long now     = System.currentTimeMillis();
+
+        // A wall-clock jump makes the "delivered up to" cursor meaningless: doses it claims
+        // were covered may now lie ahead (clock set back) or be judged in another zone
+        if (Intent.ACTION_TIME_CHANGED.equals(action) || Intent.ACTION_TIMEZONE_CHANGED.equals(action)) {
+            ReminderAlarmScheduler.resetCoveredUntil(context, now);
+        }
+
+        List<PillReminder> reminders = ReminderAlarmScheduler.loadReminders(context);
+        if (Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+            // First start of a new version: drop anything armed under the old request codes
+            ReminderAlarmScheduler.reconcileAlarmIds(context, reminders);
+        }
+        ReminderAlarmScheduler.armTimeline(context, reminders, now);
+
+        Log.d(TAG, "Re-armed " + reminders.size() + " reminders after " + action
+                + " in " + (SystemClock.elapsedRealtime() - started) + " ms");
+    }
+}
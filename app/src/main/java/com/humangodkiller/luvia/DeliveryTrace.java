@@ -0,0 +1,82 @@
+package com.humangodkiller.luvia;
+
+import android.os.Debug;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+/**
+ * Timing and allocation trace for one alarm delivery, so the activity and service modes
+ * can be compared on a device.
+ *
+ * Each delivery logs one "DeliveryTrace" line: mode, whether the process was started for
+ * this alarm (and how long that took), receiver → host start, receiver → first spoken
+ * word, receiver → done, and bytes allocated by the process in between. It also shows up
+ * as an async "reminder_delivery" slice in Perfetto/systrace.
+ */
+public final class DeliveryTrace {
+
+    private static final String TAG          = "DeliveryTrace";
+    private static final String SECTION      = "reminder_delivery";
+
+    // A process younger than this when the broadcast arrived was started for it
+    private static final long   COLD_START_WINDOW_MILLIS = 5_000;
+
+    private static int nextCookie;
+
+    private final String mode;
+    private final int    cookie;
+    private final long   receivedAt;
+    private final long   hostStartedAt;
+    private final long   allocatedAtStart;
+    private long firstWordAt;
+    private String path = "none";
+
+    private DeliveryTrace(String mode, long receivedAt) {
+        this.mode             = mode;
+        this.cookie           = nextCookie();
+        this.receivedAt       = receivedAt > 0 ? receivedAt : SystemClock.elapsedRealtime();
+        this.hostStartedAt    = SystemClock.elapsedRealtime();
+        this.allocatedAtStart = allocatedBytes();
+        Trace.beginAsyncSection(SECTION, cookie);
+    }
+
+    /** Starts a trace for a delivery whose alarm reached the receiver at {@code receivedAt}. */
+    public static DeliveryTrace start(String mode, long receivedAt) {
+        return new DeliveryTrace(mode, receivedAt);
+    }
+
+    private static synchronized int nextCookie() { return ++nextCookie; }
+
+    public void firstWord(String path) {
+        if (firstWordAt != 0) return;
+        firstWordAt = SystemClock.elapsedRealtime();
+        this.path   = path;
+    }
+
+    public void finish() {
+        Trace.endAsyncSection(SECTION, cookie);
+        long now          = SystemClock.elapsedRealtime();
+        long processStart = Process.getStartElapsedRealtime();
+        boolean cold      = receivedAt - processStart < COLD_START_WINDOW_MILLIS;
+
+        Log.d(TAG, "mode=" + mode
+                + " process=" + (cold ? "cold(" + (receivedAt - processStart) + "ms)" : "warm")
+                + " host_start=" + (hostStartedAt - receivedAt) + "ms"
+                + " first_word=" + (firstWordAt > 0 ? (firstWordAt - receivedAt) + "ms/" + path : "-")
+                + " total=" + (now - receivedAt) + "ms"
+                + " alloc=" + (allocatedBytes() - allocatedAtStart) / 1024 + "KB");
+    }
+
+    /** Bytes allocated by ART since process start; -1 where the stat is unavailable. */
+    private static long allocatedBytes() {
+        String stat = Debug.getRuntimeStat("art.gc.bytes-allocated");
+        if (stat == null) return -1;
+        try {
+            return Long.parseLong(stat);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -52,6 +52,7 @@ public class DoctorDashboardActivity extends AppCompatActivity {
         if (currentUser != null) {
             tvDoctorName.setText("Dr. " + currentUser.getDisplayName());
         }
+        tvDoctorName.post(() -> StartupTrace.drawn(this));
     }
 
     @Override
@@ -0,0 +1,145 @@
+package com.humangodkiller.luvia;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Posts the "Taken" / "Snooze 10 min" notification for a delivered batch and handles its
+ * buttons, so answering a reminder never reopens the app.
+ *
+ * A tap is handled inside the goAsync() window: dismiss the notification, append to the
+ * local {@link DoseEventLog} (see {@link DoseActions}) and, for a snooze, arm one exact
+ * alarm. No UI and no network — {@link DoseEventUploadWorker} syncs the answers later in a
+ * batch.
+ */
+public class DoseActionReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "DoseActionReceiver";
+
+    private static final String CHANNEL_ID = "dose_actions";
+
+    static final String ACTION_TAKEN  = "com.humangodkiller.luvia.action.DOSE_TAKEN";
+    static final String ACTION_SNOOZE = "com.humangodkiller.luvia.action.DOSE_SNOOZE";
+
+    private static final String EXTRA_NOTIFICATION_ID = "notification_id";
+
+    // Log appends happen off the main thread, inside the goAsync() window
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        long receivedAt = SystemClock.elapsedRealtime();
+        Context appContext = context.getApplicationContext();
+
+        PendingResult pending = goAsync();
+        EXECUTOR.execute(() -> {
+            try {
+                handle(appContext, intent);
+            } finally {
+                Log.d(TAG, intent.getAction() + " handled in "
+                        + (SystemClock.elapsedRealtime() - receivedAt) + " ms");
+                pending.finish();
+            }
+        });
+    }
+
+    private static void handle(Context context, Intent intent) {
+        NotificationManager nm = context.getSystemService(NotificationManager.class);
+        int notificationId = intent.getIntExtra(EXTRA_NOTIFICATION_ID, -1);
+        if (nm != null && notificationId != -1) nm.cancel(notificationId);
+
+        List<DoseActions.Dose> doses = ReminderAlarmScheduler.readDueDoses(intent);
+        DoseEventLog log = DoseEvents.log(context);
+        if (doses.isEmpty() || log == null) return;
+
+        long now = System.currentTimeMillis();
+        try {
+            if (ACTION_TAKEN.equals(intent.getAction())) {
+                int recorded = DoseActions.taken(log, doses, now);
+                Log.d(TAG, "Taken: " + recorded + " dose(s)");
+            } else if (ACTION_SNOOZE.equals(intent.getAction())) {
+                List<DoseActions.Dose> snoozed = DoseActions.snooze(log, doses, now);
+                ReminderAlarmScheduler.armSnooze(context, snoozed, DoseActions.snoozeUntil(now));
+                if (!snoozed.isEmpty()) MissedDoseWorker.schedule(context, now);   // their last alert now
+                Log.d(TAG, "Snoozed " + snoozed.size() + " dose(s) until " + DoseActions.snoozeUntil(now));
+            } else {
+                return;
+            }
+            DoseEventUploadWorker.enqueue(context);
+        } catch (IOException e) {
+            Log.e(TAG, "Couldn't record " + intent.getAction(), e);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Notification
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /**
+     * Shows the answer buttons for the due doses of a delivery. One notification per first
+     * reminder (its NOTIFICATION code), so a snooze's re-alert replaces it rather than stacking.
+     */
+    static void showActions(Context context, List<DoseActions.Dose> doses) {
+        NotificationManager nm = context.getSystemService(NotificationManager.class);
+        if (nm == null || doses.isEmpty() || !nm.areNotificationsEnabled()) return;
+        if (nm.getNotificationChannel(CHANNEL_ID) == null) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID,
+                    "Dose check-in", NotificationManager.IMPORTANCE_DEFAULT);
+            // The alarm has already sounded
+            channel.setSound(null, null);
+            nm.createNotificationChannel(channel);
+        }
+
+        int notificationId;
+        try {
+            notificationId = ReminderAlarmScheduler.requestCode(context,
+                    doses.get(0).reminderId, AlarmIdRegistry.Kind.NOTIFICATION);
+        } catch (IOException e) {
+            Log.w(TAG, "Alarm code registry unavailable — no dose buttons", e);
+            return;
+        }
+
+        StringBuilder names = new StringBuilder();
+        for (DoseActions.Dose d : doses) {
+            if (names.length() > 0) names.append(", ");
+            names.append(d.pillName);
+        }
+
+        Intent open = new Intent(context, PatientPlansActivity.class)
+                .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        nm.notify(notificationId, new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_plans)
+                .setContentTitle("Did you take " + names + "?")
+                .setContentText(doses.size() == 1 ? doses.get(0).dosage : doses.size() + " medicines")
+                .setCategory(NotificationCompat.CATEGORY_REMINDER)
+                .setContentIntent(PendingIntent.getActivity(context, notificationId, open,
+                        PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE))
+                .addAction(0, "Taken",         actionIntent(context, ACTION_TAKEN, doses, notificationId))
+                .addAction(0, "Snooze 10 min", actionIntent(context, ACTION_SNOOZE, doses, notificationId))
+                .setAutoCancel(true)
+                .build());
+    }
+
+    // Same request code for both buttons; the action keeps the two PendingIntents apart
+    private static PendingIntent actionIntent(Context context, String action,
+                                              List<DoseActions.Dose> doses, int notificationId) {
+        Intent intent = new Intent(context, DoseActionReceiver.class).setAction(action);
+        intent.putExtra(EXTRA_NOTIFICATION_ID, notificationId);
+        ReminderAlarmScheduler.putDoseExtras(intent, doses);
+        return PendingIntent.getBroadcast(context, notificationId, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+}
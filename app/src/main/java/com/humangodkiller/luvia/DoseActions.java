@@ -0,0 +1,83 @@
+package com.humangodkiller.luvia;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the "Taken" and "Snooze" buttons on a dose notification do, kept free of Android so
+ * it can be timed: both only append to the local {@link DoseEventLog}. The receiver around
+ * this dismisses the notification and, for a snooze, arms one exact alarm — nothing here
+ * waits on the network; the upload worker picks the events up later.
+ */
+public final class DoseActions {
+
+    public static final long SNOOZE_MILLIS = 10 * 60 * 1000L;
+
+    /** One dose a notification is asking about. */
+    public static final class Dose {
+        public final String reminderId;
+        public final String pillName;
+        public final String dosage;
+        public final long   doseTime;
+
+        public Dose(String reminderId, String pillName, String dosage, long doseTime) {
+            this.reminderId = reminderId;
+            this.pillName   = pillName;
+            this.dosage     = dosage;
+            this.doseTime   = doseTime;
+        }
+    }
+
+    private DoseActions() {}
+
+    /**
+     * The doses in a delivered batch, from its parallel extras — early "coming up"
+     * heads-ups aren't due yet, so they get no buttons.
+     */
+    public static List<Dose> due(List<String> ids, List<String> names, List<String> dosages,
+                                 long[] doseTimes, boolean[] early) {
+        List<Dose> doses = new ArrayList<>();
+        if (ids == null || names == null || dosages == null || doseTimes == null || early == null) return doses;
+        int n = Math.min(Math.min(ids.size(), names.size()), Math.min(dosages.size(), doseTimes.length));
+        for (int i = 0; i < n && i < early.length; i++) {
+            if (early[i] || ids.get(i) == null) continue;
+            doses.add(new Dose(ids.get(i), names.get(i), dosages.get(i), doseTimes[i]));
+        }
+        return doses;
+    }
+
+    /**
+     * Records the doses as taken. A second tap (or one racing the missed-dose sweep's
+     * answer) adds nothing.
+     *
+     * @return how many doses were newly acknowledged
+     */
+    public static int taken(DoseEventLog log, List<Dose> doses, long now) throws IOException {
+        int recorded = 0;
+        for (Dose d : doses) {
+            if (log.appendIfAbsent(d.reminderId, DoseEventLog.Type.ACKNOWLEDGED, d.doseTime, now)) recorded++;
+        }
+        return recorded;
+    }
+
+    /**
+     * Records a snooze for every dose not already taken. Each snooze is its own event, so
+     * the missed-dose grace period restarts from the latest one.
+     *
+     * @return the doses to alert again at {@link #snoozeUntil}, possibly empty
+     */
+    public static List<Dose> snooze(DoseEventLog log, List<Dose> doses, long now) throws IOException {
+        List<Dose> snoozed = new ArrayList<>(doses.size());
+        for (Dose d : doses) {
+            if (log.contains(d.reminderId, DoseEventLog.Type.ACKNOWLEDGED, d.doseTime)) continue;
+            log.append(d.reminderId, DoseEventLog.Type.SNOOZED, d.doseTime, now);
+            snoozed.add(d);
+        }
+        return snoozed;
+    }
+
+    public static long snoozeUntil(long now) {
+        return now + SNOOZE_MILLIS;
+    }
+}
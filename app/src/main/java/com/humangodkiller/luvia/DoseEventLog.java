@@ -0,0 +1,471 @@
+package com.humangodkiller.luvia;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Adherence history for the signed-in patient: every dose's SCHEDULED → FIRED →
+ * ACKNOWLEDGED / SNOOZED / MISSED events, in a compact append-only binary log.
+ *
+ * A record is the event type, the reminder as an index into a dictionary of push keys
+ * (each key is written once), the dose time in minutes and the event time as a signed
+ * offset in seconds — all varints, so a typical event costs 7–9 bytes and years of four
+ * doses a day stay well under a megabyte. Opening replays the log into parallel arrays
+ * with per-reminder and global indexes kept sorted by dose time, so a range query by
+ * reminder and / or date is a binary search plus a scan of the hits.
+ *
+ * Events are uploaded in batches: {@link #pending(int)} hands out the oldest events not yet
+ * acknowledged by the server and {@link #markUploaded(int)} moves the watermark. The log
+ * is rewritten (compacted) when watermark records pile up, and {@link #compact(long)} also
+ * drops uploaded events older than a retention cut-off — the server keeps those.
+ */
+public class DoseEventLog {
+
+    /** Stored as {@code ordinal() + 1} — append new types at the end only. */
+    public enum Type { SCHEDULED, FIRED, ACKNOWLEDGED, SNOOZED, MISSED }
+
+    public static final class Event {
+        public final String reminderId;
+        public final Type   type;
+        public final long   doseTime;   // minute precision
+        public final long   at;         // second precision
+
+        Event(String reminderId, Type type, long doseTime, long at) {
+            this.reminderId = reminderId;
+            this.type       = type;
+            this.doseTime   = doseTime;
+            this.at         = at;
+        }
+
+        @Override
+        public String toString() { return type + " " + reminderId + "@" + doseTime + " (" + at + ")"; }
+    }
+
+    private static final int  MAGIC       = 0x4C564445; // "LVDE"
+    private static final int  VERSION     = 1;
+    private static final byte OP_DEFINE   = 0x10;       // event types use 1..5
+    private static final byte OP_UPLOADED = 0x11;
+    private static final int  MIN_COMPACT = 64;         // watermark records before a rewrite
+    private static final long MINUTE      = 60_000L;
+    private static final long SECOND      = 1_000L;
+
+    private static final Type[] TYPES = Type.values();
+
+    private final File file;
+
+    // Reminder dictionary: index ↔ push key
+    private final List<String>         reminderIds = new ArrayList<>();
+    private final Map<String, Integer> indexOf     = new HashMap<>();
+
+    // Events in append order, as parallel arrays
+    private int[]  reminders = new int[256];
+    private byte[] types     = new byte[256];
+    private long[] doses     = new long[256];
+    private long[] ats       = new long[256];
+    private int    size;
+    private int    uploaded;        // events [0, uploaded) are on the server
+
+    // Event positions sorted by (dose time, append order): one list per reminder, one overall
+    private final List<IntList> byReminder = new ArrayList<>();
+    private final IntList       byDose     = new IntList();
+
+    private DataOutputStream out;
+    private int  markerRecords;
+    private int  definedInFile;     // dictionary entries already written to the current file
+
+    private DoseEventLog(File file) { this.file = file; }
+
+    /** One log per signed-in user, under the app's private files directory. */
+    public static File fileFor(File filesDir, String uid) {
+        return new File(filesDir, "dose_events_" + uid + ".bin");
+    }
+
+    /** Opens (or creates) the log and replays it. Safe to call off the main thread. */
+    public static DoseEventLog open(File file) throws IOException {
+        DoseEventLog log = new DoseEventLog(file);
+        log.replay();
+        return log;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Writes
+    // ═══════════════════════════════════════════════════════════════════════
+
+    public synchronized void append(String reminderId, Type type, long doseTime, long at) throws IOException {
+        long dose  = Math.floorDiv(doseTime, MINUTE) * MINUTE;
+        long delta = Math.floorDiv(at - dose, SECOND);
+        ensureOpen();
+        int r = defineIfNeeded(reminderId);
+        out.writeByte(type.ordinal() + 1);
+        writeVarLong(out, r);
+        writeVarLong(out, dose / MINUTE);
+        writeVarLong(out, zigzag(delta));
+        out.flush();
+        add(r, (byte) (type.ordinal() + 1), dose, dose + delta * SECOND);
+    }
+
+    /**
+     * Appends unless this dose already has an event of this type — for SCHEDULED, FIRED
+     * and MISSED, which re-arming or a repeated wake-up may report twice.
+     */
+    public synchronized boolean appendIfAbsent(String reminderId, Type type, long doseTime, long at)
+            throws IOException {
+        if (contains(reminderId, type, doseTime)) return false;
+        append(reminderId, type, doseTime, at);
+        return true;
+    }
+
+    public synchronized boolean contains(String reminderId, Type type, long doseTime) {
+        Integer r = indexOf.get(reminderId);
+        if (r == null) return false;
+        long dose = Math.floorDiv(doseTime, MINUTE) * MINUTE;
+        IntList list = byReminder.get(r);
+        for (int k = lowerBound(list, dose); k < list.size && doses[list.items[k]] == dose; k++) {
+            if (types[list.items[k]] == type.ordinal() + 1) return true;
+        }
+        return false;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Range queries — dose time in [from, to), ordered by dose time then append order
+    // ═══════════════════════════════════════════════════════════════════════
+
+    public synchronized List<Event> query(String reminderId, long from, long to) {
+        Integer r = indexOf.get(reminderId);
+        return r == null ? new ArrayList<>() : collect(byReminder.get(r), from, to);
+    }
+
+    public synchronized List<Event> query(long from, long to) {
+        return collect(byDose, from, to);
+    }
+
+    /**
+     * Doses with dose time in [since, alertedBefore) that fired but were neither
+     * acknowledged nor marked missed, and whose last alert (fire or snooze) was before
+     * {@code alertedBefore}. Returns that last alert for each.
+     */
+    public synchronized List<Event> unresolved(long since, long alertedBefore) {
+        Map<Long, Integer> lastAlert = new LinkedHashMap<>();
+        List<Long> resolved = new ArrayList<>();
+        for (int k = lowerBound(byDose, since); k < byDose.size; k++) {
+            int i = byDose.items[k];
+            if (doses[i] >= alertedBefore) break;
+            long key = (doses[i] / MINUTE) << 24 | reminders[i];
+            Type type = TYPES[types[i] - 1];
+            if (type == Type.ACKNOWLEDGED || type == Type.MISSED) {
+                resolved.add(key);
+            } else if (type == Type.FIRED || type == Type.SNOOZED) {
+                Integer previous = lastAlert.get(key);
+                if (previous == null || ats[i] >= ats[previous]) lastAlert.put(key, i);
+            }
+        }
+        for (Long key : resolved) lastAlert.remove(key);
+
+        List<Event> result = new ArrayList<>();
+        for (int i : lastAlert.values()) if (ats[i] < alertedBefore) result.add(event(i));
+        return result;
+    }
+
+    public synchronized int size() { return size; }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Upload watermark
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /** Up to {@code max} of the oldest events the server hasn't acknowledged, in append order. */
+    public synchronized List<Event> pending(int max) {
+        int end = Math.min(size, uploaded + max);
+        List<Event> events = new ArrayList<>(Math.max(0, end - uploaded));
+        for (int i = uploaded; i < end; i++) events.add(event(i));
+        return events;
+    }
+
+    public synchronized int pendingCount() { return size - uploaded; }
+
+    /** The server acknowledged the first {@code count} events {@link #pending(int)} returned. */
+    public synchronized void markUploaded(int count) throws IOException {
+        if (count <= 0) return;
+        uploaded = Math.min(size, uploaded + count);
+        ensureOpen();
+        writeUploaded(out, uploaded);
+        out.flush();
+        if (++markerRecords >= MIN_COMPACT) rewrite(Long.MIN_VALUE);
+    }
+
+    /**
+     * Realtime Database multi-path update for a batch (paths relative to the root):
+     * doseEvents/&lt;uid&gt;/&lt;reminderId&gt;/&lt;doseTime&gt;/&lt;type&gt; = event time. Keyed by what
+     * happened rather than by a local sequence, so a retried batch writes the same values.
+     */
+    public static Map<String, Object> toUpdate(String uid, List<Event> events) {
+        Map<String, Object> update = new HashMap<>(events.size() * 2);
+        for (Event e : events) {
+            update.put("doseEvents/" + uid + "/" + e.reminderId + "/" + e.doseTime + "/"
+                    + e.type.name().toLowerCase(Locale.US), e.at);
+        }
+        return update;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Compaction
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /** Rewrites the log without uploaded events whose dose time is before {@code keepAfter}. */
+    public synchronized void compact(long keepAfter) throws IOException {
+        rewrite(keepAfter);
+    }
+
+    public synchronized void close() {
+        if (out == null) return;
+        try { out.close(); } catch (IOException ignored) { }
+        out = null;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Log format
+    //   header   : int MAGIC, int VERSION
+    //   DEFINE   : byte 0x10, UTF reminderId          (takes the next dictionary index)
+    //   EVENT    : byte type (1..5), varint reminder index, varint dose minute,
+    //              zigzag varint (at − dose) in seconds
+    //   UPLOADED : byte 0x11, varint events uploaded so far
+    // ═══════════════════════════════════════════════════════════════════════
+
+    private void replay() throws IOException {
+        if (!file.exists() || file.length() < 8) { rewrite(Long.MIN_VALUE); return; }
+
+        byte[] data = Files.readAllBytes(file.toPath());
+        Reader in = new Reader(data);
+        int validLength = 0;
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) { rewrite(Long.MIN_VALUE); return; }
+            validLength = in.pos;
+            while (in.pos < data.length) {
+                byte op = data[in.pos++];
+                if (op == OP_DEFINE) {
+                    define(in.readUTF());
+                } else if (op == OP_UPLOADED) {
+                    uploaded = (int) Math.min(in.readVarLong(), Integer.MAX_VALUE);
+                    markerRecords++;
+                } else if (op >= 1 && op <= TYPES.length) {
+                    int  r     = (int) in.readVarLong();
+                    long dose  = in.readVarLong() * MINUTE;
+                    long delta = unzigzag(in.readVarLong());
+                    if (r >= reminderIds.size()) break;   // corrupt record — keep what we have
+                    add(r, op, dose, dose + delta * SECOND);
+                } else {
+                    break;
+                }
+                validLength = in.pos;
+            }
+        } catch (ArrayIndexOutOfBoundsException torn) {
+            // Process died mid-append; the partial tail is ignored
+        }
+        uploaded      = Math.min(uploaded, size);
+        definedInFile = reminderIds.size();
+        if (validLength < data.length) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) { raf.setLength(validLength); }
+        }
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    }
+
+    private void rewrite(long keepAfter) throws IOException {
+        close();
+        // Snapshot what survives, then rebuild the dictionary and indexes from it
+        List<String> oldIds = new ArrayList<>(reminderIds);
+        int[]  oldReminders = reminders;
+        byte[] oldTypes     = types;
+        long[] oldDoses     = doses;
+        long[] oldAts       = ats;
+        int    oldSize      = size;
+        int    oldUploaded  = uploaded;
+
+        reminderIds.clear();
+        indexOf.clear();
+        byReminder.clear();
+        byDose.size = 0;
+        reminders = new int[Math.max(256, oldSize)];
+        types     = new byte[reminders.length];
+        doses     = new long[reminders.length];
+        ats       = new long[reminders.length];
+        size      = 0;
+        uploaded  = 0;
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream w = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            w.writeInt(MAGIC);
+            w.writeInt(VERSION);
+            for (int i = 0; i < oldSize; i++) {
+                if (i < oldUploaded && oldDoses[i] < keepAfter) continue;
+                String id = oldIds.get(oldReminders[i]);
+                Integer r = indexOf.get(id);
+                if (r == null) {
+                    r = define(id);
+                    w.writeByte(OP_DEFINE);
+                    w.writeUTF(id);
+                }
+                w.writeByte(oldTypes[i]);
+                writeVarLong(w, r);
+                writeVarLong(w, oldDoses[i] / MINUTE);
+                writeVarLong(w, zigzag((oldAts[i] - oldDoses[i]) / SECOND));
+                add(r, oldTypes[i], oldDoses[i], oldAts[i]);
+                if (i < oldUploaded) uploaded++;
+            }
+            if (uploaded > 0) writeUploaded(w, uploaded);
+        }
+        if (!tmp.renameTo(file)) {
+            if (!file.delete() || !tmp.renameTo(file)) throw new IOException("Could not replace " + file);
+        }
+        markerRecords = 0;
+        definedInFile = reminderIds.size();
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    }
+
+    private int defineIfNeeded(String reminderId) throws IOException {
+        Integer r = indexOf.get(reminderId);
+        if (r == null) r = define(reminderId);
+        if (r >= definedInFile) {
+            out.writeByte(OP_DEFINE);
+            out.writeUTF(reminderId);
+            definedInFile = r + 1;
+        }
+        return r;
+    }
+
+    private int define(String reminderId) {
+        int r = reminderIds.size();
+        reminderIds.add(reminderId);
+        indexOf.put(reminderId, r);
+        byReminder.add(new IntList());
+        return r;
+    }
+
+    private void add(int r, byte type, long dose, long at) {
+        if (size == reminders.length) {
+            int capacity = size * 2;
+            reminders = Arrays.copyOf(reminders, capacity);
+            types     = Arrays.copyOf(types, capacity);
+            doses     = Arrays.copyOf(doses, capacity);
+            ats       = Arrays.copyOf(ats, capacity);
+        }
+        reminders[size] = r;
+        types[size]     = type;
+        doses[size]     = dose;
+        ats[size]       = at;
+        insertSorted(byReminder.get(r), size);
+        insertSorted(byDose, size);
+        size++;
+    }
+
+    private Event event(int i) {
+        return new Event(reminderIds.get(reminders[i]), TYPES[types[i] - 1], doses[i], ats[i]);
+    }
+
+    private List<Event> collect(IntList list, long from, long to) {
+        List<Event> events = new ArrayList<>();
+        for (int k = lowerBound(list, from); k < list.size && doses[list.items[k]] < to; k++) {
+            events.add(event(list.items[k]));
+        }
+        return events;
+    }
+
+    /** Events mostly arrive in dose order, so this is nearly always a plain append. */
+    private void insertSorted(IntList list, int i) {
+        list.add(i);
+        int k = list.size - 1;
+        while (k > 0 && doses[list.items[k - 1]] > doses[i]) {
+            list.items[k] = list.items[k - 1];
+            k--;
+        }
+        list.items[k] = i;
+    }
+
+    private int lowerBound(IntList list, long dose) {
+        int lo = 0, hi = list.size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (doses[list.items[mid]] < dose) lo = mid + 1;
+            else                               hi = mid;
+        }
+        return lo;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (out == null) out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    }
+
+    private static void writeUploaded(DataOutputStream w, int uploaded) throws IOException {
+        w.writeByte(OP_UPLOADED);
+        writeVarLong(w, uploaded);
+    }
+
+    private static void writeVarLong(DataOutputStream w, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            w.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        w.writeByte((int) v);
+    }
+
+    private static long zigzag(long v)   { return (v << 1) ^ (v >> 63); }
+    private static long unzigzag(long v) { return (v >>> 1) ^ -(v & 1); }
+
+    /** Growable int array — positions into the event arrays. */
+    private static final class IntList {
+        int[] items = new int[16];
+        int   size;
+
+        void add(int v) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = v;
+        }
+    }
+
+    /** Cursor over the whole file; running off the end means a torn tail. */
+    private static final class Reader {
+        final byte[] data;
+        int pos;
+
+        Reader(byte[] data) { this.data = data; }
+
+        int readInt() {
+            int v = ((data[pos] & 0xFF) << 24) | ((data[pos + 1] & 0xFF) << 16)
+                    | ((data[pos + 2] & 0xFF) << 8) | (data[pos + 3] & 0xFF);
+            pos += 4;
+            return v;
+        }
+
+        long readVarLong() {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = data[pos++];
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new ArrayIndexOutOfBoundsException("varint too long");
+        }
+
+        /** writeUTF format; ids are push keys, so plain ASCII in practice. */
+        String readUTF() {
+            int length = ((data[pos] & 0xFF) << 8) | (data[pos + 1] & 0xFF);
+            pos += 2;
+            if (pos + length > data.length) throw new ArrayIndexOutOfBoundsException("torn string");
+            String s = new String(data, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return s;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.humangodkiller.luvia;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ships the dose events the backend hasn't seen yet to doseEvents/&lt;uid&gt;, a few hundred
+ * per multi-path update instead of one write per event, then compacts the local log.
+ *
+ * Queued (once) by every write in {@link DoseEvents} with a short delay, so a day's worth of
+ * alarms and answers usually goes up as one or two requests. Paths are keyed by reminder,
+ * dose time and event type, so a batch retried after a lost acknowledgement rewrites the
+ * same values rather than adding duplicates.
+ *
+ * An event written while a run is finishing would be lost to that run, and KEEP would drop
+ * its enqueue as the run is still RUNNING; such an enqueue appends a run of its own instead.
+ */
+public class DoseEventUploadWorker extends Worker {
+
+    private static final String TAG       = "DoseEventUploadWorker";
+    private static final String WORK_NAME = "dose_event_upload";
+    private static final String DATABASE_URL =
+            "https://luvia-cva-default-rtdb.asia-southeast1.firebasedatabase.app";
+
+    private static final long DELAY_MINUTES = 15;
+    private static final int  BATCH_SIZE    = 500;                           // events per update
+    private static final long RETAIN_MILLIS = 400L * 24 * 60 * 60 * 1000;    // kept locally once uploaded
+
+    private static final Object LOCK = new Object();
+    private static boolean finishing;   // a run found the log drained and is about to return
+
+    public DoseEventUploadWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /** Idempotent — while an upload is queued, further events simply ride along with it. */
+    public static void enqueue(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(DoseEventUploadWorker.class)
+                .setConstraints(constraints)
+                .setInitialDelay(DELAY_MINUTES, TimeUnit.MINUTES)
+                .build();
+        boolean afterFinishingRun;
+        synchronized (LOCK) {
+            afterFinishingRun = finishing;
+            finishing = false;   // one follow-up run; later events ride along with it
+        }
+        WorkManager.getInstance(context).enqueueUniqueWork(WORK_NAME,
+                afterFinishingRun ? ExistingWorkPolicy.APPEND_OR_REPLACE : ExistingWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        DoseEventLog log = DoseEvents.log(getApplicationContext());
+        if (log == null) return Result.success();
+        String uid = DoseEvents.logUid();
+
+        DatabaseReference root = FirebaseDatabase.getInstance(DATABASE_URL).getReference();
+        int sent = 0;
+        try {
+            while (true) {
+                List<DoseEventLog.Event> batch;
+                synchronized (LOCK) {
+                    batch = log.pending(BATCH_SIZE);
+                    // Events are appended before they enqueue: one that isn't in this read
+                    // finds the flag set
+                    finishing = batch.isEmpty();
+                }
+                if (batch.isEmpty()) break;
+                Tasks.await(root.updateChildren(DoseEventLog.toUpdate(uid, batch)));
+                log.markUploaded(batch.size());
+                sent += batch.size();
+            }
+            log.compact(System.currentTimeMillis() - RETAIN_MILLIS);
+            Log.d(TAG, "Uploaded " + sent + " dose events; " + log.size() + " kept locally");
+            return Result.success();
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Upload failed after " + sent + " events — will retry", e);
+            return Result.retry();
+        } catch (IOException e) {
+            Log.e(TAG, "Dose event log write failed", e);
+            return Result.retry();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.humangodkiller.luvia;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Device wiring for {@link DoseEventLog}: one log per signed-in patient under the app's
+ * files directory, kept open for the life of the process. Every write queues
+ * {@link DoseEventUploadWorker}, which ships the new events in batches.
+ *
+ * Everything here does file I/O: callers other than {@link #recordScheduled} (which may be
+ * reached from the main thread via re-arming, and hops to its own thread) must already be
+ * off the main thread, as the alarm and notification-action receivers are.
+ */
+public final class DoseEvents {
+
+    private static final String TAG = "DoseEvents";
+
+    /** A dose that alerted this long ago with no answer is recorded as missed. */
+    static final long MISS_AFTER_MILLIS = 60 * 60 * 1000L;
+    /** How far back the missed-dose sweep looks — a phone off for longer just has gaps. */
+    private static final long MISS_LOOKBACK_MILLIS = 2 * 24 * 60 * 60 * 1000L;
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private static DoseEventLog log;
+    private static String       logUid;
+
+    private DoseEvents() {}
+
+    /** The signed-in patient's log, or null when signed out or the file can't be read. */
+    public static synchronized DoseEventLog log(Context context) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) return null;
+        if (log != null && user.getUid().equals(logUid)) return log;
+
+        if (log != null) log.close();
+        log = null;
+        try {
+            log    = DoseEventLog.open(DoseEventLog.fileFor(context.getFilesDir(), user.getUid()));
+            logUid = user.getUid();
+        } catch (IOException e) {
+            Log.e(TAG, "Couldn't open the dose event log", e);
+        }
+        return log;
+    }
+
+    /** Owner of the log last returned by {@link #log}. */
+    static synchronized String logUid() {
+        return logUid;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Recording
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /** The doses in the batch the timeline has just armed. Re-arming doesn't duplicate them. */
+    public static void recordScheduled(Context context, DoseTimeline.Batch batch) {
+        if (batch == null) return;
+        Context appContext = context.getApplicationContext();
+        long now = System.currentTimeMillis();
+        EXECUTOR.execute(() -> recordBatch(appContext, batch, DoseEventLog.Type.SCHEDULED, now));
+    }
+
+    /**
+     * The doses whose alarm has just gone off (the early "in ten minutes" heads-up is not a
+     * dose), and the sweep that marks them missed if nobody answers.
+     */
+    public static void recordFired(Context context, DoseTimeline.Batch batch, long now) {
+        recordBatch(context, batch, DoseEventLog.Type.FIRED, now);
+        if (batch == null) return;
+        long latest = -1;   // a batch window can hold doses a few minutes after the alert
+        for (DoseTimeline.Event e : batch.events) if (!e.early) latest = Math.max(latest, Math.max(now, e.doseTime));
+        if (latest >= 0) MissedDoseWorker.schedule(context, latest);
+    }
+
+    /** Records every dose that alerted over {@link #MISS_AFTER_MILLIS} ago and was never answered. */
+    public static void markMissed(Context context, long now) {
+        DoseEventLog l = log(context);
+        if (l == null) return;
+        try {
+            List<DoseEventLog.Event> overdue = l.unresolved(now - MISS_LOOKBACK_MILLIS, now - MISS_AFTER_MILLIS);
+            int marked = 0;
+            for (DoseEventLog.Event e : overdue) {
+                if (l.appendIfAbsent(e.reminderId, DoseEventLog.Type.MISSED, e.doseTime, now)) marked++;
+            }
+            if (marked > 0) {
+                Log.d(TAG, "Marked " + marked + " dose(s) missed");
+                DoseEventUploadWorker.enqueue(context);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Couldn't mark missed doses", e);
+        }
+    }
+
+    private static void recordBatch(Context context, DoseTimeline.Batch batch, DoseEventLog.Type type, long at) {
+        if (batch == null) return;
+        DoseEventLog l = log(context);
+        if (l == null) return;
+        try {
+            int added = 0;
+            for (DoseTimeline.Event e : batch.events) {
+                if (e.early) continue;
+                if (l.appendIfAbsent(e.reminder.getId(), type, e.doseTime, at)) added++;
+            }
+            if (added > 0) DoseEventUploadWorker.enqueue(context);
+        } catch (IOException e) {
+            Log.e(TAG, "Couldn't record " + type + " doses", e);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.humangodkiller.luvia;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Pure-Java next-occurrence calculator for daily doses.
+ *
+ * A reminder is "take at HH:mm every day from startDate to endDate". Rather than arming an
+ * alarm for every day of the course, callers arm only the occurrence this returns and ask
+ * again when it fires, so each reminder holds a single pending OS alarm.
+ *
+ * Wall-clock time is kept across DST changes: a 08:00 dose stays at 08:00 local time. If the
+ * time falls inside a spring-forward gap, the dose fires at the first valid instant after it.
+ */
+public final class DoseScheduler {
+
+    public static final long NO_OCCURRENCE = -1L;
+
+    private DoseScheduler() {}
+
+    /** Next dose of {@code reminder} strictly after {@code after}, in {@code tz}. */
+    public static long nextOccurrence(PillReminder reminder, long after, TimeZone tz) {
+        Calendar time = Calendar.getInstance(tz);
+        time.setTimeInMillis(reminder.getScheduledTime());
+        return nextOccurrence(time.get(Calendar.HOUR_OF_DAY), time.get(Calendar.MINUTE),
+                reminder.getStartDate(), reminder.getEndDate(), after, tz);
+    }
+
+    /**
+     * Next HH:mm strictly after {@code after} that falls on or after the day of
+     * {@code startDate} and no later than {@code endDate}. Zero start / end mean unbounded.
+     *
+     * @return epoch millis, or {@link #NO_OCCURRENCE} once the course is over
+     */
+    public static long nextOccurrence(int hourOfDay, int minute, long startDate, long endDate,
+                                      long after, TimeZone tz) {
+        Calendar cal = Calendar.getInstance(tz);
+        cal.setTimeInMillis(after);
+
+        // Doses count from the start *day*, whatever time of day startDate was picked at
+        if (startDate > 0) {
+            long startDay = startOfDay(startDate, tz);
+            if (startDay > after) cal.setTimeInMillis(startDay);
+        }
+
+        atTimeOfDay(cal, hourOfDay, minute);
+        if (cal.getTimeInMillis() <= after) {
+            cal.add(Calendar.DAY_OF_MONTH, 1);
+            atTimeOfDay(cal, hourOfDay, minute);
+        }
+
+        long next = cal.getTimeInMillis();
+        if (endDate > 0 && next > endDate) return NO_OCCURRENCE;
+        return next;
+    }
+
+    /**
+     * scheduledTime for a newly added reminder: HH:mm on the day of {@code startDate}, or the
+     * day after if that moment has already passed at {@code now}.
+     */
+    public static long firstDoseTime(long startDate, int hourOfDay, int minute, long now, TimeZone tz) {
+        Calendar cal = Calendar.getInstance(tz);
+        cal.setTimeInMillis(startDate);
+        atTimeOfDay(cal, hourOfDay, minute);
+        if (cal.getTimeInMillis() < now) {
+            cal.add(Calendar.DAY_OF_MONTH, 1);
+            atTimeOfDay(cal, hourOfDay, minute);
+        }
+        return cal.getTimeInMillis();
+    }
+
+    /** Whether a course from {@code startDate}'s day to {@code endDate}'s day is non-empty. */
+    public static boolean isValidCourse(long startDate, long endDate, TimeZone tz) {
+        return startOfDay(endDate, tz) >= startOfDay(startDate, tz);
+    }
+
+    /** 23:59:59 local time on the day containing {@code millis} — a course's inclusive end. */
+    public static long endOfDay(long millis, TimeZone tz) {
+        Calendar cal = Calendar.getInstance(tz);
+        cal.setTimeInMillis(millis);
+        cal.set(Calendar.HOUR_OF_DAY, 23);
+        cal.set(Calendar.MINUTE,      59);
+        cal.set(Calendar.SECOND,      59);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal.getTimeInMillis();
+    }
+
+    /** Local midnight of the day containing {@code millis}. */
+    public static long startOfDay(long millis, TimeZone tz) {
+        Calendar cal = Calendar.getInstance(tz);
+        cal.setTimeInMillis(millis);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE,      0);
+        cal.set(Calendar.SECOND,      0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal.getTimeInMillis();
+    }
+
+    /**
+     * Pins the calendar's current day to HH:mm:00.000. Setting the fields after any day
+     * arithmetic (rather than adding 24h) is what keeps the wall-clock time across DST.
+     */
+    private static void atTimeOfDay(Calendar cal, int hourOfDay, int minute) {
+        cal.set(Calendar.HOUR_OF_DAY, hourOfDay);
+        cal.set(Calendar.MINUTE,      minute);
+        cal.set(Calendar.SECOND,      0);
+        cal.set(Calendar.MILLISECOND, 0);
+    }
+}
@@ -0,0 +1,150 @@
+package com.humangodkiller.luvia;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * Min-heap of every upcoming main and early event across all of a patient's reminders.
+ *
+ * Only the earliest event is ever armed as an OS alarm. When it fires, every event that
+ * falls within {@code windowMillis} of it is delivered in the same wake-up, then the heap is
+ * rebuilt from the reminders and the next earliest event is armed. Fifteen medicines at
+ * overlapping times therefore cost one pending alarm and far fewer wake-ups.
+ */
+public class DoseTimeline {
+
+    // Standard early reminder window (10 minutes before alarm)
+    static final int REMINDER_MINUTES_BEFORE = 10;
+
+    // If the gap between creation and the first dose is shorter than the standard window,
+    // the early reminder fires REMINDER_SHORT_DELAY_MINUTES after creation instead
+    static final int REMINDER_SHORT_DELAY_MINUTES = 2;
+
+    private static final long MINUTE = 60 * 1000L;
+
+    /** A single main or early reminder for one dose. */
+    public static final class Event implements Comparable<Event> {
+        public final PillReminder reminder;
+        public final long         fireAt;
+        public final long         doseTime;
+        public final boolean      early;
+        public final int          minutesRemaining;
+
+        Event(PillReminder reminder, long fireAt, long doseTime, boolean early, int minutesRemaining) {
+            this.reminder         = reminder;
+            this.fireAt           = fireAt;
+            this.doseTime         = doseTime;
+            this.early            = early;
+            this.minutesRemaining = minutesRemaining;
+        }
+
+        @Override
+        public int compareTo(Event o) {
+            int c = Long.compare(fireAt, o.fireAt);
+            if (c != 0) return c;
+            // Main before early at the same instant, so batches lead with "take it now"
+            return Boolean.compare(early, o.early);
+        }
+    }
+
+    /** Everything delivered by a single wake-up. */
+    public static final class Batch {
+        public final long        fireAt;
+        public final long        coversUntil;
+        public final List<Event> events;
+
+        Batch(long fireAt, long coversUntil, List<Event> events) {
+            this.fireAt      = fireAt;
+            this.coversUntil = coversUntil;
+            this.events      = Collections.unmodifiableList(events);
+        }
+    }
+
+    private final PriorityQueue<Event> heap = new PriorityQueue<>();
+    private final long     windowMillis;
+    private final TimeZone tz;
+
+    public DoseTimeline(long windowMillis, TimeZone tz) {
+        this.windowMillis = Math.max(0L, windowMillis);
+        this.tz           = tz;
+    }
+
+    public long getWindowMillis() { return windowMillis; }
+
+    public boolean isEmpty() { return heap.isEmpty(); }
+
+    public int size() { return heap.size(); }
+
+    /**
+     * Replaces the heap with each enabled reminder's events strictly after {@code after}:
+     * the next dose, and its early reminder if that has not gone by yet.
+     */
+    public void rebuild(Collection<PillReminder> reminders, long after) {
+        heap.clear();
+        for (PillReminder r : reminders) {
+            if (r == null || !r.isEnabled() || r.getId() == null) continue;
+            long dose = DoseScheduler.nextOccurrence(r, after, tz);
+            if (dose == DoseScheduler.NO_OCCURRENCE) continue;
+
+            heap.add(new Event(r, dose, dose, false, 0));
+            Event early = earlyEventFor(r, dose);
+            if (early != null && early.fireAt > after) heap.add(early);
+        }
+    }
+
+    /** Earliest upcoming event without removing it, or null. */
+    public Event peek() { return heap.peek(); }
+
+    /**
+     * Removes the earliest event and every event within the batch window of it. An early
+     * reminder is dropped when its own main dose lands in the same batch.
+     */
+    public Batch pollBatch() {
+        Event first = heap.poll();
+        if (first == null) return null;
+
+        long until = first.fireAt + windowMillis;
+        List<Event> events = new ArrayList<>();
+        events.add(first);
+        while (!heap.isEmpty() && heap.peek().fireAt <= until) events.add(heap.poll());
+
+        Set<String> mainIds = new HashSet<>();
+        for (Event e : events) if (!e.early) mainIds.add(e.reminder.getId());
+        List<Event> kept = new ArrayList<>(events.size());
+        for (Event e : events) {
+            if (e.early && mainIds.contains(e.reminder.getId())) continue;
+            kept.add(e);
+        }
+        return new Batch(first.fireAt, until, kept);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Smart early reminder — uses actual gap, not always 10 minutes
+    //
+    //  created >= 10 min before the dose → fires 10 min before (standard)
+    //  created < 10 min before the dose  → fires 2 min after creation and tells the
+    //                                      patient the EXACT remaining minutes
+    //  created <= 2 min before the dose  → no early reminder
+    //
+    // Keyed on the reminder's creation stamp rather than "now", so rebuilding the heap
+    // later never invents a second short-gap reminder. Not on updatedAt either: an edit
+    // or a sync stamp says nothing about how much warning the patient has had.
+    // ═══════════════════════════════════════════════════════════════════════
+
+    Event earlyEventFor(PillReminder r, long dose) {
+        long standard = dose - REMINDER_MINUTES_BEFORE * MINUTE;
+        long created  = r.getCreatedAt();
+        if (created <= standard) {
+            return new Event(r, standard, dose, true, REMINDER_MINUTES_BEFORE);
+        }
+        long gapMinutes = (dose - created) / MINUTE;
+        if (gapMinutes <= REMINDER_SHORT_DELAY_MINUTES) return null;
+        return new Event(r, created + REMINDER_SHORT_DELAY_MINUTES * MINUTE, dose, true, (int) gapMinutes);
+    }
+}
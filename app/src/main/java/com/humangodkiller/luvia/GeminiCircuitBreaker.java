@@ -0,0 +1,105 @@
+package com.humangodkiller.luvia;
+
+import java.io.IOException;
+import java.util.function.LongSupplier;
+
+/**
+ * Stops sending Gemini requests for a while once they keep failing or keep being slow, so a
+ * reminder on a dead network goes straight to its offline fallback instead of waiting out a
+ * timeout first.
+ *
+ * Closed: requests go out; {@link #FAILURE_THRESHOLD} unhealthy results in a row open it.
+ * Open: {@link #tryAcquire()} refuses everything for the cool-down. Half-open: after the
+ * cool-down one probe request is let through — healthy closes the breaker again, unhealthy
+ * re-opens it with the cool-down doubled (up to {@link #MAX_OPEN_MILLIS}).
+ */
+public final class GeminiCircuitBreaker {
+
+    /** Thrown instead of sending a request while the breaker is open. */
+    public static final class OpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        OpenException() {
+            super("Gemini circuit open");
+        }
+    }
+
+    static final int  FAILURE_THRESHOLD = 3;
+    static final long OPEN_MILLIS       = 30 * 1000L;
+    static final long MAX_OPEN_MILLIS   = 10 * 60 * 1000L;
+
+    /** By default a response whose text took longer than this counts as unhealthy, even if it came. */
+    static final long SLOW_MILLIS = 5_000;
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    final long slowMillis;
+    private final LongSupplier clock;
+
+    private State   state = State.CLOSED;
+    private int     failures;
+    private long    openMillis = OPEN_MILLIS;
+    private long    openedAt;
+    private boolean probing;   // half-open probe in flight
+
+    GeminiCircuitBreaker(long slowMillis, LongSupplier clock) {
+        this.slowMillis = slowMillis;
+        this.clock      = clock;
+    }
+
+    /**
+     * Whether a request may go out now. Every true must be followed by exactly one of
+     * {@link #recordSuccess()}, {@link #recordFailure()} or {@link #release()}.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() - openedAt < openMillis) return false;
+                state = State.HALF_OPEN;
+                return tryProbe();   // this caller is the probe
+            default:
+                return tryProbe();
+        }
+    }
+
+    /** Half-open: only one probe request at a time. */
+    private boolean tryProbe() {
+        if (probing) return false;
+        probing = true;
+        return true;
+    }
+
+    /** The request answered in time. */
+    public synchronized void recordSuccess() {
+        probing    = false;
+        failures   = 0;
+        openMillis = OPEN_MILLIS;
+        state      = State.CLOSED;
+    }
+
+    /** The request failed, timed out, ran past its deadline or answered too slowly. */
+    public synchronized void recordFailure() {
+        if (state == State.HALF_OPEN) {
+            probing    = false;
+            openMillis = Math.min(openMillis * 2, MAX_OPEN_MILLIS);
+            open();
+        } else if (state == State.CLOSED && ++failures >= FAILURE_THRESHOLD) {
+            open();
+        }
+    }
+
+    /** The request was abandoned by its caller — says nothing about the network. */
+    public synchronized void release() {
+        probing = false;
+    }
+
+    synchronized State state() { return state; }
+
+    private void open() {
+        state    = State.OPEN;
+        openedAt = clock.getAsLong();
+        failures = 0;
+    }
+}
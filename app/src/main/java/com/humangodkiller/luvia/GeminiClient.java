@@ -0,0 +1,306 @@
+package com.humangodkiller.luvia;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Process-wide client for the Gemini generateContent endpoint, and its server-sent-events
+ * twin streamGenerateContent for callers that want the text as it is generated.
+ *
+ * Connections are kept alive between calls: the body is always drained and closed and
+ * {@code disconnect()} is only used to abort, so the platform's connection pool hands the
+ * next reminder an already-handshaken TLS socket instead of paying DNS + TCP + TLS again.
+ * Responses are requested gzipped and read straight into one buffer. Each {@link Call}
+ * carries its own timeouts and can be cancelled from another thread (e.g. onDestroy).
+ *
+ * Every call goes through the client's {@link GeminiCircuitBreaker}: failures, timeouts,
+ * expired deadlines and slow answers count against it, and while it is open calls fail at
+ * once with {@link GeminiCircuitBreaker.OpenException} without touching the network.
+ */
+public final class GeminiClient {
+
+    // ⚠️  Replace with your NEW API key after revoking the old one at aistudio.google.com
+    private static final String GEMINI_API_KEY = "YOUR_NEW_API_KEY_HERE";
+    static final String GEMINI_API_URL =
+            "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash-preview-04-17:generateContent?key="
+                    + GEMINI_API_KEY;
+
+    static final int DEFAULT_TIMEOUT_MILLIS = 10_000;
+
+    /** Receives generated text chunk by chunk, on the thread running {@link Call#stream}. */
+    public interface TextListener {
+        void onText(String delta);
+    }
+
+    private static GeminiClient shared;
+
+    private final String  endpoint;
+    private final String  streamEndpoint;
+    private final boolean reuseConnections;
+    private final GeminiCircuitBreaker breaker;
+
+    GeminiClient(String endpoint, boolean reuseConnections, GeminiCircuitBreaker breaker) {
+        this.endpoint         = endpoint;
+        this.streamEndpoint   = streamEndpointFor(endpoint);
+        this.reuseConnections = reuseConnections;
+        this.breaker          = breaker;
+    }
+
+    GeminiClient(String endpoint, boolean reuseConnections) {
+        this(endpoint, reuseConnections, new GeminiCircuitBreaker(GeminiCircuitBreaker.SLOW_MILLIS, System::currentTimeMillis));
+    }
+
+    public static synchronized GeminiClient shared() {
+        if (shared == null) shared = new GeminiClient(GEMINI_API_URL, true);
+        return shared;
+    }
+
+    /** A call for one prompt; not started until {@link Call#execute()}. */
+    public Call newCall(String prompt, int timeoutMillis) {
+        return new Call(prompt, timeoutMillis);
+    }
+
+    public Call newCall(String prompt) {
+        return newCall(prompt, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Call
+    // ═══════════════════════════════════════════════════════════════════════
+
+    public final class Call {
+        private final String prompt;
+        private final int    timeoutMillis;
+        private volatile boolean           canceled;
+        private volatile boolean           expired;
+        private volatile HttpURLConnection connection;
+
+        private Call(String prompt, int timeoutMillis) {
+            this.prompt        = prompt;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        /**
+         * Blocks until Gemini answers and returns the generated text, or null when the
+         * response carried none. Throws on transport errors, non-200 codes and cancellation.
+         */
+        public String execute() throws IOException {
+            return run(endpoint, null);
+        }
+
+        /**
+         * Like {@link #execute()}, but against streamGenerateContent: {@code listener} gets
+         * each chunk of text as soon as its event arrives, and the whole text is returned at
+         * the end. After a failure mid-stream the listener may already have had part of it.
+         */
+        public String stream(TextListener listener) throws IOException {
+            return run(streamEndpoint, listener);
+        }
+
+        private String run(String url, TextListener listener) throws IOException {
+            if (canceled) throw new InterruptedIOException("Canceled");
+            if (!breaker.tryAcquire()) throw new GeminiCircuitBreaker.OpenException();
+            long start = System.nanoTime();
+            long[] firstText = new long[1];
+            boolean recorded = false;
+            HttpURLConnection conn = null;
+            boolean reusable = false;
+            try {
+                conn = (HttpURLConnection) new URL(url).openConnection();
+                connection = conn;
+                // A cancel() that ran before conn was published had nothing to disconnect
+                if (canceled) throw new InterruptedIOException("Canceled");
+                conn.setRequestMethod("POST");
+                conn.setRequestProperty("Content-Type", "application/json");
+                if (listener == null) {
+                    conn.setRequestProperty("Accept-Encoding", "gzip");
+                } else {
+                    // A compressed stream would hold chunks back until a deflate block fills
+                    conn.setRequestProperty("Accept", "text/event-stream");
+                    conn.setRequestProperty("Accept-Encoding", "identity");
+                }
+                if (!reuseConnections) conn.setRequestProperty("Connection", "close");
+                conn.setDoOutput(true);
+                conn.setConnectTimeout(timeoutMillis);
+                conn.setReadTimeout(timeoutMillis);
+
+                // Small body: let the connection buffer it so headers + body leave in one write
+                byte[] body = requestBody(prompt).getBytes(StandardCharsets.UTF_8);
+                try (OutputStream os = conn.getOutputStream()) {
+                    os.write(body);
+                }
+
+                int code = conn.getResponseCode();
+                if (code != HttpURLConnection.HTTP_OK) {
+                    // Drain the error body too, so the socket can still go back to the pool
+                    InputStream err = conn.getErrorStream();
+                    if (err != null) readBody(err, null, -1);
+                    reusable = true;
+                    breaker.recordFailure();
+                    recorded = true;
+                    throw new IOException("Gemini HTTP " + code);
+                }
+
+                String text;
+                if (listener == null) {
+                    text = parseText(readBody(conn.getInputStream(), conn.getContentEncoding(),
+                            conn.getContentLength()));
+                } else {
+                    text = readEvents(conn.getInputStream(), delta -> {
+                        if (firstText[0] == 0) firstText[0] = System.nanoTime();
+                        listener.onText(delta);
+                    });
+                }
+                reusable = true;
+
+                // A stream is judged by its first words, a blocking call by the whole answer
+                long answeredAt = firstText[0] != 0 ? firstText[0] : System.nanoTime();
+                long millis = (answeredAt - start) / 1_000_000;
+                if (millis > Math.max(breaker.slowMillis, timeoutMillis / 2)) breaker.recordFailure();
+                else breaker.recordSuccess();
+                recorded = true;
+                return text;
+            } catch (IOException e) {
+                if (!recorded && (!canceled || expired)) {
+                    breaker.recordFailure();
+                    recorded = true;
+                }
+                if (canceled) throw new InterruptedIOException(expired ? "Deadline passed" : "Canceled");
+                throw e;
+            } finally {
+                connection = null;
+                if (!recorded) breaker.release();
+                if (conn != null && (!reusable || !reuseConnections)) conn.disconnect();
+            }
+        }
+
+        /** Aborts the call; safe from any thread, before or during {@link #execute()} / {@link #stream}. */
+        public void cancel() {
+            canceled = true;
+            HttpURLConnection conn = connection;
+            if (conn != null) conn.disconnect();
+        }
+
+        /**
+         * Aborts the call because the caller's deadline passed. Unlike {@link #cancel()},
+         * this counts against the circuit breaker, like any other slow answer.
+         */
+        public void expire() {
+            expired = true;
+            cancel();
+        }
+
+        public boolean isCanceled() { return canceled; }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Wire format
+    // ═══════════════════════════════════════════════════════════════════════
+
+    static String requestBody(String prompt) {
+        try {
+            JSONObject part = new JSONObject().put("text", prompt);
+            JSONObject content = new JSONObject().put("parts", new JSONArray().put(part));
+            return new JSONObject().put("contents", new JSONArray().put(content)).toString();
+        } catch (JSONException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /** candidates[0].content.parts[0].text, trimmed; null if absent or malformed. */
+    static String parseText(String json) {
+        try {
+            JSONArray candidates = new JSONObject(json).getJSONArray("candidates");
+            if (candidates.length() == 0) return null;
+            JSONArray parts = candidates.getJSONObject(0).getJSONObject("content").getJSONArray("parts");
+            if (parts.length() == 0) return null;
+            return parts.getJSONObject(0).getString("text").trim();
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    /** The SSE twin of a generateContent URL: ":streamGenerateContent" plus alt=sse. */
+    static String streamEndpointFor(String endpoint) {
+        String url = endpoint.replace(":generateContent", ":streamGenerateContent");
+        return url + (url.contains("?") ? "&" : "?") + "alt=sse";
+    }
+
+    /**
+     * Text of one streamed chunk — every part of candidates[0], untrimmed, since the spaces
+     * between chunks matter. Null if the chunk carries no text (e.g. only finishReason).
+     */
+    static String chunkText(String json) {
+        try {
+            JSONArray candidates = new JSONObject(json).optJSONArray("candidates");
+            if (candidates == null || candidates.length() == 0) return null;
+            JSONObject content = candidates.getJSONObject(0).optJSONObject("content");
+            JSONArray parts = content != null ? content.optJSONArray("parts") : null;
+            if (parts == null) return null;
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < parts.length(); i++) sb.append(parts.getJSONObject(i).optString("text"));
+            return sb.length() > 0 ? sb.toString() : null;
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads server-sent events until the body ends, handing each event's text to the
+     * listener. Returns all of it trimmed, or null if there was none.
+     */
+    private static String readEvents(InputStream raw, TextListener listener) throws IOException {
+        StringBuilder text = new StringBuilder();
+        StringBuilder data = new StringBuilder();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(raw, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isEmpty()) {
+                    dispatch(data, text, listener);
+                } else if (line.startsWith("data:")) {
+                    if (data.length() > 0) data.append('\n');
+                    data.append(line, line.startsWith("data: ") ? 6 : 5, line.length());
+                }
+                // Comments (":") and other fields (event:, id:, retry:) carry nothing we use
+            }
+            dispatch(data, text, listener);
+        }
+        String all = text.toString().trim();
+        return all.isEmpty() ? null : all;
+    }
+
+    private static void dispatch(StringBuilder data, StringBuilder text, TextListener listener) {
+        if (data.length() == 0) return;
+        String delta = chunkText(data.toString());
+        data.setLength(0);
+        if (delta == null) return;
+        text.append(delta);
+        listener.onText(delta);
+    }
+
+    /** Reads the whole body into one buffer (sized from Content-Length when known) and closes it. */
+    private static String readBody(InputStream raw, String encoding, int contentLength) throws IOException {
+        boolean gzip = "gzip".equalsIgnoreCase(encoding);
+        try (InputStream in = gzip ? new GZIPInputStream(raw) : raw) {
+            int expected = contentLength <= 0 ? 8192 : gzip ? contentLength * 4 : contentLength;
+            ByteArrayOutputStream out = new ByteArrayOutputStream(expected);
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) != -1) out.write(buf, 0, n);
+            return out.toString("UTF-8");
+        }
+    }
+}
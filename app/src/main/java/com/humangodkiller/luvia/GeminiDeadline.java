@@ -0,0 +1,32 @@
+package com.humangodkiller.luvia;
+
+/**
+ * How long a live reminder message may take: the alarm audio still to be played, plus a
+ * short grace — after that the patient would be sitting in silence, so the request is given
+ * up and the offline fallback spoken instead.
+ */
+public final class GeminiDeadline {
+
+    /** Silence after the alarm we accept before falling back. */
+    static final long GRACE_MILLIS = 1_500;
+
+    /** Budget when the alarm couldn't be loaded (or reports no length) and nothing covers the wait. */
+    static final long NO_ALARM_MILLIS = 3_000;
+
+    // Never wait longer than the old fixed connect + read timeouts did
+    static final long MAX_MILLIS = 2L * GeminiClient.DEFAULT_TIMEOUT_MILLIS;
+
+    private GeminiDeadline() {}
+
+    /**
+     * @param durationMillis length of one play of the alarm, &lt;= 0 if unknown
+     * @param repeats        plays in total
+     * @param played         plays already finished
+     * @param positionMillis position within the current play
+     */
+    public static long budgetMillis(int durationMillis, int repeats, int played, int positionMillis) {
+        if (durationMillis <= 0) return NO_ALARM_MILLIS;
+        long remaining = (long) durationMillis * Math.max(0, repeats - played) - Math.max(0, positionMillis);
+        return Math.min(MAX_MILLIS, Math.max(0, remaining) + GRACE_MILLIS);
+    }
+}
@@ -0,0 +1,185 @@
+package com.humangodkiller.luvia;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide de-duplication of Gemini requests.
+ *
+ * Callers asking for the same prompt while a request for it is in flight wait on that
+ * request's future instead of sending their own, so reminders that fire together with the
+ * same pill, dosage, language and minutes cost one call. A generated text is then kept for
+ * {@link #TTL_MILLIS}, so a caller arriving just after it completed doesn't send another.
+ * Failures and empty answers are shared with the callers already waiting, never cached.
+ *
+ * Only the caller that sends the request gets it streamed; the others get the whole text
+ * when it completes. A waiting caller can bound its wait by its own deadline, and when the
+ * sender gives up on its deadline (or is canceled) the others don't inherit that: the next
+ * of them sends the request again with whatever time it has left.
+ */
+public final class GeminiRequestCoalescer {
+
+    /** Sends the request for a prompt — GeminiClient in the app, a fake in tests. */
+    public interface Loader {
+        String load() throws IOException;
+    }
+
+    static final long TTL_MILLIS  = 2 * 60 * 1000L;
+    static final int  MAX_ENTRIES = 32;
+
+    /** {@link #get(String, long, Loader)} wait for callers with no deadline of their own. */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    /** The sender of a request gave up on its own deadline or was canceled. */
+    private static final class SenderGaveUp extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        SenderGaveUp() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final class Entry {
+        final String text;
+        final long   storedAt;
+
+        Entry(String text, long storedAt) {
+            this.text     = text;
+            this.storedAt = storedAt;
+        }
+    }
+
+    private static GeminiRequestCoalescer shared;
+
+    private final long         ttlMillis;
+    private final LongSupplier clock;
+    private final Map<String, CompletableFuture<String>> inFlight = new HashMap<>();
+    private final LinkedHashMap<String, Entry>           recent   = new LinkedHashMap<>();
+    private int loads;
+    private int waiters;
+
+    GeminiRequestCoalescer(long ttlMillis, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.clock     = clock;
+    }
+
+    public static synchronized GeminiRequestCoalescer shared() {
+        if (shared == null) shared = new GeminiRequestCoalescer(TTL_MILLIS, System::currentTimeMillis);
+        return shared;
+    }
+
+    /**
+     * The text for {@code prompt}: from the short-lived cache, from a request already in
+     * flight for it, or from {@code loader} run on this thread. May be null when the model
+     * returned no text.
+     */
+    public String get(String prompt, Loader loader) throws IOException {
+        return get(prompt, NO_DEADLINE, loader);
+    }
+
+    /**
+     * {@link #get(String, Loader)}, waiting at most {@code waitMillis} on a request another
+     * caller sent — the loader, if this caller ends up running it, bounds itself.
+     *
+     * @throws InterruptedIOException "Deadline passed" when the wait runs out
+     */
+    public String get(String prompt, long waitMillis, Loader loader) throws IOException {
+        String key = key(prompt);
+        long waitUntil = waitMillis == NO_DEADLINE ? NO_DEADLINE
+                : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, waitMillis));
+        while (true) {
+            CompletableFuture<String> future;
+            boolean leader = false;
+            synchronized (this) {
+                Entry cached = recent.get(key);
+                if (cached != null && clock.getAsLong() - cached.storedAt <= ttlMillis) return cached.text;
+                future = inFlight.get(key);
+                if (future == null) {
+                    future = new CompletableFuture<>();
+                    inFlight.put(key, future);
+                    loads++;
+                    leader = true;
+                } else {
+                    waiters++;
+                }
+            }
+            if (leader) return lead(key, future, loader);
+            try {
+                return await(future, waitUntil);
+            } catch (SenderGaveUp e) {
+                // Its deadline, not ours: go again, most likely as the sender this time
+            } finally {
+                synchronized (this) { waiters--; }
+            }
+        }
+    }
+
+    /** How many times a loader actually ran. */
+    public synchronized int loads() { return loads; }
+
+    /** How many callers are waiting on a request someone else sent. */
+    public synchronized int waiters() { return waiters; }
+
+    /** Whitespace-insensitive, so prompts assembled slightly differently still match. */
+    static String key(String prompt) {
+        return prompt.trim().replaceAll("\\s+", " ");
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Leader and followers
+    // ═══════════════════════════════════════════════════════════════════════
+
+    private String lead(String key, CompletableFuture<String> future, Loader loader) throws IOException {
+        String text;
+        try {
+            text = loader.load();
+        } catch (IOException | RuntimeException | Error e) {
+            // Waiting callers must be released whatever happened
+            finish(key, null);
+            future.completeExceptionally(e);
+            throw e;
+        }
+        finish(key, text);
+        future.complete(text);
+        return text;
+    }
+
+    private static String await(CompletableFuture<String> future, long waitUntil)
+            throws IOException, SenderGaveUp {
+        try {
+            if (waitUntil == NO_DEADLINE) return future.get();
+            return future.get(waitUntil - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new InterruptedIOException("Deadline passed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a shared Gemini request");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof InterruptedIOException) throw new SenderGaveUp();
+            throw new IOException("Shared Gemini request failed", cause);
+        }
+    }
+
+    private synchronized void finish(String key, String text) {
+        inFlight.remove(key);
+        if (text == null || text.isEmpty()) return;
+        long now = clock.getAsLong();
+        recent.remove(key);
+        recent.put(key, new Entry(text, now));
+        Iterator<Entry> it = recent.values().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next();
+            if (recent.size() > MAX_ENTRIES || now - e.storedAt > ttlMillis) it.remove();
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.humangodkiller.luvia;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * On-device mirror of pillReminders/&lt;uid&gt; kept as a compact append-only log.
+ *
+ * Every write appends one small record (PUT or DELETE); opening the store replays the
+ * log into memory, so the plans screen can render from disk before the network answers.
+ * Records written locally stay "dirty" until the remote write is acknowledged, which is
+ * what {@link ReminderReconciler} uses to tell offline edits apart from remote deletions.
+ * The log is rewritten (compacted) once dead records outnumber live ones.
+ */
+public class LocalReminderStore {
+
+    private static final int  MAGIC       = 0x4C565252; // "LVRR"
+    private static final int  VERSION     = 2;
+    private static final int  VERSION_1   = 1;   // PUT without createdAt; rewritten on open
+    private static final byte OP_PUT      = 1;
+    private static final byte OP_DELETE   = 2;
+    private static final byte OP_SYNCED   = 3;
+    private static final int  MIN_COMPACT = 64;
+
+    private final File file;
+
+    // Ordered by push key, which is also creation order
+    private final TreeMap<String, PillReminder> live       = new TreeMap<>();
+    private final Map<String, Long>             tombstones = new HashMap<>();
+    private final Set<String>                   dirty      = new HashSet<>();
+
+    private DataOutputStream out;
+    private int recordCount;
+
+    private LocalReminderStore(File file) { this.file = file; }
+
+    /** One log per signed-in user, under the app's private files directory. */
+    public static File fileFor(File filesDir, String uid) {
+        return new File(filesDir, "reminders_" + uid + ".bin");
+    }
+
+    /** Opens (or creates) the store and replays the log. Safe to call off the main thread. */
+    public static LocalReminderStore open(File file) throws IOException {
+        LocalReminderStore store = new LocalReminderStore(file);
+        store.replay(true);
+        return store;
+    }
+
+    /**
+     * Reads the current reminders without taking the log over for writing — for alarm
+     * receivers that may run while the plans screen holds the store open.
+     */
+    public static List<PillReminder> readSnapshot(File file) throws IOException {
+        LocalReminderStore store = new LocalReminderStore(file);
+        if (file.exists()) store.replay(false);
+        return store.getAll();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Reads
+    // ═══════════════════════════════════════════════════════════════════════
+
+    public synchronized List<PillReminder> getAll() { return new ArrayList<>(live.values()); }
+
+    public synchronized PillReminder get(String id) { return live.get(id); }
+
+    /** Deletion time of a locally removed reminder, or -1 if there is no pending delete. */
+    public synchronized long getTombstone(String id) {
+        Long t = tombstones.get(id);
+        return t != null ? t : -1L;
+    }
+
+    public synchronized Set<String> getTombstoneIds() { return new HashSet<>(tombstones.keySet()); }
+
+    public synchronized boolean isDirty(String id) { return dirty.contains(id); }
+
+    public synchronized int size() { return live.size(); }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Writes
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /** Local edit — stays dirty until {@link #markSynced(String)}. */
+    public synchronized void put(PillReminder r) throws IOException {
+        appendPut(r);
+        live.put(r.getId(), copyOf(r));
+        tombstones.remove(r.getId());
+        dirty.add(r.getId());
+    }
+
+    /** Local delete — leaves a dirty tombstone stamped with {@code deletedAt}. */
+    public synchronized void delete(String id, long deletedAt) throws IOException {
+        appendDelete(id, deletedAt);
+        live.remove(id);
+        tombstones.put(id, deletedAt);
+        dirty.add(id);
+    }
+
+    /**
+     * Value coming from the remote node. Ignored while a local edit at least as new is
+     * still pending, otherwise stored as clean.
+     */
+    public synchronized boolean applyRemote(PillReminder r) throws IOException {
+        String id = r.getId();
+        // Includes the echo of our own optimistic write — it only counts once acknowledged
+        if (dirty.contains(id) && localStamp(id) >= r.getUpdatedAt()) return false;
+        if (r.equals(live.get(id)) && !dirty.contains(id)) return false;
+        appendPut(r);
+        appendSynced(id);
+        live.put(id, copyOf(r));
+        tombstones.remove(id);
+        dirty.remove(id);
+        return true;
+    }
+
+    /** The remote node no longer has this reminder. */
+    public synchronized boolean applyRemoteDelete(String id) throws IOException {
+        if (!live.containsKey(id) && !tombstones.containsKey(id)) return false;
+        if (tombstones.containsKey(id)) return false;   // our own delete — wait for the ack
+        appendDelete(id, 0L);
+        appendSynced(id);
+        live.remove(id);
+        tombstones.remove(id);
+        dirty.remove(id);
+        return true;
+    }
+
+    /** Remote acknowledged the last local write for {@code id}. */
+    public synchronized void markSynced(String id) throws IOException {
+        if (!dirty.remove(id)) return;
+        appendSynced(id);
+        tombstones.remove(id);
+    }
+
+    public synchronized void close() {
+        if (out == null) return;
+        try { out.close(); } catch (IOException ignored) { }
+        out = null;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Log format
+    //   header : int MAGIC, int VERSION
+    //   PUT    : byte op, UTF id, long updatedAt, long createdAt, UTF pillName, UTF dosage,
+    //            long scheduledTime, long startDate, long endDate, boolean enabled
+    //            (version 1 has no createdAt)
+    //   DELETE : byte op, UTF id, long deletedAt
+    //   SYNCED : byte op, UTF id
+    // ═══════════════════════════════════════════════════════════════════════
+
+    private void replay(boolean writable) throws IOException {
+        if (writable && (!file.exists() || file.length() == 0)) { rewrite(); return; }
+
+        long validLength = 0;
+        boolean legacy = false;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version != VERSION && version != VERSION_1) {
+                if (writable) resetLog();
+                return;
+            }
+            legacy = version == VERSION_1;
+            validLength = 8;
+            while (true) {
+                byte op;
+                try { op = in.readByte(); } catch (EOFException end) { break; }
+                int consumed = 1;
+                String id = in.readUTF();
+                consumed += utfLength(id);
+                if (op == OP_PUT) {
+                    PillReminder r = new PillReminder();
+                    r.setId(id);
+                    r.setUpdatedAt(in.readLong());
+                    if (!legacy) r.setCreatedAt(in.readLong());
+                    r.setPillName(in.readUTF());
+                    r.setDosage(in.readUTF());
+                    r.setScheduledTime(in.readLong());
+                    r.setStartDate(in.readLong());
+                    r.setEndDate(in.readLong());
+                    r.setEnabled(in.readBoolean());
+                    consumed += (legacy ? 8 : 16) + utfLength(r.getPillName()) + utfLength(r.getDosage()) + 8 * 3 + 1;
+                    live.put(id, r);
+                    tombstones.remove(id);
+                    dirty.add(id);
+                } else if (op == OP_DELETE) {
+                    long deletedAt = in.readLong();
+                    consumed += 8;
+                    live.remove(id);
+                    tombstones.put(id, deletedAt);
+                    dirty.add(id);
+                } else if (op == OP_SYNCED) {
+                    dirty.remove(id);
+                    tombstones.remove(id);
+                } else {
+                    break; // corrupt record — keep what we have
+                }
+                validLength += consumed;
+                recordCount++;
+            }
+        } catch (EOFException torn) {
+            // Process died mid-append (or a writer is mid-append); the partial tail is ignored
+        }
+        if (!writable) return;
+        if (validLength == 0) { resetLog(); return; }   // not even a full header
+        if (legacy) { rewrite(); return; }               // new records must not land in an old-format log
+
+        if (validLength < file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) { raf.setLength(validLength); }
+        }
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    }
+
+    private void appendPut(PillReminder r) throws IOException {
+        ensureOpen();
+        writePutRecord(out, r);
+        afterAppend();
+    }
+
+    private void appendDelete(String id, long deletedAt) throws IOException {
+        ensureOpen();
+        out.writeByte(OP_DELETE);
+        out.writeUTF(id);
+        out.writeLong(deletedAt);
+        afterAppend();
+    }
+
+    private void appendSynced(String id) throws IOException {
+        ensureOpen();
+        writeSyncedRecord(out, id);
+        afterAppend();
+    }
+
+    private void afterAppend() throws IOException {
+        out.flush();
+        recordCount++;
+        // A clean reminder compacts to two records; rewrite once the log is twice that
+        if (recordCount >= MIN_COMPACT && recordCount > 4 * (live.size() + tombstones.size())) {
+            rewrite();
+        }
+    }
+
+    /** Compaction: one PUT per live reminder, one DELETE per pending tombstone. */
+    private void rewrite() throws IOException {
+        close();
+        File tmp = new File(file.getPath() + ".tmp");
+        int records = 0;
+        try (DataOutputStream w = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            w.writeInt(MAGIC);
+            w.writeInt(VERSION);
+            for (PillReminder r : live.values()) {
+                writePutRecord(w, r);
+                records++;
+                if (!dirty.contains(r.getId())) { writeSyncedRecord(w, r.getId()); records++; }
+            }
+            for (Map.Entry<String, Long> t : tombstones.entrySet()) {
+                w.writeByte(OP_DELETE);
+                w.writeUTF(t.getKey());
+                w.writeLong(t.getValue());
+                records++;
+            }
+        }
+        if (!tmp.renameTo(file)) {
+            if (!file.delete() || !tmp.renameTo(file)) throw new IOException("Could not replace " + file);
+        }
+        recordCount = records;
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    }
+
+    private void resetLog() throws IOException {
+        live.clear();
+        tombstones.clear();
+        dirty.clear();
+        rewrite();
+    }
+
+    private static void writePutRecord(DataOutputStream w, PillReminder r) throws IOException {
+        w.writeByte(OP_PUT);
+        w.writeUTF(r.getId());
+        w.writeLong(r.getUpdatedAt());
+        w.writeLong(r.getCreatedAt());
+        w.writeUTF(nonNull(r.getPillName()));
+        w.writeUTF(nonNull(r.getDosage()));
+        w.writeLong(r.getScheduledTime());
+        w.writeLong(r.getStartDate());
+        w.writeLong(r.getEndDate());
+        w.writeBoolean(r.isEnabled());
+    }
+
+    private static void writeSyncedRecord(DataOutputStream w, String id) throws IOException {
+        w.writeByte(OP_SYNCED);
+        w.writeUTF(id);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (out == null) out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+    }
+
+    private long localStamp(String id) {
+        PillReminder r = live.get(id);
+        if (r != null) return r.getUpdatedAt();
+        Long t = tombstones.get(id);
+        return t != null ? t : 0L;
+    }
+
+    /** Bytes writeUTF produced for {@code s}: 2-byte length + modified UTF-8 body. */
+    private static int utfLength(String s) {
+        int len = 2;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F) len += 1;
+            else if (c <= 0x07FF)           len += 2;
+            else                            len += 3;
+        }
+        return len;
+    }
+
+    private static String nonNull(String s) { return s != null ? s : ""; }
+
+    static PillReminder copyOf(PillReminder r) {
+        PillReminder c = new PillReminder(r.getPillName(), r.getDosage(), r.getScheduledTime(),
+                r.getStartDate(), r.getEndDate(), r.isEnabled());
+        c.setId(r.getId());
+        c.setUpdatedAt(r.getUpdatedAt());
+        c.setCreatedAt(r.getCreatedAt());
+        return c;
+    }
+}
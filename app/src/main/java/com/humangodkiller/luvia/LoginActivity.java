@@ -27,7 +27,6 @@ import com.google.firebase.auth.AuthCredential;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.auth.GoogleAuthProvider;
-import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 
 import java.util.HashMap;
@@ -79,6 +78,9 @@ public class LoginActivity extends AppCompatActivity {
         if (currentUser != null) {
             showProgressBar(true);
             checkUserRoleAndNavigate(currentUser);
+        } else {
+            // Sign-in screen is this launch's destination
+            btnGoogleSignIn.post(() -> StartupTrace.drawn(this));
         }
     }
 
@@ -170,28 +172,33 @@ public class LoginActivity extends AppCompatActivity {
     // ─────────────────────────────────────────────────────────────
 
     private void checkUserRoleAndNavigate(FirebaseUser user) {
-        db.collection("users").document(user.getUid()).get()
-                .addOnCompleteListener(task -> {
-                    showProgressBar(false);
-                    if (task.isSuccessful()) {
-                        DocumentSnapshot doc = task.getResult();
-                        if (doc.exists()) {
-                            String role = doc.getString("role");
-                            if (role != null && !role.isEmpty()) {
-                                navigateToDashboard(role, doc);
-                            } else {
-                                goToRoleSelection();
-                            }
-                        } else {
-                            createNewUserInFirestore(user);
-                        }
-                    } else {
-                        Log.w(TAG, "Error fetching user doc", task.getException());
-                        Toast.makeText(this,
-                                "Database error. Please try again.",
-                                Toast.LENGTH_SHORT).show();
-                    }
-                });
+        // A returning user is routed from the cached profile without a round-trip;
+        // the listener started here keeps that cache fresh for the rest of the app.
+        UserProfileRepository profiles = UserProfiles.repository(this);
+        profiles.start(user.getUid());
+        profiles.fetch(user.getUid(), new UserProfileRepository.Callback() {
+            @Override
+            public void onProfile(UserProfile profile) {
+                showProgressBar(false);
+                if (isFinishing()) return;
+                if (profile == null) {
+                    createNewUserInFirestore(user);
+                } else if (profile.hasRole()) {
+                    navigateToDashboard(profile);
+                } else {
+                    goToRoleSelection();
+                }
+            }
+
+            @Override
+            public void onError(Exception e) {
+                showProgressBar(false);
+                Log.w(TAG, "Error fetching user doc", e);
+                Toast.makeText(LoginActivity.this,
+                        "Database error. Please try again.",
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     private void createNewUserInFirestore(FirebaseUser user) {
@@ -218,13 +225,12 @@ public class LoginActivity extends AppCompatActivity {
                 });
     }
 
-    private void navigateToDashboard(String role, DocumentSnapshot doc) {
+    private void navigateToDashboard(UserProfile profile) {
         Intent intent;
-        if ("doctor".equals(role)) {
+        if ("doctor".equals(profile.role)) {
             intent = new Intent(this, DoctorDashboardActivity.class);
         } else {
-            Boolean registered = doc.getBoolean("registered");
-            if (registered != null && registered) {
+            if (profile.registered) {
                 intent = new Intent(this, PatientDashboardActivity.class);
             } else {
                 intent = new Intent(this, PatientRegistrationActivity.class);
@@ -0,0 +1,43 @@
+package com.humangodkiller.luvia;
+
+import android.app.Application;
+import android.util.Log;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+/**
+ * Schedules the daily reminder archival in debug and release. In the benchmark build types
+ * (BuildConfig.FIREBASE_EMULATOR_HOST set) it instead points Firebase at the local Emulator
+ * Suite and signs in the account the benchmark module seeds there, whose credentials only
+ * those build types' BuildConfig carries — with no archival, so the seeded history stays
+ * where the benchmarks expect it.
+ */
+public class LuviaApplication extends Application {
+
+    private static final String TAG = "LuviaApplication";
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        String host = BuildConfig.FIREBASE_EMULATOR_HOST;
+        if (host.isEmpty()) {
+            ReminderArchiveWorker.schedule(this);
+            return;
+        }
+
+        // Has to happen before anything else touches these instances
+        FirebaseAuth auth = FirebaseAuth.getInstance();
+        auth.useEmulator(host, 9099);
+        FirebaseFirestore.getInstance().useEmulator(host, 8080);
+        FirebaseDatabase.getInstance().useEmulator(host, 9000);
+        Log.d(TAG, "Using Firebase emulator at " + host);
+
+        // Only the benchmark build types define the account; release carries empty strings
+        if (auth.getCurrentUser() == null && !BuildConfig.BENCHMARK_EMAIL.isEmpty()) {
+            auth.signInWithEmailAndPassword(BuildConfig.BENCHMARK_EMAIL, BuildConfig.BENCHMARK_PASSWORD)
+                    .addOnFailureListener(e -> Log.w(TAG, "Benchmark sign-in failed", e));
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.humangodkiller.luvia;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The compiled message templates of one language, read from the Java resource
+ * {@code templates/<lang>.properties} next to this class.
+ *
+ * Keys missing from a language come from {@link #BASE_LANGUAGE} — compiled with English's own
+ * plural and number rules, since their text is English. Besides templates, a file sets:
+ * <pre>
+ *   language.label = Malayalam       (shown in the language picker)
+ *   tts.locale     = ml-IN           (BCP 47 tag for TextToSpeech)
+ *   plural.one     = 1               (numbers taking the "one" plural form)
+ *   number.zero    = ०                (zero of the digits to write numbers with; default 0)
+ * </pre>
+ * and {@code templates/languages} lists the offered languages, one code per line. Adding a
+ * language means adding its file and a line there — no code.
+ */
+public final class MessageCatalog {
+
+    public static final String BASE_LANGUAGE = "en";
+
+    private static final String DIR = "templates/";
+
+    private final String                       language;
+    private final Locale                       locale;
+    private final String                       label;
+    private final Map<String, MessageTemplate> templates;
+
+    private MessageCatalog(String language, Locale locale, String label, Map<String, MessageTemplate> templates) {
+        this.language  = language;
+        this.locale    = locale;
+        this.label     = label;
+        this.templates = templates;
+    }
+
+    /**
+     * Loads and compiles {@code lang}, or the base language when there is no file for it.
+     * A template that doesn't compile falls back to the base language's.
+     *
+     * @param argNames the argument names templates may use, in {@code render} order
+     * @throws IllegalStateException if the base language itself is missing or broken
+     */
+    public static MessageCatalog load(String lang, List<String> argNames) {
+        Properties base = read(BASE_LANGUAGE);
+        if (base == null) throw new IllegalStateException("Missing " + DIR + BASE_LANGUAGE + ".properties");
+        Properties own = isCode(lang) && !BASE_LANGUAGE.equals(lang) ? read(lang) : null;
+        if (own == null) { own = base; lang = BASE_LANGUAGE; }
+
+        MessageTemplate.Rules baseRules = rules(base);
+        MessageTemplate.Rules ownRules  = own == base ? baseRules : rules(own);
+        Map<String, MessageTemplate> templates = new HashMap<>();
+        for (String key : base.stringPropertyNames()) {
+            templates.put(key, MessageTemplate.compile(base.getProperty(key), argNames, baseRules));
+        }
+        if (own != base) {
+            for (String key : own.stringPropertyNames()) {
+                try {
+                    templates.put(key, MessageTemplate.compile(own.getProperty(key), argNames, ownRules));
+                } catch (IllegalArgumentException e) {
+                    // Keep the base language's wording for this one message
+                }
+            }
+        }
+        String tag = own.getProperty("tts.locale", base.getProperty("tts.locale", "en-US"));
+        return new MessageCatalog(lang, Locale.forLanguageTag(tag),
+                own.getProperty("language.label", lang), Collections.unmodifiableMap(templates));
+    }
+
+    /** Codes of the offered languages, in picker order. */
+    public static List<String> languages() {
+        List<String> codes = new ArrayList<>();
+        try (InputStream in = MessageCatalog.class.getResourceAsStream(DIR + "languages")) {
+            if (in != null) {
+                StringBuilder line = new StringBuilder();
+                for (int c; (c = in.read()) != -1; ) {
+                    if (c == '\n') { addCode(codes, line); line.setLength(0); }
+                    else line.append((char) c);
+                }
+                addCode(codes, line);
+            }
+        } catch (IOException e) {
+            // Whatever was listed before the error
+        }
+        if (codes.isEmpty()) codes.add(BASE_LANGUAGE);
+        return codes;
+    }
+
+    public String language() { return language; }
+
+    public Locale locale() { return locale; }
+
+    public String label() { return label; }
+
+    /** @throws IllegalArgumentException if no language defines {@code key} */
+    public MessageTemplate template(String key) {
+        MessageTemplate t = templates.get(key);
+        if (t == null) throw new IllegalArgumentException("No template '" + key + "'");
+        return t;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Resources
+    // ═══════════════════════════════════════════════════════════════════════
+
+    private static Properties read(String lang) {
+        InputStream in = MessageCatalog.class.getResourceAsStream(DIR + lang + ".properties");
+        if (in == null) return null;
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            Properties p = new Properties();
+            p.load(reader);
+            return p;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static MessageTemplate.Rules rules(Properties p) {
+        String[] values = p.getProperty("plural.one", "1").split(",");
+        int[] one = new int[values.length];
+        try {
+            for (int i = 0; i < values.length; i++) one[i] = Integer.parseInt(values[i].trim());
+        } catch (NumberFormatException e) {
+            one = new int[] { 1 };
+        }
+        String zero = p.getProperty("number.zero", "0");
+        return new MessageTemplate.Rules(one, zero.isEmpty() ? '0' : zero.charAt(0));
+    }
+
+    /** Letters only, so a stored language code can't name some other resource. */
+    private static boolean isCode(String lang) {
+        if (lang == null || lang.isEmpty() || lang.length() > 8) return false;
+        for (int i = 0; i < lang.length(); i++) {
+            char c = lang.charAt(i);
+            if (c < 'a' || c > 'z') return false;
+        }
+        return true;
+    }
+
+    private static void addCode(List<String> codes, CharSequence line) {
+        String code = line.toString().trim();
+        if (isCode(code)) codes.add(code);
+    }
+}
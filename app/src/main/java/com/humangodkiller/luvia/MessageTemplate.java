@@ -0,0 +1,271 @@
+package com.humangodkiller.luvia;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One message pattern, parsed once into an array of parts and then rendered any number of
+ * times — no regex, reflection or re-parsing per call.
+ *
+ * Syntax, a small subset of ICU MessageFormat:
+ * <pre>
+ *   Hello! {pill} ({dosage}) is due in {minutes} {minutes, plural, one{minute} other{minutes}}.
+ * </pre>
+ * {@code {name}} is replaced by the argument of that name: a number is written with the
+ * language's digits, anything else with {@code toString()}. {@code {name, plural, one{…}
+ * other{…}}} picks a branch by the language's plural rule; inside a branch {@code #} is the
+ * number itself. Braces can't appear literally. Immutable and thread-safe.
+ */
+public final class MessageTemplate {
+
+    private static final int LITERAL = 0;
+    private static final int ARG     = 1;
+    private static final int PLURAL  = 2;
+
+    /** How a language writes numbers and picks plural forms. */
+    public static final class Rules {
+        public static final Rules ENGLISH = new Rules(new int[] { 1 }, '0');
+
+        final int[] one;         // numbers that take the "one" form; everything else is "other"
+        final char  zeroDigit;
+
+        public Rules(int[] one, char zeroDigit) {
+            this.one       = one.clone();
+            this.zeroDigit = zeroDigit;
+        }
+
+        boolean isOne(long n) {
+            for (int v : one) if (v == n) return true;
+            return false;
+        }
+    }
+
+    private final Rules             rules;
+    private final int[]             kinds;
+    private final String[]          literals;
+    private final int[]             args;
+    private final MessageTemplate[] ones;
+    private final MessageTemplate[] others;
+    private final String            constant;   // the whole text when there are no arguments
+
+    /** A parsed part, before the template flattens its parts into arrays. */
+    private static final class Part {
+        final int             kind;
+        final String          literal;
+        final int             arg;       // -1 for '#' inside a plural branch
+        final MessageTemplate one, other;
+
+        Part(int kind, String literal, int arg, MessageTemplate one, MessageTemplate other) {
+            this.kind    = kind;
+            this.literal = literal;
+            this.arg     = arg;
+            this.one     = one;
+            this.other   = other;
+        }
+    }
+
+    private MessageTemplate(Rules rules, List<Part> parts) {
+        int n = parts.size();
+        this.rules    = rules;
+        this.kinds    = new int[n];
+        this.literals = new String[n];
+        this.args     = new int[n];
+        this.ones     = new MessageTemplate[n];
+        this.others   = new MessageTemplate[n];
+        for (int i = 0; i < n; i++) {
+            Part p = parts.get(i);
+            kinds[i]    = p.kind;
+            literals[i] = p.literal;
+            args[i]     = p.arg;
+            ones[i]     = p.one;
+            others[i]   = p.other;
+        }
+        this.constant = n == 0 ? "" : n == 1 && kinds[0] == LITERAL ? literals[0] : null;
+    }
+
+    /**
+     * @param argNames the argument names the pattern may use; {@code render} takes the values
+     *                 in the same order
+     * @throws IllegalArgumentException on a syntax error or an unknown argument name
+     */
+    public static MessageTemplate compile(String pattern, List<String> argNames, Rules rules) {
+        Parser parser = new Parser(pattern, argNames, rules);
+        MessageTemplate template = parser.parse(-1);
+        if (parser.pos < pattern.length()) throw parser.error("unmatched '}'");
+        return template;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Rendering
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /** @param args values in the order of the names the template was compiled with */
+    public String render(Object... args) {
+        if (constant != null) return constant;
+        // Measured first, so the builder is filled once and never grows
+        StringBuilder out = new StringBuilder(length(args, -1));
+        append(out, args, -1);
+        return out.toString();
+    }
+
+    /** Appends the message to {@code out}, for callers joining several. */
+    public void appendTo(StringBuilder out, Object... args) {
+        if (constant != null) { out.append(constant); return; }
+        out.ensureCapacity(out.length() + length(args, -1));
+        append(out, args, -1);
+    }
+
+    private int length(Object[] values, int hashArg) {
+        int length = 0;
+        for (int i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case LITERAL: length += literals[i].length(); break;
+                case ARG:     length += valueLength(value(values, args[i] < 0 ? hashArg : args[i])); break;
+                default:      length += branch(i, values).length(values, args[i]);
+            }
+        }
+        return length;
+    }
+
+    private void append(StringBuilder out, Object[] values, int hashArg) {
+        for (int i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case LITERAL: out.append(literals[i]); break;
+                case ARG:     appendValue(out, value(values, args[i] < 0 ? hashArg : args[i])); break;
+                default:      branch(i, values).append(out, values, args[i]);
+            }
+        }
+    }
+
+    private MessageTemplate branch(int part, Object[] values) {
+        Object value = value(values, args[part]);
+        long n = value instanceof Number ? ((Number) value).longValue() : 0;
+        return rules.isOne(n) ? ones[part] : others[part];
+    }
+
+    private static Object value(Object[] values, int arg) {
+        return arg >= 0 && arg < values.length ? values[arg] : null;
+    }
+
+    private static boolean isWhole(Object value) {
+        return value instanceof Integer || value instanceof Long;
+    }
+
+    private static int valueLength(Object value) {
+        if (!isWhole(value)) return String.valueOf(value).length();
+        long n = ((Number) value).longValue();
+        if (n == Long.MIN_VALUE) return 20;
+        int digits = n < 0 ? 2 : 1;
+        for (long v = Math.abs(n); v >= 10; v /= 10) digits++;
+        return digits;
+    }
+
+    private void appendValue(StringBuilder out, Object value) {
+        if (!isWhole(value)) {
+            out.append(value);
+            return;
+        }
+        int start = out.length();
+        out.append(((Number) value).longValue());
+        if (rules.zeroDigit == '0') return;
+        for (int i = start; i < out.length(); i++) {
+            char c = out.charAt(i);
+            if (c >= '0' && c <= '9') out.setCharAt(i, (char) (rules.zeroDigit + (c - '0')));
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Parsing — once per template, when its catalog is loaded
+    // ═══════════════════════════════════════════════════════════════════════
+
+    private static final class Parser {
+        final String       pattern;
+        final List<String> argNames;
+        final Rules        rules;
+        int pos;
+
+        Parser(String pattern, List<String> argNames, Rules rules) {
+            this.pattern  = pattern;
+            this.argNames = argNames;
+            this.rules    = rules;
+        }
+
+        /**
+         * Parts up to the end of the pattern, or up to the '}' closing a plural branch when
+         * {@code hashArg} >= 0 (then '#' stands for that argument).
+         */
+        MessageTemplate parse(int hashArg) {
+            List<Part> parts = new ArrayList<>();
+            StringBuilder literal = new StringBuilder();
+            while (pos < pattern.length()) {
+                char c = pattern.charAt(pos);
+                if (c == '}') break;
+                if (c == '{' || (c == '#' && hashArg >= 0)) {
+                    if (literal.length() > 0) {
+                        parts.add(new Part(LITERAL, literal.toString(), -1, null, null));
+                        literal.setLength(0);
+                    }
+                    pos++;
+                    parts.add(c == '#' ? new Part(ARG, null, -1, null, null) : placeholder());
+                } else {
+                    literal.append(c);
+                    pos++;
+                }
+            }
+            if (hashArg >= 0 && pos >= pattern.length()) throw error("unclosed plural branch");
+            if (literal.length() > 0) parts.add(new Part(LITERAL, literal.toString(), -1, null, null));
+            return new MessageTemplate(rules, parts);
+        }
+
+        /** After '{': "name}" or "name, plural, one{…} other{…}}". */
+        private Part placeholder() {
+            int arg = argIndex(word());
+            if (take('}')) return new Part(ARG, null, arg, null, null);
+            if (!take(',') || !"plural".equals(word()) || !take(',')) throw error("expected '}' or ', plural,'");
+
+            MessageTemplate one = null, other = null;
+            while (!take('}')) {
+                String selector = word();
+                if (!take('{')) throw error("expected '{' after " + selector);
+                MessageTemplate branch = parse(arg);
+                pos++;   // the branch's '}'
+                if      ("one".equals(selector))   one   = branch;
+                else if ("other".equals(selector)) other = branch;
+                else throw error("unsupported plural selector '" + selector + "'");
+            }
+            if (other == null) throw error("plural without 'other'");
+            return new Part(PLURAL, null, arg, one != null ? one : other, other);
+        }
+
+        private String word() {
+            skipSpaces();
+            int start = pos;
+            while (pos < pattern.length() && "{},".indexOf(pattern.charAt(pos)) < 0
+                    && !Character.isWhitespace(pattern.charAt(pos))) pos++;
+            String word = pattern.substring(start, pos);
+            skipSpaces();
+            return word;
+        }
+
+        private boolean take(char c) {
+            skipSpaces();
+            if (pos < pattern.length() && pattern.charAt(pos) == c) { pos++; return true; }
+            if (pos >= pattern.length()) throw error("unexpected end");
+            return false;
+        }
+
+        private void skipSpaces() {
+            while (pos < pattern.length() && Character.isWhitespace(pattern.charAt(pos))) pos++;
+        }
+
+        private int argIndex(String name) {
+            int index = argNames.indexOf(name);
+            if (index < 0) throw error("unknown argument '" + name + "'");
+            return index;
+        }
+
+        IllegalArgumentException error(String what) {
+            return new IllegalArgumentException(what + " at " + pos + " in \"" + pattern + "\"");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.humangodkiller.luvia;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link DoseEvents#markMissed} once {@link DoseEvents#MISS_AFTER_MILLIS} has passed
+ * since an alert, so an unanswered dose is recorded as missed even when no later alarm
+ * comes to sweep it up — the last dose of the day, of a course, or before the patient
+ * switches reminders off.
+ *
+ * One unique one-off item per alert minute: alerts in the same minute share a sweep, and a
+ * later alert never pushes an earlier one's sweep back. No network needed.
+ */
+public class MissedDoseWorker extends Worker {
+
+    private static final String WORK_PREFIX = "missed_dose_sweep_";
+
+    // The sweep only takes alerts strictly older than MISS_AFTER_MILLIS
+    private static final long SLACK_MILLIS = 60 * 1000L;
+
+    public MissedDoseWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Queues the sweep for doses alerted (and due) no later than {@code latest}. Idempotent
+     * for the same minute.
+     */
+    public static void schedule(Context context, long latest) {
+        long delay = Math.max(0, latest - System.currentTimeMillis()) + DoseEvents.MISS_AFTER_MILLIS + SLACK_MILLIS;
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(MissedDoseWorker.class)
+                .setInitialDelay(delay, TimeUnit.MILLISECONDS)
+                .build();
+        WorkManager.getInstance(context).enqueueUniqueWork(
+                WORK_PREFIX + latest / (60 * 1000L), ExistingWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        DoseEvents.markMissed(getApplicationContext(), System.currentTimeMillis());
+        return Result.success();
+    }
+}
@@ -18,13 +18,15 @@ import androidx.cardview.widget.CardView;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
 
+import java.util.List;
+
 public class PatientDashboardActivity extends AppCompatActivity {
 
     private FirebaseAuth mAuth;
     private FirebaseFirestore db;
+    private UserProfileRepository profiles;
 
     private TextView tvPatientName, tvPatientEmail;
     private TextView tvAgeValue, tvBloodGroupValue;
@@ -34,8 +36,6 @@ public class PatientDashboardActivity extends AppCompatActivity {
     private CardView cardProfile, cardHealth, cardSettings, cardAppointments, cardRecords;
     private BottomNavigationView bottomNavigationView;
 
-    private static final String[] LANGUAGE_LABELS = {"English", "Malayalam", "Hindi"};
-    private static final String[] LANGUAGE_CODES  = {"en", "ml", "hi"};
 
     // ─────────────────────────────────────────────────────────────────────────
     // Lifecycle
@@ -163,10 +163,13 @@ public class PatientDashboardActivity extends AppCompatActivity {
     // ─────────────────────────────────────────────────────────────────────────
 
     private void showLanguagePicker() {
+        // Offered languages come from the message templates, so a new one needs no code here
+        List<String> codes = MessageCatalog.languages();
+        String[] labels = new String[codes.size()];
+        for (int i = 0; i < labels.length; i++) labels[i] = ReminderMessages.catalog(codes.get(i)).label();
         new AlertDialog.Builder(this)
                 .setTitle("Alarm Language / ഭാഷ / भाषा")
-                .setItems(LANGUAGE_LABELS, (dialog, which) ->
-                        saveLanguageToFirestore(LANGUAGE_CODES[which], LANGUAGE_LABELS[which]))
+                .setItems(labels, (dialog, which) -> saveLanguageToFirestore(codes.get(which), labels[which]))
                 .show();
     }
 
@@ -204,7 +207,7 @@ public class PatientDashboardActivity extends AppCompatActivity {
         fadeOut.addListener(new android.animation.AnimatorListenerAdapter() {
             @Override
             public void onAnimationEnd(android.animation.Animator animation) {
-                mAuth.signOut();
+                mAuth.signOut();   // UserProfiles clears the cached profile
                 Intent intent = new Intent(PatientDashboardActivity.this, LoginActivity.class);
                 intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
                 startActivity(intent);
@@ -253,51 +256,66 @@ public class PatientDashboardActivity extends AppCompatActivity {
         tvPatientName.setText(user.getDisplayName() != null ? user.getDisplayName() : "Patient");
         tvPatientEmail.setText(user.getEmail() != null ? user.getEmail() : "");
 
-        db.collection("users").document(user.getUid()).get()
-                .addOnSuccessListener(doc -> {
-                    if (doc.exists()) {
-                        populateDetails(doc);
-                        loadLanguageSetting(doc);
-                    }
-                    // Run entrance animations after data is ready
-                    runEntranceAnimations();
-                })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(this, "Could not load profile.", Toast.LENGTH_SHORT).show();
-                    runEntranceAnimations();
-                });
+        // Cached profile renders immediately; the repository's listener pushes later edits
+        profiles = UserProfiles.repository(this);
+        profiles.start(user.getUid());
+        profiles.addObserver(profileObserver);
+        profiles.fetch(user.getUid(), new UserProfileRepository.Callback() {
+            @Override
+            public void onProfile(UserProfile profile) {
+                if (profile != null) {
+                    populateDetails(profile);
+                    loadLanguageSetting(profile);
+                }
+                // Run entrance animations after data is ready
+                runEntranceAnimations();
+                StartupTrace.drawn(PatientDashboardActivity.this);
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Toast.makeText(PatientDashboardActivity.this,
+                        "Could not load profile.", Toast.LENGTH_SHORT).show();
+                runEntranceAnimations();
+                StartupTrace.drawn(PatientDashboardActivity.this);
+            }
+        });
     }
 
-    private void populateDetails(DocumentSnapshot doc) {
-        String name = doc.getString("name");
-        if (name != null && !name.isEmpty()) tvPatientName.setText(name);
+    private final UserProfileRepository.Observer profileObserver = profile -> {
+        if (profile == null || isDestroyed()) return;
+        runOnUiThread(() -> {
+            populateDetails(profile);
+            loadLanguageSetting(profile);
+        });
+    };
+
+    private void populateDetails(UserProfile profile) {
+        if (!profile.name.isEmpty()) tvPatientName.setText(profile.name);
 
-        Long age = doc.getLong("age");
-        tvAgeValue.setText(age != null ? age + " yrs" : "—");
+        tvAgeValue.setText(profile.age != null ? profile.age + " yrs" : "—");
 
-        String bg = doc.getString("bloodGroup");
-        tvBloodGroupValue.setText(bg != null && !bg.isEmpty() ? bg : "—");
+        tvBloodGroupValue.setText(!profile.bloodGroup.isEmpty() ? profile.bloodGroup : "—");
 
-        Double h = doc.getDouble("heightCm");
+        Double h = profile.heightCm;
         tvHeightValue.setText(h != null ? (int) Math.round(h) + " cm" : "—");
 
-        Double w = doc.getDouble("weightKg");
+        Double w = profile.weightKg;
         tvWeightValue.setText(w != null ? (int) Math.round(w) + " kg" : "—");
 
-        String phone = doc.getString("phone");
-        tvPhoneValue.setText(phone != null && !phone.isEmpty() ? phone : "—");
+        tvPhoneValue.setText(!profile.phone.isEmpty() ? profile.phone : "—");
     }
 
-    private void loadLanguageSetting(DocumentSnapshot doc) {
-        String code = doc.getString("alarmLanguage");
-        if (code == null || code.isEmpty()) { tvLanguage.setText("English"); return; }
-        for (int i = 0; i < LANGUAGE_CODES.length; i++) {
-            if (LANGUAGE_CODES[i].equals(code)) {
-                tvLanguage.setText(LANGUAGE_LABELS[i]);
-                return;
-            }
-        }
-        tvLanguage.setText("English");
+    private void loadLanguageSetting(UserProfile profile) {
+        String code = profile.alarmLanguage;
+        // Unknown or empty codes resolve to the base language, as they do for the alarm itself
+        tvLanguage.setText(ReminderMessages.catalog(code.isEmpty() ? MessageCatalog.BASE_LANGUAGE : code).label());
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (profiles != null) profiles.removeObserver(profileObserver);
     }
 
     // ─────────────────────────────────────────────────────────────────────────
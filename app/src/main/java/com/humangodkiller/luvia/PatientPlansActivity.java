@@ -1,14 +1,18 @@
 package com.humangodkiller.luvia;
 
-import android.app.AlarmManager;
 import android.app.DatePickerDialog;
-import android.app.PendingIntent;
 import android.app.TimePickerDialog;
+import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.os.Trace;
 import android.util.Log;
 import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.Button;
@@ -21,43 +25,72 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
+import androidx.recyclerview.widget.ConcatAdapter;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.database.ChildEventListener;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
 import com.google.firebase.database.ValueEventListener;
 
+import java.io.IOException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class PatientPlansActivity extends AppCompatActivity {
 
     private static final String TAG = "PatientPlansActivity";
 
-    // Standard early reminder window (10 minutes before alarm)
-    private static final int REMINDER_MINUTES_BEFORE = 10;
+    // Expired courses are paged in below the live list: 50 per query, at most 4 pages held
+    private static final int HISTORY_PAGE_SIZE = 50;
+    private static final int HISTORY_MAX_PAGES = 4;
+    private static final int HISTORY_PREFETCH  = 10;   // rows from the edge that trigger a page
 
-    // If the gap between now and alarm is less than this, use a short reminder instead
-    // The early reminder will fire after REMINDER_SHORT_DELAY_MINUTES from now
-    private static final int REMINDER_SHORT_DELAY_MINUTES = 2;
+    private static final String TRACE_ACTIVE_WINDOW = "plans_active_window";
+    private static final String TRACE_HISTORY_PAGE  = "plans_history_page";
 
     private RecyclerView recyclerView;
     private FloatingActionButton fabAddReminder;
     private PillReminderAdapter adapter;
-    private List<PillReminder> reminderList;
+    private PillReminderAdapter historyAdapter;
+    private ReminderSyncEngine syncEngine;
+    private ReminderHistoryPager history;
+    private ReminderRows rows;
 
     private FirebaseAuth mAuth;
     private DatabaseReference remindersRef;
-    private ValueEventListener remindersListener;
+    private Query activeQuery;       // endDate >= openedAt, kept live
+    private Query openEndedQuery;    // endDate 0 or missing (no course end), kept live
+    private ChildEventListener activeListener;
+    private ChildEventListener openEndedListener;
+    private final ReminderWindowMerge window = new ReminderWindowMerge();
+    private long openedAt;
+    private boolean activeWindowLoaded;
+    private int historyTraceCookie;
+
+    // On-device mirror of the node — read on cold open, written through on every event
+    private ExecutorService ioExecutor;
+    private LocalReminderStore localStore;
+    private String uid;
+    private boolean rearmQueued;   // only touched on ioExecutor
+
+    /** A unit of work against the local store, always run on {@link #ioExecutor}. */
+    private interface StoreOp { void run(LocalReminderStore store) throws IOException; }
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -81,56 +114,444 @@ public class PatientPlansActivity extends AppCompatActivity {
 
         FirebaseDatabase database = FirebaseDatabase.getInstance(
                 "https://luvia-cva-default-rtdb.asia-southeast1.firebasedatabase.app");
-        remindersRef = database.getReference("pillReminders").child(currentUser.getUid());
+        uid            = currentUser.getUid();
+        openedAt       = System.currentTimeMillis();
+        remindersRef   = database.getReference("pillReminders").child(uid);
+        activeQuery    = remindersRef.orderByChild("endDate").startAt(openedAt);
+        openEndedQuery = remindersRef.orderByChild("endDate").endAt(ReminderWindow.OPEN_ENDED_END_AT);
+        ioExecutor     = Executors.newSingleThreadExecutor();
 
         recyclerView   = findViewById(R.id.recycler_reminders);
         fabAddReminder = findViewById(R.id.fab_add_reminder);
-        reminderList   = new ArrayList<>();
-        adapter        = new PillReminderAdapter(reminderList);
-
+        syncEngine     = new ReminderSyncEngine();
+        history        = new ReminderHistoryPager(historySource, openedAt,
+                HISTORY_PAGE_SIZE, HISTORY_MAX_PAGES);
+        rows           = new ReminderRows(Locale.getDefault(), TimeZone.getDefault());
+        adapter        = new PillReminderAdapter(syncEngine.getItems());
+        historyAdapter = new PillReminderAdapter(history.getItems());
+
+        // Row ids come from one ReminderRows, so they are unique across both sections
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
-        recyclerView.setAdapter(adapter);
+        recyclerView.setAdapter(new ConcatAdapter(new ConcatAdapter.Config.Builder()
+                .setStableIdMode(ConcatAdapter.Config.StableIdMode.SHARED_STABLE_IDS)
+                .build(), adapter, historyAdapter));
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) { pageHistoryIfNearEdge(); }
+        });
 
         fabAddReminder.setOnClickListener(v -> showAddReminderDialog());
         loadReminders();
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        if (rows == null) return;
+        // The activity isn't recreated for a time-zone change, so listen for it while visible
+        registerReceiver(timeZoneReceiver, new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED),
+                Context.RECEIVER_NOT_EXPORTED);
+        refreshRowFormatting();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (rows != null) unregisterReceiver(timeZoneReceiver);
+    }
+
+    private final BroadcastReceiver timeZoneReceiver = new BroadcastReceiver() {
+        @Override public void onReceive(Context context, Intent intent) { refreshRowFormatting(); }
+    };
+
+    /** Re-formats the visible rows if the locale or time zone moved since they were cached. */
+    private void refreshRowFormatting() {
+        if (rows.setEnvironment(Locale.getDefault(), TimeZone.getDefault())) {
+            adapter.notifyItemRangeChanged(0, adapter.getItemCount());
+            historyAdapter.notifyItemRangeChanged(0, historyAdapter.getItemCount());
+        }
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (remindersRef != null && remindersListener != null)
-            remindersRef.removeEventListener(remindersListener);
+        if (activeQuery != null && activeListener != null) {
+            activeQuery.removeEventListener(activeListener);
+            openEndedQuery.removeEventListener(openEndedListener);
+        }
+        if (ioExecutor != null) {
+            ioExecutor.execute(() -> { if (localStore != null) localStore.close(); });
+            ioExecutor.shutdown();
+        }
     }
 
     @Override
     public boolean onSupportNavigateUp() { onBackPressed(); return true; }
 
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.menu_patient_plans, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(@NonNull MenuItem item) {
+        if (item.getItemId() == R.id.action_archived_plans) {
+            showArchivedMonths();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
     // ═══════════════════════════════════════════════════════════════════════
     // Load Reminders
     // ═══════════════════════════════════════════════════════════════════════
 
+    /**
+     * Offline-first: the local store is replayed on {@link #ioExecutor} and rendered
+     * immediately, then the live listeners are attached. Child events (rather than a
+     * whole-node ValueEventListener) mean each add / edit / delete only ships and parses
+     * that one reminder and rebinds that one row.
+     *
+     * Only the active window is live — courses still running at open (endDate from now on,
+     * or no end date). Expired history is never downloaded up front; {@link #history} pages
+     * it in by endDate as the list is scrolled to the bottom.
+     */
     private void loadReminders() {
-        remindersListener = new ValueEventListener() {
+        syncEngine.setListener(new ReminderSyncEngine.Listener() {
+            @Override public void onItemInserted(int position) { adapter.notifyItemInserted(position); }
+            @Override public void onItemRangeInserted(int start, int count) { adapter.notifyItemRangeInserted(start, count); }
+            @Override public void onItemChanged(int position)  { adapter.notifyItemChanged(position); }
+            @Override public void onItemRemoved(int position)  { adapter.notifyItemRemoved(position); }
+            @Override public void onItemMoved(int from, int to) { adapter.notifyItemMoved(from, to); }
+        });
+        history.setListener(new ReminderHistoryPager.Listener() {
+            @Override public void onItemRangeInserted(int start, int count) { historyAdapter.notifyItemRangeInserted(start, count); }
+            @Override public void onItemRangeRemoved(int start, int count)  { historyAdapter.notifyItemRangeRemoved(start, count); }
+        });
+
+        activeListener    = windowListener(ReminderWindowMerge.ACTIVE);
+        openEndedListener = windowListener(ReminderWindowMerge.OPEN_ENDED);
+
+        final long openStart = SystemClock.uptimeMillis();
+        Trace.beginAsyncSection(TRACE_ACTIVE_WINDOW, 0);
+        ioExecutor.execute(() -> {
+            List<PillReminder> cached = new ArrayList<>();
+            try {
+                localStore = LocalReminderStore.open(LocalReminderStore.fileFor(getFilesDir(), uid));
+                for (PillReminder r : localStore.getAll()) if (inActiveWindow(r)) cached.add(r);
+            } catch (IOException e) {
+                Log.w(TAG, "Local reminder store unavailable — remote only", e);
+            }
+            final List<PillReminder> initial = cached;
+            runOnUiThread(() -> {
+                if (isFinishing() || isDestroyed()) return;
+                syncEngine.addAll(initial);
+                Log.d(TAG, "Rendered " + initial.size() + " cached reminders in "
+                        + (SystemClock.uptimeMillis() - openStart) + " ms");
+                activeQuery.addChildEventListener(activeListener);
+                openEndedQuery.addChildEventListener(openEndedListener);
+                reconcileActiveWindow(openStart);
+            });
+        });
+    }
+
+    /**
+     * Child events of one window query, joined with the other's through {@link #window}.
+     * Leaving one query is not a deletion: the reminder may be in the other, or just have
+     * had its endDate moved past the window.
+     */
+    private ChildEventListener windowListener(int query) {
+        return new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, String previousChildName) {
+                PillReminder r = snapshot.getValue(PillReminder.class);
+                if (r == null) return;
+                String key = snapshot.getKey();
+                boolean fresh = window.add(query, key, previousChildName);
+                syncEngine.onChildAdded(key, r, window.previousOf(key));
+                if (!fresh) syncEngine.onChildMoved(key, window.previousOf(key));
+                withStore(store -> { if (store.applyRemote(r)) rearmSoon(store); });
+            }
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, String previousChildName) {
+                PillReminder r = snapshot.getValue(PillReminder.class);
+                if (r == null) return;
+                syncEngine.onChildChanged(snapshot.getKey(), r);
+                withStore(store -> { if (store.applyRemote(r)) rearmSoon(store); });
+            }
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                String key = snapshot.getKey();
+                if (window.remove(query, key)) confirmRemoved(key);
+                else syncEngine.onChildMoved(key, window.previousOf(key));
+            }
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, String previousChildName) {
+                String key = snapshot.getKey();
+                window.move(query, key, previousChildName);
+                syncEngine.onChildMoved(key, window.previousOf(key));
+            }
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.e(TAG, "Failed to load reminders", error.toException());
+                Toast.makeText(PatientPlansActivity.this,
+                        "Failed to load reminders", Toast.LENGTH_SHORT).show();
+            }
+        };
+    }
+
+    /**
+     * A reminder left both windows: reads it once to tell a deletion from an endDate moved
+     * into the past. Only a deletion is deleted locally; an ended course is stored as it now
+     * is and leaves the list. Nothing happens if it came back meanwhile or the read fails.
+     */
+    private void confirmRemoved(String key) {
+        remindersRef.child(key).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                if (window.contains(key)) return;
+                syncEngine.onChildRemoved(key);
+                rows.remove(key);
+                if (!snapshot.exists()) {
+                    withStore(store -> { if (store.applyRemoteDelete(key)) rearmSoon(store); });
+                    return;
+                }
+                PillReminder r = snapshot.getValue(PillReminder.class);
+                if (r == null) return;
+                r.setId(key);
+                withStore(store -> { if (store.applyRemote(r)) rearmSoon(store); });
+            }
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                Log.w(TAG, "Could not confirm removal of " + key, error.toException());
+            }
+        });
+    }
+
+    private boolean inActiveWindow(PillReminder r) {
+        return ReminderWindow.contains(r, openedAt);
+    }
+
+    /**
+     * Fires once the initial state of both window queries is in (served from the sync the
+     * child listeners already started), then settles offline edits and remote deletions
+     * last-write-wins. Courses that expired since the last open are not in the window, so
+     * they simply drop out of the local store — alarms only ever need the live ones.
+     */
+    private void reconcileActiveWindow(long openStart) {
+        final Map<String, PillReminder> remote = new HashMap<>();
+        final int[] pending = {2};
+        ValueEventListener collect = new ValueEventListener() {
             @Override
             public void onDataChange(@NonNull DataSnapshot snapshot) {
-                reminderList.clear();
                 for (DataSnapshot child : snapshot.getChildren()) {
-                    PillReminder reminder = child.getValue(PillReminder.class);
-                    if (reminder != null) {
-                        reminder.setId(child.getKey());
-                        reminderList.add(reminder);
+                    PillReminder r = child.getValue(PillReminder.class);
+                    if (r != null) remote.put(child.getKey(), r);
+                }
+                if (--pending[0] == 0) onActiveWindowLoaded(remote, openStart);
+            }
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                pending[0] = -1;   // a partial window would look like remote deletions
+                Log.w(TAG, "Reconcile skipped", error.toException());
+            }
+        };
+        activeQuery.addListenerForSingleValueEvent(collect);
+        openEndedQuery.addListenerForSingleValueEvent(collect);
+    }
+
+    private void onActiveWindowLoaded(Map<String, PillReminder> remote, long openStart) {
+        Trace.endAsyncSection(TRACE_ACTIVE_WINDOW, 0);
+        Log.d(TAG, "Active window: " + remote.size() + " reminders in "
+                + (SystemClock.uptimeMillis() - openStart) + " ms");
+        activeWindowLoaded = true;
+        pageHistoryIfNearEdge();
+
+        withStore(store -> {
+            ReminderReconciler.Result result =
+                    ReminderReconciler.reconcile(store, remote, firebaseRemote);
+            Log.d(TAG, "Reconciled: pulled=" + result.pulled.size()
+                    + " pushed=" + result.pushed.size()
+                    + " dropped=" + result.droppedLocal.size()
+                    + " deletedRemote=" + result.deletedRemote.size());
+            if (!result.pulled.isEmpty() || !result.droppedLocal.isEmpty()) rearmTimeline(store);
+            ReminderAlarmScheduler.reconcileAlarmIds(getApplicationContext(), store.getAll());
+            if (!result.droppedLocal.isEmpty()) {
+                runOnUiThread(() -> {
+                    for (String id : result.droppedLocal) {
+                        syncEngine.onChildRemoved(id);
+                        rows.remove(id);
                     }
+                });
+            }
+        });
+    }
+
+    /** Remote writes issued by the reconciler; acks clear the local dirty flag. */
+    private final ReminderReconciler.Remote firebaseRemote = new ReminderReconciler.Remote() {
+        @Override
+        public void put(PillReminder reminder) {
+            String id = reminder.getId();
+            remindersRef.child(id).setValue(reminder)
+                    .addOnSuccessListener(aVoid -> withStore(store -> store.markSynced(id)));
+        }
+        @Override
+        public void remove(String id) {
+            remindersRef.child(id).removeValue()
+                    .addOnSuccessListener(aVoid -> withStore(store -> store.markSynced(id)));
+        }
+    };
+
+    /** One alarm for all reminders — re-armed whenever the local set changes. */
+    private void rearmTimeline(LocalReminderStore store) {
+        ReminderAlarmScheduler.armTimeline(getApplicationContext(), store.getAll(),
+                System.currentTimeMillis());
+    }
+
+    /**
+     * {@link #rearmTimeline} once the store ops already queued have run, so a burst of child
+     * events (the window arriving on open, a batch edit from another device) re-arms once.
+     * Call from {@link #ioExecutor}.
+     */
+    private void rearmSoon(LocalReminderStore store) {
+        if (rearmQueued) return;
+        rearmQueued = true;
+        withStore(s -> {
+            rearmQueued = false;
+            rearmTimeline(s);
+        });
+    }
+
+    private void withStore(StoreOp op) {
+        if (ioExecutor == null || ioExecutor.isShutdown()) return;
+        ioExecutor.execute(() -> {
+            if (localStore == null) return;
+            try {
+                op.run(localStore);
+            } catch (IOException e) {
+                Log.w(TAG, "Local reminder store write failed", e);
+            }
+        });
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Expired history — paged by endDate below the active window
+    // ═══════════════════════════════════════════════════════════════════════
+
+    private void pageHistoryIfNearEdge() {
+        if (!activeWindowLoaded) return;
+        LinearLayoutManager lm = (LinearLayoutManager) recyclerView.getLayoutManager();
+        if (lm == null) return;
+        if (lm.findLastVisibleItemPosition() >= lm.getItemCount() - HISTORY_PREFETCH) {
+            history.loadOlder();
+        } else if (history.hasNewer()
+                && lm.findFirstVisibleItemPosition() - adapter.getItemCount() <= HISTORY_PREFETCH) {
+            history.loadNewer();
+        }
+    }
+
+    /** One-shot queries on the endDate index; nothing stays attached once a page is in. */
+    private final ReminderHistoryPager.Source historySource = new ReminderHistoryPager.Source() {
+        @Override
+        public void loadBefore(long endDate, String id, int limit, ReminderHistoryPager.PageCallback callback) {
+            Query q = remindersRef.orderByChild("endDate");
+            q = id == null ? q.endBefore(endDate) : q.endBefore(endDate, id);
+            q.limitToLast(limit).addListenerForSingleValueEvent(pageListener(callback));
+        }
+        @Override
+        public void loadAfter(long endDate, String id, long ceiling, int limit,
+                              ReminderHistoryPager.PageCallback callback) {
+            remindersRef.orderByChild("endDate").startAfter(endDate, id).endBefore(ceiling)
+                    .limitToFirst(limit).addListenerForSingleValueEvent(pageListener(callback));
+        }
+    };
+
+    private ValueEventListener pageListener(ReminderHistoryPager.PageCallback callback) {
+        final int cookie = ++historyTraceCookie;
+        final long start = SystemClock.uptimeMillis();
+        Trace.beginAsyncSection(TRACE_HISTORY_PAGE, cookie);
+        return new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                List<PillReminder> page = new ArrayList<>((int) snapshot.getChildrenCount());
+                for (DataSnapshot child : snapshot.getChildren()) {
+                    PillReminder r = child.getValue(PillReminder.class);
+                    if (r == null) continue;
+                    r.setId(child.getKey());
+                    page.add(r);
                 }
-                adapter.notifyDataSetChanged();
+                Trace.endAsyncSection(TRACE_HISTORY_PAGE, cookie);
+                Log.d(TAG, "History page: " + page.size() + " reminders in "
+                        + (SystemClock.uptimeMillis() - start) + " ms");
+                if (isDestroyed()) return;
+                callback.onPage(page);
+                // A short first page may not fill the screen, so nothing would scroll to ask
+                recyclerView.post(() -> pageHistoryIfNearEdge());
             }
             @Override
             public void onCancelled(@NonNull DatabaseError error) {
-                Log.e(TAG, "Failed to load reminders", error.toException());
-                Toast.makeText(PatientPlansActivity.this,
-                        "Failed to load reminders", Toast.LENGTH_SHORT).show();
+                Trace.endAsyncSection(TRACE_HISTORY_PAGE, cookie);
+                Log.w(TAG, "History page failed", error.toException());
+                callback.onError(error.toException());
             }
         };
-        remindersRef.addValueEventListener(remindersListener);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Archived plans — courses moved out by ReminderArchiveWorker, one month per read
+    // ═══════════════════════════════════════════════════════════════════════
+
+    private void showArchivedMonths() {
+        ReminderArchive.loadMonths(uid, new ReminderArchive.MonthsCallback() {
+            @Override
+            public void onMonths(List<String> months) {
+                if (isFinishing()) return;
+                if (months.isEmpty()) {
+                    Toast.makeText(PatientPlansActivity.this,
+                            "No archived plans yet", Toast.LENGTH_SHORT).show();
+                    return;
+                }
+                String[] items = months.toArray(new String[0]);
+                new AlertDialog.Builder(PatientPlansActivity.this)
+                        .setTitle("Archived plans")
+                        .setItems(items, (dialog, which) -> showArchivedMonth(items[which]))
+                        .setNegativeButton("Close", null)
+                        .show();
+            }
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Failed to load archive index", e);
+                Toast.makeText(PatientPlansActivity.this,
+                        "Failed to load archived plans", Toast.LENGTH_SHORT).show();
+            }
+        });
+    }
+
+    private void showArchivedMonth(String month) {
+        ReminderArchive.loadMonth(uid, month, new ReminderArchive.RemindersCallback() {
+            @Override
+            public void onReminders(List<PillReminder> reminders) {
+                if (isFinishing()) return;
+                String[] lines = new String[reminders.size()];
+                for (int i = 0; i < lines.length; i++) {
+                    ReminderRows.Row row = rows.rowFor(reminders.get(i));
+                    lines[i] = row.pillName + " — " + row.dosageText
+                            + (row.dateRangeText != null ? "\n" + row.dateRangeText : "");
+                }
+                new AlertDialog.Builder(PatientPlansActivity.this)
+                        .setTitle(month)
+                        .setItems(lines, null)
+                        .setNegativeButton("Close", null)
+                        .show();
+            }
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Failed to load archive month " + month, e);
+                Toast.makeText(PatientPlansActivity.this,
+                        "Failed to load archived plans", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     // ═══════════════════════════════════════════════════════════════════════
@@ -219,26 +640,20 @@ public class PatientPlansActivity extends AppCompatActivity {
                     if (!endSelected[0]) {
                         Toast.makeText(this, "Please select an end date", Toast.LENGTH_SHORT).show(); return;
                     }
-                    if (endDateCal.before(startDateCal)) {
+
+                    TimeZone tz = TimeZone.getDefault();
+                    long startDate = startDateCal.getTimeInMillis();
+                    long endDate   = endDateCal.getTimeInMillis();
+                    if (!DoseScheduler.isValidCourse(startDate, endDate, tz)) {
                         Toast.makeText(this, "End date must be after start date", Toast.LENGTH_SHORT).show(); return;
                     }
 
-                    Calendar alarmCal = (Calendar) startDateCal.clone();
-                    alarmCal.set(Calendar.HOUR_OF_DAY, selectedTime.get(Calendar.HOUR_OF_DAY));
-                    alarmCal.set(Calendar.MINUTE,      selectedTime.get(Calendar.MINUTE));
-                    alarmCal.set(Calendar.SECOND,      0);
-                    alarmCal.set(Calendar.MILLISECOND, 0);
-                    if (alarmCal.before(Calendar.getInstance()))
-                        alarmCal.add(Calendar.DAY_OF_MONTH, 1);
-
-                    endDateCal.set(Calendar.HOUR_OF_DAY, 23);
-                    endDateCal.set(Calendar.MINUTE,      59);
-                    endDateCal.set(Calendar.SECOND,      59);
-
-                    saveReminder(new PillReminder(pillName, dosage,
-                            alarmCal.getTimeInMillis(),
-                            startDateCal.getTimeInMillis(),
-                            endDateCal.getTimeInMillis(), true));
+                    long firstDose = DoseScheduler.firstDoseTime(startDate,
+                            selectedTime.get(Calendar.HOUR_OF_DAY), selectedTime.get(Calendar.MINUTE),
+                            System.currentTimeMillis(), tz);
+
+                    saveReminder(new PillReminder(pillName, dosage, firstDose,
+                            startDate, DoseScheduler.endOfDay(endDate, tz), true));
                 })
                 .setNegativeButton("Cancel", null)
                 .show();
@@ -252,11 +667,19 @@ public class PatientPlansActivity extends AppCompatActivity {
         String key = remindersRef.push().getKey();
         if (key == null) return;
         reminder.setId(key);
+        long now = System.currentTimeMillis();
+        reminder.setCreatedAt(now);
+        reminder.setUpdatedAt(now);
+        // Local first, so an add made offline survives the process and is pushed on next open
+        PillReminder localCopy = LocalReminderStore.copyOf(reminder);
+        withStore(store -> {
+            store.put(localCopy);
+            rearmTimeline(store);
+        });
         remindersRef.child(key).setValue(reminder)
                 .addOnSuccessListener(aVoid -> {
+                    withStore(store -> store.markSynced(key));
                     Toast.makeText(this, "Reminder added!", Toast.LENGTH_SHORT).show();
-                    scheduleMainAlarm(reminder);
-                    scheduleSmartEarlyAlarm(reminder);
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Failed to save reminder", e);
@@ -264,101 +687,6 @@ public class PatientPlansActivity extends AppCompatActivity {
                 });
     }
 
-    // ═══════════════════════════════════════════════════════════════════════
-    // Schedule Main Alarm (at the exact pill time)
-    // ═══════════════════════════════════════════════════════════════════════
-
-    private void scheduleMainAlarm(PillReminder reminder) {
-        AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
-        if (alarmManager == null) return;
-
-        if (reminder.getEndDate() > 0 && System.currentTimeMillis() > reminder.getEndDate()) {
-            Log.d(TAG, "Skipping main alarm — end date passed for " + reminder.getPillName());
-            return;
-        }
-
-        Intent intent = new Intent(this, PillAlarmReceiver.class);
-        intent.putExtra("pill_name",         reminder.getPillName());
-        intent.putExtra("dosage",            reminder.getDosage());
-        intent.putExtra("reminder_id",       reminder.getId());
-        intent.putExtra("is_early_reminder", false);
-        intent.putExtra("minutes_remaining", 0); // main alarm — take now
-        intent.putExtra("end_date",          reminder.getEndDate());
-
-        int requestCode = reminder.getId().hashCode();
-        PendingIntent pi = PendingIntent.getBroadcast(this, requestCode, intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-
-        long alarmTime = reminder.getScheduledTime();
-
-        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.M)
-            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, alarmTime, pi);
-        else
-            alarmManager.setExact(AlarmManager.RTC_WAKEUP, alarmTime, pi);
-
-        Log.d(TAG, "Main alarm scheduled for " + reminder.getPillName());
-    }
-
-    // ═══════════════════════════════════════════════════════════════════════
-    // Smart Early Alarm — uses actual gap, not always 10 minutes
-    //
-    //  GAP >= 10 min  → early reminder fires 10 min before (standard)
-    //  GAP < 10 min   → early reminder fires 2 min from now
-    //                   and tells the patient the EXACT remaining minutes
-    // ═══════════════════════════════════════════════════════════════════════
-
-    private void scheduleSmartEarlyAlarm(PillReminder reminder) {
-        AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
-        if (alarmManager == null) return;
-
-        if (reminder.getEndDate() > 0 && System.currentTimeMillis() > reminder.getEndDate()) {
-            Log.d(TAG, "Skipping early alarm — end date passed for " + reminder.getPillName());
-            return;
-        }
-
-        long now           = System.currentTimeMillis();
-        long alarmTime     = reminder.getScheduledTime();
-        long gapMillis     = alarmTime - now;
-        long gapMinutes    = gapMillis / (60 * 1000L);
-
-        long earlyAlarmTime;
-        int  minutesRemaining;
-
-        if (gapMinutes >= REMINDER_MINUTES_BEFORE) {
-            // Normal case: fire early reminder 10 min before
-            earlyAlarmTime    = alarmTime - (REMINDER_MINUTES_BEFORE * 60 * 1000L);
-            minutesRemaining  = REMINDER_MINUTES_BEFORE;
-            Log.d(TAG, "Early alarm: standard 10-min-before for " + reminder.getPillName());
-        } else if (gapMinutes > REMINDER_SHORT_DELAY_MINUTES) {
-            // Short gap: fire 2 minutes from now, tell patient exact gap
-            earlyAlarmTime    = now + (REMINDER_SHORT_DELAY_MINUTES * 60 * 1000L);
-            minutesRemaining  = (int) gapMinutes; // e.g. 5 if alarm is 5 min away
-            Log.d(TAG, "Early alarm: short gap (" + gapMinutes + " min) for " + reminder.getPillName()
-                    + " — reminding in 2 min, saying '" + minutesRemaining + " min remaining'");
-        } else {
-            // Gap is too short (2 min or less) — skip early reminder entirely
-            Log.d(TAG, "Skipping early alarm — gap too short (" + gapMinutes + " min) for " + reminder.getPillName());
-            return;
-        }
-
-        Intent intent = new Intent(this, PillAlarmReceiver.class);
-        intent.putExtra("pill_name",         reminder.getPillName());
-        intent.putExtra("dosage",            reminder.getDosage());
-        intent.putExtra("reminder_id",       reminder.getId());
-        intent.putExtra("is_early_reminder", true);
-        intent.putExtra("minutes_remaining", minutesRemaining); // ← actual minutes, not always 10
-        intent.putExtra("end_date",          reminder.getEndDate());
-
-        int requestCode = reminder.getId().hashCode() + 1000;
-        PendingIntent pi = PendingIntent.getBroadcast(this, requestCode, intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-
-        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.M)
-            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, earlyAlarmTime, pi);
-        else
-            alarmManager.setExact(AlarmManager.RTC_WAKEUP, earlyAlarmTime, pi);
-    }
-
     // ═══════════════════════════════════════════════════════════════════════
     // Delete Reminder
     // ═══════════════════════════════════════════════════════════════════════
@@ -367,63 +695,72 @@ public class PatientPlansActivity extends AppCompatActivity {
         new AlertDialog.Builder(this)
                 .setTitle("Delete Reminder")
                 .setMessage("Delete reminder for " + reminder.getPillName() + "?")
-                .setPositiveButton("Delete", (dialog, which) ->
-                        remindersRef.child(reminder.getId()).removeValue()
-                                .addOnSuccessListener(aVoid -> {
-                                    Toast.makeText(this, "Reminder deleted", Toast.LENGTH_SHORT).show();
-                                    cancelAlarm(reminder, false);
-                                    cancelAlarm(reminder, true);
-                                })
-                                .addOnFailureListener(e ->
-                                        Toast.makeText(this, "Failed to delete", Toast.LENGTH_SHORT).show()))
+                .setPositiveButton("Delete", (dialog, which) -> {
+                    String id = reminder.getId();
+                    long deletedAt = System.currentTimeMillis();
+                    history.remove(id);
+                    withStore(store -> {
+                        store.delete(id, deletedAt);
+                        rearmTimeline(store);
+                        ReminderAlarmScheduler.reconcileAlarmIds(getApplicationContext(), store.getAll());
+                    });
+                    remindersRef.child(id).removeValue()
+                            .addOnSuccessListener(aVoid -> {
+                                withStore(store -> store.markSynced(id));
+                                Toast.makeText(this, "Reminder deleted", Toast.LENGTH_SHORT).show();
+                            })
+                            .addOnFailureListener(e ->
+                                    Toast.makeText(this, "Failed to delete", Toast.LENGTH_SHORT).show());
+                })
                 .setNegativeButton("Cancel", null).show();
     }
 
-    private void cancelAlarm(PillReminder reminder, boolean isEarlyReminder) {
-        AlarmManager alarmManager = (AlarmManager) getSystemService(Context.ALARM_SERVICE);
-        if (alarmManager == null) return;
-        int requestCode = reminder.getId().hashCode() + (isEarlyReminder ? 1000 : 0);
-        PendingIntent pi = PendingIntent.getBroadcast(this, requestCode,
-                new Intent(this, PillAlarmReceiver.class),
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-        alarmManager.cancel(pi);
-    }
-
     // ═══════════════════════════════════════════════════════════════════════
-    // Adapter — shows date range
+    // Adapter — rows come pre-formatted from ReminderRows; binding allocates nothing
     // ═══════════════════════════════════════════════════════════════════════
 
     private class PillReminderAdapter extends RecyclerView.Adapter<PillReminderAdapter.ViewHolder> {
         private final List<PillReminder> reminders;
-        private final SimpleDateFormat timeFormat = new SimpleDateFormat("hh:mm a", Locale.getDefault());
-        private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd MMM yyyy", Locale.getDefault());
 
-        public PillReminderAdapter(List<PillReminder> reminders) { this.reminders = reminders; }
+        // One listener for every row's delete button; the holder rides in the view's tag
+        private final View.OnClickListener deleteClick = v -> {
+            ViewHolder holder = (ViewHolder) v.getTag();
+            int position = holder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) deleteReminder(reminders.get(position));
+        };
+
+        public PillReminderAdapter(List<PillReminder> reminders) {
+            this.reminders = reminders;
+            setHasStableIds(true);
+        }
 
         @NonNull @Override
         public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
             View v = LayoutInflater.from(parent.getContext())
                     .inflate(R.layout.item_pill_reminder, parent, false);
-            return new ViewHolder(v);
+            ViewHolder holder = new ViewHolder(v);
+            holder.btnDelete.setTag(holder);
+            holder.btnDelete.setOnClickListener(deleteClick);
+            return holder;
         }
 
         @Override
         public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-            PillReminder r = reminders.get(position);
-            holder.tvPillName.setText(r.getPillName());
-            holder.tvDosage.setText("Dosage: " + r.getDosage());
-            holder.tvTime.setText("Time: " + timeFormat.format(r.getScheduledTime()));
-
-            if (r.getStartDate() > 0 && r.getEndDate() > 0) {
-                holder.tvDateRange.setText(
-                        dateFormat.format(r.getStartDate()) + "  →  " + dateFormat.format(r.getEndDate()));
+            ReminderRows.Row row = rows.rowFor(reminders.get(position));
+            holder.tvPillName.setText(row.pillName);
+            holder.tvDosage.setText(row.dosageText);
+            holder.tvTime.setText(row.timeText);
+
+            if (row.dateRangeText != null) {
+                holder.tvDateRange.setText(row.dateRangeText);
                 holder.tvDateRange.setVisibility(View.VISIBLE);
             } else {
                 holder.tvDateRange.setVisibility(View.GONE);
             }
-            holder.btnDelete.setOnClickListener(v -> deleteReminder(r));
         }
 
+        @Override public long getItemId(int position) { return rows.stableIdFor(reminders.get(position).getId()); }
+
         @Override public int getItemCount() { return reminders.size(); }
 
         class ViewHolder extends RecyclerView.ViewHolder {
@@ -439,45 +776,4 @@ public class PatientPlansActivity extends AppCompatActivity {
             }
         }
     }
-
-    // ═══════════════════════════════════════════════════════════════════════
-    // Data Model — added startDate & endDate
-    // ═══════════════════════════════════════════════════════════════════════
-
-    public static class PillReminder {
-        private String id;
-        private String pillName;
-        private String dosage;
-        private long scheduledTime;
-        private long startDate;
-        private long endDate;
-        private boolean enabled;
-
-        public PillReminder() {}
-
-        public PillReminder(String pillName, String dosage, long scheduledTime,
-                            long startDate, long endDate, boolean enabled) {
-            this.pillName      = pillName;
-            this.dosage        = dosage;
-            this.scheduledTime = scheduledTime;
-            this.startDate     = startDate;
-            this.endDate       = endDate;
-            this.enabled       = enabled;
-        }
-
-        public String getId()                    { return id; }
-        public void setId(String id)             { this.id = id; }
-        public String getPillName()              { return pillName; }
-        public void setPillName(String p)        { this.pillName = p; }
-        public String getDosage()                { return dosage; }
-        public void setDosage(String d)          { this.dosage = d; }
-        public long getScheduledTime()           { return scheduledTime; }
-        public void setScheduledTime(long t)     { this.scheduledTime = t; }
-        public long getStartDate()               { return startDate; }
-        public void setStartDate(long startDate) { this.startDate = startDate; }
-        public long getEndDate()                 { return endDate; }
-        public void setEndDate(long endDate)     { this.endDate = endDate; }
-        public boolean isEnabled()               { return enabled; }
-        public void setEnabled(boolean enabled)  { this.enabled = enabled; }
-    }
-}
\ No newline at end of file
+}
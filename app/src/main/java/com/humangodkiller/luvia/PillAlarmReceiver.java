@@ -3,21 +3,90 @@ package com.humangodkiller.luvia;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 import android.widget.Toast;
 
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 /**
  * Broadcast Receiver for Medicine Reminder Alarms
- * Triggers when scheduled alarm time is reached
+ * Triggers when the timeline alarm is reached: delivers every reminder due in this
+ * wake-up as one batch, then arms the next earliest event
  */
 public class PillAlarmReceiver extends BroadcastReceiver {
 
     private static final String TAG = "PillAlarmReceiver";
 
+    // Store reads happen off the main thread, inside the goAsync() window
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
     @Override
     public void onReceive(Context context, Intent intent) {
         Log.d(TAG, "Alarm received");
+        long receivedAt = SystemClock.elapsedRealtime();
+
+        Context appContext = context.getApplicationContext();
+        PendingResult pending = goAsync();
+        EXECUTOR.execute(() -> {
+            try {
+                long now = System.currentTimeMillis();
+                if (intent.hasExtra(ReminderAlarmScheduler.EXTRA_FIRE_AT)) {
+                    deliverTimeline(appContext, intent, now, receivedAt);
+                } else if (intent.getBooleanExtra(ReminderAlarmScheduler.EXTRA_SNOOZED, false)) {
+                    deliverSnoozed(appContext, intent, receivedAt);
+                } else {
+                    // Per-reminder alarm armed by an older version — deliver it as before,
+                    // then hand over to the timeline so later doses keep firing
+                    deliverLegacy(appContext, intent, receivedAt);
+                    ReminderAlarmScheduler.armTimeline(appContext, now);
+                }
+            } finally {
+                pending.finish();
+            }
+        });
+    }
+
+    private void deliverTimeline(Context context, Intent intent, long now, long receivedAt) {
+        long fireAt = intent.getLongExtra(ReminderAlarmScheduler.EXTRA_FIRE_AT, now);
+        List<PillReminder> reminders = ReminderAlarmScheduler.loadReminders(context);
+
+        DoseTimeline.Batch batch = ReminderAlarmScheduler.dueBatch(reminders, fireAt, now);
+        long coveredUntil = now;
+        if (batch != null) {
+            Log.d(TAG, "Delivering " + batch.events.size() + " reminder(s) in one wake-up");
+            Intent delivery = new Intent();
+            ReminderAlarmScheduler.putBatchExtras(delivery, batch);
+            startDelivery(context, delivery, receivedAt);
+            showToast(context, buildToast(batch));
+            DoseActionReceiver.showActions(context, ReminderAlarmScheduler.readDueDoses(delivery));
+            coveredUntil = batch.coversUntil;
+            DoseEvents.recordFired(context, batch, now);
+        } else {
+            Log.d(TAG, "Nothing due any more (reminders changed since arming)");
+        }
+
+        ReminderAlarmScheduler.markCoveredUntil(context, coveredUntil);
+        ReminderAlarmScheduler.armTimeline(context, reminders, coveredUntil);
+        DoseEvents.markMissed(context, now);   // early, if a wake-up comes first; MissedDoseWorker otherwise
+    }
+
+    /** A snoozed dose coming round again — the timeline itself is untouched. */
+    private void deliverSnoozed(Context context, Intent intent, long receivedAt) {
+        List<DoseActions.Dose> doses = ReminderAlarmScheduler.readDueDoses(intent);
+        if (doses.isEmpty()) return;
+        Log.d(TAG, "Delivering " + doses.size() + " snoozed reminder(s)");
+        Intent delivery = new Intent();
+        ReminderAlarmScheduler.putDoseExtras(delivery, doses);
+        startDelivery(context, delivery, receivedAt);
+        DoseActionReceiver.showActions(context, doses);
+    }
 
+    private void deliverLegacy(Context context, Intent intent, long receivedAt) {
         String  pillName         = intent.getStringExtra("pill_name");
         String  dosage           = intent.getStringExtra("dosage");
         String  reminderId       = intent.getStringExtra("reminder_id");
@@ -28,28 +97,59 @@ public class PillAlarmReceiver extends BroadcastReceiver {
 
         Log.d(TAG, "Reminder: " + pillName + " - " + dosage +
                 " (Early: " + isEarlyReminder + ", Minutes: " + minutesRemaining + ")");
+        if (pillName == null) return;
+
+        // Play alarm MP3 then speak AI reminder
+        Intent delivery = new Intent();
+        delivery.putExtra("pill_name",         pillName);
+        delivery.putExtra("dosage",            dosage);
+        delivery.putExtra("reminder_id",       reminderId);
+        delivery.putExtra("is_early_reminder", isEarlyReminder);
+        delivery.putExtra("minutes_remaining", minutesRemaining); // ← pass it along
+        startDelivery(context, delivery, receivedAt);
+        showToast(context, toastLine(pillName, isEarlyReminder, minutesRemaining));
+    }
 
-        // Start Gemini Integration Activity to play alarm MP3 then speak AI reminder
-        Intent geminiIntent = new Intent(context, GeminiIntegrationActivity.class);
-        geminiIntent.putExtra("pill_name",         pillName);
-        geminiIntent.putExtra("dosage",            dosage);
-        geminiIntent.putExtra("reminder_id",       reminderId);
-        geminiIntent.putExtra("is_early_reminder", isEarlyReminder);
-        geminiIntent.putExtra("minutes_remaining", minutesRemaining); // ← pass it along
-        geminiIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+    /**
+     * Hands the reminders to whichever delivery mode is selected: the foreground service,
+     * or GeminiIntegrationActivity as before.
+     */
+    private static void startDelivery(Context context, Intent delivery, long receivedAt) {
+        delivery.putExtra(ReminderAlarmScheduler.EXTRA_RECEIVED_AT, receivedAt);
+        if (ReminderDeliveryService.isEnabled(context)) {
+            delivery.setClass(context, ReminderDeliveryService.class);
+            context.startForegroundService(delivery);
+        } else {
+            delivery.setClass(context, GeminiIntegrationActivity.class);
+            delivery.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+            context.startActivity(delivery);
+        }
+    }
 
-        context.startActivity(geminiIntent);
+    // ═══════════════════════════════════════════════════════════════════════
+    // Toast — one line per reminder in the batch, with correct minutes
+    // ═══════════════════════════════════════════════════════════════════════
 
-        // Also show a toast notification with correct minutes
-        String message;
+    private static String buildToast(DoseTimeline.Batch batch) {
+        StringBuilder sb = new StringBuilder();
+        for (DoseTimeline.Event e : batch.events) {
+            if (sb.length() > 0) sb.append('\n');
+            sb.append(toastLine(e.reminder.getPillName(), e.early, e.minutesRemaining));
+        }
+        return sb.toString();
+    }
+
+    private static String toastLine(String pillName, boolean isEarlyReminder, int minutesRemaining) {
         if (isEarlyReminder) {
-            message = minutesRemaining == 1
+            return minutesRemaining == 1
                     ? "Reminder: " + pillName + " in 1 minute!"
                     : "Reminder: " + pillName + " in " + minutesRemaining + " minutes";
-        } else {
-            message = "Time to take: " + pillName;
         }
+        return "Time to take: " + pillName;
+    }
 
-        Toast.makeText(context, message, Toast.LENGTH_LONG).show();
+    private static void showToast(Context context, String message) {
+        new Handler(Looper.getMainLooper()).post(() ->
+                Toast.makeText(context, message, Toast.LENGTH_LONG).show());
     }
-}
\ No newline at end of file
+}
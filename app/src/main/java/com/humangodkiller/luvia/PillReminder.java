@@ -0,0 +1,71 @@
+package com.humangodkiller.luvia;
+
+import java.util.Objects;
+
+/**
+ * Data model for a single medicine reminder stored under pillReminders/&lt;uid&gt;/&lt;id&gt;.
+ * Kept as a plain bean so Firebase can deserialize it with getValue(PillReminder.class).
+ */
+public class PillReminder {
+    private String id;
+    private String pillName;
+    private String dosage;
+    private long scheduledTime;
+    private long startDate;
+    private long endDate;
+    private boolean enabled;
+    private long updatedAt;   // last-write-wins stamp for local ⇄ remote reconciliation
+    private long createdAt;   // when the patient added it; 0 for reminders older than the field
+
+    public PillReminder() {}
+
+    public PillReminder(String pillName, String dosage, long scheduledTime,
+                        long startDate, long endDate, boolean enabled) {
+        this.pillName      = pillName;
+        this.dosage        = dosage;
+        this.scheduledTime = scheduledTime;
+        this.startDate     = startDate;
+        this.endDate       = endDate;
+        this.enabled       = enabled;
+    }
+
+    public String getId()                    { return id; }
+    public void setId(String id)             { this.id = id; }
+    public String getPillName()              { return pillName; }
+    public void setPillName(String p)        { this.pillName = p; }
+    public String getDosage()                { return dosage; }
+    public void setDosage(String d)          { this.dosage = d; }
+    public long getScheduledTime()           { return scheduledTime; }
+    public void setScheduledTime(long t)     { this.scheduledTime = t; }
+    public long getStartDate()               { return startDate; }
+    public void setStartDate(long startDate) { this.startDate = startDate; }
+    public long getEndDate()                 { return endDate; }
+    public void setEndDate(long endDate)     { this.endDate = endDate; }
+    public boolean isEnabled()               { return enabled; }
+    public void setEnabled(boolean enabled)  { this.enabled = enabled; }
+    public long getUpdatedAt()               { return updatedAt; }
+    public void setUpdatedAt(long updatedAt) { this.updatedAt = updatedAt; }
+    public long getCreatedAt()               { return createdAt; }
+    public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PillReminder)) return false;
+        PillReminder r = (PillReminder) o;
+        return scheduledTime == r.scheduledTime
+                && startDate == r.startDate
+                && endDate   == r.endDate
+                && enabled   == r.enabled
+                && updatedAt == r.updatedAt
+                && createdAt == r.createdAt
+                && Objects.equals(id, r.id)
+                && Objects.equals(pillName, r.pillName)
+                && Objects.equals(dosage, r.dosage);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, pillName, dosage, scheduledTime, startDate, endDate, enabled, updatedAt, createdAt);
+    }
+}
@@ -0,0 +1,361 @@
+package com.humangodkiller.luvia;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Arms the single OS alarm behind the patient's {@link DoseTimeline}.
+ *
+ * Instead of two PendingIntents per reminder, exactly one exact alarm is pending: the
+ * earliest upcoming main or early event across all reminders. When it fires,
+ * {@link PillAlarmReceiver} delivers every event within {@link #BATCH_WINDOW_MILLIS} of it
+ * as one wake-up and one spoken message, then calls {@link #armTimeline} for the next one.
+ */
+public final class ReminderAlarmScheduler {
+
+    private static final String TAG = "ReminderAlarmScheduler";
+
+    /** Events closer together than this share one wake-up and one spoken message. */
+    static final long BATCH_WINDOW_MILLIS = 5 * 60 * 1000L;
+
+    // Request code used before codes came from AlarmIdRegistry; still cancelled on migration
+    private static final int    LEGACY_TIMELINE_REQUEST_CODE = 4200;
+    private static final String PREFS                        = "alarm_timeline";
+    private static final String KEY_COVERED_UNTIL            = "covered_until";
+    private static final String KEY_LEGACY_CODES_CANCELLED   = "legacy_codes_cancelled";
+    private static final String ALARM_IDS_FILE               = "alarm_ids.bin";
+
+    private static AlarmIdRegistry alarmIds;
+
+    // Intent extras shared with PillAlarmReceiver
+    static final String EXTRA_PILL_NAME         = "pill_name";
+    static final String EXTRA_DOSAGE            = "dosage";
+    static final String EXTRA_REMINDER_ID       = "reminder_id";
+    static final String EXTRA_IS_EARLY_REMINDER = "is_early_reminder";
+    static final String EXTRA_MINUTES_REMAINING = "minutes_remaining";
+    static final String EXTRA_FIRE_AT           = "fire_at";
+    static final String EXTRA_RECEIVED_AT       = "received_at";
+
+    // Batch extras handed on to GeminiIntegrationActivity (one entry per event)
+    static final String EXTRA_PILL_NAMES        = "pill_names";
+    static final String EXTRA_DOSAGES           = "dosages";
+    static final String EXTRA_REMINDER_IDS      = "reminder_ids";
+    static final String EXTRA_EARLY_FLAGS       = "early_flags";
+    static final String EXTRA_MINUTES_LIST      = "minutes_remaining_list";
+    static final String EXTRA_DOSE_TIMES        = "dose_times";
+
+    // Marks the one-off re-alert armed by a notification's Snooze button
+    static final String EXTRA_SNOOZED           = "snoozed";
+
+    private ReminderAlarmScheduler() {}
+
+    public static DoseTimeline newTimeline() {
+        return new DoseTimeline(BATCH_WINDOW_MILLIS, TimeZone.getDefault());
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Arm the timeline
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /**
+     * Re-arms the one timeline alarm for the earliest event after {@code after} (and after
+     * anything a previous batch already delivered). Cancels it when nothing is left.
+     */
+    public static void armTimeline(Context context, Collection<PillReminder> reminders, long after) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) return;
+
+        long from = Math.max(after, getCoveredUntil(context));
+        DoseTimeline timeline = newTimeline();
+        timeline.rebuild(reminders, from);
+        DoseTimeline.Event next = timeline.peek();
+
+        if (next == null) {
+            alarmManager.cancel(timelineIntent(context, 0L));
+            Log.d(TAG, "No upcoming doses — timeline alarm cancelled");
+            return;
+        }
+
+        alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, next.fireAt,
+                timelineIntent(context, next.fireAt));
+        Log.d(TAG, "Timeline armed at " + next.fireAt + " for " + next.reminder.getPillName()
+                + " (" + timeline.size() + " upcoming events across " + reminders.size() + " reminders)");
+
+        // Record what's coming and have the spoken text ready before the alarm goes off
+        DoseTimeline.Batch upcoming = timeline.pollBatch();
+        DoseEvents.recordScheduled(context, upcoming);
+        ReminderMessagePrefetcher.prefetchAsync(context, reminders, upcoming);
+    }
+
+    /**
+     * Arms a one-off exact alarm that delivers {@code doses} again at {@code at}. Keyed by the
+     * first dose's SNOOZE code, so snoozing the same reminder twice moves the alarm.
+     */
+    static void armSnooze(Context context, List<DoseActions.Dose> doses, long at) throws IOException {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null || doses.isEmpty()) return;
+
+        // No action on the intent, so reconcileAlarmIds' bare-intent cancel still matches it
+        Intent intent = new Intent(context, PillAlarmReceiver.class);
+        intent.putExtra(EXTRA_SNOOZED, true);
+        putDoseExtras(intent, doses);
+        int requestCode = requestCode(context, doses.get(0).reminderId, AlarmIdRegistry.Kind.SNOOZE);
+        alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, at,
+                PendingIntent.getBroadcast(context, requestCode, intent,
+                        PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE));
+    }
+
+    /** Convenience for callers that only have a Context — reads the local store. */
+    public static void armTimeline(Context context, long after) {
+        armTimeline(context, loadReminders(context), after);
+    }
+
+    /**
+     * The batch an alarm armed for {@code fireAt} should deliver now, or null if the
+     * reminders changed since and nothing is due any more.
+     */
+    public static DoseTimeline.Batch dueBatch(Collection<PillReminder> reminders, long fireAt, long now) {
+        DoseTimeline timeline = newTimeline();
+        timeline.rebuild(reminders, fireAt - 1);
+        DoseTimeline.Batch batch = timeline.pollBatch();
+        if (batch == null || batch.fireAt > Math.max(fireAt, now)) return null;
+        return batch;
+    }
+
+    /** Remembers that every event up to {@code until} has been delivered to the signed-in patient. */
+    static void markCoveredUntil(Context context, long until) {
+        String key = coveredUntilKey();
+        if (key == null) return;
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        if (until > prefs.getLong(key, 0L))
+            prefs.edit().putLong(key, until).apply();
+    }
+
+    /** Pulls every patient's cursor back to {@code now} after a clock or time-zone change. */
+    static void resetCoveredUntil(Context context, long now) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        SharedPreferences.Editor editor = null;
+        for (Map.Entry<String, ?> e : prefs.getAll().entrySet()) {
+            if (!e.getKey().startsWith(KEY_COVERED_UNTIL) || !(e.getValue() instanceof Long)) continue;
+            if ((Long) e.getValue() <= now) continue;
+            if (editor == null) editor = prefs.edit();
+            editor.putLong(e.getKey(), now);
+        }
+        if (editor != null) editor.apply();
+    }
+
+    private static long getCoveredUntil(Context context) {
+        String key = coveredUntilKey();
+        if (key == null) return 0L;
+        return context.getSharedPreferences(PREFS, Context.MODE_PRIVATE).getLong(key, 0L);
+    }
+
+    /**
+     * Per patient, so a second account signing in on the device doesn't skip its own events
+     * up to wherever the first account's timeline had got to. Null when nobody is signed in.
+     */
+    private static String coveredUntilKey() {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        return user != null ? KEY_COVERED_UNTIL + "_" + user.getUid() : null;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Request codes — one registry per install, shared by every alarm kind
+    // ═══════════════════════════════════════════════════════════════════════
+
+    static synchronized AlarmIdRegistry alarmIds(Context context) throws IOException {
+        if (alarmIds == null) {
+            alarmIds = AlarmIdRegistry.open(new File(context.getFilesDir(), ALARM_IDS_FILE));
+        }
+        return alarmIds;
+    }
+
+    /** Collision-free request code for a reminder's alarm of the given kind. */
+    static int requestCode(Context context, String reminderId, AlarmIdRegistry.Kind kind) throws IOException {
+        return alarmIds(context).idFor(reminderId, kind);
+    }
+
+    /**
+     * Bulk pass after the reminder set changes: cancels and releases every code whose
+     * reminder no longer exists. The first run also cancels anything still armed under the
+     * old {@code hashCode()} / {@code hashCode() + 1000} scheme.
+     */
+    public static void reconcileAlarmIds(Context context, Collection<PillReminder> reminders) {
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (alarmManager == null) return;
+
+        List<String> liveIds = new ArrayList<>(reminders.size());
+        for (PillReminder r : reminders) if (r.getId() != null) liveIds.add(r.getId());
+
+        try {
+            List<AlarmIdRegistry.Entry> released = alarmIds(context).reconcile(liveIds);
+            for (AlarmIdRegistry.Entry e : released) cancel(context, alarmManager, e.requestCode);
+            if (!released.isEmpty()) Log.d(TAG, "Released " + released.size() + " stale alarm codes");
+        } catch (IOException e) {
+            Log.w(TAG, "Could not reconcile alarm codes", e);
+        }
+
+        SharedPreferences prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        if (prefs.getBoolean(KEY_LEGACY_CODES_CANCELLED, false)) return;
+        for (String id : liveIds) {
+            cancel(context, alarmManager, id.hashCode());
+            cancel(context, alarmManager, id.hashCode() + 1000);
+        }
+        cancel(context, alarmManager, LEGACY_TIMELINE_REQUEST_CODE);
+        prefs.edit().putBoolean(KEY_LEGACY_CODES_CANCELLED, true).apply();
+        Log.d(TAG, "Cancelled legacy hashCode alarms for " + liveIds.size() + " reminders");
+    }
+
+    private static void cancel(Context context, AlarmManager alarmManager, int requestCode) {
+        // Extras don't take part in PendingIntent matching, so a bare intent finds the old one
+        PendingIntent pi = PendingIntent.getBroadcast(context, requestCode,
+                new Intent(context, PillAlarmReceiver.class),
+                PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE);
+        if (pi == null) return;
+        alarmManager.cancel(pi);
+        pi.cancel();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Local reminders for the signed-in patient
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /** Reads reminders from the on-device store — never touches the network. */
+    public static List<PillReminder> loadReminders(Context context) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) return Collections.emptyList();
+        try {
+            return LocalReminderStore.readSnapshot(
+                    LocalReminderStore.fileFor(context.getFilesDir(), user.getUid()));
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read local reminders", e);
+            return Collections.emptyList();
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Intents
+    // ═══════════════════════════════════════════════════════════════════════
+
+    private static PendingIntent timelineIntent(Context context, long fireAt) {
+        Intent intent = new Intent(context, PillAlarmReceiver.class);
+        intent.putExtra(EXTRA_FIRE_AT, fireAt);
+        int requestCode;
+        try {
+            requestCode = requestCode(context, AlarmIdRegistry.APP_OWNER, AlarmIdRegistry.Kind.TIMELINE);
+        } catch (IOException e) {
+            Log.w(TAG, "Alarm code registry unavailable, using legacy timeline code", e);
+            requestCode = LEGACY_TIMELINE_REQUEST_CODE;
+        }
+        return PendingIntent.getBroadcast(context, requestCode, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    /**
+     * Reads the reminders an intent carries. Coalesced alarms carry parallel per-event
+     * arrays; a plain single-reminder intent becomes a batch of one. Null if malformed.
+     */
+    static List<ReminderMessages.Item> readBatchExtras(Intent intent) {
+        ArrayList<String> names = intent.getStringArrayListExtra(EXTRA_PILL_NAMES);
+        if (names != null && !names.isEmpty()) {
+            ArrayList<String> doses = intent.getStringArrayListExtra(EXTRA_DOSAGES);
+            boolean[] early   = intent.getBooleanArrayExtra(EXTRA_EARLY_FLAGS);
+            int[]     minutes = intent.getIntArrayExtra(EXTRA_MINUTES_LIST);
+            if (doses == null || early == null || minutes == null) return null;
+            List<ReminderMessages.Item> items = new ArrayList<>(names.size());
+            for (int i = 0; i < names.size(); i++)
+                items.add(new ReminderMessages.Item(names.get(i), doses.get(i), early[i], minutes[i]));
+            return items;
+        }
+
+        String  pillName         = intent.getStringExtra(EXTRA_PILL_NAME);
+        String  dosage           = intent.getStringExtra(EXTRA_DOSAGE);
+        boolean isEarlyReminder  = intent.getBooleanExtra(EXTRA_IS_EARLY_REMINDER, false);
+        int     minutesRemaining = intent.getIntExtra(EXTRA_MINUTES_REMAINING, 10);
+        if (pillName == null) return null;
+        return ReminderMessages.single(pillName, dosage, isEarlyReminder, minutesRemaining);
+    }
+
+    /**
+     * Copies a batch onto an intent: parallel per-event arrays, plus the single-reminder
+     * extras of the first event so one-event batches look exactly like before.
+     */
+    static void putBatchExtras(Intent intent, DoseTimeline.Batch batch) {
+        int n = batch.events.size();
+        ArrayList<String> names = new ArrayList<>(n);
+        ArrayList<String> doses = new ArrayList<>(n);
+        ArrayList<String> ids   = new ArrayList<>(n);
+        boolean[] early     = new boolean[n];
+        int[]     minutes   = new int[n];
+        long[]    doseTimes = new long[n];
+        for (int i = 0; i < n; i++) {
+            DoseTimeline.Event e = batch.events.get(i);
+            names.add(e.reminder.getPillName());
+            doses.add(e.reminder.getDosage());
+            ids.add(e.reminder.getId());
+            early[i]     = e.early;
+            minutes[i]   = e.minutesRemaining;
+            doseTimes[i] = e.doseTime;
+        }
+        intent.putStringArrayListExtra(EXTRA_PILL_NAMES,   names);
+        intent.putStringArrayListExtra(EXTRA_DOSAGES,      doses);
+        intent.putStringArrayListExtra(EXTRA_REMINDER_IDS, ids);
+        intent.putExtra(EXTRA_EARLY_FLAGS, early);
+        intent.putExtra(EXTRA_MINUTES_LIST, minutes);
+        intent.putExtra(EXTRA_DOSE_TIMES, doseTimes);
+
+        DoseTimeline.Event first = batch.events.get(0);
+        intent.putExtra(EXTRA_PILL_NAME,         first.reminder.getPillName());
+        intent.putExtra(EXTRA_DOSAGE,            first.reminder.getDosage());
+        intent.putExtra(EXTRA_REMINDER_ID,       first.reminder.getId());
+        intent.putExtra(EXTRA_IS_EARLY_REMINDER, first.early);
+        intent.putExtra(EXTRA_MINUTES_REMAINING, first.minutesRemaining);
+    }
+
+    /** The due (non-early) doses carried by {@link #putBatchExtras} / {@link #putDoseExtras} extras. */
+    static List<DoseActions.Dose> readDueDoses(Intent intent) {
+        return DoseActions.due(intent.getStringArrayListExtra(EXTRA_REMINDER_IDS),
+                intent.getStringArrayListExtra(EXTRA_PILL_NAMES),
+                intent.getStringArrayListExtra(EXTRA_DOSAGES),
+                intent.getLongArrayExtra(EXTRA_DOSE_TIMES),
+                intent.getBooleanArrayExtra(EXTRA_EARLY_FLAGS));
+    }
+
+    /** Batch extras for doses that are all due now — what a snooze delivers again. */
+    static void putDoseExtras(Intent intent, List<DoseActions.Dose> doses) {
+        int n = doses.size();
+        ArrayList<String> names     = new ArrayList<>(n);
+        ArrayList<String> dosages   = new ArrayList<>(n);
+        ArrayList<String> ids       = new ArrayList<>(n);
+        long[]            doseTimes = new long[n];
+        for (int i = 0; i < n; i++) {
+            DoseActions.Dose d = doses.get(i);
+            names.add(d.pillName);
+            dosages.add(d.dosage);
+            ids.add(d.reminderId);
+            doseTimes[i] = d.doseTime;
+        }
+        intent.putStringArrayListExtra(EXTRA_PILL_NAMES,   names);
+        intent.putStringArrayListExtra(EXTRA_DOSAGES,      dosages);
+        intent.putStringArrayListExtra(EXTRA_REMINDER_IDS, ids);
+        intent.putExtra(EXTRA_EARLY_FLAGS, new boolean[n]);
+        intent.putExtra(EXTRA_MINUTES_LIST, new int[n]);
+        intent.putExtra(EXTRA_DOSE_TIMES, doseTimes);
+    }
+}
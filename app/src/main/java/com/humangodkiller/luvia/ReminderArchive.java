@@ -0,0 +1,109 @@
+package com.humangodkiller.luvia;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Realtime Database side of {@link ReminderArchiver}: runs the archival (from
+ * {@link ReminderArchiveWorker}) and reads the cold partition back one month at a time.
+ */
+public final class ReminderArchive {
+
+    private static final String DATABASE_URL =
+            "https://luvia-cva-default-rtdb.asia-southeast1.firebasedatabase.app";
+
+    private static final int QUERY_LIMIT = 500;   // expired reminders read per round
+    private static final int BATCH_SIZE  = 100;   // reminders per multi-path update
+    private static final int MAX_ROUNDS  = 20;    // anything left waits for the next run
+
+    public interface MonthsCallback {
+        void onMonths(List<String> newestFirst);
+        void onError(Exception e);
+    }
+
+    public interface RemindersCallback {
+        void onReminders(List<PillReminder> reminders);
+        void onError(Exception e);
+    }
+
+    private ReminderArchive() {}
+
+    private static DatabaseReference root() {
+        return FirebaseDatabase.getInstance(DATABASE_URL).getReference();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Archival — blocking, worker thread only
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /**
+     * Moves every reminder that ended more than {@link ReminderArchiver#GRACE_MILLIS} ago,
+     * oldest first. Only the expired slice is read, via the endDate index.
+     *
+     * @return how many reminders were moved
+     */
+    static int archiveExpired(String uid, long now) throws ExecutionException, InterruptedException {
+        long cutoff = ReminderArchiver.cutoff(now);
+        DatabaseReference root = root();
+        int moved = 0;
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            DataSnapshot snapshot = Tasks.await(root.child(ReminderArchiver.HOT_ROOT).child(uid)
+                    .orderByChild("endDate").startAt(1).endBefore(cutoff)
+                    .limitToFirst(QUERY_LIMIT).get());
+            List<PillReminder> expired = toReminders(snapshot);
+            for (Map<String, Object> batch : ReminderArchiver.batches(uid, expired, cutoff, BATCH_SIZE)) {
+                Tasks.await(root.updateChildren(batch));
+            }
+            moved += expired.size();
+            if (expired.size() < QUERY_LIMIT) break;
+        }
+        return moved;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // On-demand reads
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /** Months that have archived courses, e.g. ["2026-04", "2025-11"], from the small index. */
+    public static void loadMonths(String uid, MonthsCallback callback) {
+        root().child(ReminderArchiver.INDEX_ROOT).child(uid).get()
+                .addOnSuccessListener(snapshot -> {
+                    List<String> months = new ArrayList<>();
+                    for (DataSnapshot child : snapshot.getChildren()) months.add(child.getKey());
+                    Collections.sort(months, Collections.reverseOrder());
+                    callback.onMonths(months);
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    /** Every course archived under {@code month}, most recently ended first. */
+    public static void loadMonth(String uid, String month, RemindersCallback callback) {
+        root().child(ReminderArchiver.ARCHIVE_ROOT).child(uid).child(month).get()
+                .addOnSuccessListener(snapshot -> {
+                    List<PillReminder> reminders = toReminders(snapshot);
+                    reminders.sort(Comparator.comparingLong(PillReminder::getEndDate).reversed());
+                    callback.onReminders(reminders);
+                })
+                .addOnFailureListener(callback::onError);
+    }
+
+    private static List<PillReminder> toReminders(DataSnapshot snapshot) {
+        List<PillReminder> reminders = new ArrayList<>((int) snapshot.getChildrenCount());
+        for (DataSnapshot child : snapshot.getChildren()) {
+            PillReminder r = child.getValue(PillReminder.class);
+            if (r == null) continue;
+            r.setId(child.getKey());
+            reminders.add(r);
+        }
+        return reminders;
+    }
+}
@@ -0,0 +1,66 @@
+package com.humangodkiller.luvia;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Daily job that moves the signed-in patient's long-expired reminders into the archive
+ * partition (see {@link ReminderArchiver}), so the live node the plans screen and the
+ * alarm path read stays the size of the current plan.
+ */
+public class ReminderArchiveWorker extends Worker {
+
+    private static final String TAG       = "ReminderArchiveWorker";
+    private static final String WORK_NAME = "reminder_archive";
+
+    public ReminderArchiveWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /** Idempotent — an already scheduled job keeps its place. */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                ReminderArchiveWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+                WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) return Result.success();
+        try {
+            int moved = ReminderArchive.archiveExpired(user.getUid(), System.currentTimeMillis());
+            Log.d(TAG, "Archived " + moved + " expired reminders");
+            return Result.success();
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Archival failed — will retry", e);
+            return Result.retry();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.humangodkiller.luvia;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Plans the move of long-expired reminders out of the hot pillReminders/&lt;uid&gt; node into
+ * the cold partition
+ *
+ *   pillRemindersArchive/&lt;uid&gt;/&lt;yyyy-MM&gt;/&lt;id&gt;      (month of the course's endDate, UTC)
+ *   pillRemindersArchiveIndex/&lt;uid&gt;/&lt;yyyy-MM&gt;  = true
+ *
+ * as Realtime Database multi-path updates: each batch copies its reminders into the archive,
+ * deletes them from the hot node and marks their months in the index, atomically, so a
+ * reminder is never in both places or in neither. The index lets the archive be browsed a
+ * month at a time without downloading it.
+ */
+public final class ReminderArchiver {
+
+    public static final String HOT_ROOT     = "pillReminders";
+    public static final String ARCHIVE_ROOT = "pillRemindersArchive";
+    public static final String INDEX_ROOT   = "pillRemindersArchiveIndex";
+
+    /** Courses stay in the hot node (and the plans screen's history) this long after ending. */
+    public static final long GRACE_MILLIS = 30L * 24 * 60 * 60 * 1000;
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private ReminderArchiver() {}
+
+    /** Reminders that ended before this are archived; endDate 0 (no end) never is. */
+    public static long cutoff(long now) {
+        return now - GRACE_MILLIS;
+    }
+
+    public static boolean isArchivable(PillReminder r, long cutoff) {
+        return r.getEndDate() > 0 && r.getEndDate() < cutoff;
+    }
+
+    /** Archive partition for a course, e.g. "2026-05". */
+    public static String monthOf(long endDate) {
+        Calendar cal = Calendar.getInstance(UTC);
+        cal.setTimeInMillis(endDate);
+        return String.format(Locale.US, "%04d-%02d", cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1);
+    }
+
+    /**
+     * Multi-path updates (paths relative to the database root) moving every archivable
+     * reminder in {@code candidates}, at most {@code maxPerBatch} reminders per update.
+     */
+    public static List<Map<String, Object>> batches(String uid, List<PillReminder> candidates,
+                                                    long cutoff, int maxPerBatch) {
+        List<Map<String, Object>> batches = new ArrayList<>();
+        Map<String, Object> batch = null;
+        int inBatch = 0;
+        for (PillReminder r : candidates) {
+            if (!isArchivable(r, cutoff)) continue;
+            if (batch == null || inBatch == maxPerBatch) {
+                batch = new HashMap<>();
+                batches.add(batch);
+                inBatch = 0;
+            }
+            String month = monthOf(r.getEndDate());
+            batch.put(ARCHIVE_ROOT + "/" + uid + "/" + month + "/" + r.getId(), r);
+            batch.put(HOT_ROOT + "/" + uid + "/" + r.getId(), null);
+            batch.put(INDEX_ROOT + "/" + uid + "/" + month, true);
+            inBatch++;
+        }
+        return batches;
+    }
+}
@@ -0,0 +1,170 @@
+package com.humangodkiller.luvia;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Service delivery mode: plays the alarm and speaks the reminder from a short-lived
+ * foreground service with a full-screen alarm notification, instead of inflating
+ * {@link GeminiIntegrationActivity} for every wake-up.
+ *
+ * Alarms that arrive while one is playing are queued. After the last one the service
+ * lingers for {@link #LINGER_MILLIS} with its TTS engine warm, so reminders that fire close
+ * together skip engine start-up; then it stops itself.
+ */
+public class ReminderDeliveryService extends Service {
+
+    private static final String TAG = "ReminderDeliveryService";
+
+    private static final String CHANNEL_ID    = "reminder_alerts";
+    private static final long   LINGER_MILLIS = 60_000;
+
+    // Delivery mode switch, read by PillAlarmReceiver; set from adb in debug builds (DeliveryModeReceiver)
+    private static final String PREFS             = "alarm_prefs";
+    private static final String KEY_DELIVERY_MODE = "delivery_mode";
+    public  static final String MODE_ACTIVITY     = "activity";
+    public  static final String MODE_SERVICE      = "service";
+
+    private static final class Job {
+        final List<ReminderMessages.Item> items;
+        final long receivedAt;
+
+        Job(List<ReminderMessages.Item> items, long receivedAt) {
+            this.items      = items;
+            this.receivedAt = receivedAt;
+        }
+    }
+
+    private final Handler    main  = new Handler(Looper.getMainLooper());
+    private final Queue<Job> queue = new ArrayDeque<>();
+    private final Runnable   stopWhenIdle = this::stopSelf;
+
+    private ReminderSpeechPipeline pipeline;
+    private int notificationId;
+
+    public static boolean isEnabled(Context context) {
+        return MODE_SERVICE.equals(context.getSharedPreferences(PREFS, Context.MODE_PRIVATE)
+                .getString(KEY_DELIVERY_MODE, MODE_ACTIVITY));
+    }
+
+    public static void setMode(Context context, String mode) {
+        context.getSharedPreferences(PREFS, Context.MODE_PRIVATE)
+                .edit().putString(KEY_DELIVERY_MODE, mode).apply();
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        pipeline = new ReminderSpeechPipeline(this);
+        try {
+            notificationId = ReminderAlarmScheduler.requestCode(this,
+                    AlarmIdRegistry.APP_OWNER, AlarmIdRegistry.Kind.NOTIFICATION);
+        } catch (IOException e) {
+            notificationId = CHANNEL_ID.hashCode();
+        }
+
+        NotificationManager nm = getSystemService(NotificationManager.class);
+        if (nm != null && nm.getNotificationChannel(CHANNEL_ID) == null) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID,
+                    "Medicine reminders", NotificationManager.IMPORTANCE_HIGH);
+            // The service plays its own alarm sound
+            channel.setSound(null, null);
+            nm.createNotificationChannel(channel);
+        }
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        List<ReminderMessages.Item> items = intent != null ? ReminderAlarmScheduler.readBatchExtras(intent) : null;
+        startForeground(notificationId, buildNotification(items, null),
+                ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PLAYBACK);
+        if (items == null) {
+            if (!pipeline.isBusy() && queue.isEmpty()) stopSelf();
+            return START_NOT_STICKY;
+        }
+
+        main.removeCallbacks(stopWhenIdle);
+        queue.add(new Job(items, intent.getLongExtra(ReminderAlarmScheduler.EXTRA_RECEIVED_AT, 0L)));
+        if (!pipeline.isBusy()) deliverNext();
+        return START_NOT_STICKY;
+    }
+
+    private void deliverNext() {
+        Job job = queue.poll();
+        if (job == null) {
+            // Keep the engine warm a little longer in case the next dose is close behind
+            stopForeground(STOP_FOREGROUND_REMOVE);
+            main.postDelayed(stopWhenIdle, LINGER_MILLIS);
+            return;
+        }
+
+        DeliveryTrace trace = DeliveryTrace.start(pipeline.isWarm() ? "service-warm" : "service", job.receivedAt);
+        String lang = UserProfiles.alarmLanguage(this);
+        pipeline.deliver(job.items, lang, new ReminderSpeechPipeline.Listener() {
+            @Override public void onMessage(String message) {
+                NotificationManager nm = getSystemService(NotificationManager.class);
+                if (nm != null) nm.notify(notificationId, buildNotification(job.items, message));
+            }
+            @Override public void onFirstWord(String path) { trace.firstWord(path); }
+            @Override public void onFinished() {
+                trace.finish();
+                deliverNext();
+            }
+        });
+    }
+
+    private Notification buildNotification(List<ReminderMessages.Item> items, String message) {
+        Intent open = new Intent(this, PatientPlansActivity.class)
+                .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        PendingIntent content = PendingIntent.getActivity(this, notificationId, open,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        String title = "Medicine reminder";
+        if (items != null && !items.isEmpty()) {
+            ReminderMessages.Item first = items.get(0);
+            title = (first.early ? "Coming up: " : "Time to take: ") + first.pillName
+                    + (items.size() > 1 ? " +" + (items.size() - 1) + " more" : "");
+        }
+
+        return new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_plans)
+                .setContentTitle(title)
+                .setContentText(message != null ? message : "")
+                .setStyle(new NotificationCompat.BigTextStyle().bigText(message))
+                .setCategory(NotificationCompat.CATEGORY_ALARM)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setContentIntent(content)
+                .setFullScreenIntent(content, true)
+                .setOnlyAlertOnce(true)
+                .setOngoing(true)
+                .build();
+    }
+
+    @Override
+    public void onDestroy() {
+        main.removeCallbacks(stopWhenIdle);
+        if (pipeline != null) pipeline.release();
+        Log.d(TAG, "Delivery service stopped");
+        super.onDestroy();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) { return null; }
+}
@@ -0,0 +1,168 @@
+package com.humangodkiller.luvia;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lazily paged, newest-first view of the expired courses under pillReminders/&lt;uid&gt;
+ * (0 &lt; endDate &lt; cutoff), ordered by (endDate, key) — the Realtime Database's own
+ * orderByChild("endDate") order, so every page is one endBefore/limitToLast or
+ * startAfter/limitToFirst query.
+ *
+ * At most {@code maxPages} pages are held: paging further down drops the newest page from
+ * the top, scrolling back up re-fetches it and drops the oldest one. Reminders with no end
+ * date (endDate 0, or no endDate child, which deserializes as 0) are never history — they
+ * sort before every real date, so meeting one means the bottom was reached.
+ *
+ * Not thread-safe — drive it and deliver pages on the main thread.
+ */
+public class ReminderHistoryPager {
+
+    /** Page queries; results are in ascending (endDate, key) order, as the database returns them. */
+    public interface Source {
+        /** Up to {@code limit} reminders before (endDate, id); {@code id} null means before endDate. */
+        void loadBefore(long endDate, String id, int limit, PageCallback callback);
+
+        /** Up to {@code limit} reminders after (endDate, id) and before {@code ceiling}. */
+        void loadAfter(long endDate, String id, long ceiling, int limit, PageCallback callback);
+    }
+
+    public interface PageCallback {
+        void onPage(List<PillReminder> ascending);
+        void onError(Exception e);
+    }
+
+    /** Adapter notifications, positions relative to {@link #getItems()}. */
+    public interface Listener {
+        void onItemRangeInserted(int start, int count);
+        void onItemRangeRemoved(int start, int count);
+    }
+
+    private final Source source;
+    private final long   cutoff;
+    private final int    pageSize;
+    private final int    maxPages;
+
+    private final List<PillReminder>   items     = new ArrayList<>();   // newest first
+    private final ArrayDeque<Integer>  pageSizes = new ArrayDeque<>();  // first = newest page
+    private Listener listener;
+
+    private boolean hasOlder = true;
+    private boolean hasNewer;
+    private boolean loading;
+
+    public ReminderHistoryPager(Source source, long cutoff, int pageSize, int maxPages) {
+        if (pageSize < 1 || maxPages < 2) throw new IllegalArgumentException("pageSize >= 1, maxPages >= 2");
+        this.source   = source;
+        this.cutoff   = cutoff;
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+    }
+
+    public void setListener(Listener listener) { this.listener = listener; }
+
+    /** Live list for the adapter — mutate only through the pager. */
+    public List<PillReminder> getItems() { return items; }
+
+    public boolean hasOlder()  { return hasOlder; }
+    public boolean hasNewer()  { return hasNewer; }
+    public boolean isLoading() { return loading; }
+
+    /** Fetches the next page below the window; no-op while a page is in flight or at the bottom. */
+    public boolean loadOlder() {
+        if (loading || !hasOlder) return false;
+        loading = true;
+        PillReminder last = items.isEmpty() ? null : items.get(items.size() - 1);
+        PageCallback callback = new PageCallback() {
+            @Override public void onPage(List<PillReminder> ascending) { appendOlder(ascending); }
+            @Override public void onError(Exception e)                  { loading = false; }
+        };
+        if (last == null) source.loadBefore(cutoff, null, pageSize, callback);
+        else              source.loadBefore(last.getEndDate(), last.getId(), pageSize, callback);
+        return true;
+    }
+
+    /** Re-fetches the page above the window after it was dropped; no-op if nothing was. */
+    public boolean loadNewer() {
+        if (loading || !hasNewer || items.isEmpty()) return false;
+        loading = true;
+        PillReminder first = items.get(0);
+        source.loadAfter(first.getEndDate(), first.getId(), cutoff, pageSize, new PageCallback() {
+            @Override public void onPage(List<PillReminder> ascending) { prependNewer(ascending); }
+            @Override public void onError(Exception e)                  { loading = false; }
+        });
+        return true;
+    }
+
+    /** Drops a deleted reminder from whichever page holds it. */
+    public void remove(String id) {
+        int index = 0;
+        for (PillReminder r : items) {
+            if (r.getId().equals(id)) break;
+            index++;
+        }
+        if (index == items.size()) return;
+
+        items.remove(index);
+        List<Integer> sizes = new ArrayList<>(pageSizes);
+        int start = 0;
+        for (int p = 0; p < sizes.size(); p++) {
+            if (index < start + sizes.get(p)) { sizes.set(p, sizes.get(p) - 1); break; }
+            start += sizes.get(p);
+        }
+        pageSizes.clear();
+        for (int size : sizes) if (size > 0) pageSizes.add(size);
+        if (listener != null) listener.onItemRangeRemoved(index, 1);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Page arrival
+    // ═══════════════════════════════════════════════════════════════════════
+
+    private void appendOlder(List<PillReminder> ascending) {
+        loading = false;
+        List<PillReminder> page = new ArrayList<>(ascending.size());
+        boolean bottom = ascending.size() < pageSize;
+        for (PillReminder r : ascending) {
+            if (r.getEndDate() > 0) page.add(r);
+            else bottom = true;
+        }
+        hasOlder = !bottom;
+        if (page.isEmpty()) return;
+
+        Collections.reverse(page);
+        int start = items.size();
+        items.addAll(page);
+        pageSizes.addLast(page.size());
+        if (listener != null) listener.onItemRangeInserted(start, page.size());
+
+        while (pageSizes.size() > maxPages) {
+            int dropped = pageSizes.removeFirst();
+            items.subList(0, dropped).clear();
+            hasNewer = true;
+            if (listener != null) listener.onItemRangeRemoved(0, dropped);
+        }
+    }
+
+    private void prependNewer(List<PillReminder> ascending) {
+        loading = false;
+        hasNewer = ascending.size() >= pageSize;
+        if (ascending.isEmpty()) return;
+
+        List<PillReminder> page = new ArrayList<>(ascending);
+        Collections.reverse(page);
+        items.addAll(0, page);
+        pageSizes.addFirst(page.size());
+        if (listener != null) listener.onItemRangeInserted(0, page.size());
+
+        while (pageSizes.size() > maxPages) {
+            int dropped = pageSizes.removeLast();
+            int start = items.size() - dropped;
+            items.subList(start, items.size()).clear();
+            hasOlder = true;
+            if (listener != null) listener.onItemRangeRemoved(start, dropped);
+        }
+    }
+}
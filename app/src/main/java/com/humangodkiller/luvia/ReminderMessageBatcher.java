@@ -0,0 +1,231 @@
+package com.humangodkiller.luvia;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Generates the spoken text for a whole day of wake-ups with one Gemini request instead of
+ * one per wake-up.
+ *
+ * The prompt lists every upcoming wake-up as JSON with a numeric id; Gemini answers with a
+ * JSON array of {"id", "message"} objects, which are matched back by id and stored in
+ * {@link ReminderMessageCache} under each wake-up's usual key — so the per-wake-up prefetch
+ * and the alarm itself find them without knowing they came from a batch. Wake-ups the answer
+ * leaves out (or garbles) get their offline fallback for now and are not cached, so the
+ * per-wake-up prefetch still tries them on their own later.
+ *
+ * A batch that fails, or still leaves {@link #MIN_BATCH} or more wake-ups uncached, would
+ * otherwise be sent again on every re-arm; a {@link Backoff} spaces those retries out.
+ */
+public final class ReminderMessageBatcher {
+
+    /** Wake-ups looked ahead for one batch — the day from now. */
+    public static final long HORIZON_MILLIS = 24L * 60 * 60 * 1000;
+
+    // One wake-up would only re-create the per-wake-up request in a longer form
+    static final int MIN_BATCH = 2;
+
+    // Stop rebuilding the timeline after this many wake-ups, whatever the horizon
+    private static final int MAX_WAKE_UPS = 48;
+
+    /** Per-wake-up texts of one batch, index-aligned with the wake-ups asked for. */
+    public static final class Result {
+        public final List<String> messages;
+        public final boolean[]    generated;   // false where messages holds the fallback
+
+        Result(List<String> messages, boolean[] generated) {
+            this.messages  = messages;
+            this.generated = generated;
+        }
+    }
+
+    /**
+     * When the next batch may go out after unsuccessful ones: {@link #INITIAL_MILLIS} after
+     * the first, doubling up to {@link #MAX_MILLIS}; one that leaves nothing to retry resets it.
+     */
+    public static final class Backoff {
+        static final long INITIAL_MILLIS = 5 * 60 * 1000L;
+        static final long MAX_MILLIS     = 6 * 60 * 60 * 1000L;
+
+        private long delayMillis;   // 0 until a batch goes wrong
+        private long retryAt;
+
+        /** Whether a batch may be sent at {@code now}. */
+        public synchronized boolean allows(long now) {
+            return now >= retryAt;
+        }
+
+        synchronized void failed(long now) {
+            delayMillis = delayMillis == 0 ? INITIAL_MILLIS : Math.min(delayMillis * 2, MAX_MILLIS);
+            retryAt     = now + delayMillis;
+        }
+
+        synchronized void succeeded() {
+            delayMillis = 0;
+            retryAt     = 0;
+        }
+    }
+
+    private ReminderMessageBatcher() {}
+
+    /**
+     * The wake-ups (as spoken-item lists) the timeline will deliver after {@code after} and
+     * up to {@code until}, in firing order.
+     */
+    public static List<List<ReminderMessages.Item>> upcoming(DoseTimeline timeline,
+                                                             Collection<PillReminder> reminders,
+                                                             long after, long until) {
+        List<List<ReminderMessages.Item>> wakeUps = new ArrayList<>();
+        long from = after;
+        while (wakeUps.size() < MAX_WAKE_UPS) {
+            timeline.rebuild(reminders, from);
+            DoseTimeline.Batch batch = timeline.pollBatch();
+            if (batch == null || batch.fireAt > until) break;
+            wakeUps.add(ReminderMessages.fromBatch(batch));
+            from = batch.coversUntil;
+        }
+        return wakeUps;
+    }
+
+    /**
+     * Makes sure every wake-up in {@code wakeUps} has a cached message, asking the generator
+     * once for all the ones that don't. Below {@link #MIN_BATCH} misses nothing is sent.
+     *
+     * @return how many messages were generated and cached
+     */
+    public static int prefetch(ReminderMessageCache cache, List<List<ReminderMessages.Item>> wakeUps,
+                               String lang, ReminderMessageCache.Generator generator, long now)
+            throws IOException {
+        List<List<ReminderMessages.Item>> missing = uncached(cache, wakeUps, lang, now);
+        if (missing.size() < MIN_BATCH) return 0;
+        return store(cache, missing, lang, generate(missing, lang, generator), now);
+    }
+
+    /**
+     * {@link #prefetch(ReminderMessageCache, List, String, ReminderMessageCache.Generator, long)},
+     * skipped while {@code backoff} holds batches back. A failed request, or a reply that
+     * leaves {@link #MIN_BATCH} or more wake-ups without a message, backs it off further.
+     */
+    public static int prefetch(ReminderMessageCache cache, List<List<ReminderMessages.Item>> wakeUps,
+                               String lang, ReminderMessageCache.Generator generator, long now,
+                               Backoff backoff) throws IOException {
+        if (!backoff.allows(now)) return 0;
+        List<List<ReminderMessages.Item>> missing = uncached(cache, wakeUps, lang, now);
+        if (missing.size() < MIN_BATCH) return 0;
+
+        int stored;
+        try {
+            stored = store(cache, missing, lang, generate(missing, lang, generator), now);
+        } catch (IOException e) {
+            backoff.failed(now);
+            throw e;
+        }
+        if (missing.size() - stored >= MIN_BATCH) backoff.failed(now);
+        else backoff.succeeded();
+        return stored;
+    }
+
+    private static List<List<ReminderMessages.Item>> uncached(ReminderMessageCache cache,
+                                                              List<List<ReminderMessages.Item>> wakeUps,
+                                                              String lang, long now) {
+        List<List<ReminderMessages.Item>> missing = new ArrayList<>();
+        for (List<ReminderMessages.Item> items : wakeUps) {
+            if (cache.get(items, lang, now) == null) missing.add(items);
+        }
+        return missing;
+    }
+
+    private static int store(ReminderMessageCache cache, List<List<ReminderMessages.Item>> missing,
+                             String lang, Result result, long now) {
+        int stored = 0;
+        for (int i = 0; i < missing.size(); i++) {
+            // Fallbacks aren't cached: the per-wake-up prefetch gets another go at them
+            if (!result.generated[i]) continue;
+            cache.put(missing.get(i), lang, result.messages.get(i), now);
+            stored++;
+        }
+        return stored;
+    }
+
+    /**
+     * One request for all of {@code wakeUps}. A failed request throws; a reply that leaves
+     * some wake-ups out fills those in with {@link ReminderMessages#fallback}.
+     */
+    public static Result generate(List<List<ReminderMessages.Item>> wakeUps, String lang,
+                                  ReminderMessageCache.Generator generator) throws IOException {
+        String[] answers = parse(generator.generate(prompt(wakeUps, lang)), wakeUps.size());
+        List<String> messages  = new ArrayList<>(wakeUps.size());
+        boolean[]    generated = new boolean[wakeUps.size()];
+        for (int i = 0; i < wakeUps.size(); i++) {
+            generated[i] = answers[i] != null;
+            messages.add(generated[i] ? answers[i] : ReminderMessages.fallback(wakeUps.get(i), lang));
+        }
+        return new Result(messages, generated);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Wire format
+    // ═══════════════════════════════════════════════════════════════════════
+
+    static String prompt(List<List<ReminderMessages.Item>> wakeUps, String lang) {
+        JSONArray alarms = new JSONArray();
+        try {
+            for (int i = 0; i < wakeUps.size(); i++) {
+                JSONArray medicines = new JSONArray();
+                for (ReminderMessages.Item item : wakeUps.get(i)) {
+                    medicines.put(new JSONObject()
+                            .put("medicine", item.pillName)
+                            .put("dosage",   item.dosage)
+                            .put("due", item.early
+                                    ? "in " + item.minutesRemaining + " minute" + (item.minutesRemaining == 1 ? "" : "s")
+                                    : "now"));
+                }
+                alarms.put(new JSONObject().put("id", i).put("medicines", medicines));
+            }
+        } catch (JSONException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return ReminderMessages.languageInstruction(lang) + " You write spoken medicine reminders for one patient. " +
+                "Below is a JSON array of today's " + wakeUps.size() + " alarms. For EACH alarm write one friendly " +
+                "caring reminder (max 3 sentences) that mentions every medicine by name and when it is due. " +
+                "Be warm and encouraging. Keep it conversational and vary the wording between alarms. " +
+                "Reply with ONLY a JSON array of objects {\"id\": <alarm id>, \"message\": <reminder>}, " +
+                "one per alarm, and nothing else.\nAlarms: " + alarms;
+    }
+
+    /**
+     * Messages by alarm id from a reply, null where an id is missing, repeated, empty or out
+     * of range. Tolerates a markdown code fence or chatter around the array.
+     */
+    static String[] parse(String reply, int count) {
+        String[] messages = new String[count];
+        if (reply == null) return messages;
+        int start = reply.indexOf('['), end = reply.lastIndexOf(']');
+        if (start < 0 || end <= start) return messages;
+
+        JSONArray array;
+        try {
+            array = new JSONArray(reply.substring(start, end + 1));
+        } catch (JSONException e) {
+            return messages;
+        }
+        boolean[] repeated = new boolean[count];
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject o = array.optJSONObject(i);
+            if (o == null) continue;
+            int id = o.optInt("id", -1);
+            String message = o.optString("message", "").trim();
+            if (id < 0 || id >= count || message.isEmpty()) continue;
+            if (messages[id] != null) repeated[id] = true;
+            messages[id] = message;
+        }
+        for (int i = 0; i < count; i++) if (repeated[i]) messages[i] = null;
+        return messages;
+    }
+}
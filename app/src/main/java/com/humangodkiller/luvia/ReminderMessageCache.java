@@ -0,0 +1,154 @@
+package com.humangodkiller.luvia;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spoken reminder texts generated ahead of the alarm, keyed by
+ * {@link ReminderMessages#cacheKey}.
+ *
+ * Bounded LRU with a TTL, persisted to a small file so the receiver process that fires
+ * the alarm sees what an earlier process generated. At fire time the activity reads from
+ * here with zero network; only a miss falls back to a live Gemini call.
+ */
+public class ReminderMessageCache {
+
+    /** Produces the text for a prompt — Gemini in the app, a fake in tests. */
+    public interface Generator {
+        String generate(String prompt) throws IOException;
+    }
+
+    private static final int MAGIC   = 0x4C564D43; // "LVMC"
+    private static final int VERSION = 1;
+
+    // Longer than that and a one-off UTF record can't hold it anyway
+    private static final int MAX_MESSAGE_CHARS = 4000;
+
+    private static final class Entry {
+        final String message;
+        final long   storedAt;
+
+        Entry(String message, long storedAt) {
+            this.message  = message;
+            this.storedAt = storedAt;
+        }
+    }
+
+    private final File file;
+    private final int  maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, Entry> entries;
+
+    private ReminderMessageCache(File file, int maxEntries, long ttlMillis) {
+        this.file       = file;
+        this.maxEntries = maxEntries;
+        this.ttlMillis  = ttlMillis;
+        // Access order: iteration runs least- to most-recently used
+        this.entries    = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public static ReminderMessageCache open(File file, int maxEntries, long ttlMillis) {
+        ReminderMessageCache cache = new ReminderMessageCache(file, maxEntries, ttlMillis);
+        cache.load();
+        return cache;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Lookups
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /** Cached text for these reminders in this language, or null if missing or expired. */
+    public synchronized String get(List<ReminderMessages.Item> items, String lang, long now) {
+        String key = ReminderMessages.cacheKey(items, lang);
+        Entry e = entries.get(key);
+        if (e == null) return null;
+        if (now - e.storedAt > ttlMillis) {
+            entries.remove(key);
+            return null;
+        }
+        return e.message;
+    }
+
+    public synchronized void put(List<ReminderMessages.Item> items, String lang, String message, long now) {
+        if (message == null || message.isEmpty() || message.length() > MAX_MESSAGE_CHARS) return;
+        entries.put(ReminderMessages.cacheKey(items, lang), new Entry(message, now));
+        evict(now);
+        save();
+    }
+
+    public synchronized int size() { return entries.size(); }
+
+    /**
+     * Makes sure a generated message for these reminders is cached, calling the generator
+     * only on a miss. Returns true if a new message was generated. Fallback texts are never
+     * stored — a failed generation is simply retried by the next prefetch.
+     */
+    public boolean prefetch(List<ReminderMessages.Item> items, String lang, Generator generator, long now)
+            throws IOException {
+        if (get(items, lang, now) != null) return false;
+        String message = generator.generate(ReminderMessages.prompt(items, lang));
+        if (message == null || message.isEmpty()) return false;
+        put(items, lang, message, now);
+        return true;
+    }
+
+    private void evict(long now) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Entry> e = it.next();
+            if (entries.size() > maxEntries || now - e.getValue().storedAt > ttlMillis) it.remove();
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // File — rewritten whole on every put; it holds a few dozen short strings
+    // ═══════════════════════════════════════════════════════════════════════
+
+    private void load() {
+        if (!file.exists()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key      = in.readUTF();
+                String message  = in.readUTF();
+                long   storedAt = in.readLong();
+                entries.put(key, new Entry(message, storedAt));
+            }
+        } catch (IOException e) {
+            // Unreadable or torn — it's only a cache, start empty
+            entries.clear();
+        }
+    }
+
+    private void save() {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeUTF(e.getValue().message);
+                out.writeLong(e.getValue().storedAt);
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            file.delete();
+            tmp.renameTo(file);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.humangodkiller.luvia;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Generates the spoken text for the next wake-up as soon as it is armed, so the alarm
+ * reads it from {@link ReminderMessageCache} instead of racing Gemini against the MP3.
+ *
+ * After that, the first arming of the day also asks for every other wake-up of the next 24
+ * hours in one request ({@link ReminderMessageBatcher}). Later armings then find their
+ * message cached and make no request at all; while batches keep failing they are backed off
+ * rather than resent on every arming.
+ */
+public final class ReminderMessagePrefetcher {
+
+    private static final String TAG = "MessagePrefetcher";
+
+    private static final String CACHE_FILE   = "reminder_messages.bin";
+    private static final int    MAX_ENTRIES  = 64;
+    private static final long   TTL_MILLIS   = 7L * 24 * 60 * 60 * 1000;
+
+    // A day's worth of messages is a much longer answer than one
+    private static final int    BATCH_TIMEOUT_MILLIS = 30_000;
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+    private static final ReminderMessageBatcher.Backoff BATCH_BACKOFF = new ReminderMessageBatcher.Backoff();
+    private static ReminderMessageCache cache;
+
+    private ReminderMessagePrefetcher() {}
+
+    public static synchronized ReminderMessageCache cache(Context context) {
+        if (cache == null) {
+            cache = ReminderMessageCache.open(new File(context.getFilesDir(), CACHE_FILE),
+                    MAX_ENTRIES, TTL_MILLIS);
+        }
+        return cache;
+    }
+
+    /**
+     * Generates and caches the message for {@code batch} — and, in one request, for the rest
+     * of the day's wake-ups of {@code reminders} that have none — in the background; best effort.
+     */
+    public static void prefetchAsync(Context context, Collection<PillReminder> reminders,
+                                     DoseTimeline.Batch batch) {
+        if (batch == null || batch.events.isEmpty()) return;
+        Context appContext = context.getApplicationContext();
+        List<ReminderMessages.Item> items = ReminderMessages.fromBatch(batch);
+        List<PillReminder> snapshot = new ArrayList<>(reminders);
+        // The imminent wake-up first, on its own task: the day batch can take up to
+        // BATCH_TIMEOUT_MILLIS and must not hold back a message that is due in minutes
+        EXECUTOR.execute(() -> {
+            String lang = UserProfiles.alarmLanguage(appContext);
+            try {
+                boolean generated = cache(appContext).prefetch(items, lang,
+                        prompt -> GeminiRequestCoalescer.shared().get(prompt,
+                                () -> GeminiClient.shared().newCall(prompt).execute()),
+                        System.currentTimeMillis());
+                if (generated) Log.d(TAG, "Cached message for " + items.size() + " reminder(s) at " + batch.fireAt);
+
+                // Render it to audio too, so the alarm needn't start a TTS engine
+                String message = cache(appContext).get(items, lang, System.currentTimeMillis());
+                if (message != null) SpeechClipSynthesizer.synthesizeAsync(appContext, message, lang);
+            } catch (IOException e) {
+                // Fire time will try Gemini once more, then speak the offline fallback
+                Log.w(TAG, "Prefetch failed", e);
+            }
+        });
+        EXECUTOR.execute(() -> {
+            String lang = UserProfiles.alarmLanguage(appContext);
+            try {
+                long now = System.currentTimeMillis();
+                List<List<ReminderMessages.Item>> day = ReminderMessageBatcher.upcoming(
+                        ReminderAlarmScheduler.newTimeline(), snapshot, now, now + ReminderMessageBatcher.HORIZON_MILLIS);
+                int batched = ReminderMessageBatcher.prefetch(cache(appContext), day, lang,
+                        prompt -> GeminiRequestCoalescer.shared().get(prompt,
+                                () -> GeminiClient.shared().newCall(prompt, BATCH_TIMEOUT_MILLIS).execute()),
+                        now, BATCH_BACKOFF);
+                if (batched > 0) Log.d(TAG, "Cached " + batched + " of " + day.size() + " wake-ups in one request");
+            } catch (IOException e) {
+                // Each wake-up is still prefetched on its own when it is armed
+                Log.w(TAG, "Day batch failed", e);
+            }
+        });
+    }
+}
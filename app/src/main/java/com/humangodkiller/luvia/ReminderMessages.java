@@ -0,0 +1,150 @@
+package com.humangodkiller.luvia;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gemini prompts, offline fallbacks and cache keys for spoken reminders.
+ *
+ * The wording lives in per-language templates ({@link MessageCatalog}), compiled the first
+ * time a language is used; rendering one is a walk over its parts.
+ *
+ * Pulled out of GeminiIntegrationActivity so a message can be generated ahead of time —
+ * when the next wake-up is armed — with exactly the prompt the activity would have used.
+ */
+public final class ReminderMessages {
+
+    /** One reminder as it will be spoken. */
+    public static final class Item {
+        public final String  pillName;
+        public final String  dosage;
+        public final boolean early;
+        public final int     minutesRemaining;
+
+        public Item(String pillName, String dosage, boolean early, int minutesRemaining) {
+            this.pillName         = pillName;
+            this.dosage           = dosage;
+            this.early            = early;
+            this.minutesRemaining = minutesRemaining;
+        }
+    }
+
+    private ReminderMessages() {}
+
+    public static List<Item> fromBatch(DoseTimeline.Batch batch) {
+        List<Item> items = new ArrayList<>(batch.events.size());
+        for (DoseTimeline.Event e : batch.events)
+            items.add(new Item(e.reminder.getPillName(), e.reminder.getDosage(), e.early, e.minutesRemaining));
+        return items;
+    }
+
+    public static List<Item> single(String pillName, String dosage, boolean early, int minutesRemaining) {
+        return Collections.singletonList(new Item(pillName, dosage, early, minutesRemaining));
+    }
+
+    /**
+     * Cache key over every field that changes the wording: pill, dosage, early/main,
+     * minutes remaining and language. Fields are length-prefixed so no pill name can
+     * forge another key.
+     */
+    public static String cacheKey(List<Item> items, String lang) {
+        StringBuilder sb = new StringBuilder(lang).append('|');
+        for (Item item : items) {
+            appendField(sb, item.pillName);
+            appendField(sb, item.dosage);
+            sb.append(item.early ? 'E' : 'M');
+            if (item.early) sb.append(item.minutesRemaining);
+            sb.append(';');
+        }
+        return sb.toString();
+    }
+
+    private static void appendField(StringBuilder sb, String value) {
+        String v = value != null ? value : "";
+        sb.append(v.length()).append(':').append(v);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Coalesced wake-ups — one prompt and one spoken message for the whole batch
+    // ═══════════════════════════════════════════════════════════════════════
+
+    public static String prompt(List<Item> items, String lang) {
+        if (items.size() == 1) {
+            Item i = items.get(0);
+            return prompt(i.pillName, i.dosage, i.early, i.minutesRemaining, lang);
+        }
+
+        MessageCatalog catalog = catalog(lang);
+        MessageTemplate early = catalog.template("prompt.batch.early");
+        MessageTemplate now   = catalog.template("prompt.batch.now");
+        StringBuilder list = new StringBuilder();
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            if (i > 0) list.append("; ");
+            (item.early ? early : now).appendTo(list, item.pillName, item.dosage, item.minutesRemaining);
+        }
+        return catalog.template("prompt.batch").render(null, null, null, languageInstruction(lang), list);
+    }
+
+    public static String fallback(List<Item> items, String lang) {
+        MessageCatalog catalog = catalog(lang);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            if (i > 0) sb.append(' ');
+            catalog.template(item.early ? "fallback.early" : "fallback.now")
+                    .appendTo(sb, item.pillName, item.dosage, item.minutesRemaining);
+        }
+        return sb.toString();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Language-aware Gemini prompt — uses ACTUAL minutes, not always "10"
+    // ═══════════════════════════════════════════════════════════════════════
+
+    static String prompt(String pillName, String dosage,
+                         boolean isEarly, int minutesRemaining, String lang) {
+        return catalog(lang).template(isEarly ? "prompt.early" : "prompt.now")
+                .render(pillName, dosage, minutesRemaining, languageInstruction(lang));
+    }
+
+    static Locale ttsLocale(String lang) {
+        return catalog(lang).locale();
+    }
+
+    static String languageInstruction(String lang) {
+        return catalog(lang).template("prompt.language").render();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Fallback messages — also uses actual minutesRemaining
+    // ═══════════════════════════════════════════════════════════════════════
+
+    static String fallback(String pillName, String dosage,
+                           boolean isEarly, int minutesRemaining, String lang) {
+        return catalog(lang).template(isEarly ? "fallback.early" : "fallback.now")
+                .render(pillName, dosage, minutesRemaining);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Templates — resources/…/templates/<lang>.properties, compiled once per language
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /** Argument names the templates use, in the order they are passed to render(). */
+    static final List<String> ARGS = Collections.unmodifiableList(
+            Arrays.asList("pill", "dosage", "minutes", "language", "list"));
+
+    private static final Map<String, MessageCatalog> catalogs = new ConcurrentHashMap<>();
+
+    static MessageCatalog catalog(String lang) {
+        String key = lang != null ? lang : MessageCatalog.BASE_LANGUAGE;
+        MessageCatalog catalog = catalogs.get(key);
+        if (catalog == null) catalog = catalogs.computeIfAbsent(key, l -> MessageCatalog.load(l, ARGS));
+        return catalog;
+    }
+}
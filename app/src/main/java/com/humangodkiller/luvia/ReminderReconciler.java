@@ -0,0 +1,90 @@
+package com.humangodkiller.luvia;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Last-write-wins reconciliation between {@link LocalReminderStore} and a snapshot of
+ * the remote pillReminders/&lt;uid&gt; node — or of the window of it the caller keeps live,
+ * in which case whatever is outside the window is treated as gone.
+ *
+ *   remote only                      → pulled into the local store
+ *   local only, dirty                → pushed (created while offline)
+ *   local only, clean                → dropped locally (deleted on another device)
+ *   both, differing                  → newer updatedAt wins
+ *   local tombstone vs remote copy   → delete wins if it is at least as new
+ */
+public final class ReminderReconciler {
+
+    /** Write side of the remote node — Firebase in the app, a plain map in tests. */
+    public interface Remote {
+        void put(PillReminder reminder);
+        void remove(String id);
+    }
+
+    public static final class Result {
+        public final List<PillReminder> pulled        = new ArrayList<>();
+        public final List<String>       droppedLocal  = new ArrayList<>();
+        public final List<String>       pushed        = new ArrayList<>();
+        public final List<String>       deletedRemote = new ArrayList<>();
+
+        public boolean isEmpty() {
+            return pulled.isEmpty() && droppedLocal.isEmpty()
+                    && pushed.isEmpty() && deletedRemote.isEmpty();
+        }
+    }
+
+    private ReminderReconciler() {}
+
+    public static Result reconcile(LocalReminderStore local,
+                                   Map<String, PillReminder> remote,
+                                   Remote sink) throws IOException {
+        Result result = new Result();
+
+        for (Map.Entry<String, PillReminder> e : remote.entrySet()) {
+            String id = e.getKey();
+            PillReminder theirs = e.getValue();
+            theirs.setId(id);
+
+            long deletedAt = local.getTombstone(id);
+            if (deletedAt >= 0) {
+                if (deletedAt >= theirs.getUpdatedAt()) {
+                    sink.remove(id);
+                    result.deletedRemote.add(id);
+                } else if (local.applyRemote(theirs)) {
+                    result.pulled.add(theirs);
+                }
+                continue;
+            }
+
+            PillReminder ours = local.get(id);
+            // Equal stamps on a dirty record mean the ack was lost — re-sending is idempotent
+            if (ours != null && local.isDirty(id) && ours.getUpdatedAt() >= theirs.getUpdatedAt()) {
+                sink.put(ours);
+                result.pushed.add(id);
+            } else if (local.applyRemote(theirs)) {
+                result.pulled.add(theirs);
+            }
+        }
+
+        for (PillReminder ours : local.getAll()) {
+            String id = ours.getId();
+            if (remote.containsKey(id)) continue;
+            if (local.isDirty(id)) {
+                sink.put(ours);
+                result.pushed.add(id);
+            } else {
+                local.applyRemoteDelete(id);
+                result.droppedLocal.add(id);
+            }
+        }
+
+        // Pending deletes the remote has already forgotten about are simply done
+        for (String id : local.getTombstoneIds()) {
+            if (!remote.containsKey(id)) local.markSynced(id);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,106 @@
+package com.humangodkiller.luvia;
+
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Display model for the medicine plan list. Each reminder's strings ("Dosage: …",
+ * "Time: …", the date range) are formatted once and reused until that reminder changes or
+ * the locale / time zone does, so binding a row is a map lookup and a few setText calls.
+ *
+ * Also hands out stable adapter ids: one long per reminder id for the life of the list.
+ * Not thread-safe — use it from the main thread, like the adapter.
+ */
+public class ReminderRows {
+
+    /** Everything a row shows, ready to hand to the views. */
+    public static final class Row {
+        public final PillReminder reminder;
+        public final String       pillName;
+        public final String       dosageText;
+        public final String       timeText;
+        public final String       dateRangeText;   // null when the reminder has no course dates
+
+        Row(PillReminder reminder, String pillName, String dosageText,
+            String timeText, String dateRangeText) {
+            this.reminder      = reminder;
+            this.pillName      = pillName;
+            this.dosageText    = dosageText;
+            this.timeText      = timeText;
+            this.dateRangeText = dateRangeText;
+        }
+    }
+
+    private final Map<String, Row>  rows      = new HashMap<>();
+    private final Map<String, Long> stableIds = new HashMap<>();
+    private long nextStableId = 1;
+
+    private Locale   locale;
+    private TimeZone timeZone;
+    private SimpleDateFormat timeFormat;
+    private SimpleDateFormat dateFormat;
+
+    public ReminderRows(Locale locale, TimeZone timeZone) {
+        setEnvironment(locale, timeZone);
+    }
+
+    /**
+     * Switches the locale / time zone used for formatting; cached rows are dropped only if
+     * either actually changed.
+     *
+     * @return whether anything changed, i.e. visible rows need rebinding
+     */
+    public boolean setEnvironment(Locale locale, TimeZone timeZone) {
+        if (locale.equals(this.locale) && this.timeZone != null
+                && timeZone.getID().equals(this.timeZone.getID())
+                && timeZone.getRawOffset() == this.timeZone.getRawOffset()) {
+            return false;
+        }
+        this.locale   = locale;
+        this.timeZone = (TimeZone) timeZone.clone();
+        timeFormat = new SimpleDateFormat("hh:mm a", locale);
+        dateFormat = new SimpleDateFormat("dd MMM yyyy", locale);
+        timeFormat.setTimeZone(this.timeZone);
+        dateFormat.setTimeZone(this.timeZone);
+        rows.clear();
+        return true;
+    }
+
+    /** The row for {@code reminder}, formatted now only if it is new or has changed. */
+    public Row rowFor(PillReminder reminder) {
+        Row row = rows.get(reminder.getId());
+        if (row != null && (row.reminder == reminder || row.reminder.equals(reminder))) return row;
+        row = format(reminder);
+        rows.put(reminder.getId(), row);
+        return row;
+    }
+
+    public long stableIdFor(String reminderId) {
+        Long id = stableIds.get(reminderId);
+        if (id == null) {
+            id = nextStableId++;
+            stableIds.put(reminderId, id);
+        }
+        return id;
+    }
+
+    /** Drops the cached row for a deleted reminder; its stable id is never reused. */
+    public void remove(String reminderId) {
+        rows.remove(reminderId);
+    }
+
+    public int cachedCount() { return rows.size(); }
+
+    private Row format(PillReminder r) {
+        String range = r.getStartDate() > 0 && r.getEndDate() > 0
+                ? dateFormat.format(r.getStartDate()) + "  →  " + dateFormat.format(r.getEndDate())
+                : null;
+        return new Row(r, r.getPillName(),
+                "Dosage: " + r.getDosage(),
+                "Time: " + timeFormat.format(r.getScheduledTime()),
+                range);
+    }
+}
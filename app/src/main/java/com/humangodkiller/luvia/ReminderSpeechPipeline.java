@@ -0,0 +1,400 @@
+package com.humangodkiller.luvia;
+
+import android.content.Context;
+import android.media.MediaPlayer;
+import android.os.Handler;
+import android.os.Looper;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Alarm audio + spoken reminder for one wake-up: plays R.raw.alarm twice while the message
+ * is resolved (prefetch cache → live Gemini → offline fallback), then plays the
+ * pre-synthesized clip or speaks it with TextToSpeech.
+ *
+ * On a cache miss the live message is streamed: each sentence goes on the TTS queue as soon
+ * as it has arrived (and the alarm is over), so the first words play while Gemini is still
+ * generating the rest. A stream that breaks off part-way is finished with the fallback
+ * ({@link StreamedReply}).
+ *
+ * The live request only gets as long as the alarm has left to play plus a short grace
+ * ({@link GeminiDeadline}); if it has produced nothing by then it is expired and the fallback
+ * spoken. While {@link GeminiCircuitBreaker} is open the request isn't sent at all.
+ *
+ * Shared by {@link GeminiIntegrationActivity} and {@link ReminderDeliveryService}. Call
+ * everything on the main thread. The TTS engine outlives a single delivery, so a host that
+ * keeps the pipeline around (the service) answers back-to-back alarms with a warm engine.
+ */
+public class ReminderSpeechPipeline {
+
+    private static final String TAG = "ReminderSpeechPipeline";
+
+    private static final int ALARM_REPEAT_COUNT = 2;
+
+    private static final String UTTERANCE        = "reminder";
+    private static final String STREAM_UTTERANCE = "reminder-";
+
+    /** Progress of one delivery, reported on the main thread. */
+    public interface Listener {
+        /** The text about to be spoken — for a toast or the notification. */
+        void onMessage(String message);
+        /** Audio of the message has started; {@code path} is "clip", "tts" or "stream". */
+        void onFirstWord(String path);
+        /** Everything for this delivery has played (or failed). */
+        void onFinished();
+    }
+
+    private final Context         context;
+    private final Handler         main     = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private volatile GeminiClient.Call activeCall;
+
+    private MediaPlayer  mediaPlayer;
+    private TextToSpeech textToSpeech;
+    private boolean      ttsReady;
+
+    // State of the current delivery; run changes whenever it is superseded or released
+    private int                         run;
+    private String                      lang;
+    private Listener                    listener;
+    private String                      pendingMessage;
+    private int                         alarmPlayCount;
+    private boolean                     alarmDone;
+    private boolean                     speaking;
+    private boolean                     waitingForTts;
+    private boolean                     messageResolved;
+    private volatile long               deadlineAt;
+
+    // Sentences of a streamed live message, in arrival order; empty when not streaming
+    private final StreamedReply         streamed = new StreamedReply();
+
+    public ReminderSpeechPipeline(Context context) {
+        this.context = context;
+    }
+
+    public boolean isBusy() { return listener != null; }
+
+    /** Whether a TTS engine from an earlier delivery is still up and ready. */
+    public boolean isWarm() { return ttsReady; }
+
+    public void deliver(List<ReminderMessages.Item> items, String lang, Listener listener) {
+        final int thisRun = ++run;
+        if (mediaPlayer != null) { mediaPlayer.stop(); mediaPlayer.release(); mediaPlayer = null; }
+        if (textToSpeech != null) textToSpeech.stop();
+        this.lang           = lang;
+        this.listener       = listener;
+        this.pendingMessage = null;
+        this.alarmDone      = false;
+        this.speaking       = false;
+        this.waitingForTts  = false;
+        this.messageResolved = false;
+        this.streamed.reset();
+
+        // Alarm first: its remaining playback is the live request's budget
+        startAlarm(thisRun);
+        long budget = GeminiDeadline.budgetMillis(mediaPlayer != null ? mediaPlayer.getDuration() : 0,
+                ALARM_REPEAT_COUNT, alarmPlayCount, mediaPlayer != null ? mediaPlayer.getCurrentPosition() : 0);
+        deadlineAt = System.currentTimeMillis() + budget;
+        main.postDelayed(() -> { if (thisRun == run) onDeadline(items); }, budget);
+
+        // Resolve the message while the alarm MP3 plays — no delay after it finishes
+        executor.execute(() -> {
+            String message;
+            try {
+                message = resolveMessage(items, lang,
+                        sentence -> main.post(() -> { if (thisRun == run) onSentence(sentence); }));
+            } catch (Exception e) {
+                Log.e(TAG, "Error resolving reminder message", e);
+                message = null;
+            }
+            boolean fallback = message == null;
+            String ready = fallback ? ReminderMessages.fallback(items, lang) : message;
+            main.post(() -> { if (thisRun == run) onMessageReady(ready, fallback); });
+        });
+    }
+
+    /** Stops whatever is playing and frees the engine; the pipeline can't be reused after. */
+    public void release() {
+        run++;
+        listener = null;
+        if (mediaPlayer != null) { mediaPlayer.stop(); mediaPlayer.release(); mediaPlayer = null; }
+        if (textToSpeech != null) { textToSpeech.stop(); textToSpeech.shutdown(); textToSpeech = null; }
+        ttsReady = false;
+        // Abort an in-flight Gemini request instead of letting it run out its timeout
+        GeminiClient.Call call = activeCall;
+        if (call != null) call.cancel();
+        executor.shutdown();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Step 1: Play alarm MP3 twice, THEN speak
+    // ═══════════════════════════════════════════════════════════════════════
+
+    private void startAlarm(int thisRun) {
+        alarmPlayCount = 0;
+        mediaPlayer = MediaPlayer.create(context, R.raw.alarm);
+        if (mediaPlayer == null) {
+            Log.e(TAG, "MediaPlayer could not load R.raw.alarm — skipping to speech");
+            onAlarmDone();
+            return;
+        }
+
+        mediaPlayer.setOnCompletionListener(mp -> {
+            if (thisRun != run) return;
+            alarmPlayCount++;
+            Log.d(TAG, "Alarm play #" + alarmPlayCount + " done");
+
+            if (alarmPlayCount < ALARM_REPEAT_COUNT) {
+                mp.seekTo(0);
+                mp.start();
+            } else {
+                mp.release();
+                mediaPlayer = null;
+                onAlarmDone();
+            }
+        });
+
+        mediaPlayer.start();
+        Log.d(TAG, "Alarm MP3 started (play 1 of " + ALARM_REPEAT_COUNT + ")");
+    }
+
+    private void onAlarmDone() {
+        alarmDone = true;
+        if (!streamed.isEmpty()) {
+            speakStreamed();
+        } else if (pendingMessage != null) {
+            speak();
+        } else {
+            // Warm the engine while Gemini finishes, in case there is no clip for it
+            Log.d(TAG, "Alarm finished, waiting for message...");
+            ensureTts();
+        }
+    }
+
+    /** The alarm is (nearly) over and nothing has arrived to say: give up on Gemini. */
+    private void onDeadline(List<ReminderMessages.Item> items) {
+        if (messageResolved || !streamed.isEmpty()) return;
+        Log.w(TAG, "Gemini missed its deadline, speaking fallback");
+        GeminiClient.Call call = activeCall;
+        if (call != null) call.expire();
+        onMessageReady(ReminderMessages.fallback(items, lang), true);
+    }
+
+    /** @param fallback whether {@code message} is the offline fallback rather than a live or cached one */
+    private void onMessageReady(String message, boolean fallback) {
+        if (messageResolved) return;   // the deadline already spoke for it
+        messageResolved = true;
+        Log.d(TAG, "Message ready: " + message);
+        if (!streamed.isEmpty()) {
+            // Already on its way to the speaker sentence by sentence; a stream that broke
+            // off part-way gets the fallback queued after what was said
+            pendingMessage = fallback ? streamed.fail(message) : streamed.complete(message);
+            if (listener != null) listener.onMessage(pendingMessage);
+            if (alarmDone) speakStreamed();
+            return;
+        }
+        pendingMessage = message;
+        if (alarmDone) speak();
+    }
+
+    private void onSentence(String sentence) {
+        if (messageResolved) return;
+        streamed.add(sentence);
+        if (alarmDone) speakStreamed();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Step 2: Cached clip, else TTS
+    // ═══════════════════════════════════════════════════════════════════════
+
+    private void speak() {
+        if (speaking) return;
+        speaking = true;
+        if (listener != null) listener.onMessage(pendingMessage);
+        if (playClip(pendingMessage)) return;
+
+        ensureTts();
+        if (ttsReady) speakWithTts();
+        else          { Log.d(TAG, "TTS not ready, queuing"); waitingForTts = true; }
+    }
+
+    private boolean playClip(String message) {
+        File clip = SpeechClipSynthesizer.clips(context)
+                .clipFor(message, lang, System.currentTimeMillis());
+        if (clip == null) return false;
+
+        MediaPlayer player = new MediaPlayer();
+        try {
+            player.setDataSource(clip.getPath());
+            player.prepare();
+        } catch (IOException e) {
+            Log.w(TAG, "Cached clip unplayable, using TTS", e);
+            player.release();
+            return false;
+        }
+        final int thisRun = run;
+        mediaPlayer = player;
+        player.setOnCompletionListener(mp -> {
+            mp.release();
+            if (mediaPlayer == mp) mediaPlayer = null;
+            if (thisRun == run) finishRun();
+        });
+        player.setOnErrorListener((mp, what, extra) -> {
+            mp.release();
+            if (mediaPlayer == mp) mediaPlayer = null;
+            if (thisRun == run) { ensureTts(); if (ttsReady) speakWithTts(); else waitingForTts = true; }
+            return true;
+        });
+
+        player.start();
+        if (listener != null) listener.onFirstWord("clip");
+        return true;
+    }
+
+    private void ensureTts() {
+        if (textToSpeech != null) return;
+        textToSpeech = new TextToSpeech(context, status -> {
+            if (status != TextToSpeech.SUCCESS) {
+                Log.e(TAG, "TTS init failed");
+                if (textToSpeech != null) textToSpeech.shutdown();
+                textToSpeech = null;
+                if (waitingForTts) finishRun();
+                return;
+            }
+            ttsReady = true;
+            Log.d(TAG, "TTS ready");
+            if (waitingForTts) {
+                waitingForTts = false;
+                if (!streamed.isEmpty()) speakStreamed();
+                else                     speakWithTts();
+            }
+        });
+    }
+
+    private void speakWithTts() {
+        prepareTts();
+        Log.d(TAG, "Speaking: " + pendingMessage);
+        int r = textToSpeech.speak(pendingMessage, TextToSpeech.QUEUE_FLUSH, null, UTTERANCE);
+        if (r == TextToSpeech.ERROR) { Log.e(TAG, "speak() ERROR"); finishRun(); }
+    }
+
+    /**
+     * Queues every streamed sentence not yet handed to TTS, and finishes the run once the
+     * stream is complete and the last queued sentence has been spoken.
+     */
+    private void speakStreamed() {
+        speaking = true;
+        ensureTts();
+        if (!ttsReady) { waitingForTts = true; return; }
+
+        if (streamed.queued() == 0 && !streamed.isEmpty()) prepareTts();
+        int index = streamed.queued();
+        for (String sentence : streamed.drain()) {
+            int r = textToSpeech.speak(sentence, TextToSpeech.QUEUE_ADD, null, STREAM_UTTERANCE + index++);
+            if (r == TextToSpeech.ERROR) { Log.e(TAG, "speak() ERROR on streamed sentence"); streamed.utteranceDone(); }
+        }
+        if (streamed.isFinished()) finishRun();
+    }
+
+    private void prepareTts() {
+        Locale locale = ReminderMessages.ttsLocale(lang);
+        int result = textToSpeech.setLanguage(locale);
+        if (result == TextToSpeech.LANG_MISSING_DATA || result == TextToSpeech.LANG_NOT_SUPPORTED) {
+            Log.w(TAG, "TTS locale not supported: " + locale + ", falling back to English");
+            textToSpeech.setLanguage(Locale.US);
+        }
+
+        final int thisRun = run;
+        textToSpeech.setOnUtteranceProgressListener(new UtteranceProgressListener() {
+            @Override public void onStart(String id) {
+                String path = id.startsWith(STREAM_UTTERANCE) ? "stream" : "tts";
+                main.post(() -> { if (thisRun == run && listener != null) listener.onFirstWord(path); });
+            }
+            @Override public void onDone(String id)  { main.post(() -> { if (thisRun == run) onUtteranceDone(); }); }
+            @Override public void onError(String id) {
+                Log.e(TAG, "TTS error");
+                main.post(() -> { if (thisRun == run) onUtteranceDone(); });
+            }
+        });
+    }
+
+    private void onUtteranceDone() {
+        if (streamed.isEmpty()) { finishRun(); return; }
+        streamed.utteranceDone();
+        if (streamed.isFinished()) finishRun();
+    }
+
+    private void finishRun() {
+        Listener done = listener;
+        listener = null;
+        speaking = false;
+        if (done != null) done.onFinished();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Message — prefetched when the wake-up was armed, live Gemini only on a miss
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /**
+     * @param sentences gets each sentence of a live (streamed) message as it arrives; a
+     *                  cached message is only returned
+     * @return the message, or null when there is no live one (the caller speaks the
+     *         fallback — after whatever sentences already streamed)
+     */
+    private String resolveMessage(List<ReminderMessages.Item> items, String lang,
+                                  SentenceSplitter.Sink sentences) {
+        ReminderMessageCache cache = ReminderMessagePrefetcher.cache(context);
+        long now = System.currentTimeMillis();
+        String cached = cache.get(items, lang, now);
+        if (cached != null) {
+            Log.d(TAG, "Message from prefetch cache");
+            return cached;
+        }
+        String message = streamGeminiAPI(ReminderMessages.prompt(items, lang), sentences);
+        if (message == null || message.isEmpty()) return null;
+        cache.put(items, lang, message, now);
+        return message;
+    }
+
+    private String streamGeminiAPI(String prompt, SentenceSplitter.Sink sentences) {
+        long left = deadlineAt - System.currentTimeMillis();
+        if (left <= 0) return null;
+        SentenceSplitter splitter = new SentenceSplitter(sentences);
+        try {
+            // Another alarm already asking for this exact prompt? Then wait for its answer,
+            // up to our own deadline; the call only exists if this alarm sends the request
+            String parsed = GeminiRequestCoalescer.shared().get(prompt, left, () -> {
+                long budget = deadlineAt - System.currentTimeMillis();
+                if (budget <= 0) throw new InterruptedIOException("Deadline passed");
+                GeminiClient.Call call = GeminiClient.shared().newCall(prompt,
+                        (int) Math.min(GeminiClient.DEFAULT_TIMEOUT_MILLIS, budget));
+                activeCall = call;
+                String text = call.stream(splitter::feed);
+                splitter.flush();
+                return text;
+            });
+            Log.d(TAG, "Gemini OK: " + parsed);
+            return parsed;
+        } catch (GeminiCircuitBreaker.OpenException e) {
+            Log.d(TAG, "Gemini circuit open, skipping the network");
+            return null;
+        } catch (InterruptedIOException e) {
+            Log.d(TAG, "Gemini call canceled: " + e.getMessage());
+            return null;
+        } catch (IOException e) {
+            Log.e(TAG, "Gemini API error", e);
+            return null;
+        } finally {
+            activeCall = null;
+        }
+    }
+}
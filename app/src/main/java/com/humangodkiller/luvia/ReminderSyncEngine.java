@@ -0,0 +1,144 @@
+package com.humangodkiller.luvia;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyed in-memory mirror of pillReminders/&lt;uid&gt; driven by Realtime Database child events.
+ *
+ * Each added / changed / removed / moved event is applied to the ordered list and reported
+ * to the {@link Listener} as exactly one positional update, so an edit never re-parses or
+ * rebinds the rest of the list. Ordering follows the previousChildName hints Firebase sends,
+ * which for push keys means new reminders land at the end in O(1).
+ */
+public class ReminderSyncEngine {
+
+    /** Positional callbacks — map 1:1 onto RecyclerView.Adapter notifyItem* calls. */
+    public interface Listener {
+        void onItemInserted(int position);
+        void onItemRangeInserted(int positionStart, int itemCount);
+        void onItemChanged(int position);
+        void onItemRemoved(int position);
+        void onItemMoved(int fromPosition, int toPosition);
+    }
+
+    private final List<PillReminder>   items     = new ArrayList<>();
+    private final Map<String, Integer> positions = new HashMap<>();
+    private final List<PillReminder>   readOnly  = Collections.unmodifiableList(items);
+    private Listener listener;
+
+    public void setListener(Listener listener) { this.listener = listener; }
+
+    /** Live, read-only view in display order. Safe to hand straight to an adapter. */
+    public List<PillReminder> getItems() { return readOnly; }
+
+    public int size() { return items.size(); }
+
+    public int indexOf(String key) {
+        Integer pos = positions.get(key);
+        return pos != null ? pos : -1;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Child events
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /**
+     * Appends a batch in display order (the local store replayed on open) and reports it as
+     * one range insert instead of one insert per reminder. Keys already present are applied
+     * as ordinary changes.
+     */
+    public void addAll(List<PillReminder> ordered) {
+        int start = items.size();
+        for (PillReminder r : ordered) {
+            String key = r != null ? r.getId() : null;
+            if (key == null) continue;
+            if (positions.containsKey(key)) {
+                onChildChanged(key, r);
+                continue;
+            }
+            positions.put(key, items.size());
+            items.add(r);
+        }
+        int added = items.size() - start;
+        if (added > 0 && listener != null) listener.onItemRangeInserted(start, added);
+    }
+
+    public void onChildAdded(String key, PillReminder reminder, String previousKey) {
+        if (key == null || reminder == null) return;
+        reminder.setId(key);
+
+        // A re-delivered child (e.g. after a reconnect) is treated as an update in place
+        if (positions.containsKey(key)) {
+            onChildChanged(key, reminder);
+            return;
+        }
+
+        int position = insertionPoint(previousKey);
+        items.add(position, reminder);
+        reindexFrom(position);
+        if (listener != null) listener.onItemInserted(position);
+    }
+
+    public void onChildChanged(String key, PillReminder reminder) {
+        if (key == null || reminder == null) return;
+        Integer position = positions.get(key);
+        if (position == null) {
+            onChildAdded(key, reminder, lastKey());
+            return;
+        }
+        reminder.setId(key);
+        // Identical content (e.g. the server echoing a locally cached copy) needs no rebind
+        if (reminder.equals(items.get(position))) return;
+        items.set(position, reminder);
+        if (listener != null) listener.onItemChanged(position);
+    }
+
+    public void onChildRemoved(String key) {
+        Integer position = positions.remove(key);
+        if (position == null) return;
+        items.remove((int) position);
+        reindexFrom(position);
+        if (listener != null) listener.onItemRemoved(position);
+    }
+
+    public void onChildMoved(String key, String previousKey) {
+        Integer from = positions.get(key);
+        if (from == null) return;
+
+        // Resolve the target before removing — siblings after `from` shift down by one
+        int to;
+        Integer prev = previousKey != null ? positions.get(previousKey) : null;
+        if (previousKey == null)  to = 0;
+        else if (prev == null)    to = items.size() - 1;
+        else                      to = prev > from ? prev : prev + 1;
+
+        PillReminder moved = items.remove((int) from);
+        items.add(to, moved);
+        reindexFrom(Math.min(from, to));
+        if (from != to && listener != null) listener.onItemMoved(from, to);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Index helpers
+    // ═══════════════════════════════════════════════════════════════════════
+
+    private int insertionPoint(String previousKey) {
+        if (previousKey == null) return 0;
+        Integer prev = positions.get(previousKey);
+        // Unknown sibling — append rather than guess
+        return prev != null ? prev + 1 : items.size();
+    }
+
+    private String lastKey() {
+        return items.isEmpty() ? null : items.get(items.size() - 1).getId();
+    }
+
+    /** Only the tail after an insert/remove shifts; appends touch a single slot. */
+    private void reindexFrom(int start) {
+        for (int i = start; i < items.size(); i++) positions.put(items.get(i).getId(), i);
+    }
+}
@@ -0,0 +1,41 @@
+package com.humangodkiller.luvia;
+
+/**
+ * The part of pillReminders/&lt;uid&gt; the plans screen keeps live, as two queries on the
+ * endDate index: courses still running when the screen opened, {@code startAt(openedAt)},
+ * and open-ended ones, {@code endAt(OPEN_ENDED_END_AT)}.
+ *
+ * The second is an endAt rather than equalTo(0) because the Realtime Database sorts children
+ * with no endDate at all (written before the field existed, or edited in the console) ahead
+ * of every number. equalTo(0) would leave them out of the window, and the reconcile would
+ * then drop them from the local store, taking their alarms with them.
+ * {@link #contains(Object, long)} mirrors both bounds in the database's own ordering;
+ * {@link ReminderWindowMerge} joins the two queries' child events.
+ */
+public final class ReminderWindow {
+
+    /** Upper bound of the open-ended query: missing, false, true and every number up to 0. */
+    public static final double OPEN_ENDED_END_AT = 0;
+
+    private ReminderWindow() {}
+
+    /**
+     * Whether a child whose endDate is stored as {@code endDate} is matched by either query.
+     * Order on the index: missing (null), false, true, numbers, strings, objects.
+     *
+     * @param endDate the raw stored value, null when the child has none
+     */
+    public static boolean contains(Object endDate, long openedAt) {
+        if (endDate == null || endDate instanceof Boolean) return true;   // before every number
+        if (endDate instanceof Number) {
+            double value = ((Number) endDate).doubleValue();
+            return value <= OPEN_ENDED_END_AT || value >= openedAt;
+        }
+        return true;   // strings and objects sort after every number, so startAt takes them
+    }
+
+    /** {@link #contains(Object, long)} for a deserialized reminder — a missing endDate reads as 0. */
+    public static boolean contains(PillReminder r, long openedAt) {
+        return contains(r.getEndDate(), openedAt);
+    }
+}
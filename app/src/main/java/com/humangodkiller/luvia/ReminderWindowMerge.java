@@ -0,0 +1,88 @@
+package com.humangodkiller.luvia;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Joins the child events of the two {@link ReminderWindow} queries into one list.
+ *
+ * Each query reports its own children and its own previousChildName hints, so a reminder
+ * whose endDate moves from 0 to a date sends a remove from one query and an add from the
+ * other, in either order. Membership is kept per query: a reminder is only gone once
+ * neither query has it. Display order is the open-ended window, then the running courses;
+ * {@link #previousOf} turns a query's hint into the key shown just before, for
+ * {@link ReminderSyncEngine}. Not thread-safe — drive it from the main thread.
+ */
+public final class ReminderWindowMerge {
+
+    public static final int OPEN_ENDED = 0;
+    public static final int ACTIVE     = 1;
+
+    private final List<List<String>> order   = new ArrayList<>();
+    private final List<Set<String>>  members = new ArrayList<>();
+
+    public ReminderWindowMerge() {
+        for (int q = OPEN_ENDED; q <= ACTIVE; q++) {
+            order.add(new ArrayList<>());
+            members.add(new HashSet<>());
+        }
+    }
+
+    /**
+     * {@code key} joined {@code query} after {@code previousKey} (null: first).
+     *
+     * @return whether it was in neither window before
+     */
+    public boolean add(int query, String key, String previousKey) {
+        boolean fresh = !contains(key);
+        if (members.get(query).add(key)) place(query, key, previousKey);
+        return fresh;
+    }
+
+    /**
+     * {@code key} left {@code query}.
+     *
+     * @return whether it is now in neither window — deleted, or moved out of both
+     */
+    public boolean remove(int query, String key) {
+        if (members.get(query).remove(key)) order.get(query).remove(key);
+        return !contains(key);
+    }
+
+    /** {@code key} now follows {@code previousKey} within {@code query}. */
+    public void move(int query, String key, String previousKey) {
+        if (!members.get(query).contains(key)) return;
+        order.get(query).remove(key);
+        place(query, key, previousKey);
+    }
+
+    public boolean contains(String key) {
+        return members.get(OPEN_ENDED).contains(key) || members.get(ACTIVE).contains(key);
+    }
+
+    /**
+     * The key displayed just before {@code key}, null when it is first. A reminder in both
+     * windows (briefly, while its endDate changes) is displayed at its open-ended position.
+     */
+    public String previousOf(String key) {
+        List<String> openEnded = order.get(OPEN_ENDED);
+        int i = openEnded.indexOf(key);
+        if (i >= 0) return i > 0 ? openEnded.get(i - 1) : null;
+
+        List<String> active = order.get(ACTIVE);
+        for (int j = active.indexOf(key) - 1; j >= 0; j--) {
+            String previous = active.get(j);
+            if (!members.get(OPEN_ENDED).contains(previous)) return previous;
+        }
+        return openEnded.isEmpty() ? null : openEnded.get(openEnded.size() - 1);
+    }
+
+    private void place(int query, String key, String previousKey) {
+        List<String> keys = order.get(query);
+        int previous = previousKey != null ? keys.indexOf(previousKey) : -1;
+        // Unknown sibling — append rather than guess, as ReminderSyncEngine does
+        keys.add(previousKey == null ? 0 : previous >= 0 ? previous + 1 : keys.size(), key);
+    }
+}
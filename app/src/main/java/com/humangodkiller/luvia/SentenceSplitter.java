@@ -0,0 +1,54 @@
+package com.humangodkiller.luvia;
+
+/**
+ * Cuts streamed text into whole sentences for the speech queue as the chunks arrive.
+ *
+ * A sentence ends at '.', '!', '?' or the Devanagari danda '।' once whitespace follows it
+ * (so "2.5 mg" stays in one piece), or at a line break. Chunk boundaries can fall anywhere,
+ * including mid-word; whatever is left when the stream ends comes out of {@link #flush()}.
+ * Not thread-safe — feed it from the thread reading the stream.
+ */
+public final class SentenceSplitter {
+
+    public interface Sink {
+        void onSentence(String sentence);
+    }
+
+    private final Sink          sink;
+    private final StringBuilder pending = new StringBuilder();
+    private int scanned;   // everything before this in pending is known not to end a sentence
+
+    public SentenceSplitter(Sink sink) {
+        this.sink = sink;
+    }
+
+    public void feed(CharSequence chunk) {
+        pending.append(chunk);
+        int start = 0;
+        for (int i = scanned; i < pending.length(); i++) {
+            char c = pending.charAt(i);
+            if (c == '\n' || (i > 0 && Character.isWhitespace(c) && isTerminator(pending.charAt(i - 1)))) {
+                emit(pending.substring(start, i));
+                start = i + 1;
+            }
+        }
+        pending.delete(0, start);
+        scanned = pending.length();
+    }
+
+    /** End of stream: hands over the unterminated tail, if any. */
+    public void flush() {
+        emit(pending.toString());
+        pending.setLength(0);
+        scanned = 0;
+    }
+
+    private void emit(String text) {
+        String sentence = text.trim();
+        if (!sentence.isEmpty()) sink.onSentence(sentence);
+    }
+
+    private static boolean isTerminator(char c) {
+        return c == '.' || c == '!' || c == '?' || c == '।';
+    }
+}
@@ -0,0 +1,101 @@
+package com.humangodkiller.luvia;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Directory of pre-synthesized reminder clips, one file per (text, language).
+ *
+ * Clips are written ahead of time with TextToSpeech.synthesizeToFile and played at fire
+ * time through MediaPlayer, so no TTS engine has to start after the alarm MP3. The
+ * directory is kept under {@code maxBytes} by evicting the least recently played clips
+ * (file mtime doubles as the access stamp).
+ */
+public class SpeechClipCache {
+
+    static final String EXTENSION = ".wav";
+
+    private final File dir;
+    private final long maxBytes;
+
+    public SpeechClipCache(File dir, long maxBytes) {
+        this.dir      = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    /** Ready-to-play clip for this text, or null. A hit counts as a use for eviction. */
+    public synchronized File clipFor(String text, String lang, long now) {
+        File clip = new File(dir, keyFor(text, lang) + EXTENSION);
+        if (!clip.isFile() || clip.length() == 0) return null;
+        clip.setLastModified(now);
+        return clip;
+    }
+
+    public boolean contains(String text, String lang) {
+        File clip = new File(dir, keyFor(text, lang) + EXTENSION);
+        return clip.isFile() && clip.length() > 0;
+    }
+
+    /** Where the synthesizer should write; {@link #commit} moves it into place once complete. */
+    public File tempFileFor(String text, String lang) {
+        if (!dir.isDirectory()) dir.mkdirs();
+        return new File(dir, keyFor(text, lang) + ".tmp");
+    }
+
+    /** Publishes a finished temp file as the clip for this text, then trims the directory. */
+    public synchronized File commit(File temp, String text, String lang, long now) {
+        File clip = new File(dir, keyFor(text, lang) + EXTENSION);
+        if (!temp.isFile() || temp.length() == 0 || !temp.renameTo(clip)) {
+            temp.delete();
+            return null;
+        }
+        clip.setLastModified(now);
+        evict(clip);
+        return clip;
+    }
+
+    public synchronized long totalBytes() {
+        long total = 0;
+        for (File f : clips()) total += f.length();
+        return total;
+    }
+
+    /** Deletes least recently used clips until the directory fits; {@code keep} always stays. */
+    private void evict(File keep) {
+        File[] files = clips();
+        long total = 0;
+        for (File f : files) total += f.length();
+        if (total <= maxBytes) return;
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File f : files) {
+            if (total <= maxBytes) break;
+            if (f.equals(keep)) continue;
+            long size = f.length();
+            if (f.delete()) total -= size;
+        }
+    }
+
+    private File[] clips() {
+        File[] files = dir.listFiles((d, name) -> name.endsWith(EXTENSION));
+        return files != null ? files : new File[0];
+    }
+
+    static String keyFor(String text, String lang) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(lang.getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) 0);
+            byte[] digest = sha.digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(40);
+            for (int i = 0; i < 20; i++) hex.append(String.format("%02x", digest[i]));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.humangodkiller.luvia;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.speech.tts.TextToSpeech;
+import android.speech.tts.UtteranceProgressListener;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Renders reminder messages to audio clips ahead of time with
+ * {@link TextToSpeech#synthesizeToFile}, so the alarm can play them straight after the MP3.
+ *
+ * One engine is started on demand and shut down again as soon as the queue drains — the
+ * warm-up cost is paid here, when nobody is waiting, instead of after the alarm.
+ */
+public final class SpeechClipSynthesizer {
+
+    private static final String TAG = "SpeechClipSynthesizer";
+
+    private static final String CLIP_DIR       = "speech_clips";
+    private static final long   MAX_CLIP_BYTES = 8L * 1024 * 1024;
+
+    private static SpeechClipCache clipCache;
+
+    private static TextToSpeech engine;
+    private static boolean      engineReady;
+    private static final Queue<String[]>     queue    = new ArrayDeque<>();
+    private static final Map<String, String[]> inFlight = new HashMap<>();
+
+    private SpeechClipSynthesizer() {}
+
+    public static synchronized SpeechClipCache clips(Context context) {
+        if (clipCache == null) {
+            clipCache = new SpeechClipCache(new File(context.getFilesDir(), CLIP_DIR), MAX_CLIP_BYTES);
+        }
+        return clipCache;
+    }
+
+    /** Queues {@code text} for synthesis in {@code lang} unless a clip already exists. */
+    public static synchronized void synthesizeAsync(Context context, String text, String lang) {
+        Context appContext = context.getApplicationContext();
+        if (clips(appContext).contains(text, lang)) return;
+        queue.add(new String[]{text, lang});
+
+        if (engine == null) {
+            engineReady = false;
+            engine = new TextToSpeech(appContext, status -> onEngineInit(appContext, status));
+        } else if (engineReady && inFlight.isEmpty()) {
+            drain(appContext);
+        }
+    }
+
+    private static synchronized void onEngineInit(Context context, int status) {
+        if (status != TextToSpeech.SUCCESS) {
+            Log.e(TAG, "TTS init failed — clips will be spoken live instead");
+            queue.clear();
+            shutdown();
+            return;
+        }
+        engineReady = true;
+        engine.setOnUtteranceProgressListener(new UtteranceProgressListener() {
+            @Override public void onStart(String id) { }
+            @Override public void onDone(String id)  { onFinished(context, id, true); }
+            @Override public void onError(String id) { onFinished(context, id, false); }
+        });
+        drain(context);
+    }
+
+    /** Hands the next queued text to the engine; one synthesis at a time. */
+    private static void drain(Context context) {
+        while (!queue.isEmpty()) {
+            String[] job = queue.poll();
+            String text = job[0], lang = job[1];
+            SpeechClipCache cache = clips(context);
+            if (cache.contains(text, lang)) continue;
+
+            Locale locale = ReminderMessages.ttsLocale(lang);
+            int result = engine.setLanguage(locale);
+            if (result == TextToSpeech.LANG_MISSING_DATA || result == TextToSpeech.LANG_NOT_SUPPORTED) {
+                Log.w(TAG, "TTS locale not supported: " + locale + ", skipping clip");
+                continue;
+            }
+
+            File temp = cache.tempFileFor(text, lang);
+            String utteranceId = temp.getName();
+            inFlight.put(utteranceId, job);
+            if (engine.synthesizeToFile(text, new Bundle(), temp, utteranceId) == TextToSpeech.SUCCESS) return;
+            inFlight.remove(utteranceId);
+            temp.delete();
+        }
+        shutdown();
+    }
+
+    private static synchronized void onFinished(Context context, String utteranceId, boolean ok) {
+        String[] job = inFlight.remove(utteranceId);
+        if (job != null) {
+            SpeechClipCache cache = clips(context);
+            File temp = cache.tempFileFor(job[0], job[1]);
+            if (ok && cache.commit(temp, job[0], job[1], System.currentTimeMillis()) != null) {
+                Log.d(TAG, "Clip ready (" + cache.totalBytes() / 1024 + " KB cached)");
+            } else {
+                temp.delete();
+                Log.w(TAG, "Clip synthesis failed");
+            }
+        }
+        if (engine != null) drain(context);
+    }
+
+    private static void shutdown() {
+        if (engine != null) engine.shutdown();
+        engine      = null;
+        engineReady = false;
+    }
+}
@@ -18,18 +18,33 @@ import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Launch screen. Auth and the saved profile snapshot are resolved off the main thread while
+ * the logo animates, and the splash fades out as soon as the destination is known — a
+ * returning user goes straight to their dashboard without a Firestore round-trip.
+ */
 public class SplashActivity extends AppCompatActivity {
 
-    private static final int SPLASH_DELAY = 3000; // 3 seconds
+    private static final int FADE_OUT_DURATION = 250;
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final Handler main = new Handler(Looper.getMainLooper());
 
     private ImageView ivLogo;
     private TextView tvPoweredBy;
+    private boolean routed;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        StartupTrace.splashCreated();
         setContentView(R.layout.activity_splash);
 
         // Initialize views
@@ -49,13 +64,23 @@ public class SplashActivity extends AppCompatActivity {
         // Start animations
         startAnimations();
 
-        // Delay and navigate
-        new Handler(Looper.getMainLooper()).postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                navigateToNextScreen();
-            }
-        }, SPLASH_DELAY);
+        // Decide where to go in parallel with the animation
+        resolveRoute();
+    }
+
+    private void resolveRoute() {
+        UserProfileRepository profiles = UserProfiles.repository(this);
+        EXECUTOR.execute(() -> {
+            // Both read local state only: the persisted auth session and the profile prefs
+            FirebaseUser user   = FirebaseAuth.getInstance().getCurrentUser();
+            UserProfile  cached = user != null ? profiles.getCached(user.getUid()) : null;
+            StartupRouter.Destination destination = StartupRouter.route(user != null, cached);
+            main.post(() -> {
+                // Keep the cache fresh from here on, without making this launch wait for it
+                if (user != null && cached != null) profiles.start(user.getUid());
+                navigateToNextScreen(destination);
+            });
+        });
     }
 
     private void startAnimations() {
@@ -122,16 +147,21 @@ public class SplashActivity extends AppCompatActivity {
         });
     }
 
-    private void navigateToNextScreen() {
+    private void navigateToNextScreen(StartupRouter.Destination destination) {
+        if (routed || isFinishing()) return;
+        routed = true;
+        StartupTrace.routed(destination);
+
         // Fade out animation before navigating
         ObjectAnimator fadeOut = ObjectAnimator.ofFloat(findViewById(R.id.splash_container), "alpha", 1f, 0f);
-        fadeOut.setDuration(400);
+        fadeOut.setDuration(FADE_OUT_DURATION);
         fadeOut.addListener(new AnimatorListenerAdapter() {
             @Override
             public void onAnimationEnd(Animator animation) {
-                // Always go to LoginActivity — it checks Firestore role and
-                // routes to the correct screen (role selection or dashboard)
-                Intent intent = new Intent(SplashActivity.this, LoginActivity.class);
+                Intent intent = new Intent(SplashActivity.this, activityFor(destination));
+                if (destination != StartupRouter.Destination.LOGIN) {
+                    intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+                }
                 startActivity(intent);
                 overridePendingTransition(android.R.anim.fade_in, android.R.anim.fade_out);
                 finish();
@@ -139,4 +169,16 @@ public class SplashActivity extends AppCompatActivity {
         });
         fadeOut.start();
     }
-}
\ No newline at end of file
+
+    private static Class<?> activityFor(StartupRouter.Destination destination) {
+        switch (destination) {
+            case PATIENT_DASHBOARD: return PatientDashboardActivity.class;
+            case DOCTOR_DASHBOARD:  return DoctorDashboardActivity.class;
+            case REGISTRATION:      return PatientRegistrationActivity.class;
+            case ROLE_SELECTION:    return MainActivity.class;
+            // Signed out, or no snapshot yet — LoginActivity checks Firestore
+            // and routes to the correct screen (role selection or dashboard)
+            default:                return LoginActivity.class;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.humangodkiller.luvia;
+
+/**
+ * Where a launch goes, decided from what is already on the device: the persisted auth
+ * session and the profile snapshot saved by {@link UserProfileRepository}. Only a signed-in
+ * user with no snapshot yet (first launch, or right after an update) goes through
+ * LoginActivity's network check.
+ */
+public final class StartupRouter {
+
+    public enum Destination {
+        LOGIN,
+        ROLE_SELECTION,
+        REGISTRATION,
+        PATIENT_DASHBOARD,
+        DOCTOR_DASHBOARD
+    }
+
+    private StartupRouter() {}
+
+    public static Destination route(boolean signedIn, UserProfile cached) {
+        if (!signedIn || cached == null) return Destination.LOGIN;
+        if (!cached.hasRole())            return Destination.ROLE_SELECTION;
+        if ("doctor".equals(cached.role)) return Destination.DOCTOR_DASHBOARD;
+        return cached.registered ? Destination.PATIENT_DASHBOARD : Destination.REGISTRATION;
+    }
+}
@@ -0,0 +1,70 @@
+package com.humangodkiller.luvia;
+
+import android.app.Activity;
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+/**
+ * Timestamps for one launch from the launcher icon to the first screen with real content.
+ *
+ * SplashActivity marks its start and the moment routing was decided; the destination calls
+ * {@link #drawn} once its content is on screen, which also reports fully drawn (so
+ * Macrobenchmark's time-to-full-display lines up with this log). Each launch logs one
+ * "StartupTrace" line: cold or warm, process → splash, splash → route, route → drawn, and
+ * the time-to-dashboard total; the same span shows as an async "app_startup" slice.
+ */
+public final class StartupTrace {
+
+    private static final String TAG     = "StartupTrace";
+    private static final String SECTION = "app_startup";
+
+    // A process younger than this when the splash appeared was started for this launch
+    private static final long COLD_START_WINDOW_MILLIS = 5_000;
+
+    private static boolean seenSplash;
+    private static boolean pending;
+    private static boolean cold;
+    private static int     cookie;
+    private static long    splashAt;
+    private static long    routedAt;
+    private static String  destination = "-";
+
+    private StartupTrace() {}
+
+    public static synchronized void splashCreated() {
+        splashAt    = SystemClock.elapsedRealtime();
+        cold        = !seenSplash && splashAt - Process.getStartElapsedRealtime() < COLD_START_WINDOW_MILLIS;
+        seenSplash  = true;
+        routedAt    = 0;
+        destination = "-";
+        if (pending) Trace.endAsyncSection(SECTION, cookie);
+        pending = true;
+        Trace.beginAsyncSection(SECTION, ++cookie);
+    }
+
+    public static synchronized void routed(StartupRouter.Destination to) {
+        if (!pending) return;
+        routedAt    = SystemClock.elapsedRealtime();
+        destination = to.name();
+    }
+
+    /** The first screen of this launch has its content; later calls are ignored. */
+    public static synchronized void drawn(Activity activity) {
+        if (!pending) return;
+        pending = false;
+        activity.reportFullyDrawn();
+        Trace.endAsyncSection(SECTION, cookie);
+
+        long now   = SystemClock.elapsedRealtime();
+        long start = cold ? Process.getStartElapsedRealtime() : splashAt;
+        Log.d(TAG, "start=" + (cold ? "cold" : "warm")
+                + (cold ? " process_to_splash=" + (splashAt - start) + "ms" : "")
+                + " splash_to_route=" + (routedAt > 0 ? (routedAt - splashAt) + "ms" : "-")
+                + " route=" + destination
+                + " route_to_drawn=" + (routedAt > 0 ? (now - routedAt) + "ms" : "-")
+                + " screen=" + activity.getClass().getSimpleName()
+                + " time_to_dashboard=" + (now - start) + "ms");
+    }
+}
@@ -0,0 +1,73 @@
+package com.humangodkiller.luvia;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The sentences of one streamed live message on their way to the speech queue, and what the
+ * delivery ends up having said.
+ *
+ * Sentences are queued as they arrive. If the stream then completes, its text is what was
+ * said. If it breaks off after some sentences were already queued, those can't be taken
+ * back: the offline fallback is queued after them, so the patient still hears the whole
+ * reminder, and the text reported is what was actually spoken rather than the fallback
+ * alone. Not thread-safe — drive it from the main thread.
+ */
+public final class StreamedReply {
+
+    private final List<String> sentences = new ArrayList<>();
+    private int     queued;
+    private int     done;
+    private boolean complete;
+
+    /** Forgets everything, for the next delivery. */
+    public void reset() {
+        sentences.clear();
+        queued   = 0;
+        done     = 0;
+        complete = false;
+    }
+
+    /** Whether any sentence has arrived — once one has, the message is spoken this way. */
+    public boolean isEmpty() { return sentences.isEmpty(); }
+
+    /** A sentence from the stream; ignored once the reply is complete. */
+    public void add(String sentence) {
+        if (!complete) sentences.add(sentence);
+    }
+
+    /** The stream finished; returns the text to report, {@code text} itself. */
+    public String complete(String text) {
+        complete = true;
+        return text;
+    }
+
+    /**
+     * The stream broke off after sentences had arrived: {@code fallback} follows them.
+     *
+     * @return the text to report — everything that will have been spoken
+     */
+    public String fail(String fallback) {
+        sentences.add(fallback);
+        complete = true;
+        return String.join(" ", sentences);
+    }
+
+    /** Index of the next sentence {@link #drain} hands out, for utterance ids. */
+    public int queued() { return queued; }
+
+    /** The sentences not yet handed to TTS, now counted as queued. */
+    public List<String> drain() {
+        if (queued == sentences.size()) return Collections.emptyList();
+        List<String> next = new ArrayList<>(sentences.subList(queued, sentences.size()));
+        queued = sentences.size();
+        return next;
+    }
+
+    /** One queued sentence has been spoken (or failed to be). */
+    public void utteranceDone() { done++; }
+
+    /** Complete, and the last queued sentence has been spoken. */
+    public boolean isFinished() { return complete && done >= queued && queued == sentences.size(); }
+}
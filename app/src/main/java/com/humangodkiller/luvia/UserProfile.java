@@ -0,0 +1,93 @@
+package com.humangodkiller.luvia;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The fields of a users/&lt;uid&gt; document the app actually reads, in a form that can be
+ * cached on disk and compared for changes. Unset numbers are null, unset strings "".
+ */
+public final class UserProfile {
+
+    public final String  uid;
+    public final String  name;
+    public final String  email;
+    public final String  role;           // "doctor", "patient" or "" before role selection
+    public final boolean registered;
+    public final String  alarmLanguage;  // "" when the patient never picked one
+    public final Long    age;
+    public final String  bloodGroup;
+    public final Double  heightCm;
+    public final Double  weightKg;
+    public final String  phone;
+
+    public UserProfile(String uid, String name, String email, String role, boolean registered,
+                       String alarmLanguage, Long age, String bloodGroup,
+                       Double heightCm, Double weightKg, String phone) {
+        this.uid           = uid;
+        this.name          = orEmpty(name);
+        this.email         = orEmpty(email);
+        this.role          = orEmpty(role);
+        this.registered    = registered;
+        this.alarmLanguage = orEmpty(alarmLanguage);
+        this.age           = age;
+        this.bloodGroup    = orEmpty(bloodGroup);
+        this.heightCm      = heightCm;
+        this.weightKg      = weightKg;
+        this.phone         = orEmpty(phone);
+    }
+
+    /** Builds a profile from raw document data; tolerates missing and mistyped fields. */
+    public static UserProfile fromMap(String uid, Map<String, Object> data) {
+        Number age    = number(data.get("age"));
+        Number height = number(data.get("heightCm"));
+        Number weight = number(data.get("weightKg"));
+        return new UserProfile(uid,
+                string(data.get("name")),
+                string(data.get("email")),
+                string(data.get("role")),
+                Boolean.TRUE.equals(data.get("registered")),
+                string(data.get("alarmLanguage")),
+                age    != null ? age.longValue()      : null,
+                string(data.get("bloodGroup")),
+                height != null ? height.doubleValue() : null,
+                weight != null ? weight.doubleValue() : null,
+                string(data.get("phone")));
+    }
+
+    public boolean hasRole() { return !role.isEmpty(); }
+
+    /** The patient's alarm language, English if none was chosen. */
+    public String alarmLanguageOrDefault() {
+        return alarmLanguage.isEmpty() ? "en" : alarmLanguage;
+    }
+
+    private static String orEmpty(String s) { return s != null ? s : ""; }
+
+    private static String string(Object o) { return o instanceof String ? (String) o : ""; }
+
+    private static Number number(Object o) { return o instanceof Number ? (Number) o : null; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof UserProfile)) return false;
+        UserProfile p = (UserProfile) o;
+        return registered == p.registered
+                && Objects.equals(uid, p.uid)
+                && name.equals(p.name)
+                && email.equals(p.email)
+                && role.equals(p.role)
+                && alarmLanguage.equals(p.alarmLanguage)
+                && Objects.equals(age, p.age)
+                && bloodGroup.equals(p.bloodGroup)
+                && Objects.equals(heightCm, p.heightCm)
+                && Objects.equals(weightKg, p.weightKg)
+                && phone.equals(p.phone);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(uid, role, registered, alarmLanguage, name);
+    }
+}
@@ -0,0 +1,249 @@
+package com.humangodkiller.luvia;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide cache of the signed-in user's users/&lt;uid&gt; document.
+ *
+ * Reads are synchronous: memory first, then the copy persisted by {@link Storage} from an
+ * earlier run, so app start and every alarm can route or pick a language without waiting on
+ * the network. {@link #start} attaches a single snapshot listener that keeps both copies
+ * fresh, including the app's own writes. Only a first launch with nothing cached has to wait
+ * for {@link #fetch}, and while the listener is attached that wait is answered by its first
+ * snapshot rather than a second read — unless the listener reports that the offline cache
+ * has no copy, when the wait goes to a one-shot read that can fail (offline) instead of
+ * hanging until the server answers.
+ *
+ * Firestore and SharedPreferences are behind {@link Backend} and {@link Storage};
+ * {@link UserProfiles} wires them up on a device.
+ */
+public class UserProfileRepository {
+
+    /** Answer to a read; {@code profile} is null when the document doesn't exist. */
+    public interface Callback {
+        void onProfile(UserProfile profile);
+        void onError(Exception e);
+    }
+
+    public interface Registration {
+        void remove();
+    }
+
+    /** Snapshots of a listener; a cache miss is not a snapshot. */
+    public interface Listener extends Callback {
+        /** The offline cache has no copy of the document and the server hasn't answered yet. */
+        void onCacheMiss();
+    }
+
+    public interface Backend {
+        /** One-shot read of users/&lt;uid&gt;. */
+        void fetch(String uid, Callback callback);
+        /** Every snapshot of users/&lt;uid&gt; until the registration is removed. */
+        Registration listen(String uid, Listener listener);
+    }
+
+    public interface Storage {
+        /** The profile saved last, or null. */
+        UserProfile load();
+        void save(UserProfile profile);
+        void clear();
+    }
+
+    public interface Observer {
+        /** The cached profile changed; null when the document was deleted. */
+        void onProfileChanged(UserProfile profile);
+    }
+
+    private final Backend backend;
+    private final Storage storage;
+    private final List<Observer> observers = new CopyOnWriteArrayList<>();
+
+    private UserProfile  profile;
+    private boolean      loaded;
+    private String       listeningUid;
+    private Registration registration;
+    private boolean      firstSnapshotSeen;
+    private boolean      cacheMissSeen;       // waiting on the listener could be forever
+    private List<Callback> waiting = new ArrayList<>();
+
+    public UserProfileRepository(Backend backend, Storage storage) {
+        this.backend = backend;
+        this.storage = storage;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Cached reads — never touch the network
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /** The cached profile for {@code uid}, or null if none was ever seen on this device. */
+    public synchronized UserProfile getCached(String uid) {
+        if (!loaded) {
+            profile = storage.load();
+            loaded  = true;
+        }
+        return profile != null && profile.uid != null && profile.uid.equals(uid) ? profile : null;
+    }
+
+    /** Cached role, "" when unknown. */
+    public String getRole(String uid) {
+        UserProfile p = getCached(uid);
+        return p != null ? p.role : "";
+    }
+
+    public boolean isRegistered(String uid) {
+        UserProfile p = getCached(uid);
+        return p != null && p.registered;
+    }
+
+    /** Cached alarm language, English when unknown. */
+    public String getAlarmLanguage(String uid) {
+        UserProfile p = getCached(uid);
+        return p != null ? p.alarmLanguageOrDefault() : "en";
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Keeping it fresh
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /** Attaches the snapshot listener for {@code uid}; a no-op if it is already attached. */
+    public void start(String uid) {
+        List<Callback> dropped;
+        synchronized (this) {
+            if (uid.equals(listeningUid)) return;
+            dropped           = stopLocked();
+            listeningUid      = uid;
+            firstSnapshotSeen = false;
+            cacheMissSeen     = false;
+        }
+        fail(dropped, new IllegalStateException("user changed"));
+        Registration r = backend.listen(uid, new Listener() {
+            @Override public void onProfile(UserProfile p) { onSnapshot(uid, p); }
+            @Override public void onError(Exception e)     { onSnapshotError(uid, e); }
+            @Override public void onCacheMiss()            { onSnapshotCacheMiss(uid); }
+        });
+        synchronized (this) {
+            if (uid.equals(listeningUid) && registration == null) registration = r;
+            else r.remove();
+        }
+    }
+
+    /**
+     * The profile for {@code uid}: straight from the cache when there is one, otherwise from
+     * the listener's first snapshot, or a one-shot read when no listener is attached or its
+     * cache had nothing.
+     */
+    public void fetch(String uid, Callback callback) {
+        UserProfile cached = getCached(uid);
+        if (cached != null) {
+            callback.onProfile(cached);
+            return;
+        }
+        synchronized (this) {
+            if (uid.equals(listeningUid) && !firstSnapshotSeen && !cacheMissSeen) {
+                waiting.add(callback);
+                return;
+            }
+        }
+        fetchOnce(uid, callback);
+    }
+
+    private void fetchOnce(String uid, Callback callback) {
+        backend.fetch(uid, new Callback() {
+            @Override public void onProfile(UserProfile p) {
+                update(uid, p);
+                callback.onProfile(p);
+            }
+            @Override public void onError(Exception e) { callback.onError(e); }
+        });
+    }
+
+    /** Detaches the listener, forgets the cached profile and deletes the saved copy (sign-out). */
+    public void clear() {
+        List<Callback> dropped;
+        synchronized (this) {
+            dropped = stopLocked();
+            profile = null;
+            loaded  = true;
+            storage.clear();
+        }
+        fail(dropped, new IllegalStateException("signed out"));
+        notifyObservers(null);
+    }
+
+    public void addObserver(Observer observer)    { observers.add(observer); }
+    public void removeObserver(Observer observer) { observers.remove(observer); }
+
+    /** Detaches the listener and hands back the callbacks still waiting on it. */
+    private List<Callback> stopLocked() {
+        if (registration != null) registration.remove();
+        registration = null;
+        listeningUid = null;
+        List<Callback> dropped = waiting;
+        waiting = new ArrayList<>();
+        return dropped;
+    }
+
+    private void onSnapshot(String uid, UserProfile p) {
+        List<Callback> answer;
+        synchronized (this) {
+            if (!uid.equals(listeningUid)) return;
+            firstSnapshotSeen = true;
+            answer  = waiting;
+            waiting = new ArrayList<>();
+        }
+        update(uid, p);
+        for (Callback c : answer) c.onProfile(p);
+    }
+
+    private void onSnapshotCacheMiss(String uid) {
+        List<Callback> handOver;
+        synchronized (this) {
+            if (!uid.equals(listeningUid) || firstSnapshotSeen) return;
+            cacheMissSeen = true;
+            handOver = waiting;
+            waiting  = new ArrayList<>();
+        }
+        for (Callback c : handOver) fetchOnce(uid, c);
+    }
+
+    private void onSnapshotError(String uid, Exception e) {
+        List<Callback> dropped;
+        synchronized (this) {
+            if (!uid.equals(listeningUid)) return;
+            // Firestore drops a listener after an error; let the next start() re-attach
+            registration = null;
+            dropped      = stopLocked();
+        }
+        fail(dropped, e);
+    }
+
+    private static void fail(List<Callback> callbacks, Exception e) {
+        for (Callback c : callbacks) c.onError(e);
+    }
+
+    private void update(String uid, UserProfile p) {
+        synchronized (this) {
+            if (!loaded) {
+                profile = storage.load();
+                loaded  = true;
+            }
+            if (p == null) {
+                // Document gone (e.g. account reset) — only drop it if it was this user's
+                if (profile == null || !uid.equals(profile.uid)) return;
+                profile = null;
+                storage.clear();
+            } else {
+                if (p.equals(profile)) return;
+                profile = p;
+                storage.save(p);
+            }
+        }
+        notifyObservers(p);
+    }
+
+    private void notifyObservers(UserProfile p) {
+        for (Observer o : observers) o.onProfileChanged(p);
+    }
+}
@@ -0,0 +1,136 @@
+package com.humangodkiller.luvia;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+
+/**
+ * Device wiring for {@link UserProfileRepository}: users/&lt;uid&gt; in Firestore as the
+ * backend, a SharedPreferences file as the on-disk copy, one instance per process.
+ */
+public final class UserProfiles {
+
+    private static final String TAG   = "UserProfiles";
+    private static final String PREFS = "user_profile";
+
+    private static UserProfileRepository repository;
+
+    private UserProfiles() {}
+
+    public static synchronized UserProfileRepository repository(Context context) {
+        if (repository == null) {
+            UserProfileRepository r = new UserProfileRepository(new FirestoreBackend(),
+                    new PrefsStorage(context.getApplicationContext()
+                            .getSharedPreferences(PREFS, Context.MODE_PRIVATE)));
+            // Whatever signs the user out — the dashboard, another screen, an expired
+            // session — the listener is detached and the saved copy goes with it
+            FirebaseAuth.getInstance().addAuthStateListener(auth -> {
+                if (auth.getCurrentUser() == null) r.clear();
+            });
+            repository = r;
+        }
+        return repository;
+    }
+
+    /** Alarm language of the signed-in patient from the cache — no Firestore read. */
+    public static String alarmLanguage(Context context) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        return user != null ? repository(context).getAlarmLanguage(user.getUid()) : "en";
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Firestore
+    // ═══════════════════════════════════════════════════════════════════════
+
+    private static final class FirestoreBackend implements UserProfileRepository.Backend {
+
+        private final FirebaseFirestore db = FirebaseFirestore.getInstance();
+
+        @Override
+        public void fetch(String uid, UserProfileRepository.Callback callback) {
+            db.collection("users").document(uid).get()
+                    .addOnSuccessListener(doc -> callback.onProfile(toProfile(doc)))
+                    .addOnFailureListener(callback::onError);
+        }
+
+        @Override
+        public UserProfileRepository.Registration listen(String uid, UserProfileRepository.Listener listener) {
+            ListenerRegistration r = db.collection("users").document(uid)
+                    .addSnapshotListener((doc, e) -> {
+                        if (e != null) {
+                            Log.w(TAG, "Profile listener failed", e);
+                            listener.onError(e);
+                            return;
+                        }
+                        if (doc == null) return;
+                        // "Missing" from the offline cache only means never synced — not a deletion
+                        if (!doc.exists() && doc.getMetadata().isFromCache()) {
+                            listener.onCacheMiss();
+                            return;
+                        }
+                        listener.onProfile(toProfile(doc));
+                    });
+            return r::remove;
+        }
+
+        private static UserProfile toProfile(DocumentSnapshot doc) {
+            return doc.exists() && doc.getData() != null
+                    ? UserProfile.fromMap(doc.getId(), doc.getData())
+                    : null;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // SharedPreferences copy
+    // ═══════════════════════════════════════════════════════════════════════
+
+    private static final class PrefsStorage implements UserProfileRepository.Storage {
+
+        private final SharedPreferences prefs;
+
+        PrefsStorage(SharedPreferences prefs) { this.prefs = prefs; }
+
+        @Override
+        public UserProfile load() {
+            String uid = prefs.getString("uid", null);
+            if (uid == null) return null;
+            return new UserProfile(uid,
+                    prefs.getString("name", ""),
+                    prefs.getString("email", ""),
+                    prefs.getString("role", ""),
+                    prefs.getBoolean("registered", false),
+                    prefs.getString("alarmLanguage", ""),
+                    prefs.contains("age")      ? prefs.getLong("age", 0) : null,
+                    prefs.getString("bloodGroup", ""),
+                    prefs.contains("heightCm") ? Double.longBitsToDouble(prefs.getLong("heightCm", 0)) : null,
+                    prefs.contains("weightKg") ? Double.longBitsToDouble(prefs.getLong("weightKg", 0)) : null,
+                    prefs.getString("phone", ""));
+        }
+
+        @Override
+        public void save(UserProfile p) {
+            SharedPreferences.Editor e = prefs.edit().clear()
+                    .putString("uid",           p.uid)
+                    .putString("name",          p.name)
+                    .putString("email",         p.email)
+                    .putString("role",          p.role)
+                    .putBoolean("registered",   p.registered)
+                    .putString("alarmLanguage", p.alarmLanguage)
+                    .putString("bloodGroup",    p.bloodGroup)
+                    .putString("phone",         p.phone);
+            if (p.age      != null) e.putLong("age",      p.age);
+            if (p.heightCm != null) e.putLong("heightCm", Double.doubleToLongBits(p.heightCm));
+            if (p.weightKg != null) e.putLong("weightKg", Double.doubleToLongBits(p.weightKg));
+            e.apply();
+        }
+
+        @Override
+        public void clear() { prefs.edit().clear().apply(); }
+    }
+}
@@ -0,0 +1,130 @@
+package com.humangodkiller.luvia;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Request codes from {@link AlarmIdRegistry} must be unique across every reminder and
+ * alarm kind, survive a restart, and never be reused once released.
+ */
+public class AlarmIdRegistryTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final String PUSH_CHARS =
+            "-0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+
+    /** Firebase-style push keys: 8 chars of timestamp, 12 random chars. */
+    private static List<String> pushKeys(int count, long seed) {
+        Random random = new Random(seed);
+        List<String> keys = new ArrayList<>(count);
+        long time = 1_780_000_000_000L;
+        for (int i = 0; i < count; i++) {
+            time += random.nextInt(50);
+            char[] key = new char[20];
+            long t = time;
+            for (int j = 7; j >= 0; j--) {
+                key[j] = PUSH_CHARS.charAt((int) (t % 64));
+                t /= 64;
+            }
+            for (int j = 8; j < 20; j++) key[j] = PUSH_CHARS.charAt(random.nextInt(64));
+            keys.add(new String(key));
+        }
+        return keys;
+    }
+
+    @Test
+    public void fiftyThousandPushKeys_zeroCollisions() throws Exception {
+        List<String> keys = pushKeys(50_000, 42);
+        AlarmIdRegistry registry = AlarmIdRegistry.open(tmp.newFile("ids.bin"));
+        AlarmIdRegistry.Kind[] kinds = AlarmIdRegistry.Kind.values();
+
+        Set<Integer> codes = new HashSet<>();
+        for (String key : keys)
+            for (AlarmIdRegistry.Kind kind : kinds)
+                assertTrue("collision for " + key + "/" + kind, codes.add(registry.idFor(key, kind)));
+
+        assertEquals(keys.size() * kinds.length, registry.size());
+
+        // Lookups, both directions
+        for (String key : keys) {
+            int code = registry.find(key, AlarmIdRegistry.Kind.MAIN);
+            AlarmIdRegistry.Entry e = registry.lookup(code);
+            assertEquals(key, e.reminderId);
+            assertEquals(AlarmIdRegistry.Kind.MAIN, e.kind);
+        }
+        registry.close();
+    }
+
+    @Test
+    public void codesSurviveReopen() throws Exception {
+        File file = tmp.newFile("ids.bin");
+        List<String> keys = pushKeys(2_000, 7);
+
+        AlarmIdRegistry registry = AlarmIdRegistry.open(file);
+        int[] before = new int[keys.size()];
+        for (int i = 0; i < keys.size(); i++) before[i] = registry.idFor(keys.get(i), AlarmIdRegistry.Kind.EARLY);
+        registry.close();
+
+        AlarmIdRegistry reopened = AlarmIdRegistry.open(file);
+        for (int i = 0; i < keys.size(); i++)
+            assertEquals(before[i], reopened.find(keys.get(i), AlarmIdRegistry.Kind.EARLY));
+        assertEquals(-1, reopened.find(keys.get(0), AlarmIdRegistry.Kind.SNOOZE));
+        reopened.close();
+    }
+
+    @Test
+    public void releasedCodesAreNeverReused() throws Exception {
+        File file = tmp.newFile("ids.bin");
+        AlarmIdRegistry registry = AlarmIdRegistry.open(file);
+        int a = registry.idFor("a", AlarmIdRegistry.Kind.MAIN);
+        int b = registry.idFor("b", AlarmIdRegistry.Kind.MAIN);
+
+        assertEquals(1, registry.release("b").size());
+        registry.close();
+
+        // Even after a restart that forgot "b", its code stays retired
+        AlarmIdRegistry reopened = AlarmIdRegistry.open(file);
+        assertNull(reopened.lookup(b));
+        int c = reopened.idFor("c", AlarmIdRegistry.Kind.MAIN);
+        assertNotEquals(a, c);
+        assertNotEquals(b, c);
+        assertTrue(c > b);
+        reopened.close();
+    }
+
+    @Test
+    public void reconcile_releasesDeletedRemindersOnly() throws Exception {
+        File file = tmp.newFile("ids.bin");
+        AlarmIdRegistry registry = AlarmIdRegistry.open(file);
+        int timeline = registry.idFor(AlarmIdRegistry.APP_OWNER, AlarmIdRegistry.Kind.TIMELINE);
+        for (String id : Arrays.asList("keep", "gone1", "gone2")) {
+            registry.idFor(id, AlarmIdRegistry.Kind.MAIN);
+            registry.idFor(id, AlarmIdRegistry.Kind.SNOOZE);
+        }
+
+        List<AlarmIdRegistry.Entry> released = registry.reconcile(Collections.singletonList("keep"));
+        assertEquals(4, released.size());
+        for (AlarmIdRegistry.Entry e : released) assertTrue(e.reminderId.startsWith("gone"));
+
+        registry.close();
+        AlarmIdRegistry reopened = AlarmIdRegistry.open(file);
+        assertEquals(3, reopened.size());
+        assertEquals(timeline, reopened.find(AlarmIdRegistry.APP_OWNER, AlarmIdRegistry.Kind.TIMELINE));
+        assertEquals(-1, reopened.find("gone1", AlarmIdRegistry.Kind.MAIN));
+        reopened.close();
+    }
+}
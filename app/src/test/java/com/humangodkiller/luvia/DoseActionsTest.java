@@ -0,0 +1,128 @@
+package com.humangodkiller.luvia;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.humangodkiller.luvia.DoseEventLog.Type.*;
+import static org.junit.Assert.*;
+
+/**
+ * {@link DoseActions}: what the notification buttons record, and how long handling a tap
+ * takes against years of history — the work DoseActionReceiver does inside goAsync().
+ */
+public class DoseActionsTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR   = 60 * MINUTE;
+    private static final long DAY    = 24 * HOUR;
+    private static final long T0     = 1_779_000_000_000L - 1_779_000_000_000L % DAY;
+
+    private File logFile() { return new File(tmp.getRoot(), "dose_events_uid.bin"); }
+
+    private static DoseActions.Dose dose(String id, long doseTime) {
+        return new DoseActions.Dose(id, "Medicine " + id, "1 tablet", doseTime);
+    }
+
+    @Test
+    public void earlyHeadsUpsGetNoButtons() {
+        List<DoseActions.Dose> due = DoseActions.due(
+                Arrays.asList("a", "b", "c"),
+                Arrays.asList("Aspirin", "Insulin", "Statin"),
+                Arrays.asList("75 mg", "10 u", "20 mg"),
+                new long[] { T0, T0 + 10 * MINUTE, T0 + 2 * MINUTE },
+                new boolean[] { false, true, false });
+        assertEquals(2, due.size());
+        assertEquals("a", due.get(0).reminderId);
+        assertEquals("Statin", due.get(1).pillName);
+        assertEquals(T0 + 2 * MINUTE, due.get(1).doseTime);
+
+        assertTrue(DoseActions.due(null, null, null, null, null).isEmpty());   // pre-upgrade intent
+    }
+
+    @Test
+    public void takenIsRecordedOnceAndResolvesTheDose() throws Exception {
+        DoseEventLog log = DoseEventLog.open(logFile());
+        List<DoseActions.Dose> doses = Arrays.asList(dose("a", T0 + 8 * HOUR), dose("b", T0 + 8 * HOUR));
+        for (DoseActions.Dose d : doses) log.append(d.reminderId, FIRED, d.doseTime, d.doseTime);
+
+        assertEquals(2, DoseActions.taken(log, doses, T0 + 8 * HOUR + MINUTE));
+        assertEquals(0, DoseActions.taken(log, doses, T0 + 8 * HOUR + 2 * MINUTE));   // double tap
+        assertTrue(log.unresolved(T0, T0 + DAY).isEmpty());
+    }
+
+    @Test
+    public void snoozeSkipsTakenDosesAndRestartsTheMissedClock() throws Exception {
+        DoseEventLog log = DoseEventLog.open(logFile());
+        long dose = T0 + 8 * HOUR;
+        log.append("a", FIRED, dose, dose);
+        log.append("b", FIRED, dose, dose);
+        log.append("a", ACKNOWLEDGED, dose, dose + MINUTE);
+
+        long now = dose + 5 * MINUTE;
+        List<DoseActions.Dose> snoozed =
+                DoseActions.snooze(log, Arrays.asList(dose("a", dose), dose("b", dose)), now);
+        assertEquals(1, snoozed.size());
+        assertEquals("b", snoozed.get(0).reminderId);
+        assertEquals(now + DoseActions.SNOOZE_MILLIS, DoseActions.snoozeUntil(now));
+
+        // With an hour's grace: not missed an hour after the dose, since the snooze was the last alert
+        assertTrue(log.unresolved(T0, (dose + HOUR) - HOUR).isEmpty());
+        assertEquals(1, log.unresolved(T0, (now + HOUR + MINUTE) - HOUR).size());
+    }
+
+    /**
+     * Taps on a patient with three years of four daily doses of five medicines: the first
+     * on a freshly replayed log (process started for the broadcast), then nine snoozes and
+     * a tap for each of the last day's other doses.
+     */
+    @Test
+    public void tapsOnThreeYearsOfHistory_resolveTheLastDay() throws Exception {
+        DoseEventLog log = DoseEventLog.open(logFile());
+        String[] reminders = { "-Nr0000000000000000a", "-Nr0000000000000000b", "-Nr0000000000000000c",
+                               "-Nr0000000000000000d", "-Nr0000000000000000e" };
+        int days = 3 * 365;
+        for (int day = 0; day < days; day++) {
+            for (int slot = 0; slot < 4; slot++) {
+                long dose = T0 + day * DAY + (8 + 4 * slot) * HOUR;
+                for (String r : reminders) {
+                    log.append(r, SCHEDULED, dose, dose - 4 * HOUR);
+                    log.append(r, FIRED, dose, dose);
+                    if (day < days - 1) log.append(r, ACKNOWLEDGED, dose, dose + 3 * MINUTE);
+                }
+            }
+        }
+        log.close();
+
+        // Cold: open the log, then answer the first dose of the last day
+        long lastDay = T0 + (days - 1) * DAY;
+        DoseEventLog cold = DoseEventLog.open(logFile());
+        assertEquals(1, DoseActions.taken(cold,
+                Collections.singletonList(dose(reminders[0], lastDay + 8 * HOUR)), lastDay + 8 * HOUR));
+
+        // Warm: nine snoozes and then a tap for each of the last day's other doses
+        int taken = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int slot = 0; slot < 4; slot++) {
+                for (String r : reminders) {
+                    if (slot == 0 && r.equals(reminders[0])) continue;
+                    List<DoseActions.Dose> doses =
+                            Collections.singletonList(dose(r, lastDay + (8 + 4 * slot) * HOUR));
+                    long now = lastDay + (8 + 4 * slot) * HOUR + round * MINUTE;
+                    if (round < 9) assertEquals(1, DoseActions.snooze(cold, doses, now).size());
+                    else           taken += DoseActions.taken(cold, doses, now);
+                }
+            }
+        }
+
+        assertEquals(19, taken);
+        assertTrue(cold.unresolved(T0, lastDay + DAY).isEmpty());
+    }
+}
@@ -0,0 +1,158 @@
+package com.humangodkiller.luvia;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Map;
+
+import static com.humangodkiller.luvia.DoseEventLog.Type.*;
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link DoseEventLog}: range queries, replay of a torn log, missed-dose
+ * detection, the upload watermark and compaction — plus a three-year write/query run.
+ */
+public class DoseEventLogTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final long MINUTE = 60_000L;
+    private static final long HOUR   = 60 * MINUTE;
+    private static final long DAY    = 24 * HOUR;
+    private static final long T0     = 1_779_000_000_000L - 1_779_000_000_000L % DAY;   // a UTC midnight
+
+    private File logFile() { return new File(tmp.getRoot(), "dose_events_uid.bin"); }
+
+    @Test
+    public void queriesByReminderAndDateInDoseOrder() throws Exception {
+        DoseEventLog log = DoseEventLog.open(logFile());
+        log.append("-Naspirin", SCHEDULED, T0 + 8 * HOUR, T0);
+        log.append("-Ninsulin", SCHEDULED, T0 + 9 * HOUR, T0);
+        log.append("-Naspirin", SCHEDULED, T0 + 20 * HOUR, T0 + 8 * HOUR);   // next dose armed early
+        log.append("-Naspirin", FIRED, T0 + 8 * HOUR, T0 + 8 * HOUR);
+        log.append("-Naspirin", ACKNOWLEDGED, T0 + 8 * HOUR, T0 + 8 * HOUR + 95_500);
+
+        List<DoseEventLog.Event> aspirin = log.query("-Naspirin", T0, T0 + DAY);
+        assertEquals(4, aspirin.size());
+        assertEquals(SCHEDULED,    aspirin.get(0).type);
+        assertEquals(FIRED,        aspirin.get(1).type);
+        assertEquals(ACKNOWLEDGED, aspirin.get(2).type);
+        assertEquals(T0 + 8 * HOUR + 95_000, aspirin.get(2).at);   // kept to the second
+        assertEquals(T0 + 20 * HOUR, aspirin.get(3).doseTime);
+
+        assertEquals(4, log.query(T0, T0 + 12 * HOUR).size());        // both reminders, morning only
+        assertTrue(log.query("-Nunknown", T0, T0 + DAY).isEmpty());
+    }
+
+    @Test
+    public void tornTailIsDroppedOnReopen() throws Exception {
+        DoseEventLog log = DoseEventLog.open(logFile());
+        log.append("-Naspirin", FIRED, T0, T0);
+        log.append("-Ninsulin", FIRED, T0, T0);   // also defines a new reminder
+        log.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(logFile(), "rw")) {
+            raf.setLength(raf.length() - 2);
+        }
+
+        DoseEventLog reopened = DoseEventLog.open(logFile());
+        assertEquals(1, reopened.size());
+        reopened.append("-Ninsulin", FIRED, T0, T0);   // writable again, dictionary re-written
+        reopened.close();
+
+        DoseEventLog again = DoseEventLog.open(logFile());
+        assertEquals(2, again.size());
+        assertEquals(1, again.query("-Ninsulin", T0, T0 + 1).size());
+    }
+
+    @Test
+    public void unresolvedDosesAreTheOnesToMarkMissed() throws Exception {
+        DoseEventLog log = DoseEventLog.open(logFile());
+        long taken = T0 + 8 * HOUR, snoozed = T0 + 9 * HOUR, ignored = T0 + 10 * HOUR;
+        for (long dose : new long[] { taken, snoozed, ignored }) {
+            assertTrue(log.appendIfAbsent("r", SCHEDULED, dose, T0));
+            assertFalse(log.appendIfAbsent("r", SCHEDULED, dose, T0 + 1));   // re-armed: no duplicate
+            log.appendIfAbsent("r", FIRED, dose, dose);
+        }
+        log.append("r", ACKNOWLEDGED, taken, taken + 2 * MINUTE);
+        log.append("r", SNOOZED, snoozed, snoozed + 90 * MINUTE);
+
+        // At 11:10, with an hour's grace: the 10:00 dose is overdue, the one snoozed at 10:30 isn't
+        long now = ignored + 70 * MINUTE;
+        List<DoseEventLog.Event> due = log.unresolved(T0, now - HOUR);
+        assertEquals(1, due.size());
+        assertEquals(ignored, due.get(0).doseTime);
+
+        log.appendIfAbsent("r", MISSED, ignored, now);
+        assertTrue(log.unresolved(T0, now - HOUR).isEmpty());
+        assertEquals(1, log.unresolved(T0, T0 + DAY).size());   // the snoozed one, later on
+    }
+
+    @Test
+    public void uploadWatermarkSurvivesReopenAndCompactionDropsOldUploadedEvents() throws Exception {
+        DoseEventLog log = DoseEventLog.open(logFile());
+        for (int day = 0; day < 100; day++) {
+            log.append("r", FIRED, T0 + day * DAY, T0 + day * DAY);
+            log.append("r", ACKNOWLEDGED, T0 + day * DAY, T0 + day * DAY + MINUTE);
+        }
+
+        List<DoseEventLog.Event> batch = log.pending(150);
+        assertEquals(150, batch.size());
+        Map<String, Object> update = DoseEventLog.toUpdate("uid", batch);
+        assertEquals(T0 + MINUTE, update.get("doseEvents/uid/r/" + T0 + "/acknowledged"));
+        log.markUploaded(batch.size());
+        log.close();
+
+        DoseEventLog reopened = DoseEventLog.open(logFile());
+        assertEquals(50, reopened.pendingCount());
+        long before = logFile().length();
+
+        reopened.compact(T0 + 50 * DAY);   // 100 uploaded events are older than day 50
+        assertEquals(100, reopened.size());
+        assertEquals(50, reopened.pendingCount());
+        assertTrue(logFile().length() < before);
+        assertTrue(reopened.query(T0, T0 + 50 * DAY).isEmpty());
+        reopened.close();
+
+        DoseEventLog compacted = DoseEventLog.open(logFile());
+        assertEquals(100, compacted.size());
+        assertEquals(50, compacted.pendingCount());
+        assertEquals(T0 + 75 * DAY, compacted.pending(1).get(0).doseTime);
+    }
+
+    /** Years of four doses a day for five medicines must stay small and reopen intact. */
+    @Test
+    public void threeYearsOfFourDailyDoses_staySmall() throws Exception {
+        DoseEventLog log = DoseEventLog.open(logFile());
+        String[] reminders = { "-Nr0000000000000000a", "-Nr0000000000000000b", "-Nr0000000000000000c",
+                               "-Nr0000000000000000d", "-Nr0000000000000000e" };
+        int events = 0;
+        for (int day = 0; day < 3 * 365; day++) {
+            for (int slot = 0; slot < 4; slot++) {
+                long dose = T0 + day * DAY + (8 + 4 * slot) * HOUR;
+                for (String r : reminders) {
+                    log.append(r, SCHEDULED, dose, dose - 4 * HOUR);
+                    log.append(r, FIRED, dose, dose);
+                    log.append(r, day % 10 == 0 ? MISSED : ACKNOWLEDGED, dose, dose + 3 * MINUTE);
+                    events += 3;
+                }
+            }
+        }
+        log.close();
+
+        DoseEventLog reopened = DoseEventLog.open(logFile());
+        int hits = 0;
+        for (int month = 0; month < 36; month++) {
+            hits += reopened.query(reminders[month % 5], T0 + month * 30 * DAY, T0 + (month + 1) * 30 * DAY).size();
+        }
+
+        long bytes = logFile().length();
+        assertEquals(events, reopened.size());
+        assertEquals(36 * 30 * 4 * 3, hits);
+        assertTrue("bytes per event " + (double) bytes / events, bytes < 10L * events);
+    }
+}
@@ -0,0 +1,166 @@
+package com.humangodkiller.luvia;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link DoseScheduler} across day, month, year and DST boundaries.
+ */
+public class DoseSchedulerTest {
+
+    private static final TimeZone KOLKATA  = TimeZone.getTimeZone("Asia/Kolkata");
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+    private static final TimeZone LONDON   = TimeZone.getTimeZone("Europe/London");
+
+    private static long at(TimeZone tz, int y, int month, int d, int h, int m) {
+        Calendar c = Calendar.getInstance(tz);
+        c.clear();
+        c.set(y, month, d, h, m, 0);
+        return c.getTimeInMillis();
+    }
+
+    private static String fmt(long millis, TimeZone tz) {
+        Calendar c = Calendar.getInstance(tz);
+        c.setTimeInMillis(millis);
+        return String.format("%04d-%02d-%02d %02d:%02d",
+                c.get(Calendar.YEAR), c.get(Calendar.MONTH) + 1, c.get(Calendar.DAY_OF_MONTH),
+                c.get(Calendar.HOUR_OF_DAY), c.get(Calendar.MINUTE));
+    }
+
+    private static long next(TimeZone tz, int h, int m, long start, long end, long after) {
+        return DoseScheduler.nextOccurrence(h, m, start, end, after, tz);
+    }
+
+    @Test
+    public void laterToday_thenTomorrow() {
+        long now = at(KOLKATA, 2026, Calendar.MARCH, 10, 7, 0);
+        assertEquals("2026-03-10 08:00", fmt(next(KOLKATA, 8, 0, 0, 0, now), KOLKATA));
+
+        long afterDose = at(KOLKATA, 2026, Calendar.MARCH, 10, 8, 0);
+        assertEquals("2026-03-11 08:00", fmt(next(KOLKATA, 8, 0, 0, 0, afterDose), KOLKATA));
+    }
+
+    @Test
+    public void startDateInFuture_firstDoseOnStartDay() {
+        long now   = at(KOLKATA, 2026, Calendar.MARCH, 10, 12, 0);
+        long start = at(KOLKATA, 2026, Calendar.MARCH, 14, 15, 45);   // picked mid-afternoon
+        assertEquals("2026-03-14 08:00", fmt(next(KOLKATA, 8, 0, start, 0, now), KOLKATA));
+    }
+
+    @Test
+    public void endDate_isInclusiveOfItsDayAndThenStops() {
+        long start = at(KOLKATA, 2026, Calendar.MARCH, 1, 0, 0);
+        long end   = at(KOLKATA, 2026, Calendar.MARCH, 3, 23, 59);
+
+        long t = at(KOLKATA, 2026, Calendar.MARCH, 2, 21, 0);
+        long last = next(KOLKATA, 21, 30, start, end, t);
+        assertEquals("2026-03-02 21:30", fmt(last, KOLKATA));
+        last = next(KOLKATA, 21, 30, start, end, last);
+        assertEquals("2026-03-03 21:30", fmt(last, KOLKATA));
+        assertEquals(DoseScheduler.NO_OCCURRENCE, next(KOLKATA, 21, 30, start, end, last));
+    }
+
+    @Test
+    public void monthAndYearBoundaries() {
+        assertEquals("2026-02-01 09:15", fmt(next(KOLKATA, 9, 15, 0, 0,
+                at(KOLKATA, 2026, Calendar.JANUARY, 31, 10, 0)), KOLKATA));
+        assertEquals("2026-03-01 09:15", fmt(next(KOLKATA, 9, 15, 0, 0,
+                at(KOLKATA, 2026, Calendar.FEBRUARY, 28, 10, 0)), KOLKATA));
+        assertEquals("2028-02-29 09:15", fmt(next(KOLKATA, 9, 15, 0, 0,
+                at(KOLKATA, 2028, Calendar.FEBRUARY, 28, 10, 0)), KOLKATA));
+        assertEquals("2027-01-01 09:15", fmt(next(KOLKATA, 9, 15, 0, 0,
+                at(KOLKATA, 2026, Calendar.DECEMBER, 31, 10, 0)), KOLKATA));
+    }
+
+    @Test
+    public void dstSpringForward_keepsWallClockAcrossTheChange() {
+        // US clocks jump 02:00 → 03:00 on 8 Mar 2026
+        long before = at(NEW_YORK, 2026, Calendar.MARCH, 7, 9, 0);
+        long d1 = next(NEW_YORK, 8, 0, 0, 0, before);
+        long d2 = next(NEW_YORK, 8, 0, 0, 0, d1);
+        assertEquals("2026-03-08 08:00", fmt(d1, NEW_YORK));
+        assertEquals("2026-03-09 08:00", fmt(d2, NEW_YORK));
+        assertEquals(23L * 60 * 60 * 1000, d1 - at(NEW_YORK, 2026, Calendar.MARCH, 7, 8, 0));
+    }
+
+    @Test
+    public void dstSpringForward_doseInsideGapFiresRightAfterIt() {
+        long before = at(NEW_YORK, 2026, Calendar.MARCH, 7, 23, 0);
+        long dose = next(NEW_YORK, 2, 30, 0, 0, before);
+        assertEquals("2026-03-08 03:30", fmt(dose, NEW_YORK));
+        assertTrue(dose > before);
+        // Next day is back to 02:30
+        assertEquals("2026-03-09 02:30", fmt(next(NEW_YORK, 2, 30, 0, 0, dose), NEW_YORK));
+    }
+
+    @Test
+    public void dstFallBack_firesOncePerDay() {
+        // UK clocks go 02:00 → 01:00 on 25 Oct 2026; 01:30 happens twice
+        long before = at(LONDON, 2026, Calendar.OCTOBER, 24, 12, 0);
+        long d1 = next(LONDON, 1, 30, 0, 0, before);
+        long d2 = next(LONDON, 1, 30, 0, 0, d1);
+        assertEquals("2026-10-25 01:30", fmt(d1, LONDON));
+        assertEquals("2026-10-26 01:30", fmt(d2, LONDON));
+        assertTrue(d2 - d1 >= 24L * 60 * 60 * 1000);
+
+        long evening = next(LONDON, 20, 0, 0, 0, at(LONDON, 2026, Calendar.OCTOBER, 24, 21, 0));
+        assertEquals(25L * 60 * 60 * 1000, evening - at(LONDON, 2026, Calendar.OCTOBER, 24, 20, 0));
+    }
+
+    @Test
+    public void fromReminder_usesTimeOfDayOfScheduledTime() {
+        long start = at(KOLKATA, 2026, Calendar.MAY, 1, 11, 0);
+        long end   = at(KOLKATA, 2026, Calendar.MAY, 31, 23, 59);
+        PillReminder r = new PillReminder("Aspirin", "75 mg",
+                at(KOLKATA, 2026, Calendar.MAY, 1, 20, 45), start, end, true);
+
+        long now = at(KOLKATA, 2026, Calendar.MAY, 17, 21, 0);
+        assertEquals("2026-05-18 20:45", fmt(DoseScheduler.nextOccurrence(r, now, KOLKATA), KOLKATA));
+    }
+
+    @Test
+    public void thirtyDayCourse_walksExactlyThirtyDoses() {
+        long start = at(NEW_YORK, 2026, Calendar.FEBRUARY, 20, 0, 0);
+        long end   = at(NEW_YORK, 2026, Calendar.MARCH, 21, 23, 59);
+        int doses = 0;
+        long t = start - 1;
+        while ((t = next(NEW_YORK, 7, 0, start, end, t)) != DoseScheduler.NO_OCCURRENCE) {
+            assertTrue(fmt(t, NEW_YORK).endsWith("07:00"));
+            doses++;
+        }
+        assertEquals(30, doses);
+    }
+
+    @Test
+    public void firstDoseTime_rollsToTomorrowOnlyWhenTodaysSlotHasPassed() {
+        long startToday = at(KOLKATA, 2026, Calendar.MAY, 17, 9, 12);   // picked at 09:12
+        long now        = at(KOLKATA, 2026, Calendar.MAY, 17, 10, 0);
+
+        assertEquals("2026-05-17 20:45",
+                fmt(DoseScheduler.firstDoseTime(startToday, 20, 45, now, KOLKATA), KOLKATA));
+        assertEquals("2026-05-18 08:00",
+                fmt(DoseScheduler.firstDoseTime(startToday, 8, 0, now, KOLKATA), KOLKATA));
+
+        long startNextWeek = at(KOLKATA, 2026, Calendar.MAY, 24, 9, 12);
+        assertEquals("2026-05-24 08:00",
+                fmt(DoseScheduler.firstDoseTime(startNextWeek, 8, 0, now, KOLKATA), KOLKATA));
+    }
+
+    @Test
+    public void courseBounds_compareWholeDays() {
+        long morning = at(LONDON, 2026, Calendar.MARCH, 28, 8, 0);
+        long evening = at(LONDON, 2026, Calendar.MARCH, 28, 21, 0);
+
+        assertTrue(DoseScheduler.isValidCourse(evening, morning, LONDON));   // same day
+        assertFalse(DoseScheduler.isValidCourse(morning,
+                at(LONDON, 2026, Calendar.MARCH, 27, 23, 0), LONDON));
+
+        long end = DoseScheduler.endOfDay(morning, LONDON);
+        assertEquals("2026-03-28 23:59", fmt(end, LONDON));
+        assertTrue(end > evening);
+    }
+}
@@ -0,0 +1,233 @@
+package com.humangodkiller.luvia;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Deterministic simulation of the coalesced alarm timeline, driven by a fake clock.
+ *
+ * The harness plays the part of AlarmManager + PillAlarmReceiver: it "arms" the earliest
+ * event, jumps the clock to it, delivers the batch and rebuilds — exactly the loop the
+ * receiver runs on a device.
+ */
+public class DoseTimelineTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final TimeZone TZ     = TimeZone.getTimeZone("Asia/Kolkata");
+    private static final long     MINUTE = 60 * 1000L;
+    private static final long     DAY    = 24 * 60 * MINUTE;
+
+    /** Fake clock + wake-up log standing in for the OS alarm service. */
+    private static class Simulation {
+        long now;
+        int  wakeups;
+        final List<DoseTimeline.Event> delivered   = new ArrayList<>();
+        final List<Long>               deliveredAt = new ArrayList<>();
+
+        Simulation(long start) { now = start; }
+
+        void run(List<PillReminder> reminders, long windowMillis, long end) {
+            DoseTimeline timeline = new DoseTimeline(windowMillis, TZ);
+            timeline.rebuild(reminders, now);
+            while (true) {
+                DoseTimeline.Batch batch = timeline.pollBatch();
+                if (batch == null || batch.fireAt > end) break;
+                assertTrue("alarm armed in the past", batch.fireAt > now);
+                now = batch.fireAt;                 // the single armed alarm goes off
+                wakeups++;
+                for (DoseTimeline.Event e : batch.events) {
+                    delivered.add(e);
+                    deliveredAt.add(now);
+                }
+                timeline.rebuild(reminders, batch.coversUntil);
+            }
+        }
+    }
+
+    private static long at(int y, int month, int d, int h, int m) {
+        Calendar c = Calendar.getInstance(TZ);
+        c.clear();
+        c.set(y, month, d, h, m, 0);
+        return c.getTimeInMillis();
+    }
+
+    private static PillReminder reminder(String id, int h, int m, long created, long start, long end) {
+        PillReminder r = new PillReminder("Pill " + id, "1 tab", at(2026, Calendar.JUNE, 1, h, m), start, end, true);
+        r.setId(id);
+        r.setCreatedAt(created);
+        r.setUpdatedAt(created);
+        return r;
+    }
+
+    /** Fifteen medicines clustered around breakfast, lunch and bedtime. */
+    private static List<PillReminder> fifteenMedicines(long created, long start, long end) {
+        int[][] times = {
+                {8, 0}, {8, 0}, {8, 2}, {8, 3}, {8, 5},
+                {13, 30}, {13, 30}, {13, 31}, {13, 34}, {13, 35},
+                {21, 0}, {21, 1}, {21, 1}, {21, 4}, {21, 5},
+        };
+        List<PillReminder> list = new ArrayList<>();
+        for (int i = 0; i < times.length; i++)
+            list.add(reminder("r" + i, times[i][0], times[i][1], created, start, end));
+        return list;
+    }
+
+    @Test
+    public void withoutBatching_everyEventIsItsOwnWakeup() {
+        long start = at(2026, Calendar.JUNE, 1, 0, 0);
+        long end   = start + 7 * DAY - 1;
+        List<PillReminder> meds = fifteenMedicines(start - DAY, start, end);
+
+        Simulation sim = new Simulation(start);
+        sim.run(meds, 0L, end);
+
+        // Identical times still share a wake-up (12 distinct dose times); nothing else does
+        assertEquals(15 * 2 * 7, sim.delivered.size());
+        assertEquals(12 * 2 * 7, sim.wakeups);
+    }
+
+    @Test
+    public void fiveMinuteWindow_collapsesClustersIntoFewWakeups() {
+        long start = at(2026, Calendar.JUNE, 1, 0, 0);
+        long end   = start + 7 * DAY - 1;
+        List<PillReminder> meds = fifteenMedicines(start - DAY, start, end);
+
+        Simulation sim = new Simulation(start);
+        sim.run(meds, 5 * MINUTE, end);
+
+        // Per meal: one wake-up for the early reminders, one for the doses
+        assertEquals(3 * 2 * 7, sim.wakeups);
+        assertEquals(15 * 2 * 7, sim.delivered.size());
+
+        // Each (reminder, dose, kind) exactly once, never late, at most one window early
+        Map<String, Integer> seen = new HashMap<>();
+        for (int i = 0; i < sim.delivered.size(); i++) {
+            DoseTimeline.Event e = sim.delivered.get(i);
+            long lead = e.fireAt - sim.deliveredAt.get(i);
+            assertTrue(lead >= 0 && lead <= 5 * MINUTE);
+            seen.merge(e.reminder.getId() + "@" + e.doseTime + (e.early ? "E" : "M"), 1, Integer::sum);
+        }
+        for (int count : seen.values()) assertEquals(1, count);
+    }
+
+    @Test
+    public void batchFiresAtEarliestEventAndCoversWindow() {
+        long start = at(2026, Calendar.JUNE, 1, 7, 0);
+        List<PillReminder> meds = new ArrayList<>();
+        meds.add(reminder("a", 8, 0, start - DAY, 0, 0));
+        meds.add(reminder("b", 8, 4, start - DAY, 0, 0));
+        meds.add(reminder("c", 8, 9, start - DAY, 0, 0));
+
+        DoseTimeline timeline = new DoseTimeline(5 * MINUTE, TZ);
+        timeline.rebuild(meds, start);
+
+        DoseTimeline.Batch early = timeline.pollBatch();           // 07:50 a, 07:54 b
+        assertEquals(at(2026, Calendar.JUNE, 1, 7, 50), early.fireAt);
+        assertEquals(2, early.events.size());
+        assertTrue(early.events.get(0).early);
+
+        timeline.rebuild(meds, early.coversUntil);
+        DoseTimeline.Batch next = timeline.pollBatch();            // 07:59 c early, 08:00 a, 08:04 b
+        assertEquals(at(2026, Calendar.JUNE, 1, 7, 59), next.fireAt);
+        assertEquals(3, next.events.size());
+    }
+
+    @Test
+    public void earlyDroppedWhenItsDoseIsInTheSameBatch() {
+        long created = at(2026, Calendar.JUNE, 1, 7, 55);
+        List<PillReminder> meds = new ArrayList<>();
+        meds.add(reminder("a", 8, 0, created, 0, 0));
+
+        DoseTimeline timeline = new DoseTimeline(5 * MINUTE, TZ);
+        timeline.rebuild(meds, created);
+        DoseTimeline.Batch batch = timeline.pollBatch();
+
+        assertEquals(1, batch.events.size());
+        assertFalse(batch.events.get(0).early);
+    }
+
+    @Test
+    public void shortGapEarlyReminder_isStableAcrossRebuilds() {
+        // Created at 07:54 for an 08:00 dose → heads-up at 07:56 saying "6 minutes"
+        long created = at(2026, Calendar.JUNE, 1, 7, 54);
+        List<PillReminder> meds = new ArrayList<>();
+        meds.add(reminder("a", 8, 0, created, 0, 0));
+
+        DoseTimeline timeline = new DoseTimeline(0L, TZ);
+        timeline.rebuild(meds, created);
+        DoseTimeline.Event e = timeline.peek();
+        assertTrue(e.early);
+        assertEquals(at(2026, Calendar.JUNE, 1, 7, 56), e.fireAt);
+        assertEquals(6, e.minutesRemaining);
+
+        // A rebuild after the heads-up fired must not schedule another one
+        timeline.rebuild(meds, e.fireAt);
+        assertEquals(1, timeline.size());
+        assertFalse(timeline.peek().early);
+    }
+
+    @Test
+    public void editNearTheDose_keepsTheStandardEarlyReminder() {
+        // Added days ago, edited (or re-stamped by a sync) at 07:55 for the 08:00 dose
+        PillReminder r = reminder("a", 8, 0, at(2026, Calendar.MAY, 28, 9, 0), 0, 0);
+        r.setUpdatedAt(at(2026, Calendar.JUNE, 1, 7, 55));
+        List<PillReminder> meds = new ArrayList<>();
+        meds.add(r);
+
+        DoseTimeline timeline = new DoseTimeline(0L, TZ);
+        timeline.rebuild(meds, at(2026, Calendar.JUNE, 1, 7, 0));
+        DoseTimeline.Event e = timeline.peek();
+        assertTrue(e.early);
+        assertEquals(at(2026, Calendar.JUNE, 1, 7, 50), e.fireAt);
+        assertEquals(10, e.minutesRemaining);
+    }
+
+    @Test
+    public void finishedAndDisabledCoursesContributeNothing() {
+        long now = at(2026, Calendar.JUNE, 10, 12, 0);
+        List<PillReminder> meds = new ArrayList<>();
+        meds.add(reminder("done", 8, 0, 0, at(2026, Calendar.JUNE, 1, 0, 0), at(2026, Calendar.JUNE, 5, 23, 59)));
+        PillReminder off = reminder("off", 9, 0, 0, 0, 0);
+        off.setEnabled(false);
+        meds.add(off);
+
+        DoseTimeline timeline = new DoseTimeline(5 * MINUTE, TZ);
+        timeline.rebuild(meds, now);
+        assertTrue(timeline.isEmpty());
+        assertNull(timeline.pollBatch());
+    }
+
+    @Test
+    public void rearmAfterReboot_fiveHundredRemindersFromStore() throws Exception {
+        // What AlarmRearmReceiver does after a reboot: cold-read the store, rebuild, peek
+        File file = new File(tmp.getRoot(), "reminders_uid.bin");
+        long start = at(2026, Calendar.JUNE, 1, 0, 0);
+        LocalReminderStore store = LocalReminderStore.open(file);
+        for (int i = 0; i < 500; i++)
+            store.put(reminder(String.format("r%03d", i), (i * 7) % 24, (i * 13) % 60,
+                    start - DAY, start, start + 30 * DAY));
+        store.close();
+
+        long now = at(2026, Calendar.JUNE, 15, 12, 0);
+        List<PillReminder> reminders = LocalReminderStore.readSnapshot(file);
+        DoseTimeline timeline = new DoseTimeline(5 * MINUTE, TZ);
+        timeline.rebuild(reminders, now);
+        DoseTimeline.Event next = timeline.peek();
+
+        assertEquals(500, reminders.size());
+        assertNotNull(next);
+        assertTrue(next.fireAt > now);
+    }
+}
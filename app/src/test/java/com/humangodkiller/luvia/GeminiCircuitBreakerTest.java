@@ -0,0 +1,85 @@
+package com.humangodkiller.luvia;
+
+import org.junit.Test;
+
+import static com.humangodkiller.luvia.GeminiCircuitBreaker.FAILURE_THRESHOLD;
+import static com.humangodkiller.luvia.GeminiCircuitBreaker.MAX_OPEN_MILLIS;
+import static com.humangodkiller.luvia.GeminiCircuitBreaker.OPEN_MILLIS;
+import static com.humangodkiller.luvia.GeminiCircuitBreaker.State.CLOSED;
+import static com.humangodkiller.luvia.GeminiCircuitBreaker.State.HALF_OPEN;
+import static com.humangodkiller.luvia.GeminiCircuitBreaker.State.OPEN;
+import static org.junit.Assert.*;
+
+/** {@link GeminiCircuitBreaker}'s states on a fake clock. */
+public class GeminiCircuitBreakerTest {
+
+    private long now = 1_000_000;
+    private final GeminiCircuitBreaker breaker =
+            new GeminiCircuitBreaker(GeminiCircuitBreaker.SLOW_MILLIS, () -> now);
+
+    private void failTimes(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.recordFailure();
+        }
+    }
+
+    @Test
+    public void onlyFailuresInARowOpenIt() {
+        failTimes(FAILURE_THRESHOLD - 1);
+        assertTrue(breaker.tryAcquire());
+        breaker.recordSuccess();
+        failTimes(FAILURE_THRESHOLD - 1);
+        assertTrue(breaker.tryAcquire());
+        breaker.release();   // abandoned by its caller
+        assertEquals(CLOSED, breaker.state());
+
+        failTimes(1);
+        assertEquals(OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+        now += OPEN_MILLIS - 1;
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void halfOpenLetsOneProbeThrough() {
+        failTimes(FAILURE_THRESHOLD);
+        now += OPEN_MILLIS;
+        assertTrue(breaker.tryAcquire());
+        assertEquals(HALF_OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());   // probe still in flight
+
+        breaker.release();                   // abandoned: another caller may probe
+        assertTrue(breaker.tryAcquire());
+        breaker.recordSuccess();
+        assertEquals(CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void failedProbesBackOffUpToTheCap() {
+        failTimes(FAILURE_THRESHOLD);
+        long coolDown = OPEN_MILLIS;
+        for (int i = 0; i < 8; i++) {
+            now += coolDown;
+            assertTrue(breaker.tryAcquire());
+            breaker.recordFailure();
+            coolDown = Math.min(coolDown * 2, MAX_OPEN_MILLIS);
+            now += coolDown - 1;
+            assertFalse(breaker.tryAcquire());
+            now += 1;
+            assertTrue(breaker.tryAcquire());
+            breaker.recordFailure();
+            coolDown = Math.min(coolDown * 2, MAX_OPEN_MILLIS);
+        }
+        assertEquals(MAX_OPEN_MILLIS, coolDown);
+
+        // One good probe resets the cool-down as well
+        now += coolDown;
+        assertTrue(breaker.tryAcquire());
+        breaker.recordSuccess();
+        failTimes(FAILURE_THRESHOLD);
+        now += OPEN_MILLIS;
+        assertTrue(breaker.tryAcquire());
+    }
+}
@@ -0,0 +1,390 @@
+package com.humangodkiller.luvia;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link GeminiClient} against a local mock of the generateContent endpoint. Distinct
+ * client ports seen by the server = TCP connections the client actually opened. With
+ * alt=sse the mock streams {@link #STREAM} as server-sent events, one chunk at a time,
+ * like a model generating it. {@code faultCode} and
+ * {@code stallMillis} inject failures and slow answers for the deadline and circuit breaker;
+ * {@code dropAfterChunks} cuts a stream off part-way.
+ */
+public class GeminiClientTest {
+
+    private static final String REPLY =
+            "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"  Time to take Aspirin. \"}]}}]}";
+
+    // How the reply is cut into streamed chunks — boundaries fall mid-word, as Gemini's do
+    private static final String[] STREAM = {
+            "Time to take your", " Aspirin, 75 mg.", " Take it with a full",
+            " glass of water and", " something to eat.", " If you feel dizzy",
+            " afterwards, sit down", " and rest a while.", " Stay well!" };
+
+    private HttpServer server;
+    private String     endpoint;
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private volatile long stallMillis;
+    private volatile int  faultCode;
+    private volatile int  dropAfterChunks;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final CountDownLatch firstRequest = new CountDownLatch(1);
+
+    @Before
+    public void startServer() throws IOException {
+        // Otherwise Nagle + delayed ACK on the mock's split header/body writes adds ~40 ms
+        // to every call on a kept-alive socket and swamps what's being measured
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/generate", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            requests.incrementAndGet();
+            firstRequest.countDown();
+            try (InputStream in = exchange.getRequestBody()) {
+                while (in.read() != -1) { /* drain request */ }
+            }
+            if (stallMillis > 0) {
+                try { Thread.sleep(stallMillis); } catch (InterruptedException ignored) { }
+            }
+            if (faultCode != 0) {
+                byte[] error = "{\"error\":{\"status\":\"UNAVAILABLE\"}}".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(faultCode, error.length);
+                try (OutputStream os = exchange.getResponseBody()) { os.write(error); }
+                return;
+            }
+            String query = exchange.getRequestURI().getQuery();
+            if (query != null && query.contains("alt=sse")) {
+                exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+                exchange.sendResponseHeaders(200, 0);   // chunked
+                // Not try-with-resources: closing writes the last chunk, and a dropped stream
+                // must end without it — throwing from the handler just closes the connection
+                OutputStream os = exchange.getResponseBody();
+                int sent = 0;
+                for (String chunk : STREAM) {
+                    if (dropAfterChunks > 0 && sent++ == dropAfterChunks) throw new IOException("dropped");
+                    String text = new org.json.JSONObject().put("text", chunk).toString();
+                    os.write(("data: {\"candidates\":[{\"content\":{\"parts\":[" + text
+                            + "],\"role\":\"model\"}}]}\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+                    os.flush();
+                }
+                os.write("data: {\"candidates\":[{\"finishReason\":\"STOP\"}]}\r\n\r\n"
+                        .getBytes(StandardCharsets.UTF_8));
+                os.close();
+                return;
+            }
+            byte[] body = REPLY.getBytes(StandardCharsets.UTF_8);
+            String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (accept != null && accept.contains("gzip")) {
+                ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+                try (GZIPOutputStream gz = new GZIPOutputStream(zipped)) { gz.write(body); }
+                body = zipped.toByteArray();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) { os.write(body); }
+        });
+        // A stalled exchange mustn't hold up the next one
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        endpoint = "http://127.0.0.1:" + server.getAddress().getPort() + "/generate";
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private void runSequential(GeminiClient client, int calls) throws IOException {
+        for (int i = 0; i < calls; i++)
+            assertEquals("Time to take Aspirin.", client.newCall("prompt " + i).execute());
+    }
+
+    @Test
+    public void hundredSequentialCalls_reuseOneConnection() throws Exception {
+        runSequential(new GeminiClient(endpoint, false), 100);
+        int freshConnections = clientPorts.size();
+
+        clientPorts.clear();
+        runSequential(new GeminiClient(endpoint, true), 100);
+        int pooledConnections = clientPorts.size();
+
+        assertEquals(100, freshConnections);
+        assertEquals(1, pooledConnections);
+    }
+
+    @Test
+    public void requestBody_roundTripsPrompt() throws Exception {
+        String body = GeminiClient.requestBody("Say \"hi\"");
+        assertEquals("Say \"hi\"", new org.json.JSONObject(body).getJSONArray("contents")
+                .getJSONObject(0).getJSONArray("parts").getJSONObject(0).getString("text"));
+    }
+
+    @Test
+    public void parseText_toleratesMissingCandidates() {
+        assertNull(GeminiClient.parseText("{\"candidates\":[]}"));
+        assertNull(GeminiClient.parseText("{\"error\":{\"code\":429}}"));
+        assertNull(GeminiClient.parseText("not json"));
+    }
+
+    @Test
+    public void cancel_abortsInFlightCall() throws Exception {
+        stallMillis = 5_000;
+        GeminiClient.Call call = new GeminiClient(endpoint, true).newCall("slow", 30_000);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread worker = new Thread(() -> {
+            try { call.execute(); } catch (Throwable t) { failure.set(t); }
+            done.countDown();
+        });
+        worker.start();
+
+        // A call that fails before it connects fails here instead of hanging the test
+        assertTrue("the request never reached the server: " + failure.get(),
+                firstRequest.await(2, TimeUnit.SECONDS));
+        call.cancel();
+        // Well before the 5 s stall would have answered
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertTrue(failure.get() instanceof InterruptedIOException);
+    }
+
+    @Test
+    public void streamEndpoint_isTheSseTwin() {
+        assertEquals("https://x/models/m:streamGenerateContent?key=k&alt=sse",
+                GeminiClient.streamEndpointFor("https://x/models/m:generateContent?key=k"));
+        assertEquals("http://127.0.0.1:1/generate?alt=sse", GeminiClient.streamEndpointFor("http://127.0.0.1:1/generate"));
+    }
+
+    @Test
+    public void chunkText_keepsSpacesAndSkipsTextlessChunks() {
+        assertEquals(" Aspirin,", GeminiClient.chunkText(
+                "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\" Aspirin,\"}]}}]}"));
+        assertNull(GeminiClient.chunkText("{\"candidates\":[{\"finishReason\":\"STOP\"}]}"));
+        assertNull(GeminiClient.chunkText("{\"usageMetadata\":{}}"));
+    }
+
+    /**
+     * Time to first utterance, counted in chunks: streamed, the first whole sentence is ready
+     * for TTS a third of the way into the reply instead of after all of it.
+     */
+    @Test
+    public void streaming_firstSentenceIsReadyBeforeTheReplyEnds() throws Exception {
+        GeminiClient client = new GeminiClient(endpoint, true);
+        List<String> sentences = new ArrayList<>();
+        int[] chunks = new int[1];
+        int[] chunksAtFirstSentence = new int[1];
+        SentenceSplitter splitter = new SentenceSplitter(sentence -> {
+            if (sentences.isEmpty()) chunksAtFirstSentence[0] = chunks[0];
+            sentences.add(sentence);
+        });
+        String text = client.newCall("stream").stream(delta -> {
+            chunks[0]++;
+            splitter.feed(delta);
+        });
+        splitter.flush();
+
+        assertEquals(String.join("", STREAM).trim(), text);
+        assertEquals(Arrays.asList("Time to take your Aspirin, 75 mg.",
+                "Take it with a full glass of water and something to eat.",
+                "If you feel dizzy afterwards, sit down and rest a while.", "Stay well!"), sentences);
+        // The first sentence is whole once the third chunk's leading space shows it has ended
+        assertEquals(3, chunksAtFirstSentence[0]);
+        assertEquals(STREAM.length, chunks[0]);
+    }
+
+    /**
+     * What the speech pipeline does with a stream that drops after its first sentence: that
+     * sentence is already queued, so the fallback follows it instead of being reported alone.
+     */
+    @Test
+    public void streamDroppedPartWay_fallbackIsQueuedAfterWhatWasSaid() throws Exception {
+        dropAfterChunks = 3;
+        StreamedReply reply = new StreamedReply();
+        SentenceSplitter splitter = new SentenceSplitter(reply::add);
+        List<String> spoken = new ArrayList<>();
+
+        try {
+            new GeminiClient(endpoint, true).newCall("stream").stream(chunk -> {
+                splitter.feed(chunk);
+                spoken.addAll(reply.drain());   // as speakStreamed does once the alarm is over
+            });
+            fail("the stream should have broken off");
+        } catch (IOException expected) {
+            // streamGeminiAPI gives up here: no flush, no message
+        }
+        assertEquals(Arrays.asList("Time to take your Aspirin, 75 mg."), spoken);
+
+        String fallback = ReminderMessages.fallback("Aspirin", "75 mg", false, 0, "en");
+        String reported = reply.fail(fallback);
+        spoken.addAll(reply.drain());
+        assertEquals(Arrays.asList("Time to take your Aspirin, 75 mg.", fallback), spoken);
+        assertEquals("Time to take your Aspirin, 75 mg. " + fallback, reported);
+
+        assertFalse(reply.isFinished());
+        reply.utteranceDone();
+        reply.utteranceDone();
+        assertTrue(reply.isFinished());
+    }
+
+    /** Fifty alarms asking for the same reminder at once go out as one request. */
+    @Test
+    public void fiftyIdenticalConcurrentRequests_sendOneCall() throws Exception {
+        GeminiClient client = new GeminiClient(endpoint, true);
+        GeminiRequestCoalescer coalescer = new GeminiRequestCoalescer(GeminiRequestCoalescer.TTL_MILLIS,
+                System::currentTimeMillis);
+        String prompt = ReminderMessages.prompt(ReminderMessages.single("Aspirin", "75 mg", false, 0), "en");
+
+        ExecutorService pool = Executors.newFixedThreadPool(50);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<String>> answers = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            answers.add(pool.submit(() -> {
+                go.await();
+                return coalescer.get(prompt, () -> {
+                    // Sent only once every other caller is waiting on it
+                    while (coalescer.waiters() < 49) Thread.yield();
+                    return client.newCall(prompt).execute();
+                });
+            }));
+        }
+        go.countDown();
+        for (Future<String> answer : answers) assertEquals("Time to take Aspirin.", answer.get(5, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        assertEquals(1, requests.get());
+        assertEquals(1, coalescer.loads());
+
+        // Just after, within the TTL: still no second call
+        assertEquals("Time to take Aspirin.", coalescer.get(prompt, () -> client.newCall(prompt).execute()));
+        assertEquals(1, requests.get());
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Deadline and circuit breaker
+    // ═══════════════════════════════════════════════════════════════════════
+
+    /** A stalled request is given up when the alarm runs out, not after the 10 s timeouts. */
+    @Test
+    public void stalledCall_isExpiredAtTheAlarmDeadline() throws Exception {
+        stallMillis = 8_000;
+        GeminiCircuitBreaker breaker = new GeminiCircuitBreaker(GeminiCircuitBreaker.SLOW_MILLIS, System::currentTimeMillis);
+        GeminiClient client = new GeminiClient(endpoint, true, breaker);
+
+        // Second play of the alarm, 300 ms in, of a 1 s clip: 700 ms left plus the grace
+        long budget = GeminiDeadline.budgetMillis(1_000, 2, 1, 300);
+        assertEquals(700 + GeminiDeadline.GRACE_MILLIS, budget);
+        assertEquals(GeminiDeadline.NO_ALARM_MILLIS, GeminiDeadline.budgetMillis(0, 2, 0, 0));
+        assertEquals(GeminiDeadline.MAX_MILLIS, GeminiDeadline.budgetMillis(60_000, 2, 0, 0));
+
+        GeminiClient.Call call = client.newCall("prompt");
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        timer.schedule(call::expire, budget, TimeUnit.MILLISECONDS);
+        try {
+            call.stream(delta -> fail("nothing should arrive"));
+            fail("expected the deadline to abort the call");
+        } catch (InterruptedIOException e) {
+            assertEquals("Deadline passed", e.getMessage());
+        }
+        timer.shutdown();
+
+        // Given up, not retried: the stalled request was the only one sent
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void repeatedFailures_openTheBreaker_andAHalfOpenProbeClosesIt() throws Exception {
+        long[] now = { 1_000_000 };
+        GeminiCircuitBreaker breaker = new GeminiCircuitBreaker(GeminiCircuitBreaker.SLOW_MILLIS, () -> now[0]);
+        GeminiClient client = new GeminiClient(endpoint, true, breaker);
+        faultCode = 503;
+
+        for (int i = 0; i < GeminiCircuitBreaker.FAILURE_THRESHOLD; i++) {
+            try { client.newCall("prompt").execute(); fail(); }
+            catch (IOException e) { assertEquals("Gemini HTTP 503", e.getMessage()); }
+        }
+        assertEquals(GeminiCircuitBreaker.State.OPEN, breaker.state());
+
+        // Open: fails at once, nothing reaches the server
+        try { client.newCall("prompt").execute(); fail(); }
+        catch (GeminiCircuitBreaker.OpenException expected) { }
+        assertEquals(GeminiCircuitBreaker.FAILURE_THRESHOLD, requests.get());
+
+        // The cool-down is over but the server is still down: the probe fails, cool-down doubles
+        now[0] += GeminiCircuitBreaker.OPEN_MILLIS;
+        try { client.newCall("prompt").execute(); fail(); }
+        catch (IOException e) { assertFalse(e instanceof GeminiCircuitBreaker.OpenException); }
+        now[0] += GeminiCircuitBreaker.OPEN_MILLIS;
+        try { client.newCall("prompt").execute(); fail(); }
+        catch (GeminiCircuitBreaker.OpenException expected) { }
+        assertEquals(GeminiCircuitBreaker.FAILURE_THRESHOLD + 1, requests.get());
+
+        // Server back: the next probe succeeds and closes the breaker
+        faultCode = 0;
+        now[0] += GeminiCircuitBreaker.OPEN_MILLIS;
+        assertEquals("Time to take Aspirin.", client.newCall("prompt").execute());
+        assertEquals(GeminiCircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals("Time to take Aspirin.", client.newCall("prompt").execute());
+    }
+
+    @Test
+    public void slowAnswers_openTheBreakerToo() throws Exception {
+        GeminiCircuitBreaker breaker = new GeminiCircuitBreaker(100, System::currentTimeMillis);
+        GeminiClient client = new GeminiClient(endpoint, true, breaker);
+        stallMillis = 700;   // past half of the 1 s timeout below
+
+        for (int i = 0; i < GeminiCircuitBreaker.FAILURE_THRESHOLD; i++) {
+            // The answer arrives — but too late to be of use at an alarm
+            assertNotNull(client.newCall("prompt", 1_000).stream(delta -> { }));
+        }
+        assertEquals(GeminiCircuitBreaker.State.OPEN, breaker.state());
+        try { client.newCall("prompt").stream(delta -> { }); fail(); }
+        catch (GeminiCircuitBreaker.OpenException expected) { }
+    }
+
+    @Test
+    public void callsCancelledByTheirCaller_dontCount() throws Exception {
+        GeminiCircuitBreaker breaker = new GeminiCircuitBreaker(GeminiCircuitBreaker.SLOW_MILLIS, System::currentTimeMillis);
+        GeminiClient client = new GeminiClient(endpoint, true, breaker);
+        stallMillis = 300;
+
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        for (int i = 0; i < GeminiCircuitBreaker.FAILURE_THRESHOLD; i++) {
+            GeminiClient.Call call = client.newCall("prompt");
+            timer.schedule(call::cancel, 50, TimeUnit.MILLISECONDS);
+            try { call.execute(); fail(); }
+            catch (InterruptedIOException e) { assertEquals("Canceled", e.getMessage()); }
+        }
+        timer.shutdown();
+        assertEquals(GeminiCircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals("Time to take Aspirin.", client.newCall("prompt").execute());
+    }
+}
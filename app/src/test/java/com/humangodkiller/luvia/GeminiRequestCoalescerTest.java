@@ -0,0 +1,107 @@
+package com.humangodkiller.luvia;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/** {@link GeminiRequestCoalescer} with a fake loader and a fake clock. */
+public class GeminiRequestCoalescerTest {
+
+    private static final long TTL = 60_000;
+
+    private long now = 1_000_000;
+    private final GeminiRequestCoalescer coalescer = new GeminiRequestCoalescer(TTL, () -> now);
+
+    @Test
+    public void resultIsReusedUntilTheTtlRunsOut() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        GeminiRequestCoalescer.Loader loader = () -> "text #" + calls.incrementAndGet();
+
+        assertEquals("text #1", coalescer.get("Take Aspirin now.", loader));
+        now += TTL;
+        assertEquals("text #1", coalescer.get("  Take Aspirin\n now. ", loader));   // same canonical key
+        assertEquals("text #2", coalescer.get("Take Insulin now.", loader));
+        now += 1;
+        assertEquals("text #3", coalescer.get("Take Aspirin now.", loader));
+    }
+
+    @Test
+    public void failuresAndEmptyAnswersAreSharedButNotCached() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch respond = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<?> leader = pool.submit(() -> coalescer.get("p", () -> {
+            loading.countDown();
+            try { respond.await(); } catch (InterruptedException e) { throw new InterruptedIOException(); }
+            throw new IOException("HTTP 503");
+        }));
+        loading.await();
+        Future<String> follower = pool.submit(() -> coalescer.get("p", () -> "must not run"));
+        while (coalescer.waiters() == 0) Thread.yield();   // the follower has joined the leader's request
+        respond.countDown();
+
+        try { leader.get(2, TimeUnit.SECONDS); fail(); }
+        catch (ExecutionException e) { assertTrue(e.getCause() instanceof IOException); }
+        try { follower.get(2, TimeUnit.SECONDS); fail(); }
+        catch (ExecutionException e) { assertTrue(e.getCause() instanceof IOException); }
+        pool.shutdown();
+        assertEquals(1, coalescer.loads());
+        assertEquals(0, coalescer.waiters());
+
+        assertNull(coalescer.get("p", () -> null));
+        assertEquals("ok", coalescer.get("p", () -> "ok"));   // neither the failure nor null stuck
+        assertEquals(3, coalescer.loads());
+    }
+
+    @Test
+    public void followerWaitsNoLongerThanItsOwnDeadline() throws Exception {
+        CountDownLatch respond = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<String> leader = pool.submit(() -> coalescer.get("p", () -> {
+            try { respond.await(); } catch (InterruptedException e) { throw new InterruptedIOException(); }
+            return "late";
+        }));
+        while (coalescer.loads() == 0) Thread.yield();   // the leader's request is in flight
+
+        try {
+            coalescer.get("p", 50, () -> "must not run");
+            fail("the follower's deadline passed first");
+        } catch (InterruptedIOException e) {
+            assertEquals("Deadline passed", e.getMessage());
+        }
+        assertEquals(0, coalescer.waiters());
+
+        respond.countDown();
+        assertEquals("late", leader.get(2, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertEquals(1, coalescer.loads());
+    }
+
+    @Test
+    public void sendersExpiredDeadline_isNotPassedOnToFollowers() throws Exception {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<String> leader = pool.submit(() -> coalescer.get("p", 100, () -> {
+            while (coalescer.waiters() == 0) Thread.yield();   // the follower has joined
+            throw new InterruptedIOException("Deadline passed");
+        }));
+        while (coalescer.loads() == 0) Thread.yield();
+
+        // The follower still has time: it sends the request itself
+        assertEquals("follower's own", coalescer.get("p", 5_000, () -> "follower's own"));
+        assertEquals(2, coalescer.loads());
+
+        try { leader.get(2, TimeUnit.SECONDS); fail(); }
+        catch (ExecutionException e) { assertTrue(e.getCause() instanceof InterruptedIOException); }
+        pool.shutdown();
+    }
+}
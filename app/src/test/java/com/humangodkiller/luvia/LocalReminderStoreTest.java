@@ -0,0 +1,201 @@
+package com.humangodkiller.luvia;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link LocalReminderStore} and {@link ReminderReconciler},
+ * reconciling against an in-memory fake of the remote pillReminders node.
+ */
+public class LocalReminderStoreTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Stand-in for pillReminders/&lt;uid&gt; that applies writes synchronously. */
+    private static class FakeRemote implements ReminderReconciler.Remote {
+        final Map<String, PillReminder> node = new HashMap<>();
+        int writes;
+        @Override public void put(PillReminder r) { node.put(r.getId(), LocalReminderStore.copyOf(r)); writes++; }
+        @Override public void remove(String id)   { node.remove(id); writes++; }
+    }
+
+    private static PillReminder reminder(String id, String name, long updatedAt) {
+        PillReminder r = new PillReminder(name, "1 tab", 1_000L, 500L, 9_000L, true);
+        r.setId(id);
+        r.setUpdatedAt(updatedAt);
+        return r;
+    }
+
+    private File storeFile() { return new File(tmp.getRoot(), "reminders_uid.bin"); }
+
+    @Test
+    public void putAndReopen_restoresRemindersInKeyOrder() throws Exception {
+        LocalReminderStore store = LocalReminderStore.open(storeFile());
+        store.put(reminder("b", "Metformin", 10));
+        store.put(reminder("a", "Aspirin", 11));
+        store.markSynced("a");
+        store.close();
+
+        LocalReminderStore reopened = LocalReminderStore.open(storeFile());
+        List<PillReminder> all = reopened.getAll();
+        assertEquals(2, all.size());
+        assertEquals("Aspirin", all.get(0).getPillName());
+        assertEquals("Metformin", all.get(1).getPillName());
+        assertFalse(reopened.isDirty("a"));
+        assertTrue(reopened.isDirty("b"));
+    }
+
+    @Test
+    public void tornTail_isDroppedOnReopen() throws Exception {
+        LocalReminderStore store = LocalReminderStore.open(storeFile());
+        store.put(reminder("a", "Aspirin", 1));
+        store.put(reminder("b", "Metformin", 2));
+        store.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(storeFile(), "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+
+        LocalReminderStore reopened = LocalReminderStore.open(storeFile());
+        assertEquals(1, reopened.size());
+        assertNotNull(reopened.get("a"));
+
+        reopened.put(reminder("c", "Insulin", 3));   // log is writable again after truncation
+        reopened.close();
+        assertEquals(2, LocalReminderStore.open(storeFile()).size());
+    }
+
+    @Test
+    public void versionOneLog_isReadAndUpgradedOnOpen() throws Exception {
+        try (DataOutputStream w = new DataOutputStream(new FileOutputStream(storeFile()))) {
+            w.writeInt(0x4C565252);
+            w.writeInt(1);
+            w.writeByte(1);                 // PUT, without createdAt
+            w.writeUTF("a");
+            w.writeLong(7);
+            w.writeUTF("Aspirin");
+            w.writeUTF("1 tab");
+            w.writeLong(1_000L);
+            w.writeLong(500L);
+            w.writeLong(9_000L);
+            w.writeBoolean(true);
+        }
+
+        LocalReminderStore store = LocalReminderStore.open(storeFile());
+        assertEquals("Aspirin", store.get("a").getPillName());
+        assertEquals(7, store.get("a").getUpdatedAt());
+        assertEquals(0, store.get("a").getCreatedAt());
+        PillReminder b = reminder("b", "Metformin", 8);
+        b.setCreatedAt(8);
+        store.put(b);
+        store.close();
+
+        LocalReminderStore reopened = LocalReminderStore.open(storeFile());
+        assertEquals(2, reopened.size());
+        assertEquals(8, reopened.get("b").getCreatedAt());
+        assertTrue(reopened.isDirty("a"));
+    }
+
+    @Test
+    public void compaction_keepsLiveStateAndShrinksLog() throws Exception {
+        LocalReminderStore store = LocalReminderStore.open(storeFile());
+        for (int i = 0; i < 500; i++) {
+            store.put(reminder("a", "Aspirin v" + i, i));
+            store.markSynced("a");
+        }
+        store.delete("gone", 7);
+        store.close();
+
+        assertTrue("log should have been compacted", storeFile().length() < 4_096);
+        LocalReminderStore reopened = LocalReminderStore.open(storeFile());
+        assertEquals("Aspirin v499", reopened.get("a").getPillName());
+        assertFalse(reopened.isDirty("a"));
+        assertEquals(7, reopened.getTombstone("gone"));
+    }
+
+    @Test
+    public void applyRemote_doesNotClobberNewerPendingEdit() throws Exception {
+        LocalReminderStore store = LocalReminderStore.open(storeFile());
+        store.put(reminder("a", "Local edit", 20));
+
+        assertFalse(store.applyRemote(reminder("a", "Stale remote", 10)));
+        assertEquals("Local edit", store.get("a").getPillName());
+
+        assertTrue(store.applyRemote(reminder("a", "Newer remote", 30)));
+        assertEquals("Newer remote", store.get("a").getPillName());
+        assertFalse(store.isDirty("a"));
+    }
+
+    @Test
+    public void reconcile_lastWriteWinsAgainstFakeRemote() throws Exception {
+        LocalReminderStore store = LocalReminderStore.open(storeFile());
+        FakeRemote remote = new FakeRemote();
+
+        // Synced earlier, then deleted on another device
+        store.applyRemote(reminder("deletedElsewhere", "Old", 1));
+        // Created offline, never reached the server
+        store.put(reminder("offlineAdd", "New", 5));
+        // Edited offline after the server copy
+        store.applyRemote(reminder("editedHere", "v1", 1));
+        store.put(reminder("editedHere", "v2", 8));
+        // Deleted offline, server copy older
+        store.applyRemote(reminder("deletedHere", "Bye", 2));
+        store.delete("deletedHere", 9);
+        // Deleted offline, but edited remotely afterwards — the edit wins
+        store.applyRemote(reminder("resurrected", "Back", 2));
+        store.delete("resurrected", 3);
+
+        remote.node.put("editedHere",  reminder("editedHere", "v1", 1));
+        remote.node.put("deletedHere", reminder("deletedHere", "Bye", 2));
+        remote.node.put("resurrected", reminder("resurrected", "Back again", 4));
+        remote.node.put("remoteOnly",  reminder("remoteOnly", "From web", 6));
+
+        ReminderReconciler.Result result = ReminderReconciler.reconcile(
+                store, new HashMap<>(remote.node), remote);
+
+        assertTrue(result.pushed.contains("offlineAdd"));
+        assertTrue(result.pushed.contains("editedHere"));
+        assertEquals(List.of("deletedHere"), result.deletedRemote);
+        assertEquals(List.of("deletedElsewhere"), result.droppedLocal);
+        assertEquals(2, result.pulled.size());
+
+        assertEquals("v2", remote.node.get("editedHere").getPillName());
+        assertFalse(remote.node.containsKey("deletedHere"));
+        assertEquals("Back again", store.get("resurrected").getPillName());
+        assertEquals("From web", store.get("remoteOnly").getPillName());
+        assertNull(store.get("deletedElsewhere"));
+
+        // Once the fake acknowledges the pushes, a second pass is a no-op
+        for (String id : result.pushed)        store.markSynced(id);
+        for (String id : result.deletedRemote) store.markSynced(id);
+        remote.writes = 0;
+        assertTrue(ReminderReconciler.reconcile(store, new HashMap<>(remote.node), remote).isEmpty());
+        assertEquals(0, remote.writes);
+    }
+
+    /** A cold open replays everything that was written (timed in LocalReminderStoreBenchmark). */
+    @Test
+    public void coldOpenOf500Reminders_restoresAll() throws Exception {
+        LocalReminderStore store = LocalReminderStore.open(storeFile());
+        for (int i = 0; i < 500; i++) {
+            store.applyRemote(reminder(String.format("-N%05d", i), "Medicine " + i, i));
+        }
+        store.close();
+
+        List<PillReminder> all = LocalReminderStore.open(storeFile()).getAll();
+        assertEquals(500, all.size());
+        assertEquals("Medicine 0", all.get(0).getPillName());
+        assertEquals("Medicine 499", all.get(499).getPillName());
+    }
+}
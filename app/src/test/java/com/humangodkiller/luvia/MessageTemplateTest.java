@@ -0,0 +1,130 @@
+package com.humangodkiller.luvia;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link MessageTemplate} and {@link MessageCatalog}: the shipped templates must say exactly
+ * what the hand-concatenated strings they replaced said, in every language.
+ */
+public class MessageTemplateTest {
+
+    private static final List<String> ARGS = Arrays.asList("n", "name");
+
+    private static final MessageTemplate.Rules HINDI = new MessageTemplate.Rules(new int[] { 0, 1 }, '०');
+
+    /** The fallback as it was built before templates, for comparison. */
+    static String legacyFallback(String pillName, String dosage, boolean isEarly, int minutesRemaining, String lang) {
+        switch (lang) {
+            case "ml":
+                return isEarly
+                        ? "ശ്രദ്ധിക്കൂ! " + minutesRemaining + " മിനിറ്റിനുള്ളിൽ " + pillName + " (" + dosage + ") കഴിക്കണം. ദയവായി ഇപ്പോൾ തയ്യാറാകൂ."
+                        : "ഇപ്പോൾ " + pillName + " (" + dosage + ") കഴിക്കേണ്ട സമയമായി. നിങ്ങളുടെ ആരോഗ്യം പ്രധാനമാണ്.";
+            case "hi":
+                return isEarly
+                        ? "ध्यान दें! " + minutesRemaining + " मिनट में " + pillName + " (" + dosage + ") लेने का समय है। कृपया अभी तैयारी करें।"
+                        : "अब " + pillName + " (" + dosage + ") लेने का समय हो गया है। अपनी दवाई समय पर लें।";
+            default:
+                return isEarly
+                        ? "Hello! " + pillName + " (" + dosage + ") is due in " + minutesRemaining
+                        + " minute" + (minutesRemaining == 1 ? "" : "s") + ". Please prepare now."
+                        : "Time to take " + pillName + " (" + dosage + "). Your health matters!";
+        }
+    }
+
+    private static String legacyInstruction(String lang) {
+        switch (lang) {
+            case "ml": return "Respond ONLY in Malayalam (മലയാളം). Do not use English.";
+            case "hi": return "Respond ONLY in Hindi (हिन्दी). Do not use English.";
+            default:   return "Respond in English.";
+        }
+    }
+
+    private static String legacyPrompt(String pillName, String dosage, boolean isEarly, int minutesRemaining, String lang) {
+        if (isEarly) {
+            return legacyInstruction(lang) + " Generate a friendly caring reminder (max 2 sentences) for a patient. " +
+                    "Their medicine '" + pillName + "' (dosage: " + dosage + ") is due in exactly " +
+                    minutesRemaining + " minute" + (minutesRemaining == 1 ? "" : "s") + ". " +
+                    "Be warm and encouraging. Mention the exact time left. Keep it conversational like a caring friend.";
+        }
+        return legacyInstruction(lang) + " Generate a friendly caring reminder (max 2 sentences) for a patient. " +
+                "It's time to take '" + pillName + "' (dosage: " + dosage + "). " +
+                "Be warm and encouraging. Emphasise taking medicine on time. Keep it conversational.";
+    }
+
+    @Test
+    public void shippedTemplatesSayWhatTheOldCodeSaid() {
+        for (String lang : Arrays.asList("en", "ml", "hi", "fr")) {
+            for (int minutes : new int[] { 0, 1, 5, 10 }) {
+                for (boolean early : new boolean[] { true, false }) {
+                    assertEquals(legacyFallback("Aspirin", "75 mg", early, minutes, lang),
+                            ReminderMessages.fallback("Aspirin", "75 mg", early, minutes, lang));
+                    assertEquals(legacyPrompt("Aspirin", "75 mg", early, minutes, lang),
+                            ReminderMessages.prompt("Aspirin", "75 mg", early, minutes, lang));
+                }
+            }
+        }
+        List<ReminderMessages.Item> batch = Arrays.asList(
+                new ReminderMessages.Item("Aspirin", "75 mg", true, 1),
+                new ReminderMessages.Item("Metformin", "500 mg", false, 0));
+        assertEquals("Respond ONLY in Hindi (हिन्दी). Do not use English. Generate one friendly caring reminder "
+                        + "(max 3 sentences) for a patient covering all of these medicines: 'Aspirin' (dosage: 75 mg) "
+                        + "due in 1 minute; 'Metformin' (dosage: 500 mg) to take now. Mention every medicine by name "
+                        + "and when it is due. Be warm and encouraging. Keep it conversational.",
+                ReminderMessages.prompt(batch, "hi"));
+        assertEquals(legacyFallback("Aspirin", "75 mg", true, 1, "ml") + " "
+                + legacyFallback("Metformin", "500 mg", false, 0, "ml"), ReminderMessages.fallback(batch, "ml"));
+    }
+
+    @Test
+    public void catalogsResolveLanguagesFromResources() {
+        assertEquals(Arrays.asList("en", "ml", "hi"), MessageCatalog.languages());
+        assertEquals("Malayalam", ReminderMessages.catalog("ml").label());
+        assertEquals(new Locale("hi", "IN"), ReminderMessages.ttsLocale("hi"));
+        assertEquals(Locale.US, ReminderMessages.ttsLocale("en"));
+
+        // No file, or not a language code at all: the base language
+        assertEquals("en", MessageCatalog.load("fr", ReminderMessages.ARGS).language());
+        assertEquals("en", MessageCatalog.load("../en", ReminderMessages.ARGS).language());
+        assertEquals(Locale.US, ReminderMessages.ttsLocale(null));
+    }
+
+    @Test
+    public void pluralsAndDigitsFollowTheLanguage() {
+        String pattern = "{name}: {n, plural, one{# दिन बचा} other{# दिन बचे}}";
+        MessageTemplate hi = MessageTemplate.compile(pattern, ARGS, HINDI);
+        assertEquals("Aspirin: ० दिन बचा", hi.render(0, "Aspirin"));
+        assertEquals("Aspirin: १ दिन बचा", hi.render(1, "Aspirin"));
+        assertEquals("Aspirin: १२ दिन बचे", hi.render(12, "Aspirin"));
+
+        MessageTemplate en = MessageTemplate.compile("{n, plural, one{# dose} other{# doses}} of {name}",
+                ARGS, MessageTemplate.Rules.ENGLISH);
+        assertEquals("0 doses of Aspirin", en.render(0, "Aspirin"));
+        assertEquals("1 dose of Aspirin", en.render(1, "Aspirin"));
+
+        StringBuilder out = new StringBuilder("> ");
+        en.appendTo(out, 3, "Insulin");
+        assertEquals("> 3 doses of Insulin", out.toString());
+
+        MessageTemplate plain = MessageTemplate.compile("No arguments #here", ARGS, MessageTemplate.Rules.ENGLISH);
+        assertSame(plain.render(), plain.render());
+        assertEquals("No arguments #here", plain.render());
+    }
+
+    @Test
+    public void brokenPatternsFailWhenCompiled() {
+        for (String broken : new String[] {
+                "{pill}", "Hello {name", "Hello }", "{n, plural, one{x}}", "{n, plural, one{x} other{y}",
+                "{n, plural, few{x} other{y}}", "{n, select, a{x} other{y}}" }) {
+            try {
+                MessageTemplate.compile(broken, ARGS, MessageTemplate.Rules.ENGLISH);
+                fail("compiled: " + broken);
+            } catch (IllegalArgumentException expected) { }
+        }
+    }
+}
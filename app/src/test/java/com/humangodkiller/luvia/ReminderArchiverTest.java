@@ -0,0 +1,139 @@
+package com.humangodkiller.luvia;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ReminderArchiver}: which reminders leave the hot node, the multi-path updates that
+ * move them, and what that does to the size of pillReminders/&lt;uid&gt;.
+ */
+public class ReminderArchiverTest {
+
+    private static final String UID = "patient-1";
+    private static final long   DAY = 24L * 60 * 60 * 1000;
+    private static final long   NOW = 1_779_000_000_000L;   // 2026-05-17 UTC
+
+    private static PillReminder reminder(String id, long endDate) {
+        PillReminder r = new PillReminder("Medicine " + id, "500 mg",
+                endDate - DAY, endDate - 30 * DAY, endDate, true);
+        r.setId(id);
+        r.setUpdatedAt(endDate - 30 * DAY);
+        return r;
+    }
+
+    /** 1,000 running courses, 100 open-ended, 8,900 that ended over the last ~2.5 years. */
+    private static List<PillReminder> tenThousand() {
+        List<PillReminder> all = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) all.add(reminder(String.format("live-%04d", i), NOW + (i % 60 + 1) * DAY));
+        for (int i = 0; i < 100; i++)   all.add(reminder(String.format("open-%04d", i), 0));
+        for (int i = 0; i < 8_900; i++) all.add(reminder(String.format("past-%04d", i), NOW - (i / 12 + 1) * DAY));
+        return all;
+    }
+
+    /** The node as the Realtime Database would ship it to a listener. */
+    private static int jsonBytes(Map<String, PillReminder> node) {
+        JSONObject json = new JSONObject();
+        for (Map.Entry<String, PillReminder> e : node.entrySet()) {
+            PillReminder r = e.getValue();
+            json.put(e.getKey(), new JSONObject()
+                    .put("id",            r.getId())
+                    .put("pillName",      r.getPillName())
+                    .put("dosage",        r.getDosage())
+                    .put("scheduledTime", r.getScheduledTime())
+                    .put("startDate",     r.getStartDate())
+                    .put("endDate",       r.getEndDate())
+                    .put("enabled",       r.isEnabled())
+                    .put("updatedAt",     r.getUpdatedAt()));
+        }
+        return json.toString().getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /** Applies multi-path updates to an in-memory database, as updateChildren would. */
+    private static void apply(Map<String, Object> db, Map<String, Object> update) {
+        for (Map.Entry<String, Object> e : update.entrySet()) {
+            if (e.getValue() == null) db.remove(e.getKey());
+            else                      db.put(e.getKey(), e.getValue());
+        }
+    }
+
+    private static Map<String, PillReminder> hotNode(Map<String, Object> db) {
+        Map<String, PillReminder> node = new LinkedHashMap<>();
+        String prefix = ReminderArchiver.HOT_ROOT + "/" + UID + "/";
+        for (Map.Entry<String, Object> e : db.entrySet()) {
+            if (e.getKey().startsWith(prefix)) node.put(e.getKey().substring(prefix.length()), (PillReminder) e.getValue());
+        }
+        return node;
+    }
+
+    @Test
+    public void onlyCoursesPastTheGracePeriodAreArchived() {
+        long cutoff = ReminderArchiver.cutoff(NOW);
+        assertFalse(ReminderArchiver.isArchivable(reminder("open", 0), cutoff));
+        assertFalse(ReminderArchiver.isArchivable(reminder("running", NOW + DAY), cutoff));
+        assertFalse(ReminderArchiver.isArchivable(reminder("lastWeek", NOW - 7 * DAY), cutoff));
+        assertTrue(ReminderArchiver.isArchivable(reminder("lastYear", NOW - 365 * DAY), cutoff));
+    }
+
+    @Test
+    public void monthPartitionIsTheUtcMonthOfTheEndDate() {
+        assertEquals("2026-05", ReminderArchiver.monthOf(NOW));
+        assertEquals("2025-12", ReminderArchiver.monthOf(1_767_225_599_000L));   // 2025-12-31T23:59:59Z
+        assertEquals("2026-01", ReminderArchiver.monthOf(1_767_225_600_000L));   // 2026-01-01T00:00:00Z
+    }
+
+    @Test
+    public void eachBatchMovesItsRemindersAndMarksTheirMonths() {
+        List<PillReminder> candidates = new ArrayList<>();
+        candidates.add(reminder("a", NOW - 400 * DAY));
+        candidates.add(reminder("b", NOW - 100 * DAY));
+        candidates.add(reminder("c", NOW - 99 * DAY));
+        candidates.add(reminder("recent", NOW - DAY));
+
+        List<Map<String, Object>> batches =
+                ReminderArchiver.batches(UID, candidates, ReminderArchiver.cutoff(NOW), 2);
+
+        assertEquals(2, batches.size());
+        Map<String, Object> first = batches.get(0);
+        String monthA = ReminderArchiver.monthOf(NOW - 400 * DAY);
+        assertSame(candidates.get(0), first.get("pillRemindersArchive/" + UID + "/" + monthA + "/a"));
+        assertTrue(first.containsKey("pillReminders/" + UID + "/a"));
+        assertNull(first.get("pillReminders/" + UID + "/a"));
+        assertEquals(Boolean.TRUE, first.get("pillRemindersArchiveIndex/" + UID + "/" + monthA));
+        assertTrue(batches.get(1).containsKey("pillReminders/" + UID + "/c"));
+        for (Map<String, Object> batch : batches)
+            assertFalse(batch.containsKey("pillReminders/" + UID + "/recent"));
+    }
+
+    @Test
+    public void archival_shrinksTheHotNodePayload() {
+        Map<String, Object> db = new HashMap<>();
+        for (PillReminder r : tenThousand()) db.put(ReminderArchiver.HOT_ROOT + "/" + UID + "/" + r.getId(), r);
+        Map<String, PillReminder> before = hotNode(db);
+        int bytesBefore = jsonBytes(before);
+
+        List<Map<String, Object>> batches = ReminderArchiver.batches(
+                UID, new ArrayList<>(before.values()), ReminderArchiver.cutoff(NOW), 100);
+        for (Map<String, Object> batch : batches) apply(db, batch);
+
+        Map<String, PillReminder> after = hotNode(db);
+        int bytesAfter = jsonBytes(after);
+
+        // Live, open-ended and recently ended courses stay; everything else moved exactly once
+        int kept = 0;
+        for (PillReminder r : before.values())
+            if (!ReminderArchiver.isArchivable(r, ReminderArchiver.cutoff(NOW))) kept++;
+        assertEquals(kept, after.size());
+        assertTrue(bytesAfter * 5 < bytesBefore);
+        assertEquals(before.size(), after.size()
+                + db.keySet().stream().filter(k -> k.startsWith(ReminderArchiver.ARCHIVE_ROOT + "/")).count());
+    }
+}
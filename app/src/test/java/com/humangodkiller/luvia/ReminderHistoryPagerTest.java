@@ -0,0 +1,180 @@
+package com.humangodkiller.luvia;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ReminderHistoryPager} against an in-memory node that answers endBefore/limitToLast
+ * and startAfter/limitToFirst the way the Realtime Database orders by (endDate, key): a
+ * 10,000-reminder account is walked end to end without ever holding more than the window.
+ */
+public class ReminderHistoryPagerTest {
+
+    private static final long DAY    = 24L * 60 * 60 * 1000;
+    private static final long CUTOFF = 1_780_000_000_000L;
+    private static final int  PAGE   = 50;
+    private static final int  PAGES  = 4;
+
+    /** Sorted copy of the node; counts queries and reminders shipped. */
+    private static final class FakeNode implements ReminderHistoryPager.Source {
+        final List<PillReminder> sorted = new ArrayList<>();
+        int queries;
+        int shipped;
+
+        FakeNode(List<PillReminder> all) {
+            sorted.addAll(all);
+            sorted.sort(Comparator.comparingLong(PillReminder::getEndDate).thenComparing(PillReminder::getId));
+        }
+
+        @Override
+        public void loadBefore(long endDate, String id, int limit, ReminderHistoryPager.PageCallback cb) {
+            List<PillReminder> hits = new ArrayList<>();
+            for (PillReminder r : sorted) {
+                if (id == null ? r.getEndDate() < endDate : compare(r, endDate, id) < 0) hits.add(r);
+            }
+            answer(new ArrayList<>(hits.subList(Math.max(0, hits.size() - limit), hits.size())), cb);
+        }
+
+        @Override
+        public void loadAfter(long endDate, String id, long ceiling, int limit,
+                              ReminderHistoryPager.PageCallback cb) {
+            List<PillReminder> hits = new ArrayList<>();
+            for (PillReminder r : sorted) {
+                if (compare(r, endDate, id) > 0 && r.getEndDate() < ceiling && hits.size() < limit) hits.add(r);
+            }
+            answer(hits, cb);
+        }
+
+        private void answer(List<PillReminder> page, ReminderHistoryPager.PageCallback cb) {
+            queries++;
+            shipped += page.size();
+            cb.onPage(page);
+        }
+
+        private static int compare(PillReminder r, long endDate, String id) {
+            int c = Long.compare(r.getEndDate(), endDate);
+            return c != 0 ? c : r.getId().compareTo(id);
+        }
+    }
+
+    /** Replays the pager's notifications onto a plain count, like RecyclerView would. */
+    private static final class CountingListener implements ReminderHistoryPager.Listener {
+        int size;
+        @Override public void onItemRangeInserted(int start, int count) { size += count; }
+        @Override public void onItemRangeRemoved(int start, int count)  { size -= count; }
+    }
+
+    private static PillReminder reminder(String id, long endDate) {
+        PillReminder r = new PillReminder("Medicine " + id, "1 tab", endDate - DAY, endDate - 30 * DAY, endDate, true);
+        r.setId(id);
+        return r;
+    }
+
+    /** 9,000 expired courses (ten per day, so end dates tie), 900 active, 100 open-ended. */
+    private static List<PillReminder> tenThousand() {
+        List<PillReminder> all = new ArrayList<>();
+        for (int i = 0; i < 9_000; i++) all.add(reminder(String.format("past-%04d", i), CUTOFF - (i / 10 + 1) * DAY));
+        for (int i = 0; i < 900; i++)   all.add(reminder(String.format("live-%04d", i), CUTOFF + (i + 1) * DAY));
+        for (int i = 0; i < 100; i++)   all.add(reminder(String.format("open-%04d", i), 0));
+        return all;
+    }
+
+    @Test
+    public void walksAllHistoryNewestFirstWithinTheWindow() {
+        FakeNode node = new FakeNode(tenThousand());
+        ReminderHistoryPager pager = new ReminderHistoryPager(node, CUTOFF, PAGE, PAGES);
+        CountingListener shown = new CountingListener();
+        pager.setListener(shown);
+
+        Set<String> seen = new HashSet<>();
+        PillReminder previous = null;
+        int maxHeld = 0;
+        while (pager.loadOlder()) {
+            List<PillReminder> items = pager.getItems();
+            maxHeld = Math.max(maxHeld, items.size());
+            assertEquals(items.size(), shown.size);
+            // The bottom page of the window is the one just fetched
+            for (PillReminder r : items.subList(Math.max(0, items.size() - PAGE), items.size())) {
+                if (!seen.add(r.getId())) continue;
+                assertTrue(r.getId(), r.getId().startsWith("past-"));
+                if (previous != null) {
+                    assertTrue(r.getEndDate() <= previous.getEndDate());
+                    if (r.getEndDate() == previous.getEndDate())
+                        assertTrue(r.getId().compareTo(previous.getId()) < 0);
+                }
+                previous = r;
+            }
+        }
+
+        assertEquals(9_000, seen.size());
+        assertFalse(pager.hasOlder());
+        assertTrue(pager.hasNewer());
+        assertTrue("held " + maxHeld, maxHeld <= PAGE * PAGES);
+        // One query per page, plus the one that ran into the open-ended reminders
+        assertEquals(9_000 / PAGE + 1, node.queries);
+        assertTrue(node.shipped <= 9_000 + PAGE);
+    }
+
+    @Test
+    public void scrollingBackUpRefetchesDroppedPagesInOrder() {
+        FakeNode node = new FakeNode(tenThousand());
+        ReminderHistoryPager pager = new ReminderHistoryPager(node, CUTOFF, PAGE, PAGES);
+        CountingListener shown = new CountingListener();
+        pager.setListener(shown);
+
+        for (int i = 0; i < 10; i++) pager.loadOlder();
+        assertEquals(PAGE * PAGES, pager.getItems().size());
+        // Six pages have left the top of the window
+        assertEquals(CUTOFF - (6 * PAGE / 10 + 1) * DAY, pager.getItems().get(0).getEndDate());
+
+        while (pager.loadNewer()) assertEquals(pager.getItems().size(), shown.size);
+
+        List<PillReminder> items = pager.getItems();
+        assertFalse(pager.hasNewer());
+        assertTrue(pager.hasOlder());
+        assertEquals(PAGE * PAGES, items.size());
+        // Back at the top: the most recently expired course first
+        assertEquals(CUTOFF - DAY, items.get(0).getEndDate());
+        for (int i = 1; i < items.size(); i++)
+            assertTrue(items.get(i).getEndDate() <= items.get(i - 1).getEndDate());
+    }
+
+    @Test
+    public void deletedHistoryRowLeavesItsPage() {
+        FakeNode node = new FakeNode(tenThousand());
+        ReminderHistoryPager pager = new ReminderHistoryPager(node, CUTOFF, PAGE, PAGES);
+        CountingListener shown = new CountingListener();
+        pager.setListener(shown);
+        pager.loadOlder();
+        pager.loadOlder();
+
+        String victim = pager.getItems().get(PAGE + 3).getId();
+        pager.remove(victim);
+        pager.remove("not-loaded");
+
+        assertEquals(2 * PAGE - 1, pager.getItems().size());
+        assertEquals(pager.getItems().size(), shown.size);
+        for (PillReminder r : pager.getItems()) assertNotEquals(victim, r.getId());
+    }
+
+    @Test
+    public void emptyHistoryStopsAfterOneQuery() {
+        List<PillReminder> live = new ArrayList<>();
+        live.add(reminder("live", CUTOFF + DAY));
+        live.add(reminder("open", 0));
+        FakeNode node = new FakeNode(live);
+        ReminderHistoryPager pager = new ReminderHistoryPager(node, CUTOFF, PAGE, PAGES);
+
+        assertTrue(pager.loadOlder());
+        assertFalse(pager.loadOlder());
+        assertTrue(pager.getItems().isEmpty());
+        assertEquals(1, node.queries);
+    }
+}
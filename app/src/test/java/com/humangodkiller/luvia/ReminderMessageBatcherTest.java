@@ -0,0 +1,208 @@
+package com.humangodkiller.luvia;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ReminderMessageBatcher}: one request for the day's wake-ups, matched back by id,
+ * with per-wake-up fallbacks for whatever the reply leaves out, and backed off while it keeps
+ * failing — plus requests and endpoint time for a day before and after, against a fake
+ * endpoint with a per-request and per-message cost.
+ */
+public class ReminderMessageBatcherTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final TimeZone TZ     = TimeZone.getTimeZone("Asia/Kolkata");
+    private static final long     MINUTE = 60 * 1000L;
+    private static final long     DAY    = 24 * 60 * MINUTE;
+
+    /**
+     * Stand-in for Gemini: a fixed cost per request (cold connection, queueing) plus a cost
+     * per message written. Batch prompts are answered as a fenced JSON array, minus any ids
+     * in {@link #drop}.
+     */
+    private static class FakeEndpoint implements ReminderMessageCache.Generator {
+        static final long REQUEST_MILLIS = 120;
+        static final long MESSAGE_MILLIS = 15;
+
+        int  requests;
+        long busyMillis;
+        final Set<Integer> drop = new HashSet<>();
+
+        @Override public String generate(String prompt) throws IOException {
+            requests++;
+            int marker = prompt.indexOf("Alarms: ");
+            if (marker < 0) {
+                sleep(REQUEST_MILLIS + MESSAGE_MILLIS);
+                return "single #" + requests;
+            }
+            JSONArray alarms = new JSONArray(prompt.substring(marker + "Alarms: ".length()));
+            sleep(REQUEST_MILLIS + MESSAGE_MILLIS * alarms.length());
+            JSONArray reply = new JSONArray();
+            for (int i = 0; i < alarms.length(); i++) {
+                int id = alarms.getJSONObject(i).getInt("id");
+                if (drop.contains(id)) continue;
+                String first = alarms.getJSONObject(i).getJSONArray("medicines").getJSONObject(0).getString("medicine");
+                reply.put(new JSONObject().put("id", id).put("message", "Batched for " + first + " #" + id));
+            }
+            return "```json\n" + reply.toString(2) + "\n```";
+        }
+
+        private void sleep(long millis) {
+            busyMillis += millis;
+            try { Thread.sleep(millis); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
+    }
+
+    private File cacheFile(String name) { return new File(tmp.getRoot(), name); }
+
+    private static long at(int h, int m) {
+        Calendar c = Calendar.getInstance(TZ);
+        c.clear();
+        c.set(2026, Calendar.JUNE, 1, h, m, 0);
+        return c.getTimeInMillis();
+    }
+
+    /** Six medicines at six different times of day, each with its ten-minute heads-up. */
+    private static List<PillReminder> sixMedicines() {
+        int[] hours = { 7, 9, 12, 15, 18, 22 };
+        List<PillReminder> list = new ArrayList<>();
+        for (int i = 0; i < hours.length; i++) {
+            PillReminder r = new PillReminder("Medicine " + i, (i + 1) * 100 + " mg",
+                    at(hours[i], 0), at(0, 0) - DAY, at(0, 0) + 30 * DAY, true);
+            r.setId("r" + i);
+            r.setUpdatedAt(at(0, 0) - DAY);
+            list.add(r);
+        }
+        return list;
+    }
+
+    private static List<List<ReminderMessages.Item>> today() {
+        long start = at(0, 0);
+        return ReminderMessageBatcher.upcoming(new DoseTimeline(5 * MINUTE, TZ), sixMedicines(),
+                start, start + ReminderMessageBatcher.HORIZON_MILLIS);
+    }
+
+    @Test
+    public void upcomingListsEachWakeUpOfTheDayOnce() {
+        List<List<ReminderMessages.Item>> day = today();
+        assertEquals(12, day.size());
+        assertTrue(day.get(0).get(0).early);
+        assertEquals("Medicine 0", day.get(1).get(0).pillName);
+        assertFalse(day.get(1).get(0).early);
+    }
+
+    @Test
+    public void parseMatchesByIdAndRejectsWhatItCannotTrust() {
+        String reply = "Sure! Here you go:\n```json\n["
+                + "{\"id\": 2, \"message\": \" third \"},"
+                + "{\"id\": 0, \"message\": \"first\"},"
+                + "{\"id\": 1, \"message\": \"\"},"
+                + "{\"id\": 3, \"message\": \"dup a\"}, {\"id\": 3, \"message\": \"dup b\"},"
+                + "{\"id\": 9, \"message\": \"out of range\"}, \"stray\"]\n```";
+        assertArrayEquals(new String[] { "first", null, "third", null }, ReminderMessageBatcher.parse(reply, 4));
+        assertArrayEquals(new String[2], ReminderMessageBatcher.parse("I can't help with that.", 2));
+        assertArrayEquals(new String[2], ReminderMessageBatcher.parse("[{\"id\": 0, \"message\": ", 2));
+    }
+
+    @Test
+    public void partialReplyFallsBackPerItemAndOnlyCachesGeneratedText() throws Exception {
+        List<List<ReminderMessages.Item>> day = today();
+        FakeEndpoint gemini = new FakeEndpoint();
+        gemini.drop.addAll(Arrays.asList(3, 7));
+
+        ReminderMessageBatcher.Result result = ReminderMessageBatcher.generate(day, "en", gemini);
+        assertEquals(ReminderMessages.fallback(day.get(3), "en"), result.messages.get(3));
+        assertFalse(result.generated[3]);
+        assertEquals("Batched for Medicine 2 #4", result.messages.get(4));
+
+        ReminderMessageCache cache = ReminderMessageCache.open(cacheFile("partial.bin"), 64, DAY);
+        assertEquals(10, ReminderMessageBatcher.prefetch(cache, day, "en", gemini, at(0, 0)));
+        assertNull(cache.get(day.get(7), "en", at(0, 0)));
+
+        // The two gaps go out one by one when armed; the batch itself isn't re-sent for two
+        gemini.requests = 0;
+        assertEquals(0, ReminderMessageBatcher.prefetch(cache, day.subList(0, 4), "en", gemini, at(0, 0)));
+        assertEquals(0, gemini.requests);
+    }
+
+    @Test
+    public void batchingTheDay_replacesTwelveRequestsWithOne() throws Exception {
+        List<List<ReminderMessages.Item>> day = today();
+        long now = at(0, 0);
+
+        // Before: every arming prefetches its own wake-up
+        FakeEndpoint before = new FakeEndpoint();
+        ReminderMessageCache perWakeUp = ReminderMessageCache.open(cacheFile("before.bin"), 64, DAY);
+        for (List<ReminderMessages.Item> items : day) perWakeUp.prefetch(items, "en", before, now);
+
+        // After: the first arming batches the day, the rest hit the cache
+        FakeEndpoint after = new FakeEndpoint();
+        ReminderMessageCache batched = ReminderMessageCache.open(cacheFile("after.bin"), 64, DAY);
+        for (List<ReminderMessages.Item> items : day) {
+            ReminderMessageBatcher.prefetch(batched, day, "en", after, now);
+            batched.prefetch(items, "en", after, now);
+        }
+
+        assertEquals(12, before.requests);
+        assertEquals(1, after.requests);
+        for (List<ReminderMessages.Item> items : day) assertNotNull(batched.get(items, "en", now));
+        assertTrue(after.busyMillis * 3 < before.busyMillis);
+    }
+
+    @Test
+    public void failingBatches_areBackedOffInsteadOfResentOnEveryArming() throws Exception {
+        List<List<ReminderMessages.Item>> day = today();
+        ReminderMessageCache cache = ReminderMessageCache.open(cacheFile("backoff.bin"), 64, DAY);
+        ReminderMessageBatcher.Backoff backoff = new ReminderMessageBatcher.Backoff();
+        long now = at(0, 0);
+
+        // A reply that matches nothing leaves all twelve uncached
+        FakeEndpoint garbled = new FakeEndpoint();
+        for (int i = 0; i < day.size(); i++) garbled.drop.add(i);
+        assertEquals(0, ReminderMessageBatcher.prefetch(cache, day, "en", garbled, now, backoff));
+        assertEquals(1, garbled.requests);
+
+        // Re-arms within the back-off send nothing
+        for (int arming = 1; arming < 5; arming++) {
+            assertEquals(0, ReminderMessageBatcher.prefetch(cache, day, "en", garbled, now + arming * MINUTE, backoff));
+        }
+        assertEquals(1, garbled.requests);
+
+        // Once it has passed the batch goes again, and failing doubles the wait
+        long retry = now + ReminderMessageBatcher.Backoff.INITIAL_MILLIS;
+        ReminderMessageBatcher.prefetch(cache, day, "en", garbled, retry, backoff);
+        assertEquals(2, garbled.requests);
+        assertFalse(backoff.allows(retry + ReminderMessageBatcher.Backoff.INITIAL_MILLIS));
+        assertTrue(backoff.allows(retry + 2 * ReminderMessageBatcher.Backoff.INITIAL_MILLIS));
+
+        // A failed request counts too; a batch that caches everything clears the back-off
+        long later = retry + 2 * ReminderMessageBatcher.Backoff.INITIAL_MILLIS;
+        try {
+            ReminderMessageBatcher.prefetch(cache, day, "en", prompt -> { throw new IOException("offline"); }, later, backoff);
+            fail("the request failed");
+        } catch (IOException expected) { }
+        assertFalse(backoff.allows(later + 4 * ReminderMessageBatcher.Backoff.INITIAL_MILLIS - 1));
+
+        long recovered = later + 4 * ReminderMessageBatcher.Backoff.INITIAL_MILLIS;
+        FakeEndpoint healthy = new FakeEndpoint();
+        assertEquals(12, ReminderMessageBatcher.prefetch(cache, day, "en", healthy, recovered, backoff));
+        assertTrue(backoff.allows(recovered));
+    }
+}
@@ -0,0 +1,128 @@
+package com.humangodkiller.luvia;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ReminderMessageCache} with a fake Gemini generator: prefetch once at arm time,
+ * then every fire-time lookup is answered locally.
+ */
+public class ReminderMessageCacheTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long TTL  = 24 * HOUR;
+
+    /** Stand-in for Gemini: echoes a tag of the prompt and counts calls. */
+    private static class FakeGemini implements ReminderMessageCache.Generator {
+        int calls;
+        boolean failing;
+        @Override public String generate(String prompt) throws IOException {
+            calls++;
+            if (failing) throw new IOException("offline");
+            return "generated #" + calls;
+        }
+    }
+
+    private File cacheFile() { return new File(tmp.getRoot(), "reminder_messages.bin"); }
+
+    private static List<ReminderMessages.Item> aspirinEarly(int minutes) {
+        return ReminderMessages.single("Aspirin", "75 mg", true, minutes);
+    }
+
+    @Test
+    public void prefetchThenFire_neverCallsGeminiTwice() throws Exception {
+        ReminderMessageCache cache = ReminderMessageCache.open(cacheFile(), 64, TTL);
+        FakeGemini gemini = new FakeGemini();
+        List<ReminderMessages.Item> batch = Arrays.asList(
+                new ReminderMessages.Item("Aspirin", "75 mg", false, 0),
+                new ReminderMessages.Item("Metformin", "500 mg", true, 10));
+
+        assertTrue(cache.prefetch(batch, "en", gemini, 0));
+        assertFalse(cache.prefetch(batch, "en", gemini, HOUR));   // re-armed, already cached
+        assertEquals(1, gemini.calls);
+
+        assertEquals("generated #1", cache.get(batch, "en", 2 * HOUR));
+        assertEquals(1, gemini.calls);
+    }
+
+    @Test
+    public void keyCoversEveryWordingField() throws Exception {
+        ReminderMessageCache cache = ReminderMessageCache.open(cacheFile(), 64, TTL);
+        cache.put(aspirinEarly(10), "en", "ten", 0);
+
+        assertEquals("ten", cache.get(aspirinEarly(10), "en", 1));
+        assertNull(cache.get(aspirinEarly(6), "en", 1));
+        assertNull(cache.get(aspirinEarly(10), "ml", 1));
+        assertNull(cache.get(ReminderMessages.single("Aspirin", "75 mg", false, 10), "en", 1));
+        assertNull(cache.get(ReminderMessages.single("Aspirin", "150 mg", true, 10), "en", 1));
+        // Length-prefixed fields: shifting text between name and dosage is a different key
+        assertNotEquals(ReminderMessages.cacheKey(ReminderMessages.single("a|b", "c", false, 0), "en"),
+                ReminderMessages.cacheKey(ReminderMessages.single("a", "b|c", false, 0), "en"));
+    }
+
+    @Test
+    public void expiredEntriesAreRegenerated() throws Exception {
+        ReminderMessageCache cache = ReminderMessageCache.open(cacheFile(), 64, TTL);
+        FakeGemini gemini = new FakeGemini();
+        cache.prefetch(aspirinEarly(10), "en", gemini, 0);
+
+        assertNull(cache.get(aspirinEarly(10), "en", TTL + 1));
+        assertTrue(cache.prefetch(aspirinEarly(10), "en", gemini, TTL + 1));
+        assertEquals(2, gemini.calls);
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvictedFirst() throws Exception {
+        ReminderMessageCache cache = ReminderMessageCache.open(cacheFile(), 3, TTL);
+        cache.put(aspirinEarly(1), "en", "one", 0);
+        cache.put(aspirinEarly(2), "en", "two", 0);
+        cache.put(aspirinEarly(3), "en", "three", 0);
+        cache.get(aspirinEarly(1), "en", 1);            // touch → most recent
+        cache.put(aspirinEarly(4), "en", "four", 2);
+
+        assertEquals(3, cache.size());
+        assertEquals("one", cache.get(aspirinEarly(1), "en", 3));
+        assertNull(cache.get(aspirinEarly(2), "en", 3));
+    }
+
+    @Test
+    public void survivesReopen_andFailuresAreNotCached() throws Exception {
+        ReminderMessageCache cache = ReminderMessageCache.open(cacheFile(), 64, TTL);
+        FakeGemini gemini = new FakeGemini();
+        cache.prefetch(aspirinEarly(10), "hi", gemini, 0);
+
+        gemini.failing = true;
+        try {
+            cache.prefetch(aspirinEarly(5), "hi", gemini, 0);
+            fail("expected the offline generator to throw");
+        } catch (IOException expected) { }
+
+        ReminderMessageCache reopened = ReminderMessageCache.open(cacheFile(), 64, TTL);
+        assertEquals(1, reopened.size());
+        assertEquals("generated #1", reopened.get(aspirinEarly(10), "hi", 1));
+        assertNull(reopened.get(aspirinEarly(5), "hi", 1));
+    }
+
+    @Test
+    public void batchPrompt_mentionsEveryMedicine() {
+        List<ReminderMessages.Item> items = new ArrayList<>();
+        items.add(new ReminderMessages.Item("Aspirin", "75 mg", false, 0));
+        items.add(new ReminderMessages.Item("Metformin", "500 mg", true, 1));
+        String prompt = ReminderMessages.prompt(items, "en");
+        assertTrue(prompt.contains("'Aspirin' (dosage: 75 mg) to take now"));
+        assertTrue(prompt.contains("'Metformin' (dosage: 500 mg) due in 1 minute"));
+        assertEquals("Time to take Aspirin (75 mg). Your health matters! Hello! Metformin (500 mg) is due in 1 minute. Please prepare now.",
+                ReminderMessages.fallback(items, "en"));
+    }
+}
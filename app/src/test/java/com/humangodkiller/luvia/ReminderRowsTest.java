@@ -0,0 +1,102 @@
+package com.humangodkiller.luvia;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ReminderRows}: rows are formatted once per reminder version, reused on every later
+ * bind, and re-formatted only when the reminder, locale or time zone changes.
+ */
+public class ReminderRowsTest {
+
+    private static final TimeZone KOLKATA = TimeZone.getTimeZone("Asia/Kolkata");
+    private static final TimeZone LONDON  = TimeZone.getTimeZone("Europe/London");
+
+    private static long at(TimeZone tz, int y, int month, int d, int h, int m) {
+        Calendar cal = Calendar.getInstance(tz);
+        cal.clear();
+        cal.set(y, month, d, h, m);
+        return cal.getTimeInMillis();
+    }
+
+    private static PillReminder reminder(String id, String dosage) {
+        PillReminder r = new PillReminder("Aspirin", dosage,
+                at(KOLKATA, 2026, Calendar.MAY, 17, 20, 45),
+                at(KOLKATA, 2026, Calendar.MAY, 17, 0, 0),
+                at(KOLKATA, 2026, Calendar.JUNE, 15, 23, 59), true);
+        r.setId(id);
+        return r;
+    }
+
+    @Test
+    public void formatsOnceAndReusesTheRowOnEveryBind() {
+        ReminderRows rows = new ReminderRows(Locale.US, KOLKATA);
+        PillReminder r = reminder("a", "75 mg");
+
+        ReminderRows.Row row = rows.rowFor(r);
+        assertEquals("Dosage: 75 mg", row.dosageText);
+        assertEquals("Time: 08:45 PM", row.timeText);
+        assertEquals("17 May 2026  →  15 Jun 2026", row.dateRangeText);
+
+        for (int bind = 0; bind < 1_000; bind++) assertSame(row, rows.rowFor(r));
+        // An equal copy (e.g. the server echoing the cached reminder) keeps the row too
+        assertSame(row, rows.rowFor(reminder("a", "75 mg")));
+    }
+
+    @Test
+    public void editedReminderIsReformatted() {
+        ReminderRows rows = new ReminderRows(Locale.US, KOLKATA);
+        ReminderRows.Row before = rows.rowFor(reminder("a", "75 mg"));
+        ReminderRows.Row after  = rows.rowFor(reminder("a", "150 mg"));
+
+        assertNotSame(before, after);
+        assertEquals("Dosage: 150 mg", after.dosageText);
+        assertEquals(1, rows.cachedCount());
+    }
+
+    @Test
+    public void timeZoneOrLocaleChangeDropsCachedRows() {
+        ReminderRows rows = new ReminderRows(Locale.US, KOLKATA);
+        PillReminder r = reminder("a", "75 mg");
+        ReminderRows.Row kolkata = rows.rowFor(r);
+
+        assertFalse(rows.setEnvironment(Locale.US, TimeZone.getTimeZone("Asia/Kolkata")));
+        assertSame(kolkata, rows.rowFor(r));
+
+        assertTrue(rows.setEnvironment(Locale.US, LONDON));
+        assertEquals("Time: 04:15 PM", rows.rowFor(r).timeText);
+
+        // Kolkata midnight is still the 16th in London
+        assertTrue(rows.setEnvironment(Locale.GERMANY, LONDON));
+        assertEquals("16 Mai 2026  →  15 Juni 2026", rows.rowFor(r).dateRangeText);
+    }
+
+    @Test
+    public void stableIdsSurviveEditsAndAreNeverReused() {
+        ReminderRows rows = new ReminderRows(Locale.US, KOLKATA);
+        long a = rows.stableIdFor("a");
+        long b = rows.stableIdFor("b");
+        assertNotEquals(a, b);
+
+        rows.rowFor(reminder("a", "150 mg"));
+        assertEquals(a, rows.stableIdFor("a"));
+
+        rows.remove("a");
+        assertNotEquals(a, rows.stableIdFor("c"));
+        assertEquals(a, rows.stableIdFor("a"));
+    }
+
+    @Test
+    public void courseWithoutDatesHasNoRange() {
+        ReminderRows rows = new ReminderRows(Locale.US, KOLKATA);
+        PillReminder r = new PillReminder("Vitamin D3", "1000 IU",
+                at(KOLKATA, 2026, Calendar.MAY, 17, 8, 0), 0, 0, true);
+        r.setId("d");
+        assertNull(rows.rowFor(r).dateRangeText);
+    }
+}
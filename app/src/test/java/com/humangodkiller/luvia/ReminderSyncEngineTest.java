@@ -0,0 +1,186 @@
+package com.humangodkiller.luvia;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ReminderSyncEngine}, plus a rough per-edit cost benchmark.
+ */
+public class ReminderSyncEngineTest {
+
+    /** Records every positional callback as a short string, e.g. "I3", "R0", "M1>4". */
+    private static class RecordingListener implements ReminderSyncEngine.Listener {
+        final List<String> events = new ArrayList<>();
+        @Override public void onItemInserted(int p)       { events.add("I" + p); }
+        @Override public void onItemRangeInserted(int p, int n) { events.add("I" + p + "+" + n); }
+        @Override public void onItemChanged(int p)        { events.add("C" + p); }
+        @Override public void onItemRemoved(int p)        { events.add("R" + p); }
+        @Override public void onItemMoved(int from, int to) { events.add("M" + from + ">" + to); }
+    }
+
+    private static PillReminder reminder(String name) {
+        return new PillReminder(name, "1 tab", 0L, 0L, 0L, true);
+    }
+
+    private static ReminderSyncEngine engineWith(int count, RecordingListener listener) {
+        ReminderSyncEngine engine = new ReminderSyncEngine();
+        String prev = null;
+        for (int i = 0; i < count; i++) {
+            String key = String.format("k%06d", i);
+            engine.onChildAdded(key, reminder("Pill " + i), prev);
+            prev = key;
+        }
+        engine.setListener(listener);
+        return engine;
+    }
+
+    @Test
+    public void add_appendsAfterPreviousSibling() {
+        RecordingListener l = new RecordingListener();
+        ReminderSyncEngine engine = engineWith(3, l);
+
+        engine.onChildAdded("k000003", reminder("New"), "k000002");
+
+        assertEquals(4, engine.size());
+        assertEquals("New", engine.getItems().get(3).getPillName());
+        assertEquals("k000003", engine.getItems().get(3).getId());
+        assertEquals(List.of("I3"), l.events);
+    }
+
+    @Test
+    public void add_withNullPrevious_insertsAtHeadAndShiftsIndex() {
+        RecordingListener l = new RecordingListener();
+        ReminderSyncEngine engine = engineWith(3, l);
+
+        engine.onChildAdded("a", reminder("First"), null);
+
+        assertEquals(List.of("I0"), l.events);
+        assertEquals(0, engine.indexOf("a"));
+        assertEquals(3, engine.indexOf("k000002"));
+    }
+
+    @Test
+    public void redeliveredAdd_isReportedAsChange() {
+        RecordingListener l = new RecordingListener();
+        ReminderSyncEngine engine = engineWith(3, l);
+
+        engine.onChildAdded("k000001", reminder("Renamed"), "k000000");
+
+        assertEquals(3, engine.size());
+        assertEquals("Renamed", engine.getItems().get(1).getPillName());
+        assertEquals(List.of("C1"), l.events);
+    }
+
+    @Test
+    public void change_replacesInPlace() {
+        RecordingListener l = new RecordingListener();
+        ReminderSyncEngine engine = engineWith(5, l);
+
+        engine.onChildChanged("k000002", reminder("Changed"));
+
+        assertEquals("Changed", engine.getItems().get(2).getPillName());
+        assertEquals(List.of("C2"), l.events);
+    }
+
+    @Test
+    public void remove_shiftsFollowingPositions() {
+        RecordingListener l = new RecordingListener();
+        ReminderSyncEngine engine = engineWith(5, l);
+
+        engine.onChildRemoved("k000001");
+        engine.onChildRemoved("missing");
+
+        assertEquals(4, engine.size());
+        assertEquals(-1, engine.indexOf("k000001"));
+        assertEquals(1, engine.indexOf("k000002"));
+        assertEquals(3, engine.indexOf("k000004"));
+        assertEquals(List.of("R1"), l.events);
+    }
+
+    @Test
+    public void move_forwardAndBackward() {
+        RecordingListener l = new RecordingListener();
+        ReminderSyncEngine engine = engineWith(5, l);
+
+        engine.onChildMoved("k000000", "k000003");   // 0 → after k3
+        assertEquals(3, engine.indexOf("k000000"));
+        assertEquals(2, engine.indexOf("k000003"));
+
+        engine.onChildMoved("k000004", null);        // 4 → head
+        assertEquals(0, engine.indexOf("k000004"));
+        assertEquals(4, engine.indexOf("k000000"));
+
+        assertEquals(List.of("M0>3", "M4>0"), l.events);
+        for (int i = 0; i < engine.size(); i++)
+            assertEquals(i, engine.indexOf(engine.getItems().get(i).getId()));
+    }
+
+    @Test
+    public void singleEditInFiveHundredItems_isExactlyOneChange() {
+        RecordingListener l = new RecordingListener();
+        ReminderSyncEngine engine = engineWith(500, l);
+
+        // The server re-sends every child unchanged (reconnect), then one dose is edited
+        String prev = null;
+        for (int i = 0; i < 500; i++) {
+            String key = String.format("k%06d", i);
+            engine.onChildAdded(key, reminder("Pill " + i), prev);
+            prev = key;
+        }
+        PillReminder edited = reminder("Pill 321");
+        edited.setDosage("2 tabs");
+        engine.onChildChanged("k000321", edited);
+
+        assertEquals(List.of("C321"), l.events);
+        assertEquals("2 tabs", engine.getItems().get(321).getDosage());
+    }
+
+    @Test
+    public void addAll_isOneRangeInsertAndSkipsKnownKeys() {
+        RecordingListener l = new RecordingListener();
+        ReminderSyncEngine engine = engineWith(2, l);
+
+        List<PillReminder> cached = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            PillReminder r = reminder("Cached " + i);
+            r.setId(String.format("c%06d", i));
+            cached.add(r);
+        }
+        PillReminder known = reminder("Pill 1");
+        known.setId("k000001");
+        cached.add(known);                                  // identical to what's shown
+
+        engine.addAll(cached);
+
+        assertEquals(List.of("I2+500"), l.events);
+        assertEquals(502, engine.size());
+        assertEquals(501, engine.indexOf("c000499"));
+    }
+
+    /** Every edit produces exactly one callback, whatever the size of the list. */
+    @Test
+    public void eachEditProducesOneCallbackAtAnySize() {
+        int[] sizes  = {100, 1_000, 10_000};
+        int   rounds = 2_000;
+
+        for (int size : sizes) {
+            RecordingListener l = new RecordingListener();
+            ReminderSyncEngine engine = engineWith(size, l);
+            String last = String.format("k%06d", size - 1);
+
+            for (int i = 0; i < rounds; i++) {
+                String key = "n" + i;
+                engine.onChildAdded(key, reminder("Extra"), last);
+                engine.onChildChanged(key, reminder("Extra 2"));
+                engine.onChildRemoved(key);
+            }
+
+            assertEquals(rounds * 3, l.events.size());
+            assertEquals(size, engine.size());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.humangodkiller.luvia;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link ReminderWindow} against a pillReminders node as the Realtime Database stores it —
+ * including children that have no endDate at all — and {@link ReminderWindowMerge} joining
+ * the two queries' child events.
+ */
+public class ReminderWindowTest {
+
+    private static final long DAY    = 24L * 60 * 60 * 1000;
+    private static final long OPENED = 1_780_000_000_000L;
+
+    private static List<String> windowOf(JSONObject node) {
+        List<String> ids = new ArrayList<>();
+        for (String id : node.keySet()) {
+            Object endDate = node.getJSONObject(id).opt("endDate");   // null when the child has none
+            if (ReminderWindow.contains(endDate, OPENED)) ids.add(id);
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    private static JSONObject child(String pill) {
+        return new JSONObject().put("pillName", pill).put("dosage", "1 tab").put("enabled", true);
+    }
+
+    @Test
+    public void reminderWithoutEndDate_isInTheWindow() {
+        JSONObject node = new JSONObject()
+                .put("legacy",   child("Aspirin"))                                   // no endDate child
+                .put("open",     child("Metformin").put("endDate", 0))
+                .put("running",  child("Insulin").put("endDate", OPENED + 3 * DAY))
+                .put("endsNow",  child("Statin").put("endDate", OPENED))
+                .put("finished", child("Antibiotic").put("endDate", OPENED - DAY));
+
+        List<String> expected = new ArrayList<>();
+        expected.add("endsNow");
+        expected.add("legacy");
+        expected.add("open");
+        expected.add("running");
+        assertEquals(expected, windowOf(node));
+
+        // Deserialized, the missing child reads as 0 — the local filter keeps it too
+        PillReminder legacy = new PillReminder("Aspirin", "1 tab", OPENED, OPENED - DAY, 0, true);
+        assertTrue(ReminderWindow.contains(legacy, OPENED));
+        legacy.setEndDate(OPENED - 1);
+        assertFalse(ReminderWindow.contains(legacy, OPENED));
+    }
+
+    @Test
+    public void followsTheDatabaseOrderForOddValues() {
+        assertTrue(ReminderWindow.contains(false, OPENED));       // booleans sort before numbers
+        assertTrue(ReminderWindow.contains(-5L, OPENED));
+        assertTrue(ReminderWindow.contains(0.0, OPENED));
+        assertFalse(ReminderWindow.contains(0.5, OPENED));
+        assertTrue(ReminderWindow.contains("soon", OPENED));      // strings sort after numbers
+    }
+
+    private static final int OPEN   = ReminderWindowMerge.OPEN_ENDED;
+    private static final int ACTIVE = ReminderWindowMerge.ACTIVE;
+
+    @Test
+    public void endDateSetOnAnOpenEndedReminder_isNotADeletion_inEitherOrder() {
+        // Removed from the open-ended query first, then added to the running courses
+        ReminderWindowMerge merge = new ReminderWindowMerge();
+        assertTrue(merge.add(OPEN, "a", null));
+        assertTrue(merge.remove(OPEN, "a"));      // gone for now: needs a confirming read
+        assertTrue(merge.add(ACTIVE, "a", null));
+        assertTrue(merge.contains("a"));          // so the confirming read leaves it alone
+
+        // Added to the running courses first: the remove that follows is not a deletion
+        merge = new ReminderWindowMerge();
+        merge.add(OPEN, "b", null);
+        assertFalse(merge.add(ACTIVE, "b", null));
+        assertFalse(merge.remove(OPEN, "b"));
+        assertTrue(merge.contains("b"));
+
+        // Only leaving both windows is reported
+        assertTrue(merge.remove(ACTIVE, "b"));
+        assertFalse(merge.contains("b"));
+    }
+
+    @Test
+    public void hintsOfEachQueryStayWithinItsOwnSection() {
+        ReminderWindowMerge merge = new ReminderWindowMerge();
+        merge.add(ACTIVE, "r1", null);
+        merge.add(ACTIVE, "r2", "r1");
+        merge.add(OPEN, "o1", null);
+        merge.add(OPEN, "o2", "o1");
+
+        // Open-ended first, then running courses — each query's null hint means its own start
+        assertNull(merge.previousOf("o1"));
+        assertEquals("o1", merge.previousOf("o2"));
+        assertEquals("o2", merge.previousOf("r1"));
+        assertEquals("r1", merge.previousOf("r2"));
+
+        // In both while its endDate changes: shown at its open-ended place only
+        merge.add(ACTIVE, "o2", "r1");
+        assertEquals("r1", merge.previousOf("r2"));
+        merge.remove(OPEN, "o2");
+        assertEquals("r1", merge.previousOf("o2"));
+        assertEquals("o2", merge.previousOf("r2"));
+
+        merge.move(ACTIVE, "r2", null);
+        assertEquals("o1", merge.previousOf("r2"));
+        assertEquals("r2", merge.previousOf("r1"));
+    }
+}
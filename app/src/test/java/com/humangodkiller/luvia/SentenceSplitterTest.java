@@ -0,0 +1,56 @@
+package com.humangodkiller.luvia;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/** {@link SentenceSplitter} fed the way a stream arrives: in arbitrary pieces. */
+public class SentenceSplitterTest {
+
+    private final List<String>     sentences = new ArrayList<>();
+    private final SentenceSplitter splitter  = new SentenceSplitter(sentences::add);
+
+    @Test
+    public void sentencesComeOutAsSoonAsTheyAreKnownToEnd() {
+        splitter.feed("Time to take your Asp");
+        assertTrue(sentences.isEmpty());
+        splitter.feed("irin, 75 mg.");
+        assertTrue(sentences.isEmpty());   // could still be "75 mg.5" — wait for the next char
+        splitter.feed(" Take it with wa");
+        assertEquals(Arrays.asList("Time to take your Aspirin, 75 mg."), sentences);
+        splitter.feed("ter! Stay well");
+        assertEquals(2, sentences.size());
+        assertEquals("Take it with water!", sentences.get(1));
+
+        splitter.flush();
+        assertEquals("Stay well", sentences.get(2));
+    }
+
+    @Test
+    public void decimalsAndLineBreaks() {
+        splitter.feed("Take 2.5 mg now.\nThen rest");
+        splitter.feed("\n\n");
+        splitter.flush();
+        assertEquals(Arrays.asList("Take 2.5 mg now.", "Then rest"), sentences);
+    }
+
+    @Test
+    public void hindiDandaEndsASentence() {
+        splitter.feed("दवा लेने का समय है। पानी के साथ लें।");
+        assertEquals(Arrays.asList("दवा लेने का समय है।"), sentences);
+        splitter.flush();
+        assertEquals("पानी के साथ लें।", sentences.get(1));
+    }
+
+    @Test
+    public void oneCharacterAtATimeMatchesWholeText() {
+        String text = "First dose now. Second in ten minutes? Yes! Done.";
+        for (char c : text.toCharArray()) splitter.feed(String.valueOf(c));
+        splitter.flush();
+        assertEquals(Arrays.asList("First dose now.", "Second in ten minutes?", "Yes!", "Done."), sentences);
+    }
+}
@@ -0,0 +1,84 @@
+package com.humangodkiller.luvia;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link SpeechClipCache}: clips are published atomically, found by (text, language) and
+ * kept under the byte budget by evicting the least recently played.
+ */
+public class SpeechClipCacheTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static final int KB = 1024;
+
+    /** Stands in for synthesizeToFile: writes {@code bytes} of audio to the temp file. */
+    private static File synthesize(SpeechClipCache cache, String text, String lang, int bytes) throws IOException {
+        File temp = cache.tempFileFor(text, lang);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(new byte[bytes]);
+        }
+        return temp;
+    }
+
+    @Test
+    public void committedClipIsFoundByTextAndLanguage() throws Exception {
+        SpeechClipCache cache = new SpeechClipCache(new File(tmp.getRoot(), "clips"), 100 * KB);
+        String text = "Time to take Aspirin (75 mg).";
+
+        assertNull(cache.clipFor(text, "en", 0));
+        assertNotNull(cache.commit(synthesize(cache, text, "en", 10 * KB), text, "en", 1_000));
+
+        File clip = cache.clipFor(text, "en", 2_000);
+        assertNotNull(clip);
+        assertEquals(10 * KB, clip.length());
+        assertNull(cache.clipFor(text, "hi", 2_000));
+        assertNull(cache.clipFor(text + " ", "en", 2_000));
+    }
+
+    @Test
+    public void incompleteSynthesisIsNeverPublished() throws Exception {
+        SpeechClipCache cache = new SpeechClipCache(new File(tmp.getRoot(), "clips"), 100 * KB);
+        String text = "Hello!";
+        File empty = synthesize(cache, text, "en", 0);
+
+        assertNull(cache.commit(empty, text, "en", 0));
+        assertFalse(empty.exists());
+        assertNull(cache.clipFor(text, "en", 0));
+    }
+
+    @Test
+    public void evictsLeastRecentlyPlayedToStayUnderBudget() throws Exception {
+        SpeechClipCache cache = new SpeechClipCache(new File(tmp.getRoot(), "clips"), 30 * KB);
+        cache.commit(synthesize(cache, "one", "en", 10 * KB), "one", "en", 1_000);
+        cache.commit(synthesize(cache, "two", "en", 10 * KB), "two", "en", 2_000);
+        cache.commit(synthesize(cache, "three", "en", 10 * KB), "three", "en", 3_000);
+
+        cache.clipFor("one", "en", 4_000);                      // played → most recent
+        cache.commit(synthesize(cache, "four", "en", 10 * KB), "four", "en", 5_000);
+
+        assertTrue(cache.totalBytes() <= 30 * KB);
+        assertTrue(cache.contains("one", "en"));
+        assertFalse(cache.contains("two", "en"));
+        assertTrue(cache.contains("three", "en"));
+        assertTrue(cache.contains("four", "en"));
+    }
+
+    @Test
+    public void oversizedClipIsKeptAlone() throws Exception {
+        SpeechClipCache cache = new SpeechClipCache(new File(tmp.getRoot(), "clips"), 30 * KB);
+        cache.commit(synthesize(cache, "short", "ml", 10 * KB), "short", "ml", 1_000);
+        cache.commit(synthesize(cache, "long", "ml", 40 * KB), "long", "ml", 2_000);
+
+        assertTrue(cache.contains("long", "ml"));
+        assertFalse(cache.contains("short", "ml"));
+    }
+}
@@ -0,0 +1,38 @@
+package com.humangodkiller.luvia;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.humangodkiller.luvia.StartupRouter.Destination.*;
+import static org.junit.Assert.*;
+
+/**
+ * {@link StartupRouter}: a returning user is routed from the saved snapshot; only a missing
+ * session or snapshot falls back to LoginActivity.
+ */
+public class StartupRouterTest {
+
+    private static UserProfile profile(String role, boolean registered) {
+        Map<String, Object> doc = new HashMap<>();
+        doc.put("role",       role);
+        doc.put("registered", registered);
+        return UserProfile.fromMap("uid-1", doc);
+    }
+
+    @Test
+    public void signedOutOrNoSnapshotGoesToLogin() {
+        assertEquals(LOGIN, StartupRouter.route(false, null));
+        assertEquals(LOGIN, StartupRouter.route(false, profile("patient", true)));
+        assertEquals(LOGIN, StartupRouter.route(true, null));
+    }
+
+    @Test
+    public void snapshotRoutesStraightToTheRightScreen() {
+        assertEquals(ROLE_SELECTION,    StartupRouter.route(true, profile("", false)));
+        assertEquals(DOCTOR_DASHBOARD,  StartupRouter.route(true, profile("doctor", false)));
+        assertEquals(REGISTRATION,      StartupRouter.route(true, profile("patient", false)));
+        assertEquals(PATIENT_DASHBOARD, StartupRouter.route(true, profile("patient", true)));
+    }
+}
@@ -0,0 +1,214 @@
+package com.humangodkiller.luvia;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * {@link UserProfileRepository} against a fake Firestore that counts document reads: Login,
+ * Dashboard and the alarm share one cached profile, and a restarted process routes from the
+ * saved copy without waiting on the network.
+ */
+public class UserProfileRepositoryTest {
+
+    private static final String UID = "patient-1";
+
+    /** Counts one-shot gets and listener attaches; snapshots are pushed by the test. */
+    private static final class FakeBackend implements UserProfileRepository.Backend {
+        int fetches;
+        int listens;
+        int activeListeners;
+        final List<UserProfileRepository.Listener> listeners = new ArrayList<>();
+        final List<UserProfileRepository.Callback> pendingFetches = new ArrayList<>();
+
+        @Override
+        public void fetch(String uid, UserProfileRepository.Callback callback) {
+            fetches++;
+            pendingFetches.add(callback);
+        }
+
+        @Override
+        public UserProfileRepository.Registration listen(String uid, UserProfileRepository.Listener listener) {
+            listens++;
+            activeListeners++;
+            listeners.add(listener);
+            return () -> { activeListeners--; listeners.remove(listener); };
+        }
+
+        void push(UserProfile profile) {
+            for (UserProfileRepository.Listener l : new ArrayList<>(listeners)) l.onProfile(profile);
+        }
+
+        /** The offline cache answered first, with no copy of the document. */
+        void cacheMiss() {
+            for (UserProfileRepository.Listener l : new ArrayList<>(listeners)) l.onCacheMiss();
+        }
+
+        /** Document reads billed so far: one per get, one per listener's initial snapshot. */
+        int reads() { return fetches + listens; }
+    }
+
+    private static final class MemoryStorage implements UserProfileRepository.Storage {
+        UserProfile saved;
+        int loads;
+
+        @Override public UserProfile load()               { loads++; return saved; }
+        @Override public void save(UserProfile profile)   { saved = profile; }
+        @Override public void clear()                     { saved = null; }
+    }
+
+    private static final class Result implements UserProfileRepository.Callback {
+        UserProfile profile;
+        Exception   error;
+        int calls;
+
+        @Override public void onProfile(UserProfile p) { profile = p; calls++; }
+        @Override public void onError(Exception e)     { error = e; calls++; }
+    }
+
+    private static UserProfile patient(String lang, boolean registered) {
+        Map<String, Object> doc = new HashMap<>();
+        doc.put("role",          "patient");
+        doc.put("registered",    registered);
+        doc.put("alarmLanguage", lang);
+        doc.put("name",          "Asha");
+        doc.put("age",           64L);
+        doc.put("heightCm",      158.5);
+        return UserProfile.fromMap(UID, doc);
+    }
+
+    @Test
+    public void firstLaunchCostsOneReadSharedByEveryScreen() {
+        FakeBackend backend = new FakeBackend();
+        UserProfileRepository repo = new UserProfileRepository(backend, new MemoryStorage());
+
+        // LoginActivity: nothing cached, so it waits for the listener's first snapshot
+        repo.start(UID);
+        Result login = new Result();
+        repo.fetch(UID, login);
+        assertEquals(0, login.calls);
+        backend.push(patient("ml", true));
+        assertEquals(1, login.calls);
+        assertEquals("patient", login.profile.role);
+
+        // PatientDashboardActivity and every alarm afterwards read the cache
+        repo.start(UID);
+        Result dashboard = new Result();
+        repo.fetch(UID, dashboard);
+        assertEquals(64L, (long) dashboard.profile.age);
+        for (int alarm = 0; alarm < 20; alarm++) assertEquals("ml", repo.getAlarmLanguage(UID));
+
+        assertEquals(1, backend.reads());
+        assertEquals(1, backend.activeListeners);
+    }
+
+    @Test
+    public void restartedProcessRoutesFromSavedCopyWithoutWaiting() {
+        FakeBackend backend = new FakeBackend();
+        MemoryStorage storage = new MemoryStorage();
+        UserProfileRepository first = new UserProfileRepository(backend, storage);
+        first.start(UID);
+        backend.push(patient("hi", true));
+
+        // New process: same storage, fresh backend
+        FakeBackend afterRestart = new FakeBackend();
+        int loadsBefore = storage.loads;
+        UserProfileRepository repo = new UserProfileRepository(afterRestart, storage);
+
+        assertEquals("hi", repo.getAlarmLanguage(UID));     // alarm fired before any screen opened
+        assertEquals(0, afterRestart.reads());
+
+        repo.start(UID);
+        Result login = new Result();
+        repo.fetch(UID, login);
+        assertEquals(1, login.calls);                       // answered synchronously
+        assertTrue(login.profile.registered);
+        assertEquals(1, afterRestart.reads());              // only the background listener
+        assertEquals(1, storage.loads - loadsBefore);       // disk read once, then memory
+    }
+
+    @Test
+    public void listenerKeepsCacheFreshAndNotifiesObservers() {
+        FakeBackend backend = new FakeBackend();
+        MemoryStorage storage = new MemoryStorage();
+        UserProfileRepository repo = new UserProfileRepository(backend, storage);
+        List<UserProfile> seen = new ArrayList<>();
+        repo.addObserver(seen::add);
+
+        repo.start(UID);
+        backend.push(patient("en", false));
+        backend.push(patient("en", false));                 // unchanged snapshot: no callback
+        backend.push(patient("ml", true));                  // registration + language picked
+
+        assertEquals(2, seen.size());
+        assertTrue(repo.isRegistered(UID));
+        assertEquals("ml", repo.getAlarmLanguage(UID));
+        assertEquals("ml", storage.saved.alarmLanguage);
+    }
+
+    @Test
+    public void missingDocumentReportsNullAndUnknownUserGetsDefaults() {
+        FakeBackend backend = new FakeBackend();
+        UserProfileRepository repo = new UserProfileRepository(backend, new MemoryStorage());
+
+        Result login = new Result();
+        repo.fetch(UID, login);                             // no listener: one-shot get
+        assertEquals(1, backend.fetches);
+        backend.pendingFetches.get(0).onProfile(null);
+        assertEquals(1, login.calls);
+        assertNull(login.profile);
+
+        assertEquals("", repo.getRole("someone-else"));
+        assertEquals("en", repo.getAlarmLanguage("someone-else"));
+    }
+
+    @Test
+    public void signOutDetachesListenerAndForgetsProfile() {
+        FakeBackend backend = new FakeBackend();
+        MemoryStorage storage = new MemoryStorage();
+        UserProfileRepository repo = new UserProfileRepository(backend, storage);
+        repo.start(UID);
+        backend.push(patient("hi", true));
+
+        repo.clear();
+
+        assertEquals(0, backend.activeListeners);
+        assertNull(repo.getCached(UID));
+        assertNull(storage.saved);
+        assertEquals("en", repo.getAlarmLanguage(UID));
+    }
+
+    @Test
+    public void firstSignInOfflineReportsAnErrorInsteadOfWaitingForever() {
+        FakeBackend backend = new FakeBackend();
+        UserProfileRepository repo = new UserProfileRepository(backend, new MemoryStorage());
+
+        // New device, no network: LoginActivity waits on the listener...
+        repo.start(UID);
+        Result login = new Result();
+        repo.fetch(UID, login);
+        assertEquals(0, backend.fetches);
+
+        // ...whose cache has nothing, so the wait becomes a get, which fails offline
+        backend.cacheMiss();
+        assertEquals(1, backend.fetches);
+        backend.pendingFetches.get(0).onError(new Exception("client is offline"));
+        assertEquals(1, login.calls);
+        assertNotNull(login.error);
+
+        // A retry doesn't park on the listener either
+        Result retry = new Result();
+        repo.fetch(UID, retry);
+        assertEquals(2, backend.fetches);
+
+        // The server's answer still lands in the cache once it comes
+        backend.push(patient("en", true));
+        assertEquals("patient", repo.getRole(UID));
+        assertEquals(1, backend.activeListeners);
+    }
+}
@@ -0,0 +1,35 @@
+plugins {
+    alias(libs.plugins.android.test)
+    alias(libs.plugins.baselineprofile)
+}
+
+// Startup / scroll benchmarks and the baseline-profile generator for :app.
+// Start the emulators first: firebase emulators:start --project luvia-cva
+android {
+    namespace = "com.humangodkiller.luvia.benchmark"
+    compileSdk = 36
+
+    defaultConfig {
+        minSdk = 33
+        targetSdk = 36
+
+        testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+    }
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_11
+        targetCompatibility = JavaVersion.VERSION_11
+    }
+
+    targetProjectPath = ":app"
+}
+
+baselineProfile {
+    useConnectedDevices = true
+}
+
+dependencies {
+    implementation(libs.ext.junit)
+    implementation(libs.uiautomator)
+    implementation(libs.benchmark.macro.junit4)
+}
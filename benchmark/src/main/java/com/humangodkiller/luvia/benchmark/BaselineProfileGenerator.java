@@ -0,0 +1,33 @@
+package com.humangodkiller.luvia.benchmark;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import kotlin.Unit;
+
+/**
+ * Collects the baseline profile shipped in :app. Run with
+ * ./gradlew :app:generateBaselineProfile (emulators running); the plugin saves the result
+ * under app/src/&lt;variant&gt;/generated/baselineProfiles/ and merges it into release builds.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+
+    @Rule public BaselineProfileRule rule = new BaselineProfileRule();
+
+    @Test
+    public void startupAndPlans() {
+        EmulatorSeed.ensureSeeded();
+        rule.collect(Journeys.PACKAGE, scope -> {
+            Journeys.ensureSignedIn(scope);
+            Journeys.startToDashboard(scope);
+            Journeys.openPlans(scope);
+            Journeys.scrollPlans(scope);
+            return Unit.INSTANCE;
+        });
+    }
+}
@@ -0,0 +1,163 @@
+package com.humangodkiller.luvia.benchmark;
+
+import android.os.Bundle;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Seeds the Firebase Emulator Suite with the account the benchmark build of the app signs
+ * in as (see LuviaApplication): a registered patient profile in Firestore and 10,000
+ * reminders in the Realtime Database — 1,000 active courses and 9,000 that have expired.
+ * Uses the emulators' REST APIs with the "owner" admin token, so no rules or service
+ * account are involved.
+ *
+ * The emulator host defaults to 10.0.2.2 (the machine running an Android emulator); pass
+ * -Pandroid.testInstrumentationRunnerArguments.firebaseEmulatorHost=... for a real device.
+ */
+final class EmulatorSeed {
+
+    // Must match luvia.benchmarkEmail / luvia.benchmarkPassword in app/build.gradle.kts
+    static final String EMAIL    = "benchmark@luvia.test";
+    static final String PASSWORD = "benchmark-pass";
+
+    private static final String PROJECT_ID = "luvia-cva";
+    private static final String RTDB_NS    = "luvia-cva-default-rtdb";
+    private static final int    ACTIVE     = 1_000;   // a long plan list for the scroll benchmark
+    private static final int    EXPIRED    = 9_000;   // history the plans screen pages in lazily
+    private static final long   DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private static boolean seeded;
+
+    private EmulatorSeed() {}
+
+    static synchronized void ensureSeeded() {
+        if (seeded) return;
+        Bundle args = InstrumentationRegistry.getArguments();
+        String host = args.getString("firebaseEmulatorHost", "10.0.2.2");
+        try {
+            String uid = signUpOrSignIn(host);
+            writeProfile(host, uid);
+            writeReminders(host, uid);
+        } catch (IOException | JSONException e) {
+            throw new IllegalStateException("Could not seed the Firebase emulator at " + host
+                    + " — is `firebase emulators:start` running?", e);
+        }
+        seeded = true;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Auth emulator
+    // ═══════════════════════════════════════════════════════════════════════
+
+    private static String signUpOrSignIn(String host) throws IOException, JSONException {
+        JSONObject body = new JSONObject()
+                .put("email", EMAIL)
+                .put("password", PASSWORD)
+                .put("returnSecureToken", true);
+        String base = "http://" + host + ":9099/identitytoolkit.googleapis.com/v1/accounts:";
+        try {
+            return request("POST", base + "signUp?key=fake-api-key", body).getString("localId");
+        } catch (IOException e) {
+            if (!String.valueOf(e.getMessage()).contains("EMAIL_EXISTS")) throw e;
+            return request("POST", base + "signInWithPassword?key=fake-api-key", body).getString("localId");
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════════
+    // Firestore users/<uid> and RTDB pillReminders/<uid>
+    // ═══════════════════════════════════════════════════════════════════════
+
+    private static void writeProfile(String host, String uid) throws IOException, JSONException {
+        JSONObject fields = new JSONObject()
+                .put("uid",           string(uid))
+                .put("email",         string(EMAIL))
+                .put("name",          string("Benchmark Patient"))
+                .put("role",          string("patient"))
+                .put("registered",    new JSONObject().put("booleanValue", true))
+                .put("alarmLanguage", string("en"))
+                .put("age",           new JSONObject().put("integerValue", "64"))
+                .put("bloodGroup",    string("B+"))
+                .put("heightCm",      new JSONObject().put("doubleValue", 162.0))
+                .put("weightKg",      new JSONObject().put("doubleValue", 58.5))
+                .put("phone",         string("+910000000000"));
+        request("PATCH", "http://" + host + ":8080/v1/projects/" + PROJECT_ID
+                + "/databases/(default)/documents/users/" + uid, new JSONObject().put("fields", fields));
+    }
+
+    private static void writeReminders(String host, String uid) throws IOException, JSONException {
+        long now = System.currentTimeMillis();
+        JSONObject reminders = new JSONObject();
+        // Starts a year out so none of them fires an alarm in the middle of a measurement
+        long start = now + 365 * DAY_MILLIS;
+        for (int i = 0; i < ACTIVE; i++) {
+            reminders.put(String.format("bench-%04d", i), reminder(String.format("bench-%04d", i), i,
+                    start + (i % 24) * 60 * 60 * 1000L, start, start + 30 * DAY_MILLIS, now));
+        }
+        // Thirty-day courses that ended over the last ~2.5 years, a dozen per day
+        for (int i = 0; i < EXPIRED; i++) {
+            long end = now - (i / 12 + 1) * DAY_MILLIS;
+            reminders.put(String.format("past-%04d", i), reminder(String.format("past-%04d", i), i,
+                    end - DAY_MILLIS, end - 30 * DAY_MILLIS, end, now));
+        }
+        request("PUT", "http://" + host + ":9000/pillReminders/" + uid + ".json?ns=" + RTDB_NS, reminders);
+    }
+
+    private static JSONObject reminder(String id, int i, long scheduledTime, long startDate,
+                                       long endDate, long updatedAt) throws JSONException {
+        return new JSONObject()
+                .put("id",            id)
+                .put("pillName",      "Medicine " + (i + 1))
+                .put("dosage",        (i % 3 + 1) * 250 + " mg")
+                .put("scheduledTime", scheduledTime)
+                .put("startDate",     startDate)
+                .put("endDate",       endDate)
+                .put("enabled",       true)
+                .put("updatedAt",     updatedAt);
+    }
+
+    private static JSONObject string(String value) throws JSONException {
+        return new JSONObject().put("stringValue", value);
+    }
+
+    private static JSONObject request(String method, String url, JSONObject body)
+            throws IOException, JSONException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            conn.setRequestMethod(method);
+            conn.setRequestProperty("Content-Type", "application/json");
+            conn.setRequestProperty("Authorization", "Bearer owner");
+            conn.setDoOutput(true);
+            try (OutputStream out = conn.getOutputStream()) {
+                out.write(body.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            int code = conn.getResponseCode();
+            String text = readBody(code < 400 ? conn.getInputStream() : conn.getErrorStream());
+            if (code >= 400) throw new IOException(method + " " + url + " → HTTP " + code + ": " + text);
+            return text.isEmpty() ? new JSONObject() : new JSONObject(text);
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        if (in == null) return "";
+        try (InputStream is = in) {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            int n;
+            while ((n = is.read(chunk)) != -1) buf.write(chunk, 0, n);
+            return buf.toString("UTF-8");
+        }
+    }
+}
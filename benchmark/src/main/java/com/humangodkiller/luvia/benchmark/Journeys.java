@@ -0,0 +1,94 @@
+package com.humangodkiller.luvia.benchmark;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+/**
+ * The user journeys the benchmarks measure and the baseline profile is collected from:
+ * Splash → (Login on a first run) → PatientDashboard → PatientPlans, then a scroll of the
+ * reminder list.
+ */
+final class Journeys {
+
+    static final String PACKAGE = "com.humangodkiller.luvia";
+
+    private static final long TIMEOUT_MILLIS = 15_000;
+
+    private static boolean signedIn;
+
+    private Journeys() {}
+
+    /**
+     * Launches from the launcher and waits for the patient dashboard. The very first launch
+     * after install has no session yet (LuviaApplication signs in while Login is showing),
+     * so that one is retried once with a fresh process.
+     */
+    static void ensureSignedIn(MacrobenchmarkScope scope) {
+        scope.pressHome();
+        if (signedIn) return;
+        EmulatorSeed.ensureSeeded();
+        scope.startActivityAndWait();
+        if (!waitFor(scope.getDevice(), "tv_patient_name")) {
+            scope.killProcess();
+            startToDashboard(scope);
+        }
+        signedIn = true;
+        scope.pressHome();
+    }
+
+    static void startToDashboard(MacrobenchmarkScope scope) {
+        scope.startActivityAndWait();
+        require(scope.getDevice(), "tv_patient_name");
+    }
+
+    static void openPlans(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        device.findObject(By.res(PACKAGE, "nav_plans")).click();
+        require(device, "recycler_reminders");
+        device.waitForIdle();
+    }
+
+    static void scrollPlans(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        UiObject2 list = device.findObject(By.res(PACKAGE, "recycler_reminders"));
+        // Keep flings clear of the system gesture areas
+        list.setGestureMargin(device.getDisplayWidth() / 5);
+        // Deep enough into the 1,000 rows that every fling binds fresh, recycled holders
+        for (int i = 0; i < 5; i++) {
+            list.fling(Direction.DOWN);
+            device.waitForIdle();
+        }
+        for (int i = 0; i < 2; i++) {
+            list.fling(Direction.UP);
+            device.waitForIdle();
+        }
+    }
+
+    /**
+     * Flings from the top of the plan list down through the 1,000 active rows and well into
+     * the expired history below them, which is paged in as the bottom comes into view.
+     */
+    static void scrollIntoHistory(MacrobenchmarkScope scope, int flings) {
+        UiDevice device = scope.getDevice();
+        UiObject2 list = device.findObject(By.res(PACKAGE, "recycler_reminders"));
+        list.setGestureMargin(device.getDisplayWidth() / 5);
+        for (int i = 0; i < flings; i++) {
+            list.fling(Direction.DOWN, 20_000);
+            device.waitForIdle();
+        }
+    }
+
+    private static boolean waitFor(UiDevice device, String resId) {
+        return device.wait(Until.hasObject(By.res(PACKAGE, resId)), TIMEOUT_MILLIS);
+    }
+
+    private static void require(UiDevice device, String resId) {
+        if (!waitFor(device, resId)) {
+            throw new IllegalStateException("Timed out waiting for " + resId);
+        }
+    }
+}
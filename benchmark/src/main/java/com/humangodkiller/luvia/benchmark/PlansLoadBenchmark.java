@@ -0,0 +1,59 @@
+package com.humangodkiller.luvia.benchmark;
+
+import android.annotation.SuppressLint;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.MemoryUsageMetric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import kotlin.Unit;
+
+/**
+ * Opening PatientPlansActivity on the seeded 10,000-reminder account (9,000 expired): time
+ * until the active window is in (plans_active_window), time spent fetching history pages
+ * while scrolling into them (plans_history_page, summed), and the heap / anonymous RSS
+ * once the scroll is over — which should stay flat however much history there is.
+ *
+ * ./gradlew :benchmark:connectedBenchmarkReleaseAndroidTest \
+ *     -Pandroid.testInstrumentationRunnerArguments.class=com.humangodkiller.luvia.benchmark.PlansLoadBenchmark
+ */
+public class PlansLoadBenchmark {
+
+    private static final int ITERATIONS = 5;
+    private static final int FLINGS     = 30;
+
+    @Rule public MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    @Test
+    @SuppressLint("UnsafeOptInUsageError")   // MemoryUsageMetric is @ExperimentalMetricApi
+    public void openPlansAndPageHistory() {
+        rule.measureRepeated(
+                Journeys.PACKAGE,
+                Arrays.asList(
+                        new TraceSectionMetric("plans_active_window"),
+                        new TraceSectionMetric("plans_history_page", TraceSectionMetric.Mode.Sum),
+                        new MemoryUsageMetric(MemoryUsageMetric.Mode.Last, Arrays.asList(
+                                MemoryUsageMetric.SubMetric.HeapSize,
+                                MemoryUsageMetric.SubMetric.RssAnon))),
+                new CompilationMode.Partial(),
+                StartupMode.WARM,
+                ITERATIONS,
+                scope -> {
+                    Journeys.ensureSignedIn(scope);
+                    Journeys.startToDashboard(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    Journeys.openPlans(scope);
+                    Journeys.scrollIntoHistory(scope, FLINGS);
+                    return Unit.INSTANCE;
+                });
+    }
+}
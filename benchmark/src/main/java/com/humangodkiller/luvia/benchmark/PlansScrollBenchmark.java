@@ -0,0 +1,59 @@
+package com.humangodkiller.luvia.benchmark;
+
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import kotlin.Unit;
+
+/**
+ * Frame timing (jank) while scrolling the seeded 1,000-reminder list in PatientPlansActivity,
+ * with and without the baseline profile.
+ */
+@RunWith(Parameterized.class)
+public class PlansScrollBenchmark {
+
+    private static final int ITERATIONS = 10;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static List<String> parameters() {
+        return Arrays.asList("none", "baselineProfile");
+    }
+
+    @Rule public MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    private final String compilation;
+
+    public PlansScrollBenchmark(String compilation) {
+        this.compilation = compilation;
+    }
+
+    @Test
+    public void scrollReminders() {
+        rule.measureRepeated(
+                Journeys.PACKAGE,
+                Collections.singletonList(new FrameTimingMetric()),
+                StartupBenchmark.compilationMode(compilation),
+                StartupMode.WARM,
+                ITERATIONS,
+                scope -> {
+                    Journeys.ensureSignedIn(scope);
+                    Journeys.startToDashboard(scope);
+                    Journeys.openPlans(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    Journeys.scrollPlans(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+}
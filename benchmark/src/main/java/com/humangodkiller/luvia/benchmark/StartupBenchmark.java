@@ -0,0 +1,75 @@
+package com.humangodkiller.luvia.benchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.List;
+
+import kotlin.Unit;
+
+/**
+ * Time from the launcher icon to the patient dashboard, cold and warm, with and without the
+ * baseline profile. timeToFullDisplay is the dashboard's reportFullyDrawn, and app_startup
+ * is StartupTrace's splash → dashboard slice, so the numbers match the on-device log.
+ *
+ * ./gradlew :benchmark:connectedBenchmarkReleaseAndroidTest
+ */
+@RunWith(Parameterized.class)
+public class StartupBenchmark {
+
+    private static final int ITERATIONS = 10;
+
+    @Parameterized.Parameters(name = "{0}/{1}")
+    public static List<Object[]> parameters() {
+        return Arrays.asList(new Object[][] {
+                { "none",            StartupMode.COLD },
+                { "baselineProfile", StartupMode.COLD },
+                { "none",            StartupMode.WARM },
+                { "baselineProfile", StartupMode.WARM },
+        });
+    }
+
+    @Rule public MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    private final String      compilation;
+    private final StartupMode startupMode;
+
+    public StartupBenchmark(String compilation, StartupMode startupMode) {
+        this.compilation = compilation;
+        this.startupMode = startupMode;
+    }
+
+    static CompilationMode compilationMode(String name) {
+        return "none".equals(name)
+                ? new CompilationMode.None()
+                : new CompilationMode.Partial(BaselineProfileMode.Require);
+    }
+
+    @Test
+    public void startupToDashboard() {
+        rule.measureRepeated(
+                Journeys.PACKAGE,
+                Arrays.asList(new StartupTimingMetric(), new TraceSectionMetric("app_startup")),
+                compilationMode(compilation),
+                startupMode,
+                ITERATIONS,
+                scope -> {
+                    Journeys.ensureSignedIn(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    Journeys.startToDashboard(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+}
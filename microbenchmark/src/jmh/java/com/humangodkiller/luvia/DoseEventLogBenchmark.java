@@ -0,0 +1,135 @@
+package com.humangodkiller.luvia;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DoseEventLog} throughput on a patient with {@code years} of history: five
+ * medicines, four doses a day, three events per dose. Appends go to a live file (one
+ * flush each, as on the alarm path); queries run against the pre-built history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DoseEventLogBenchmark {
+
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long DAY  = 24 * HOUR;
+    private static final String[] REMINDERS = {
+            "-Nr0000000000000000a", "-Nr0000000000000000b", "-Nr0000000000000000c",
+            "-Nr0000000000000000d", "-Nr0000000000000000e" };
+
+    @Param({"1", "3"})
+    public int years;
+
+    private File dir;
+    private File history;
+    private DoseEventLog log;
+    private long start;
+    private long end;
+
+    private DoseEventLog appendLog;
+    private long nextDose;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir     = Files.createTempDirectory("dose-events").toFile();
+        history = new File(dir, "history.bin");
+        start   = Fixtures.now() - years * 365 * DAY;
+        end     = Fixtures.now();
+
+        DoseEventLog writer = DoseEventLog.open(history);
+        for (long day = start; day < end; day += DAY) {
+            for (int slot = 0; slot < 4; slot++) {
+                long dose = day + (8 + 4 * slot) * HOUR;
+                for (String r : REMINDERS) {
+                    writer.append(r, DoseEventLog.Type.SCHEDULED, dose, dose - 4 * HOUR);
+                    writer.append(r, DoseEventLog.Type.FIRED, dose, dose);
+                    writer.append(r, DoseEventLog.Type.ACKNOWLEDGED, dose, dose + 120_000);
+                }
+            }
+        }
+        writer.close();
+        log = DoseEventLog.open(history);
+    }
+
+    @Setup(Level.Iteration)
+    public void freshAppendLog() throws IOException {
+        if (appendLog != null) appendLog.close();
+        File file = new File(dir, "append.bin");
+        Files.deleteIfExists(file.toPath());
+        appendLog = DoseEventLog.open(file);
+        nextDose  = end;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        log.close();
+        appendLog.close();
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        dir.delete();
+    }
+
+    /** One FIRED event, durably appended — what each alarm wake-up pays per dose. */
+    @Benchmark
+    public void append() throws IOException {
+        nextDose += 6 * HOUR;
+        appendLog.append(REMINDERS[(int) (nextDose / HOUR) % REMINDERS.length],
+                DoseEventLog.Type.FIRED, nextDose, nextDose);
+    }
+
+    /** A Snooze tap on a notification: one SNOOZED event, as DoseActionReceiver appends it. */
+    @Benchmark
+    public List<DoseActions.Dose> snoozeTap() throws IOException {
+        nextDose += 6 * HOUR;
+        return DoseActions.snooze(appendLog, Collections.singletonList(new DoseActions.Dose(
+                REMINDERS[(int) (nextDose / HOUR) % REMINDERS.length], "Aspirin", "75 mg", nextDose)), nextDose);
+    }
+
+    /** A month of one medicine — the adherence view for a single plan. */
+    @Benchmark
+    public List<DoseEventLog.Event> queryReminderMonth() {
+        long from = start + (end - start) / 2;
+        return log.query(REMINDERS[2], from, from + 30 * DAY);
+    }
+
+    /** Every medicine for one day — the daily summary. */
+    @Benchmark
+    public List<DoseEventLog.Event> queryDay() {
+        long from = end - 7 * DAY;
+        return log.query(from, from + DAY);
+    }
+
+    /** The missed-dose sweep each wake-up runs over the last two days. */
+    @Benchmark
+    public List<DoseEventLog.Event> unresolvedSweep() {
+        return log.unresolved(end - 2 * DAY, end - HOUR);
+    }
+
+    /** Cold open: replay the whole file into the indexes. */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int open() throws IOException {
+        DoseEventLog reopened = DoseEventLog.open(history);
+        int size = reopened.size();
+        reopened.close();
+        return size;
+    }
+}
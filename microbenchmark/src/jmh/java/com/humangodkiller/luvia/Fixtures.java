@@ -0,0 +1,45 @@
+package com.humangodkiller.luvia;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+/** Deterministic reminder sets shared by the benchmarks. */
+final class Fixtures {
+
+    static final TimeZone TZ  = TimeZone.getTimeZone("Asia/Kolkata");
+    static final long     DAY = 24L * 60 * 60 * 1000;
+
+    private static final String[] PILLS   = {"Aspirin", "Metformin", "Atorvastatin", "Amlodipine",
+                                             "Levothyroxine", "Omeprazole", "Vitamin D3", "Losartan"};
+    private static final String[] DOSAGES = {"75 mg", "500 mg", "10 mg", "5 mg", "50 mcg", "20 mg"};
+
+    private Fixtures() {}
+
+    /** 2026-05-17 09:00 local — the "now" every benchmark measures from. */
+    static long now() {
+        Calendar cal = Calendar.getInstance(TZ);
+        cal.clear();
+        cal.set(2026, Calendar.MAY, 17, 9, 0);
+        return cal.getTimeInMillis();
+    }
+
+    /** {@code count} courses of 7–90 days with doses spread over the day, some paused. */
+    static List<PillReminder> reminders(int count, long now) {
+        Random random = new Random(42);
+        List<PillReminder> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long start = now - random.nextInt(30) * DAY;
+            long end   = start + (7 + random.nextInt(84)) * DAY;
+            long time  = start + random.nextInt(24 * 12) * 5 * 60 * 1000L;
+            PillReminder r = new PillReminder(PILLS[i % PILLS.length], DOSAGES[i % DOSAGES.length],
+                    time, start, end, random.nextInt(10) != 0);
+            r.setId(String.format("-Nq%07d", i));
+            r.setUpdatedAt(start);
+            list.add(r);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,68 @@
+package com.humangodkiller.luvia;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold open of {@link LocalReminderStore} — what the plans screen pays before its first
+ * frame with data, which has to leave room for that frame within 100 ms — and the re-arm
+ * after a reboot, which has to fit well inside a goAsync() receiver's ~10 s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LocalReminderStoreBenchmark {
+
+    @Param({"500", "5000"})
+    public int reminders;
+
+    private File dir;
+    private File file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir  = Files.createTempDirectory("reminder-store").toFile();
+        file = new File(dir, "reminders_uid.bin");
+        LocalReminderStore store = LocalReminderStore.open(file);
+        for (PillReminder r : Fixtures.reminders(reminders, Fixtures.now())) store.applyRemote(r);
+        store.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) f.delete();
+        dir.delete();
+    }
+
+    /** Replay the file and hand the list over, as the plans screen does. */
+    @Benchmark
+    public List<PillReminder> coldOpen() throws IOException {
+        LocalReminderStore store = LocalReminderStore.open(file);
+        List<PillReminder> all = store.getAll();
+        store.close();
+        return all;
+    }
+
+    /** What AlarmRearmReceiver does after a reboot: snapshot the store, rebuild, peek. */
+    @Benchmark
+    public DoseTimeline.Event rearmFromStore() throws IOException {
+        DoseTimeline timeline = new DoseTimeline(5 * 60 * 1000L, Fixtures.TZ);
+        timeline.rebuild(LocalReminderStore.readSnapshot(file), Fixtures.now());
+        return timeline.peek();
+    }
+}
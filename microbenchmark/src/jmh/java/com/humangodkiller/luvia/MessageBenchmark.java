@@ -0,0 +1,83 @@
+package com.humangodkiller.luvia;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What every alarm does to its text: build the prompt / cache key / offline fallback for the
+ * wake-up's batch ({@link ReminderMessages}), and the Gemini request body and response
+ * parsing ({@link GeminiClient}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MessageBenchmark {
+
+    @Param({"en", "ml", "hi"})
+    public String lang;
+
+    /** Reminders sharing one wake-up. */
+    @Param({"1", "4"})
+    public int batchSize;
+
+    private List<List<ReminderMessages.Item>> batches;
+    private String prompt;
+    private String response;
+
+    @Setup
+    public void setUp() {
+        long now = Fixtures.now();
+        List<PillReminder> reminders = Fixtures.reminders(1000, now);
+        batches = new ArrayList<>();
+        for (int i = 0; i + batchSize <= reminders.size(); i += batchSize) {
+            List<ReminderMessages.Item> items = new ArrayList<>(batchSize);
+            for (int j = 0; j < batchSize; j++) {
+                PillReminder r = reminders.get(i + j);
+                boolean early = (i + j) % 3 == 0;
+                items.add(new ReminderMessages.Item(r.getPillName(), r.getDosage(), early, early ? 10 : 0));
+            }
+            batches.add(items);
+        }
+        prompt   = ReminderMessages.prompt(batches.get(0), lang);
+        response = "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\""
+                + "Good evening! It is time to take your Aspirin, 75 mg. Please take it with water now.\"}],"
+                + "\"role\":\"model\"},\"finishReason\":\"STOP\",\"index\":0}],"
+                + "\"usageMetadata\":{\"promptTokenCount\":96,\"candidatesTokenCount\":24,\"totalTokenCount\":120}}";
+    }
+
+    @Benchmark
+    public void prompt(Blackhole bh) {
+        for (List<ReminderMessages.Item> items : batches) bh.consume(ReminderMessages.prompt(items, lang));
+    }
+
+    @Benchmark
+    public void fallback(Blackhole bh) {
+        for (List<ReminderMessages.Item> items : batches) bh.consume(ReminderMessages.fallback(items, lang));
+    }
+
+    @Benchmark
+    public void cacheKey(Blackhole bh) {
+        for (List<ReminderMessages.Item> items : batches) bh.consume(ReminderMessages.cacheKey(items, lang));
+    }
+
+    @Benchmark
+    public String requestBody() {
+        return GeminiClient.requestBody(prompt);
+    }
+
+    @Benchmark
+    public String parseResponse() {
+        return GeminiClient.parseText(response);
+    }
+}
@@ -0,0 +1,68 @@
+package com.humangodkiller.luvia;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Occurrence computation across a patient's reminders: what re-arming after every alarm,
+ * reboot or edit costs ({@link DoseScheduler}, {@link DoseTimeline} incl. the smart early
+ * reminder).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OccurrenceBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int reminders;
+
+    private List<PillReminder> list;
+    private long now;
+
+    @Setup
+    public void setUp() {
+        now  = Fixtures.now();
+        list = Fixtures.reminders(reminders, now);
+    }
+
+    @Benchmark
+    public void nextOccurrence(Blackhole bh) {
+        for (PillReminder r : list) bh.consume(DoseScheduler.nextOccurrence(r, now, Fixtures.TZ));
+    }
+
+    @Benchmark
+    public DoseTimeline.Batch rebuildAndPollNextBatch() {
+        DoseTimeline timeline = new DoseTimeline(5 * 60 * 1000L, Fixtures.TZ);
+        timeline.rebuild(list, now);
+        return timeline.pollBatch();
+    }
+
+    /** A whole day of wake-ups: poll every batch the rebuilt timeline holds. */
+    @Benchmark
+    public int drainTimeline() {
+        DoseTimeline timeline = new DoseTimeline(5 * 60 * 1000L, Fixtures.TZ);
+        timeline.rebuild(list, now);
+        int batches = 0;
+        while (timeline.pollBatch() != null) batches++;
+        return batches;
+    }
+
+    @Benchmark
+    public long firstDoseTime() {
+        long sum = 0;
+        for (PillReminder r : list) {
+            sum += DoseScheduler.firstDoseTime(r.getStartDate(), 20, 45, now, Fixtures.TZ);
+        }
+        return sum;
+    }
+}
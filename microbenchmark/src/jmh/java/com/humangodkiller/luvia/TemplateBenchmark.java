@@ -0,0 +1,93 @@
+package com.humangodkiller.luvia;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The offline fallback rendered from its compiled {@link MessageTemplate} against the
+ * hand-concatenated {@code switch} it replaced, plus what loading a language costs once.
+ * Run with the gc profiler (the default here) for bytes allocated per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TemplateBenchmark {
+
+    @Param({"en", "ml", "hi"})
+    public String lang;
+
+    private static final String[] PILLS   = {"Aspirin", "Metformin", "Atorvastatin", "Vitamin D3"};
+    private static final String[] DOSAGES = {"75 mg", "500 mg", "10 mg", "1000 IU"};
+    private static final int[]    MINUTES = {1, 5, 10, 15};
+
+    private MessageTemplate early;
+    private MessageTemplate now;
+
+    @Setup
+    public void setUp() {
+        MessageCatalog catalog = ReminderMessages.catalog(lang);
+        early = catalog.template("fallback.early");
+        now   = catalog.template("fallback.now");
+    }
+
+    @Benchmark
+    public void concatenated(Blackhole bh) {
+        for (int i = 0; i < PILLS.length; i++) {
+            bh.consume(legacyFallback(PILLS[i], DOSAGES[i], true, MINUTES[i], lang));
+            bh.consume(legacyFallback(PILLS[i], DOSAGES[i], false, 0, lang));
+        }
+    }
+
+    @Benchmark
+    public void template(Blackhole bh) {
+        for (int i = 0; i < PILLS.length; i++) {
+            bh.consume(early.render(PILLS[i], DOSAGES[i], MINUTES[i]));
+            bh.consume(now.render(PILLS[i], DOSAGES[i], 0));
+        }
+    }
+
+    /** Through ReminderMessages, as the alarm path calls it: catalog lookup included. */
+    @Benchmark
+    public void templateViaCatalog(Blackhole bh) {
+        for (int i = 0; i < PILLS.length; i++) {
+            bh.consume(ReminderMessages.fallback(PILLS[i], DOSAGES[i], true, MINUTES[i], lang));
+            bh.consume(ReminderMessages.fallback(PILLS[i], DOSAGES[i], false, 0, lang));
+        }
+    }
+
+    /** Reading and compiling a language's file — paid once per process. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public MessageCatalog loadCatalog() {
+        return MessageCatalog.load(lang, ReminderMessages.ARGS);
+    }
+
+    // The code the templates replaced, verbatim
+    private static String legacyFallback(String pillName, String dosage,
+                                         boolean isEarly, int minutesRemaining, String lang) {
+        switch (lang) {
+            case "ml":
+                return isEarly
+                        ? "ശ്രദ്ധിക്കൂ! " + minutesRemaining + " മിനിറ്റിനുള്ളിൽ " + pillName + " (" + dosage + ") കഴിക്കണം. ദയവായി ഇപ്പോൾ തയ്യാറാകൂ."
+                        : "ഇപ്പോൾ " + pillName + " (" + dosage + ") കഴിക്കേണ്ട സമയമായി. നിങ്ങളുടെ ആരോഗ്യം പ്രധാനമാണ്.";
+            case "hi":
+                return isEarly
+                        ? "ध्यान दें! " + minutesRemaining + " मिनट में " + pillName + " (" + dosage + ") लेने का समय है। कृपया अभी तैयारी करें।"
+                        : "अब " + pillName + " (" + dosage + ") लेने का समय हो गया है। अपनी दवाई समय पर लें।";
+            default:
+                return isEarly
+                        ? "Hello! " + pillName + " (" + dosage + ") is due in " + minutesRemaining
+                        + " minute" + (minutesRemaining == 1 ? "" : "s") + ". Please prepare now."
+                        : "Time to take " + pillName + " (" + dosage + "). Your health matters!";
+        }
+    }
+}
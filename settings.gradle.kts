@@ -21,4 +21,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "Luvia"
 include(":app")
+include(":benchmark")
+include(":microbenchmark")
  
\ No newline at end of file